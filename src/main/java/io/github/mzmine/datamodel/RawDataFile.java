@@ -107,6 +107,16 @@ public interface RawDataFile {
 
   public double getDataMaxTotalIonCurrent(int msLevel);
 
+  /**
+   * Returns the retention times, TICs and base peaks of all scans of the given MS level as
+   * primitive arrays. The summary is cached, creating it does not read any data points.
+   *
+   * @param msLevel MS level
+   * @return summary of the scans, sorted by scan number
+   */
+  @Nonnull
+  public ScanSummary getScanSummary(int msLevel);
+
   /**
    * Returns a list of the different scan polarity types found in the raw data file.
    * 
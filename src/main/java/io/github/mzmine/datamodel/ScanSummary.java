@@ -0,0 +1,121 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.datamodel;
+
+import java.util.Arrays;
+import javax.annotation.Nonnull;
+import com.google.common.collect.Range;
+
+/**
+ * Per-scan summary values (retention time, TIC, base peak and m/z range of the data points) of all
+ * scans of one MS level, stored in primitive arrays sorted by scan number. Chromatograms (TIC, base
+ * peak) of the full m/z range can be created from these arrays without reading any data points.
+ *
+ * The arrays must not be modified.
+ */
+public final class ScanSummary {
+
+  private final @Nonnull int scanNumbers[];
+  private final @Nonnull double retentionTimes[], totalIonCurrents[], basePeakMZs[],
+      basePeakIntensities[], lowestMZs[], highestMZs[];
+
+  /**
+   * @param scans scans sorted by scan number
+   */
+  public ScanSummary(@Nonnull Scan scans[]) {
+    final int n = scans.length;
+    scanNumbers = new int[n];
+    retentionTimes = new double[n];
+    totalIonCurrents = new double[n];
+    basePeakMZs = new double[n];
+    basePeakIntensities = new double[n];
+    lowestMZs = new double[n];
+    highestMZs = new double[n];
+    for (int i = 0; i < n; i++) {
+      final Scan scan = scans[i];
+      scanNumbers[i] = scan.getScanNumber();
+      retentionTimes[i] = scan.getRetentionTime();
+      totalIonCurrents[i] = scan.getTIC();
+      final DataPoint basePeak = scan.getHighestDataPoint();
+      if (basePeak != null) {
+        basePeakMZs[i] = basePeak.getMZ();
+        basePeakIntensities[i] = basePeak.getIntensity();
+      }
+      final Range<Double> mzRange = scan.getDataPointMZRange();
+      lowestMZs[i] = mzRange.lowerEndpoint();
+      highestMZs[i] = mzRange.upperEndpoint();
+    }
+  }
+
+  public int getNumberOfScans() {
+    return scanNumbers.length;
+  }
+
+  /**
+   * @return the index of the scan number, or a negative value if the scan is not part of the
+   *         summary
+   */
+  public int indexOf(int scanNumber) {
+    return Arrays.binarySearch(scanNumbers, scanNumber);
+  }
+
+  /**
+   * @return true if all data points of the scan at the index are within the m/z range, so the
+   *         summary values also apply to the m/z range
+   */
+  public boolean isEnclosedBy(int index, @Nonnull Range<Double> mzRange) {
+    return mzRange.contains(lowestMZs[index]) && mzRange.contains(highestMZs[index]);
+  }
+
+  /**
+   * @return true if no data point of the scan at the index is within the m/z range, so the TIC and
+   *         base peak of the m/z range are 0
+   */
+  public boolean isDisjointFrom(int index, @Nonnull Range<Double> mzRange) {
+    return highestMZs[index] < mzRange.lowerEndpoint()
+        || lowestMZs[index] > mzRange.upperEndpoint();
+  }
+
+  public @Nonnull int[] getScanNumbers() {
+    return scanNumbers;
+  }
+
+  public @Nonnull double[] getRetentionTimes() {
+    return retentionTimes;
+  }
+
+  public @Nonnull double[] getTotalIonCurrents() {
+    return totalIonCurrents;
+  }
+
+  /**
+   * @return m/z of the base peaks, 0 for scans without data points
+   */
+  public @Nonnull double[] getBasePeakMZs() {
+    return basePeakMZs;
+  }
+
+  /**
+   * @return intensity of the base peaks, 0 for scans without data points
+   */
+  public @Nonnull double[] getBasePeakIntensities() {
+    return basePeakIntensities;
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.datamodel.data;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import io.github.mzmine.datamodel.data.types.DataType;
+import javafx.beans.Observable;
+import javafx.beans.binding.ObjectBinding;
+import javafx.beans.property.Property;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Binding of a row value to the values of one type in all features of the row. Feature properties
+ * are created lazily, so only the properties that already exist are observed (empty features of an
+ * aligned list have none). Properties that are created later are added by the row, see
+ * {@link ModularFeatureListRow#featurePropertyCreated(DataType, Property)}.
+ *
+ * @param <T> value type of the binding
+ */
+public class FeaturesBinding<T> extends ObjectBinding<T> {
+
+  private static final Logger logger = Logger.getLogger(FeaturesBinding.class.getName());
+
+  private final Callable<T> func;
+  private final List<Property<?>> properties;
+
+  /**
+   * @param func computes the value from the properties
+   * @param properties the observed properties, usually from
+   *        {@link #getExistingProperties(ModularFeatureListRow, DataType)}. New properties are
+   *        added to this list, so func should iterate over it.
+   */
+  @SuppressWarnings("unchecked")
+  public FeaturesBinding(Callable<T> func, List<? extends Property<?>> properties) {
+    this.func = func;
+    this.properties = (List<Property<?>>) properties;
+    bind(properties.toArray(new Observable[0]));
+  }
+
+  /**
+   * @return a modifiable, thread safe list of the properties of this type that exist in the
+   *         features of the row
+   */
+  @SuppressWarnings("unchecked")
+  public static <P extends Property<?>> List<P> getExistingProperties(ModularFeatureListRow row,
+      DataType<P> type) {
+    return row.streamFeatures().map(f -> f.getIfPresent(type)).filter(Objects::nonNull)
+        .collect(Collectors.toCollection(CopyOnWriteArrayList::new));
+  }
+
+  /**
+   * Observe a property that was created after this binding
+   */
+  void addProperty(Property<?> property) {
+    if (properties.contains(property))
+      return;
+    properties.add(property);
+    bind(property);
+    invalidate();
+  }
+
+  @Override
+  protected T computeValue() {
+    try {
+      return func.call();
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Exception while evaluating binding", e);
+      return null;
+    }
+  }
+
+  @Override
+  public ObservableList<?> getDependencies() {
+    return FXCollections.unmodifiableObservableList(FXCollections.observableArrayList(properties));
+  }
+
+  @Override
+  public void dispose() {
+    unbind(properties.toArray(new Observable[0]));
+  }
+
+}
@@ -103,7 +103,9 @@ public interface ModularDataModel {
    * @return
    */
   default Object getValue(DataType type) {
-    return getMap().get(type).getValue();
+    // do not create a property just to read an unset value
+    Property<?> property = getMap().get(type);
+    return property == null ? null : property.getValue();
   }
 
   /**
@@ -115,18 +117,33 @@ public interface ModularDataModel {
    */
   default Object getValue(Class tclass) {
     DataType type = getTypeColumn(tclass);
-    return get(type).getValue();
+    return type == null ? null : getValue(type);
   }
 
   /**
-   * Property for this datatype
+   * Property for this datatype. Properties are only created on first access, so that data models
+   * with many type columns but few set values (e.g., missing features of an aligned feature list)
+   * stay small.
    * 
    * @param <T>
    * @param type
-   * @return
+   * @return the property or null if the type column is not defined
    */
   default <T extends Property<?>> T get(DataType<T> type) {
-    return (T) getMap().get(type);
+    Property<?> property = getMap().get(type);
+    if (property == null && type != null) {
+      DataType realType = getTypes().get(type.getClass());
+      if (realType == null)
+        return null;
+      synchronized (getMap()) {
+        property = getMap().get(realType);
+        if (property == null) {
+          property = realType.createProperty();
+          getMap().put(realType, property);
+        }
+      }
+    }
+    return (T) property;
   }
 
   /**
@@ -165,8 +182,8 @@ public interface ModularDataModel {
   }
 
   /**
-   * setProperty should only be called after adding a new DataType column (e.g., by the
-   * FeatureList). To set the value of wrapping Property<?> call
+   * setProperty is usually not needed, because properties are created on first access by
+   * {@link #get(DataType)}. To set the value of wrapping Property<?> call
    * {@link ModularDataModel#set(Class, Object)}
    * 
    * @param <T>
@@ -232,7 +249,7 @@ public interface ModularDataModel {
   }
 
   /**
-   * Stream all map.entries
+   * Stream all map.entries. Only contains the properties that were accessed or set.
    * 
    * @return
    */
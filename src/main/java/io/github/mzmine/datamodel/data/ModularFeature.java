@@ -21,9 +21,8 @@ package io.github.mzmine.datamodel.data;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.Feature;
@@ -42,6 +41,7 @@ import io.github.mzmine.datamodel.data.types.numbers.RTRangeType;
 import io.github.mzmine.datamodel.data.types.numbers.RTType;
 import io.github.mzmine.datamodel.data.types.numbers.ScanNumbersType;
 import io.github.mzmine.util.DataTypeUtils;
+import io.github.mzmine.util.IntArrayList;
 import javafx.beans.property.ListProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.Property;
@@ -57,16 +57,20 @@ import javafx.collections.ObservableMap;
 public class ModularFeature implements ModularDataModel {
 
   private final @Nonnull ModularFeatureList flist;
-  private final ObservableMap<DataType, Property<?>> map =
-      FXCollections.observableMap(new HashMap<>());
+  /**
+   * Created on first access. Aligned feature lists contain one feature per row and raw data file,
+   * even if no feature was detected, so empty features should be as small as possible.
+   */
+  private volatile ObservableMap<DataType, Property<?>> map;
+
+  /**
+   * The row that holds this feature, is notified about lazily created properties
+   */
+  private volatile ModularFeatureListRow row;
 
   public ModularFeature(@Nonnull ModularFeatureList flist) {
+    // type properties are created lazily on first access
     this.flist = flist;
-
-    // add type property columns to maps
-    flist.getFeatureTypes().values().forEach(type -> {
-      this.setProperty(type, type.createProperty());
-    });
   }
 
   /**
@@ -83,7 +87,8 @@ public class ModularFeature implements ModularDataModel {
 
     // add values to feature
     int[] scans = p.getScanNumbers();
-    set(ScanNumbersType.class, IntStream.of(scans).boxed().collect(Collectors.toList()));
+    // keep scan numbers as primitives
+    set(ScanNumbersType.class, new IntArrayList(scans));
     set(RawFileType.class, (p.getDataFile()));
     set(DetectionType.class, (p.getFeatureStatus()));
     set(MZType.class, (p.getMZ()));
@@ -93,7 +98,7 @@ public class ModularFeature implements ModularDataModel {
     set(BestScanNumberType.class, (p.getRepresentativeScanNumber()));
 
     // datapoints of feature
-    List<DataPoint> dps = new ArrayList<>();
+    List<DataPoint> dps = new ArrayList<>(scans.length);
     for (int i = 0; i < scans.length; i++) {
       dps.add(p.getDataPoint(scans[i]));
     }
@@ -121,9 +126,42 @@ public class ModularFeature implements ModularDataModel {
 
   @Override
   public ObservableMap<DataType, Property<?>> getMap() {
+    if (map == null) {
+      synchronized (this) {
+        if (map == null)
+          map = FXCollections.observableMap(new HashMap<>());
+      }
+    }
     return map;
   }
 
+  /**
+   * @return the property or null if it was not created yet. Does not create the property.
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T extends Property<?>> T getIfPresent(DataType<T> type) {
+    final ObservableMap<DataType, Property<?>> m = map;
+    return m == null || type == null ? null : (T) m.get(type);
+  }
+
+  @Override
+  public <T extends Property<?>> T get(DataType<T> type) {
+    T property = getIfPresent(type);
+    if (property != null)
+      return property;
+    property = ModularDataModel.super.get(type);
+    // the row bindings only observe existing properties
+    final ModularFeatureListRow r = row;
+    if (property != null && r != null)
+      r.featurePropertyCreated(type, property);
+    return property;
+  }
+
+  void setRow(ModularFeatureListRow row) {
+    this.row = row;
+  }
+
   public DataPoint getDataPoint(int scan) {
     int index = getScanNumbers().indexOf(scan);
     if (index < 0)
@@ -119,11 +119,8 @@ public class ModularFeatureList implements PeakList {
   public void addFeatureType(@Nonnull List<DataType<?>> types) {
     for (DataType<?> type : types) {
       if (!getFeatureTypes().containsKey(type.getClass())) {
+        // properties are created lazily in the features
         getFeatureTypes().put(type.getClass(), type);
-        // add to maps
-        streamFeatures().forEach(f -> {
-          f.setProperty(type, type.createProperty());
-        });
       }
     }
   }
@@ -135,11 +132,8 @@ public class ModularFeatureList implements PeakList {
   public void addRowType(@Nonnull List<DataType<?>> types) {
     for (DataType<?> type : types) {
       if (!getRowTypes().containsKey(type.getClass())) {
+        // properties are created lazily in the rows
         getRowTypes().put(type.getClass(), type);
-        // add type columns to maps
-        stream().forEach(row -> {
-          row.setProperty(type, type.createProperty());
-        });
       }
     }
   }
@@ -40,7 +40,6 @@ import javafx.beans.property.MapProperty;
 import javafx.beans.property.Property;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableMap;
-import javafx.scene.Node;
 
 /**
  * Map of all feature related data.
@@ -65,22 +64,24 @@ public class ModularFeatureListRow implements ModularDataModel {
    */
   private final Map<RawDataFile, ModularFeature> features;
 
-  // buffert col charts and nodes
-  private Map<String, Node> buffertColCharts = new HashMap<>();
+  /**
+   * Row bindings to feature values, see {@link FeaturesBinding}. Created on first use, guarded by
+   * this.
+   */
+  private Map<RowBinding, FeaturesBinding<?>> featuresBindings;
 
   public ModularFeatureListRow(@Nonnull ModularFeatureList flist) {
     this.flist = flist;
-    // add type property columns to maps
-    flist.getRowTypes().values().forEach(type -> {
-      this.setProperty(type, type.createProperty());
-    });
+    // type properties are created lazily on first access
 
     List<RawDataFile> raws = flist.getRawDataFiles();
     if (!raws.isEmpty()) {
       // init FeaturesType map (is final)
       HashMap<RawDataFile, ModularFeature> fmap = new HashMap<>(raws.size());
       for (RawDataFile r : raws) {
-        fmap.put(r, new ModularFeature(flist));
+        ModularFeature f = new ModularFeature(flist);
+        f.setRow(this);
+        fmap.put(r, f);
       }
       features = FXCollections.unmodifiableObservableMap(FXCollections.observableMap(fmap));
       // set
@@ -161,10 +162,37 @@ public class ModularFeatureListRow implements ModularDataModel {
     // keep old feature
     ModularFeature old = getFeatures().get(raw);
     for (DataType type : flist.getFeatureTypes().values()) {
-      old.set(type, f.get(type).getValue());
+      Object value = f.getValue(type);
+      // only create properties for values that are set in one of the features
+      if (value != null || old.getMap().containsKey(type))
+        old.set(type, value);
     }
   }
 
+  /**
+   * Registers the binding of a row binding, so that feature properties that are created later are
+   * observed. Replaces the binding of a previous call for the same row binding.
+   */
+  synchronized void setFeaturesBinding(RowBinding rowBinding, FeaturesBinding<?> binding) {
+    if (featuresBindings == null)
+      featuresBindings = new HashMap<>(4);
+    FeaturesBinding<?> old = featuresBindings.put(rowBinding, binding);
+    if (old != null && old != binding)
+      old.dispose();
+  }
+
+  /**
+   * Called by the features of this row when a property was created lazily
+   */
+  synchronized void featurePropertyCreated(DataType<?> type, Property<?> property) {
+    if (featuresBindings == null)
+      return;
+    featuresBindings.forEach((rowBinding, binding) -> {
+      if (type.equals(rowBinding.getFeatureType()))
+        binding.addProperty(property);
+    });
+  }
+
   /**
    * Row ID or -1 if not present
    *
@@ -183,14 +211,6 @@ public class ModularFeatureListRow implements ModularDataModel {
     return getFeatures().values().contains(feature);
   }
 
-  public Node getBufferedColChart(String colname) {
-    return buffertColCharts.get(colname);
-  }
-
-  public void addBufferedColChart(String colname, Node node) {
-    buffertColCharts.put(colname, node);
-  }
-
   /**
    * nonnull if this feature list contains this raw data file. Even if there is no feature in this
    * raw data file
@@ -40,7 +40,17 @@ public class RowBinding {
   }
 
   public void apply(ModularFeatureListRow row) {
-    ObjectBinding<?> binding = featureType.createBinding(bindingType, row);
-    row.get(rowType).bind(binding);
+    // no feature property may be created between collecting the existing properties and
+    // registering the binding, see ModularFeatureListRow#featurePropertyCreated
+    synchronized (row) {
+      ObjectBinding<?> binding = featureType.createBinding(bindingType, row);
+      if (binding instanceof FeaturesBinding)
+        row.setFeaturesBinding(this, (FeaturesBinding<?>) binding);
+      row.get(rowType).bind(binding);
+    }
+  }
+
+  public DataType getFeatureType() {
+    return (DataType) featureType;
   }
 }
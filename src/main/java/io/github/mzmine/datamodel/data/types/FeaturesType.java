@@ -26,6 +26,7 @@ import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.data.ModularFeature;
 import io.github.mzmine.datamodel.data.ModularFeatureListRow;
+import io.github.mzmine.datamodel.data.types.fx.ChartNodeCache;
 import io.github.mzmine.datamodel.data.types.fx.DataTypeCellFactory;
 import io.github.mzmine.datamodel.data.types.fx.DataTypeCellValueFactory;
 import io.github.mzmine.datamodel.data.types.graphicalnodes.AreaBarChart;
@@ -55,6 +56,11 @@ import javafx.scene.layout.StackPane;
 public class FeaturesType extends DataType<MapProperty<RawDataFile, ModularFeature>>
     implements SubColumnsFactory<MapProperty<RawDataFile, ModularFeature>> {
 
+  /**
+   * Key of the pending chart task in the properties of a table cell
+   */
+  private static final String CHART_TASK_KEY = "featuresTypeChartTask";
+
   @Override
   public String getHeaderString() {
     return "Features";
@@ -131,21 +137,31 @@ public class FeaturesType extends DataType<MapProperty<RawDataFile, ModularFeatu
     if (row == null)
       return null;
 
-    // get existing buffered node from row (for column name)
+    // cells are reused while scrolling. Cancel the chart of the row that was shown before if it
+    // was not computed yet, only rows inside the viewport are computed
+    Object previousTask = cell.getProperties().remove(CHART_TASK_KEY);
+    if (previousTask instanceof Task && ((Task) previousTask).getStatus() == TaskStatus.WAITING)
+      ((Task) previousTask).cancel();
+
+    // get existing buffered node (for row and column name) of this table
     // TODO listen to changes in features data
-    Node node = row.getBufferedColChart(coll.getText());
+    final ChartNodeCache chartCache = ChartNodeCache.forTable(cell.getTreeTableView());
+    Node node = chartCache.get(row, coll.getText());
     if (node != null)
       return node;
 
     final StackPane pane = new StackPane();
 
-    // TODO stop task if new task is started
     Task task = new AbstractTask() {
       private AtomicDouble progress = new AtomicDouble(0d);
       private int rowID = -1;
 
       @Override
       public void run() {
+        // cell was reused for another row before this task started
+        if (isCanceled())
+          return;
+
         rowID = row.getID();
 
         setStatus(TaskStatus.PROCESSING);
@@ -165,9 +181,9 @@ public class FeaturesType extends DataType<MapProperty<RawDataFile, ModularFeatu
             n = null;
             break;
         }
-        // save chart for later
-        row.addBufferedColChart(coll.getText(), n);
         if (n != null) {
+          // save chart for later
+          chartCache.put(row, coll.getText(), n);
           Platform.runLater(() -> {
             pane.getChildren().add(n);
           });
@@ -187,6 +203,7 @@ public class FeaturesType extends DataType<MapProperty<RawDataFile, ModularFeatu
         return progress.get();
       }
     };
+    cell.getProperties().put(CHART_TASK_KEY, task);
     if (MZmineCore.getTaskController() != null)
       MZmineCore.getTaskController().addTask(task, TaskPriority.NORMAL);
 
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.datamodel.data.types.fx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.PeakList;
+import io.github.mzmine.datamodel.data.ModularFeatureListRow;
+import io.github.mzmine.main.MZmineCore;
+import javafx.collections.ListChangeListener;
+import javafx.collections.WeakListChangeListener;
+import javafx.scene.Node;
+import javafx.scene.control.TreeTableView;
+
+/**
+ * Least recently used cache for chart nodes of graphical columns in the feature table. Charts are
+ * expensive to create, but keeping one chart per row and column for the whole feature list does not
+ * scale to large feature lists. The cache only keeps the most recently shown charts, older ones are
+ * evicted and recomputed if they are scrolled into the viewport again.
+ *
+ * A JavaFX node can only be shown in one parent, so every table has its own cache, see
+ * {@link #forTable(TreeTableView)}. The cache is dropped with the table and cleared when the table
+ * shows another feature list or when its feature list is removed from the project.
+ */
+public class ChartNodeCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  /**
+   * Key of the cache in the properties of a table
+   */
+  private static final String TABLE_CACHE_KEY = "chartNodeCache";
+
+  private final Map<Key, Node> cache;
+
+  /**
+   * Strong reference to the weakly registered project listener, lives as long as this cache
+   */
+  private ListChangeListener<PeakList> featureListsListener;
+
+  public ChartNodeCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public ChartNodeCache(final int maxSize) {
+    // access order for LRU eviction
+    cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Node> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  @Nullable
+  public synchronized Node get(@Nonnull ModularFeatureListRow row, @Nonnull String column) {
+    return cache.get(new Key(row, column));
+  }
+
+  public synchronized void put(@Nonnull ModularFeatureListRow row, @Nonnull String column,
+      @Nonnull Node node) {
+    cache.put(new Key(row, column), node);
+  }
+
+  public synchronized void clear() {
+    cache.clear();
+  }
+
+  /**
+   * Removes the charts of all rows of a feature list
+   */
+  public synchronized void removeFeatureList(@Nonnull PeakList flist) {
+    cache.keySet().removeIf(key -> key.row.getFeatureList() == flist);
+  }
+
+  /**
+   * The chart cache of a table, created on first access. Must be called on the JavaFX thread.
+   */
+  @Nonnull
+  public static ChartNodeCache forTable(@Nonnull TreeTableView<?> table) {
+    Object existing = table.getProperties().get(TABLE_CACHE_KEY);
+    if (existing instanceof ChartNodeCache)
+      return (ChartNodeCache) existing;
+
+    final ChartNodeCache newCache = new ChartNodeCache();
+    table.getProperties().put(TABLE_CACHE_KEY, newCache);
+
+    // charts of a previous feature list are not needed anymore
+    table.rootProperty().addListener((o, oldRoot, newRoot) -> newCache.clear());
+
+    // release the rows of removed feature lists. The listener is registered weakly, so the project
+    // does not keep the cache (and the table) alive
+    final MZmineProject project = MZmineCore.getProjectManager().getCurrentProject();
+    if (project != null) {
+      newCache.featureListsListener = change -> {
+        while (change.next()) {
+          for (PeakList removed : change.getRemoved())
+            newCache.removeFeatureList(removed);
+        }
+      };
+      project.getFeatureLists()
+          .addListener(new WeakListChangeListener<>(newCache.featureListsListener));
+    }
+    return newCache;
+  }
+
+  /**
+   * Rows are compared by identity, a row's content changes over time
+   */
+  private static final class Key {
+
+    private final ModularFeatureListRow row;
+    private final String column;
+
+    private Key(ModularFeatureListRow row, String column) {
+      this.row = row;
+      this.column = column;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return row == other.row && column.equals(other.column);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(row), column);
+    }
+  }
+
+}
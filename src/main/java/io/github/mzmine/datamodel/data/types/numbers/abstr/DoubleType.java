@@ -19,14 +19,14 @@
 package io.github.mzmine.datamodel.data.types.numbers.abstr;
 
 import java.text.NumberFormat;
-import java.util.Arrays;
+import java.util.List;
 import javax.annotation.Nonnull;
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.data.FeaturesBinding;
 import io.github.mzmine.datamodel.data.ModularFeatureListRow;
 import io.github.mzmine.datamodel.data.types.exceptions.UndefinedRowBindingException;
 import io.github.mzmine.datamodel.data.types.modifiers.BindingsFactoryType;
 import io.github.mzmine.datamodel.data.types.modifiers.BindingsType;
-import javafx.beans.binding.Bindings;
 import javafx.beans.binding.ObjectBinding;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleObjectProperty;
@@ -54,12 +54,11 @@ public abstract class DoubleType extends NumberType<Property<Double>>
 
   @Override
   public ObjectBinding<?> createBinding(BindingsType bind, ModularFeatureListRow row) {
-    // get all properties of all features
-    @SuppressWarnings("unchecked")
-    Property<Double>[] prop = row.streamFeatures().map(f -> f.get(this)).toArray(Property[]::new);
+    // only observe the properties that exist, features create them lazily
+    List<Property<Double>> prop = FeaturesBinding.getExistingProperties(row, this);
     switch (bind) {
       case AVERAGE:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           double sum = 0;
           int n = 0;
           for (Property<Double> p : prop) {
@@ -71,7 +70,7 @@ public abstract class DoubleType extends NumberType<Property<Double>>
           return n == 0 ? 0 : sum / n;
         }, prop);
       case MIN:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           double min = Double.POSITIVE_INFINITY;
           for (Property<Double> p : prop)
             if (p.getValue() != null && p.getValue() < min)
@@ -79,7 +78,7 @@ public abstract class DoubleType extends NumberType<Property<Double>>
           return min;
         }, prop);
       case MAX:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           double max = Double.NEGATIVE_INFINITY;
           for (Property<Double> p : prop)
             if (p.getValue() != null && p.getValue() > max)
@@ -87,7 +86,7 @@ public abstract class DoubleType extends NumberType<Property<Double>>
           return max;
         }, prop);
       case SUM:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           double sum = 0;
           for (Property<Double> p : prop)
             if (p.getValue() != null)
@@ -95,11 +94,11 @@ public abstract class DoubleType extends NumberType<Property<Double>>
           return sum;
         }, prop);
       case COUNT:
-        return Bindings.createObjectBinding(() -> {
-          return Arrays.stream(prop).filter(p -> p.getValue() != null).count();
+        return new FeaturesBinding<>(() -> {
+          return prop.stream().filter(p -> p.getValue() != null).count();
         }, prop);
       case RANGE:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           Range<Double> result = null;
           for (Property<Double> p : prop) {
             if (p.getValue() != null) {
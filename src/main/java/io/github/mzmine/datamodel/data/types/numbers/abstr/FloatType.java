@@ -19,14 +19,14 @@
 package io.github.mzmine.datamodel.data.types.numbers.abstr;
 
 import java.text.NumberFormat;
-import java.util.Arrays;
+import java.util.List;
 import javax.annotation.Nonnull;
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.data.FeaturesBinding;
 import io.github.mzmine.datamodel.data.ModularFeatureListRow;
 import io.github.mzmine.datamodel.data.types.exceptions.UndefinedRowBindingException;
 import io.github.mzmine.datamodel.data.types.modifiers.BindingsFactoryType;
 import io.github.mzmine.datamodel.data.types.modifiers.BindingsType;
-import javafx.beans.binding.Bindings;
 import javafx.beans.binding.ObjectBinding;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleObjectProperty;
@@ -52,12 +52,11 @@ public abstract class FloatType extends NumberType<Property<Float>> implements B
 
   @Override
   public ObjectBinding<?> createBinding(BindingsType bind, ModularFeatureListRow row) {
-    // get all properties of all features
-    @SuppressWarnings("unchecked")
-    Property<Float>[] prop = row.streamFeatures().map(f -> f.get(this)).toArray(Property[]::new);
+    // only observe the properties that exist, features create them lazily
+    List<Property<Float>> prop = FeaturesBinding.getExistingProperties(row, this);
     switch (bind) {
       case AVERAGE:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           float sum = 0;
           int n = 0;
           for (Property<Float> p : prop) {
@@ -69,7 +68,7 @@ public abstract class FloatType extends NumberType<Property<Float>> implements B
           return n == 0 ? 0 : sum / n;
         }, prop);
       case MIN:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           float min = Float.POSITIVE_INFINITY;
           for (Property<Float> p : prop)
             if (p.getValue() != null && p.getValue() < min)
@@ -77,7 +76,7 @@ public abstract class FloatType extends NumberType<Property<Float>> implements B
           return min;
         }, prop);
       case MAX:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           float max = Float.NEGATIVE_INFINITY;
           for (Property<Float> p : prop)
             if (p.getValue() != null && p.getValue() > max)
@@ -85,7 +84,7 @@ public abstract class FloatType extends NumberType<Property<Float>> implements B
           return max;
         }, prop);
       case SUM:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           float sum = 0;
           for (Property<Float> p : prop)
             if (p.getValue() != null)
@@ -93,11 +92,11 @@ public abstract class FloatType extends NumberType<Property<Float>> implements B
           return sum;
         }, prop);
       case COUNT:
-        return Bindings.createObjectBinding(() -> {
-          return Arrays.stream(prop).filter(p -> p.getValue() != null).count();
+        return new FeaturesBinding<>(() -> {
+          return prop.stream().filter(p -> p.getValue() != null).count();
         }, prop);
       case RANGE:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           Range<Float> result = null;
           for (Property<Float> p : prop) {
             if (p.getValue() != null) {
@@ -19,12 +19,14 @@
 package io.github.mzmine.datamodel.data.types.numbers.abstr;
 
 import java.text.NumberFormat;
+import java.util.List;
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.data.FeaturesBinding;
 import io.github.mzmine.datamodel.data.ModularFeatureListRow;
 import io.github.mzmine.datamodel.data.types.exceptions.UndefinedRowBindingException;
 import io.github.mzmine.datamodel.data.types.modifiers.BindingsType;
-import javafx.beans.binding.Bindings;
 import javafx.beans.binding.ObjectBinding;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.Property;
 
 public abstract class IntegerRangeType extends NumberRangeType<Integer> {
@@ -35,13 +37,11 @@ public abstract class IntegerRangeType extends NumberRangeType<Integer> {
 
   @Override
   public ObjectBinding<?> createBinding(BindingsType bind, ModularFeatureListRow row) {
-    // get all properties of all features
-    @SuppressWarnings("unchecked")
-    Property<Range<Integer>>[] prop =
-        row.streamFeatures().map(f -> f.get(this)).toArray(Property[]::new);
+    // only observe the properties that exist, features create them lazily
+    List<ObjectProperty<Range<Integer>>> prop = FeaturesBinding.getExistingProperties(row, this);
     switch (bind) {
       case RANGE:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           Range<Integer> result = null;
           for (Property<Range<Integer>> p : prop) {
             if (p.getValue() != null) {
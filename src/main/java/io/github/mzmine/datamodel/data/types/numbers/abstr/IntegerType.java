@@ -20,14 +20,14 @@ package io.github.mzmine.datamodel.data.types.numbers.abstr;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.util.Arrays;
+import java.util.List;
 import javax.annotation.Nonnull;
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.data.FeaturesBinding;
 import io.github.mzmine.datamodel.data.ModularFeatureListRow;
 import io.github.mzmine.datamodel.data.types.exceptions.UndefinedRowBindingException;
 import io.github.mzmine.datamodel.data.types.modifiers.BindingsFactoryType;
 import io.github.mzmine.datamodel.data.types.modifiers.BindingsType;
-import javafx.beans.binding.Bindings;
 import javafx.beans.binding.ObjectBinding;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleObjectProperty;
@@ -60,12 +60,11 @@ public abstract class IntegerType extends NumberType<Property<Integer>>
 
   @Override
   public ObjectBinding<?> createBinding(BindingsType bind, ModularFeatureListRow row) {
-    // get all properties of all features
-    @SuppressWarnings("unchecked")
-    Property<Integer>[] prop = row.streamFeatures().map(f -> f.get(this)).toArray(Property[]::new);
+    // only observe the properties that exist, features create them lazily
+    List<Property<Integer>> prop = FeaturesBinding.getExistingProperties(row, this);
     switch (bind) {
       case AVERAGE:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           float sum = 0;
           int n = 0;
           for (Property<Integer> p : prop) {
@@ -77,7 +76,7 @@ public abstract class IntegerType extends NumberType<Property<Integer>>
           return n == 0 ? 0 : sum / n;
         }, prop);
       case MIN:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           int min = Integer.MAX_VALUE;
           for (Property<Integer> p : prop)
             if (p.getValue() != null && p.getValue() < min)
@@ -85,7 +84,7 @@ public abstract class IntegerType extends NumberType<Property<Integer>>
           return min;
         }, prop);
       case MAX:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           int max = Integer.MIN_VALUE;
           for (Property<Integer> p : prop)
             if (p.getValue() != null && p.getValue() > max)
@@ -93,7 +92,7 @@ public abstract class IntegerType extends NumberType<Property<Integer>>
           return max;
         }, prop);
       case SUM:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           int sum = 0;
           for (Property<Integer> p : prop)
             if (p.getValue() != null)
@@ -101,11 +100,11 @@ public abstract class IntegerType extends NumberType<Property<Integer>>
           return sum;
         }, prop);
       case COUNT:
-        return Bindings.createObjectBinding(() -> {
-          return Arrays.stream(prop).filter(p -> p.getValue() != null).count();
+        return new FeaturesBinding<>(() -> {
+          return prop.stream().filter(p -> p.getValue() != null).count();
         }, prop);
       case RANGE:
-        return Bindings.createObjectBinding(() -> {
+        return new FeaturesBinding<>(() -> {
           Range<Integer> result = null;
           for (Property<Integer> p : prop) {
             if (p.getValue() != null) {
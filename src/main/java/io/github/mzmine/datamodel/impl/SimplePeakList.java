@@ -23,7 +23,9 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Vector;
 import java.util.stream.Collectors;
@@ -34,6 +36,7 @@ import io.github.mzmine.datamodel.PeakList;
 import io.github.mzmine.datamodel.PeakListRow;
 import io.github.mzmine.datamodel.RawDataFile;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
 /**
@@ -49,6 +52,13 @@ public class SimplePeakList implements PeakList {
   private String dateCreated;
   private Range<Double> mzRange, rtRange;
 
+  /**
+   * Feature to row lookup for {@link #getPeakRow(Feature)}, kept up to date with the rows. Features
+   * that are added to a row after the row was added to this list are not indexed and found by a
+   * linear search on the first lookup.
+   */
+  private final Map<Feature, PeakListRow> peakRows = new IdentityHashMap<>();
+
   public static DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
 
   public SimplePeakList(String name, RawDataFile dataFile) {
@@ -70,6 +80,19 @@ public class SimplePeakList implements PeakList {
 
     dateCreated = dateFormat.format(new Date());
 
+    // Rows may also be changed directly via getRows()
+    peakListRows.addListener((ListChangeListener<PeakListRow>) change -> {
+      synchronized (peakRows) {
+        while (change.next()) {
+          for (PeakListRow row : change.getRemoved())
+            for (Feature peak : row.getPeaks())
+              peakRows.remove(peak, row);
+          for (PeakListRow row : change.getAddedSubList())
+            for (Feature peak : row.getPeaks())
+              peakRows.put(peak, row);
+        }
+      }
+    });
   }
 
   @Override
@@ -312,9 +335,20 @@ public class SimplePeakList implements PeakList {
   @Override
   public PeakListRow getPeakRow(Feature peak) {
 
+    synchronized (peakRows) {
+      PeakListRow row = peakRows.get(peak);
+      // the peak may have been removed from the row in the meantime
+      if (row != null && row.hasPeak(peak))
+        return row;
+    }
+
     for (PeakListRow row : peakListRows) {
-      if (row.hasPeak(peak))
+      if (row.hasPeak(peak)) {
+        synchronized (peakRows) {
+          peakRows.put(peak, row);
+        }
         return row;
+      }
     }
 
     return null;
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.gui.chartbasics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nonnull;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import javafx.application.Platform;
+
+/**
+ * Loads the values of a chart dataset in the background. The dataset is a {@link Task} that fills
+ * in its values, the loader runs it on a small shared pool of chart loading threads (instead of
+ * starting one high priority task per dataset) and notifies the dataset listeners while the values
+ * are added.
+ *
+ * Loading starts after a short delay, so a dataset that is replaced right away (e.g., while the
+ * user clicks through the scans) is canceled before it reads any data. Datasets should cancel
+ * their loader when they are canceled, and charts should cancel the datasets they remove.
+ */
+public class ChartDataLoader {
+
+  private static final Logger logger = Logger.getLogger(ChartDataLoader.class.getName());
+
+  /**
+   * Delay (ms) before a dataset starts loading
+   */
+  public static final long START_DELAY = 100L;
+
+  /**
+   * Minimum interval (ms) between two notifications of the dataset listeners while loading
+   */
+  public static final long REDRAW_INTERVAL = 100L;
+
+  private static final int LOADER_THREADS =
+      Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+  private static final ScheduledExecutorService executor =
+      Executors.newScheduledThreadPool(LOADER_THREADS, r -> {
+        Thread t = new Thread(r, "Chart data loader " + threadCounter.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+
+  private final Task task;
+  private final Runnable fireDatasetChanged;
+  private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+  private volatile long lastRedrawTime = 0L;
+  private Future<?> future;
+
+  /**
+   * @param task the dataset's task which calculates the values
+   * @param fireDatasetChanged notifies the dataset listeners, called on the FX thread
+   */
+  public ChartDataLoader(@Nonnull Task task, @Nonnull Runnable fireDatasetChanged) {
+    this.task = task;
+    this.fireDatasetChanged = fireDatasetChanged;
+  }
+
+  /**
+   * Starts loading after {@link #START_DELAY}. Does nothing if the loading was already started.
+   */
+  public synchronized void start() {
+    if (future != null)
+      return;
+    future = executor.schedule(this::runTask, START_DELAY, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Removes the task from the queue if it did not start yet. A running task has to check its own
+   * status, this method does not interrupt the loading thread.
+   */
+  public synchronized void cancel() {
+    if (future != null)
+      future.cancel(false);
+  }
+
+  /**
+   * Notifies the dataset listeners if the last notification is older than
+   * {@link #REDRAW_INTERVAL}. Call this while values are added.
+   */
+  public void refresh() {
+    final long now = System.currentTimeMillis();
+    if (now - lastRedrawTime < REDRAW_INTERVAL)
+      return;
+    lastRedrawTime = now;
+    refreshNow();
+  }
+
+  /**
+   * Notifies the dataset listeners, e.g., after the last values were added. Several calls before
+   * the FX thread processed the notification result in a single {@code fireDatasetChanged()}.
+   */
+  public void refreshNow() {
+    if (!refreshPending.compareAndSet(false, true))
+      return;
+    Platform.runLater(() -> {
+      refreshPending.set(false);
+      fireDatasetChanged.run();
+    });
+  }
+
+  private void runTask() {
+    if (task.getStatus() == TaskStatus.CANCELED)
+      return;
+
+    try {
+      task.run();
+    } catch (Throwable e) {
+      logger.log(Level.SEVERE, "Error while loading " + task.getTaskDescription(), e);
+      return;
+    }
+
+    if (task.getStatus() == TaskStatus.ERROR) {
+      logger.severe(
+          "Error while loading " + task.getTaskDescription() + ": " + task.getErrorMessage());
+    }
+  }
+
+}
@@ -130,6 +130,9 @@ public class XYBlockPixelSizeRenderer extends AbstractXYItemRenderer
   /** The paint scale. */
   private PaintScale paintScale;
 
+  /** The blocks that are visible at the current zoom. */
+  private transient XYItemDecimation decimation;
+
   /**
    * Creates a new {@code XYBlockRenderer} instance with default attributes.
    */
@@ -409,6 +412,11 @@ public class XYBlockPixelSizeRenderer extends AbstractXYItemRenderer
       PlotRenderingInfo info, XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis,
       XYDataset dataset, int series, int item, CrosshairState crosshairState, int pass) {
 
+    // hidden by a block drawn later
+    if (!getDecimation().isDrawn(state, series, item)) {
+      return;
+    }
+
     double x = dataset.getXValue(series, item);
     double y = dataset.getYValue(series, item);
     double z = 0.0;
@@ -452,6 +460,31 @@ public class XYBlockPixelSizeRenderer extends AbstractXYItemRenderer
 
   }
 
+  /**
+   * Selects the blocks which are visible at the current zoom, before the items are drawn.
+   *
+   * @param g2 the graphics device.
+   * @param dataArea the data area.
+   * @param plot the plot.
+   * @param dataset the dataset.
+   * @param info the plot rendering info.
+   *
+   * @return The renderer state.
+   */
+  @Override
+  public XYItemRendererState initialise(Graphics2D g2, Rectangle2D dataArea, XYPlot plot,
+      XYDataset dataset, PlotRenderingInfo info) {
+    getDecimation().update(dataset, plot, dataArea, false, true);
+    return super.initialise(g2, dataArea, plot, dataset, info);
+  }
+
+  private XYItemDecimation getDecimation() {
+    if (decimation == null) {
+      decimation = new XYItemDecimation();
+    }
+    return decimation;
+  }
+
   /**
    * Tests this {@code XYBlockRenderer} for equality with an arbitrary object. This method returns
    * {@code true} if and only if:
@@ -502,6 +535,7 @@ public class XYBlockPixelSizeRenderer extends AbstractXYItemRenderer
       PublicCloneable pc = (PublicCloneable) this.paintScale;
       clone.paintScale = (PaintScale) pc.clone();
     }
+    clone.decimation = null;
     return clone;
   }
 
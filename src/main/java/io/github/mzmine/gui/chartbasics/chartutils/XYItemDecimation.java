@@ -0,0 +1,241 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.gui.chartbasics.chartutils;
+
+import java.awt.geom.Rectangle2D;
+import java.util.BitSet;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYItemRendererState;
+import org.jfree.chart.ui.RectangleEdge;
+import org.jfree.data.xy.XYDataset;
+
+/**
+ * Selects the items of an XY dataset that are visible at the current zoom, so renderers can skip
+ * all other items. A chromatogram or profile spectrum often has far more data points than the plot
+ * has pixels; drawing all of them makes panning and zooming slow without changing the picture.
+ *
+ * Lines (drawn as one path per series) are decimated with the M4 algorithm: for each pixel column,
+ * only the first, last, minimum and maximum item are kept. Shapes and blocks are decimated on a
+ * pixel grid: for each cell, only the item that is drawn last (on top) is kept. Both selections
+ * render the same picture as the full data. Pixels are split into {@link #SUBPIXELS} steps to be
+ * safe on scaled (HiDPI) screens.
+ *
+ * The selection is recomputed by {@link #update} for every rendering pass, i.e., on every zoom or
+ * dataset change. It belongs to a single renderer and must only be used by the rendering thread.
+ */
+public class XYItemDecimation {
+
+  /**
+   * Number of decimation steps per pixel
+   */
+  private static final int SUBPIXELS = 2;
+
+  /**
+   * Items of a series are only decimated for shapes if the series is larger
+   */
+  private static final int MIN_SHAPE_ITEMS = 10000;
+
+  /**
+   * Shapes and blocks of items outside of the data area can still be visible, up to this distance
+   * (in pixels)
+   */
+  private static final int SHAPE_MARGIN = 16;
+
+  // drawn items per series, null if all items are drawn
+  private BitSet drawnItems[] = new BitSet[0];
+
+  /**
+   * Recomputes the drawn items of all series of the dataset. Call from the renderer's initialise()
+   * method.
+   *
+   * @param lines the series are drawn as lines (one path per series, items in dataset order)
+   * @param shapes each item is drawn as a shape or block
+   */
+  public void update(XYDataset dataset, XYPlot plot, Rectangle2D dataArea, boolean lines,
+      boolean shapes) {
+    final int seriesCount = dataset == null ? 0 : dataset.getSeriesCount();
+    drawnItems = new BitSet[seriesCount];
+    if (seriesCount == 0 || (!lines && !shapes))
+      return;
+
+    final int datasetIndex = plot.indexOf(dataset);
+    final ValueAxis domainAxis = plot.getDomainAxisForDataset(datasetIndex);
+    final ValueAxis rangeAxis = plot.getRangeAxisForDataset(datasetIndex);
+    if (domainAxis == null || rangeAxis == null)
+      return;
+
+    for (int series = 0; series < seriesCount; series++) {
+      BitSet drawn = null;
+      if (lines) {
+        drawn = decimateLine(dataset, series, plot, domainAxis, dataArea);
+        // null: the series can not be decimated
+        if (drawn == null)
+          continue;
+      }
+      if (shapes) {
+        BitSet shapeItems = decimateShapes(dataset, series, plot, domainAxis, rangeAxis, dataArea);
+        if (shapeItems == null) {
+          drawn = null;
+          continue;
+        }
+        if (drawn == null)
+          drawn = shapeItems;
+        else
+          drawn.or(shapeItems);
+      }
+      drawnItems[series] = drawn;
+    }
+  }
+
+  /**
+   * The first and last item of a pass are always drawn, the renderers draw the series path at the
+   * last item.
+   *
+   * @return false if the renderer can skip this item
+   */
+  public boolean isDrawn(XYItemRendererState state, int series, int item) {
+    if (series >= drawnItems.length || drawnItems[series] == null)
+      return true;
+    if (item == state.getFirstItemIndex() || item == state.getLastItemIndex())
+      return true;
+    return drawnItems[series].get(item);
+  }
+
+  /**
+   * M4 decimation of one series
+   *
+   * @return the drawn items, or null if all items have to be drawn
+   */
+  private BitSet decimateLine(XYDataset dataset, int series, XYPlot plot, ValueAxis domainAxis,
+      Rectangle2D dataArea) {
+    final int itemCount = dataset.getItemCount(series);
+    final boolean vertical = plot.getOrientation() == PlotOrientation.VERTICAL;
+    final double start = vertical ? dataArea.getMinX() : dataArea.getMinY();
+    final int columns = (int) Math.ceil((vertical ? dataArea.getWidth() : dataArea.getHeight())
+        * SUBPIXELS);
+    if (itemCount <= 4 * columns)
+      return null;
+
+    final RectangleEdge domainEdge = plot.getDomainAxisEdge();
+    // screen positions decrease with x for inverted or vertical domain axes
+    final boolean descending =
+        domainAxis.valueToJava2D(domainAxis.getUpperBound(), dataArea, domainEdge) < domainAxis
+            .valueToJava2D(domainAxis.getLowerBound(), dataArea, domainEdge);
+    final BitSet drawn = new BitSet(itemCount);
+
+    int column = Integer.MIN_VALUE;
+    int first = -1, last = -1, min = -1, max = -1;
+    double minY = 0, maxY = 0;
+
+    for (int item = 0; item < itemCount; item++) {
+      final double x = dataset.getXValue(series, item);
+      final double y = dataset.getYValue(series, item);
+      // gaps split the path, keep them
+      if (Double.isNaN(x) || Double.isNaN(y)) {
+        drawn.set(item);
+        continue;
+      }
+
+      double pos = (domainAxis.valueToJava2D(x, dataArea, domainEdge) - start) * SUBPIXELS;
+      if (descending)
+        pos = columns - pos;
+      // all items outside of the data area fall into the two outer columns
+      final int itemColumn = pos < 0 ? -1 : (int) Math.min(columns, Math.floor(pos));
+
+      if (itemColumn != column) {
+        // M4 relies on items sorted by x, otherwise the path would change
+        if (itemColumn < column)
+          return null;
+        setItems(drawn, first, last, min, max);
+        column = itemColumn;
+        first = min = max = item;
+        minY = maxY = y;
+      } else if (y < minY) {
+        min = item;
+        minY = y;
+      } else if (y > maxY) {
+        max = item;
+        maxY = y;
+      }
+      last = item;
+    }
+    setItems(drawn, first, last, min, max);
+    return drawn;
+  }
+
+  private void setItems(BitSet drawn, int first, int last, int min, int max) {
+    if (first < 0)
+      return;
+    drawn.set(first);
+    drawn.set(last);
+    drawn.set(min);
+    drawn.set(max);
+  }
+
+  /**
+   * Pixel grid decimation of one series, the last item in each cell is kept
+   *
+   * @return the drawn items, or null if all items have to be drawn
+   */
+  private BitSet decimateShapes(XYDataset dataset, int series, XYPlot plot, ValueAxis domainAxis,
+      ValueAxis rangeAxis, Rectangle2D dataArea) {
+    final int itemCount = dataset.getItemCount(series);
+    if (itemCount <= MIN_SHAPE_ITEMS)
+      return null;
+
+    final RectangleEdge domainEdge = plot.getDomainAxisEdge();
+    final RectangleEdge rangeEdge = plot.getRangeAxisEdge();
+    final boolean vertical = plot.getOrientation() == PlotOrientation.VERTICAL;
+
+    final double minX = dataArea.getMinX() - SHAPE_MARGIN;
+    final double minY = dataArea.getMinY() - SHAPE_MARGIN;
+    final int columns = (int) Math.ceil((dataArea.getWidth() + 2 * SHAPE_MARGIN) * SUBPIXELS);
+    final int rows = (int) Math.ceil((dataArea.getHeight() + 2 * SHAPE_MARGIN) * SUBPIXELS);
+
+    final BitSet drawn = new BitSet(itemCount);
+    final BitSet occupied = new BitSet(columns * rows);
+
+    // the last item is drawn on top
+    for (int item = itemCount - 1; item >= 0; item--) {
+      final double x = dataset.getXValue(series, item);
+      final double y = dataset.getYValue(series, item);
+      if (Double.isNaN(x) || Double.isNaN(y))
+        continue;
+
+      final double transX = domainAxis.valueToJava2D(x, dataArea, domainEdge);
+      final double transY = rangeAxis.valueToJava2D(y, dataArea, rangeEdge);
+      final int column = (int) Math.floor(((vertical ? transX : transY) - minX) * SUBPIXELS);
+      final int row = (int) Math.floor(((vertical ? transY : transX) - minY) * SUBPIXELS);
+
+      // far outside of the data area, not visible
+      if (column < 0 || column >= columns || row < 0 || row >= rows)
+        continue;
+
+      final int cell = row * columns + column;
+      if (!occupied.get(cell)) {
+        occupied.set(cell);
+        drawn.set(item);
+      }
+    }
+    return drawn;
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.gui.chartbasics.graphicsexport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import org.jfree.chart.JFreeChart;
+import io.github.mzmine.gui.chartbasics.chartthemes.EStandardChartTheme;
+
+/**
+ * Exports many charts without a GUI, e.g., the chromatograms of all features of a feature list.
+ * The charts are created from {@link ChartSpec}s on several threads, each thread applies its own
+ * copy of the chart theme. The charts are either written to one file per chart (in parallel) or
+ * streamed into a multi-page PDF (created in parallel in chunks, pages are written in order).
+ */
+public class BatchChartExporter {
+
+  /**
+   * Creates a chart on a worker thread. Must not use any GUI component.
+   */
+  public interface ChartSpec {
+
+    /**
+     * @return name of the chart, used as file name
+     */
+    @Nonnull
+    String getName();
+
+    /**
+     * @param theme the theme of the current thread, which should be applied to the chart
+     */
+    @Nonnull
+    JFreeChart createChart(@Nonnull EStandardChartTheme theme);
+  }
+
+  private static final int CHARTS_PER_THREAD_AND_CHUNK = 4;
+
+  private final String format;
+  private final int width, height, resolution;
+  private final ThreadLocal<EStandardChartTheme> themes;
+  private final AtomicInteger exportedCharts = new AtomicInteger(0);
+
+  /**
+   * @param theme the theme is copied for every thread, it is not changed
+   * @param format one of the formats of {@link ChartExportUtil#writeChartToFile}
+   * @param width
+   * @param height
+   * @param resolution dpi for the pixel formats
+   */
+  public BatchChartExporter(@Nonnull EStandardChartTheme theme, @Nonnull String format, int width,
+      int height, int resolution) {
+    this.format = format;
+    this.width = width;
+    this.height = height;
+    this.resolution = resolution;
+
+    // copy the theme right away, the given theme may be changed later on
+    final EStandardChartTheme themeCopy = copyTheme(theme);
+    this.themes = ThreadLocal.withInitial(() -> copyTheme(themeCopy));
+  }
+
+  /**
+   * Writes one file per chart, named after the chart
+   *
+   * @param canceled stops the export if it returns true
+   */
+  public void exportToDirectory(@Nonnull List<? extends ChartSpec> specs, @Nonnull File directory,
+      @Nonnull BooleanSupplier canceled) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs())
+      throw new IOException("Cannot create directory " + directory);
+
+    final String extension = "." + format.toLowerCase();
+    try {
+      specs.parallelStream().forEach(spec -> {
+        if (canceled.getAsBoolean())
+          return;
+        final JFreeChart chart = spec.createChart(themes.get());
+        final File file = new File(directory, toFileName(spec.getName()) + extension);
+        try {
+          ChartExportUtil.writeChartToFile(chart, null, format, width, height, file, resolution);
+        } catch (Exception e) {
+          throw new ChartExportException(file, e);
+        }
+        exportedCharts.incrementAndGet();
+      });
+    } catch (ChartExportException e) {
+      throw new IOException("Cannot write chart " + e.file, e.getCause());
+    }
+  }
+
+  /**
+   * Writes all charts to a PDF file, one chart per page in the order of the list. If no chart
+   * was written, because the list is empty or the export was canceled before the first chart, no
+   * file is left behind.
+   *
+   * @param canceled stops the export if it returns true
+   */
+  public void exportToPDF(@Nonnull List<? extends ChartSpec> specs, @Nonnull File file,
+      @Nonnull BooleanSupplier canceled) throws IOException {
+    final int chunkSize =
+        CHARTS_PER_THREAD_AND_CHUNK * Runtime.getRuntime().availableProcessors();
+
+    try (MultiPageChartPDFWriter pdf = new MultiPageChartPDFWriter(file, width, height)) {
+      for (int start = 0; start < specs.size(); start += chunkSize) {
+        if (canceled.getAsBoolean())
+          return;
+
+        // create the charts of a chunk in parallel, then draw them in order
+        final List<JFreeChart> charts =
+            specs.subList(start, Math.min(specs.size(), start + chunkSize)).parallelStream()
+                .map(spec -> spec.createChart(themes.get())).collect(Collectors.toList());
+        for (JFreeChart chart : charts) {
+          pdf.addChart(chart);
+          exportedCharts.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return number of charts written so far
+   */
+  public int getExportedCharts() {
+    return exportedCharts.get();
+  }
+
+  private static String toFileName(String name) {
+    return name.replaceAll("[^a-zA-Z0-9.\\-_]", "_");
+  }
+
+  private static EStandardChartTheme copyTheme(EStandardChartTheme theme) {
+    try {
+      return (EStandardChartTheme) theme.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("Chart theme cannot be copied", e);
+    }
+  }
+
+  /**
+   * Carries the exceptions of the worker threads
+   */
+  private static class ChartExportException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+    private final File file;
+
+    private ChartExportException(File file, Exception cause) {
+      super(cause);
+      this.file = file;
+    }
+  }
+
+}
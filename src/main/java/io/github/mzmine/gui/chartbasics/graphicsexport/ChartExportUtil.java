@@ -216,39 +216,57 @@ public class ChartExportUtil {
     }
 
     Dimension size = sett.getPixelSize();
-    // Format
-    switch (sett.getFormat()) {
+    writeChartToFile(chart, info, sett.getFormat(), size.width, size.height, f,
+        (int) sett.getDPI());
+    //
+    chart.setBackgroundPaint(saved);
+    chart.setBackgroundImageAlpha(255);
+    if (chart.getLegend() != null)
+      chart.getLegend().setBackgroundPaint(saved);
+    // legends and stuff
+    for (int i = 0; i < chart.getSubtitleCount(); i++)
+      if (PaintScaleLegend.class.isAssignableFrom(chart.getSubtitle(i).getClass()))
+        ((PaintScaleLegend) chart.getSubtitle(i)).setBackgroundPaint(saved);
+
+    // apply bg
+    chart.getPlot().setBackgroundPaint(saved);
+  }
+
+  /**
+   * Writes a chart in one of the export formats (PDF, EMF, EPS, SVG, JPG, PNG). Does not use or
+   * change any GUI component, so it can be called from any thread, as long as the chart is not
+   * changed at the same time.
+   *
+   * @param chart
+   * @param info rendering info for the pixel formats, may be null
+   * @param format
+   * @param width
+   * @param height
+   * @param file is a full path
+   * @param resolution dpi for the pixel formats
+   */
+  public static void writeChartToFile(JFreeChart chart, ChartRenderingInfo info, String format,
+      int width, int height, File file, int resolution) throws Exception {
+    switch (format) {
       case "PDF":
-        writeChartToPDF(chart, size.width, size.height, f);
+        writeChartToPDF(chart, width, height, file);
         break;
       case "PNG":
-        writeChartToPNG(chart, info, size.width, size.height, f, (int) sett.getDPI());
+        writeChartToPNG(chart, info, width, height, file, resolution);
         break;
       case "JPG":
-        writeChartToJPEG(chart, info, size.width, size.height, f, (int) sett.getDPI());
+        writeChartToJPEG(chart, info, width, height, file, resolution);
         break;
       case "EPS":
-        writeChartToEPS(chart, size.width, size.height, f);
+        writeChartToEPS(chart, width, height, file);
         break;
       case "SVG":
-        writeChartToSVG(chart, size.width, size.height, f);
+        writeChartToSVG(chart, width, height, file);
         break;
       case "EMF":
-        writeChartToEMF(chart, size.width, size.height, f);
+        writeChartToEMF(chart, width, height, file);
         break;
     }
-    //
-    chart.setBackgroundPaint(saved);
-    chart.setBackgroundImageAlpha(255);
-    if (chart.getLegend() != null)
-      chart.getLegend().setBackgroundPaint(saved);
-    // legends and stuff
-    for (int i = 0; i < chart.getSubtitleCount(); i++)
-      if (PaintScaleLegend.class.isAssignableFrom(chart.getSubtitle(i).getClass()))
-        ((PaintScaleLegend) chart.getSubtitle(i)).setBackgroundPaint(saved);
-
-    // apply bg
-    chart.getPlot().setBackgroundPaint(saved);
   }
 
   /**
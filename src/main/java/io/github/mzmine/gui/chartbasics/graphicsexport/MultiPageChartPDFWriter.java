@@ -0,0 +1,122 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.gui.chartbasics.graphicsexport;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.jfree.chart.JFreeChart;
+import com.itextpdf.awt.DefaultFontMapper;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+
+/**
+ * Writes charts to a PDF file, one chart per page. Each chart's template is written to the file
+ * after drawing, so the number of charts is not limited by the memory. Not thread safe.
+ */
+public class MultiPageChartPDFWriter implements Closeable {
+
+  private final File file;
+  private final OutputStream out;
+  private final Document document;
+  private final PdfWriter writer;
+  private final DefaultFontMapper fontMapper = new DefaultFontMapper();
+  private final int width, height;
+  private int pages = 0;
+
+  /**
+   * @param file the PDF file, overwritten if it exists
+   * @param width page width
+   * @param height page height
+   */
+  public MultiPageChartPDFWriter(File file, int width, int height) throws IOException {
+    this.file = file;
+    this.width = width;
+    this.height = height;
+    out = new BufferedOutputStream(new FileOutputStream(file));
+    document = new Document(new Rectangle(width, height));
+    try {
+      writer = PdfWriter.getInstance(document, out);
+    } catch (DocumentException e) {
+      out.close();
+      throw new IOException("Cannot create PDF file " + file, e);
+    }
+    document.open();
+  }
+
+  /**
+   * Draws the chart on a new page. The page's template is released right away, otherwise iText
+   * keeps all templates in memory until the document is closed.
+   */
+  public void addChart(JFreeChart chart) throws IOException {
+    if (pages > 0)
+      document.newPage();
+
+    PdfContentByte contentByte = writer.getDirectContent();
+    PdfTemplate template = contentByte.createTemplate(width, height);
+    Graphics2D graphics2d = template.createGraphics(width, height, fontMapper);
+    chart.draw(graphics2d, new Rectangle2D.Double(0, 0, width, height));
+    graphics2d.dispose();
+    contentByte.addTemplate(template, 0, 0);
+    writer.releaseTemplate(template);
+    pages++;
+  }
+
+  public int getPageCount() {
+    return pages;
+  }
+
+  /**
+   * Finishes the PDF file. A PDF without pages is invalid, so if no chart was added, the file is
+   * deleted instead.
+   */
+  @Override
+  public void close() throws IOException {
+    if (pages == 0) {
+      // iText refuses to close a document without pages ("The document has no pages")
+      try {
+        document.close();
+      } catch (RuntimeException e) {
+        // expected
+      } finally {
+        out.close();
+        file.delete();
+      }
+      return;
+    }
+
+    try {
+      document.close();
+    } catch (RuntimeException e) {
+      // iText wraps IOExceptions in its unchecked ExceptionConverter
+      out.close();
+      throw new IOException("Cannot write PDF file " + file, e);
+    }
+  }
+
+}
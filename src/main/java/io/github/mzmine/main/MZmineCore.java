@@ -43,6 +43,7 @@ import io.github.mzmine.main.impl.MZmineConfigurationImpl;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineRunnableModule;
 import io.github.mzmine.modules.batchmode.BatchModeModule;
+import io.github.mzmine.modules.batchmode.BatchServer;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.ProjectManager;
 import io.github.mzmine.project.impl.ProjectManagerImpl;
@@ -60,6 +61,11 @@ public final class MZmineCore {
 
   private static Logger logger = Logger.getLogger(MZmineCore.class.getName());
 
+  /**
+   * Command line argument that starts MZmine as a batch server watching a directory
+   */
+  public static final String BATCH_SERVER_ARGUMENT = "-batchserver";
+
   private static TaskControllerImpl taskController;
   private static MZmineConfiguration configuration;
   private static Desktop desktop;
@@ -102,6 +108,12 @@ public final class MZmineCore {
     cleanupThread.setPriority(Thread.MIN_PRIORITY);
     cleanupThread.start();
 
+    // In batch mode, the JavaFX toolkit is never started. Setting the headless desktop first lets
+    // the core classes know they must not touch the JavaFX thread.
+    final boolean headLess = args.length > 0;
+    if (headLess)
+      desktop = new HeadLessDesktop();
+
     logger.fine("Loading core classes..");
 
     // Create instance of configuration
@@ -126,7 +138,7 @@ public final class MZmineCore {
     }
 
     // If we have no arguments, run in GUI mode, otherwise run in batch mode
-    if (args.length == 0) {
+    if (!headLess) {
       try {
         logger.info("Starting MZmine GUI");
         Application.launch(MZmineGUI.class, args);
@@ -137,7 +149,11 @@ public final class MZmineCore {
       }
 
     } else {
-      desktop = new HeadLessDesktop();
+
+      // Report the start-up time, measured from the JVM start
+      final long startupTime =
+          System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+      logger.info("Headless start-up took " + startupTime + " ms");
 
       // Tracker
       GoogleAnalyticsTracker GAT =
@@ -146,6 +162,19 @@ public final class MZmineCore {
       gatThread.setPriority(Thread.MIN_PRIORITY);
       gatThread.start();
 
+      // Batch server mode: -batchserver <directory>
+      if (args[0].equals(BATCH_SERVER_ARGUMENT)) {
+        if (args.length < 2) {
+          logger.severe("Missing directory for " + BATCH_SERVER_ARGUMENT);
+          System.exit(1);
+        }
+        final BatchServer batchServer = new BatchServer(new File(args[1]));
+        // finish the running batch on shutdown (e.g., SIGTERM)
+        Runtime.getRuntime().addShutdownHook(new Thread(batchServer::stop));
+        batchServer.run();
+        return;
+      }
+
       File batchFile = new File(args[0]);
       if ((!batchFile.exists()) || (!batchFile.canRead())) {
         logger.severe("Cannot read batch file " + batchFile);
@@ -174,6 +203,13 @@ public final class MZmineCore {
     return desktop;
   }
 
+  /**
+   * @return true if MZmine runs in batch mode without GUI and without the JavaFX toolkit
+   */
+  public static boolean isHeadLessMode() {
+    return desktop instanceof HeadLessDesktop;
+  }
+
   @Nonnull
   public static void setDesktop(Desktop desktop) {
     assert desktop != null;
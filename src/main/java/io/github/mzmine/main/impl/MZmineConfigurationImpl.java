@@ -78,8 +78,16 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
 
   private final EStandardChartTheme standardChartTheme;
 
+  /**
+   * Module configurations loaded from XML, for modules that were not initialized yet. The modules
+   * (and their parameter sets) are only created once they are actually used, which keeps the
+   * start-up fast, especially in headless mode.
+   */
+  private final Map<String, Element> pendingModuleConfigurations;
+
   public MZmineConfigurationImpl() {
     moduleParameters = new Hashtable<Class<? extends MZmineModule>, ParameterSet>();
+    pendingModuleConfigurations = new Hashtable<String, Element>();
     preferences = new MZminePreferences();
     lastProjects = new FileNameListSilentParameter("Last projets");
     globalEncrypter = new EncryptionKeyParameter();
@@ -112,6 +120,11 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
         return null;
       }
 
+      // Apply the configuration that was loaded before the module was initialized
+      final Element pendingConfig = pendingModuleConfigurations.remove(moduleClass.getName());
+      if (pendingConfig != null)
+        parameters.loadValuesFromXML(pendingConfig);
+
       // Add the parameter set to the configuration
       moduleParameters.put(moduleClass, parameters);
 
@@ -220,10 +233,16 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
 
         try {
           Class<? extends MZmineModule> moduleClass =
-              (Class<? extends MZmineModule>) Class.forName(moduleClassName);
-
-          ParameterSet moduleParameters = getModuleParameters(moduleClass);
-          moduleParameters.loadValuesFromXML(moduleElement);
+              (Class<? extends MZmineModule>) Class.forName(moduleClassName, false,
+                  MZmineConfigurationImpl.class.getClassLoader());
+
+          // Only load the values into existing parameter sets, other modules are initialized
+          // lazily in getModuleParameters()
+          ParameterSet moduleParameters = this.moduleParameters.get(moduleClass);
+          if (moduleParameters != null)
+            moduleParameters.loadValuesFromXML(moduleElement);
+          else
+            pendingModuleConfigurations.put(moduleClassName, moduleElement);
         } catch (Exception e) {
           logger.log(Level.WARNING, "Failed to load configuration for module " + moduleClassName,
               e);
@@ -278,6 +297,11 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
         moduleParameters.saveValuesToXML(paramElement);
       }
 
+      // keep the configuration of modules that were not initialized in this session
+      for (Element pendingConfig : pendingModuleConfigurations.values()) {
+        modulesElement.appendChild(configuration.importNode(pendingConfig, true));
+      }
+
       // save encryption key to local config only
       // ATTENTION: this should to be written after all other configs
       final SimpleParameterSet encSet = new SimpleParameterSet(new Parameter[] {globalEncrypter});
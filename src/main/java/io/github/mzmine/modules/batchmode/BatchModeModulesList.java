@@ -0,0 +1,197 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import java.util.List;
+import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.dataanalysis.anova.AnovaModule;
+import io.github.mzmine.modules.dataprocessing.adap_hierarchicalclustering.ADAPHierarchicalClusteringModule;
+import io.github.mzmine.modules.dataprocessing.adap_mcr.ADAPMultivariateCurveResolutionModule;
+import io.github.mzmine.modules.dataprocessing.align_adap3.ADAP3AlignerModule;
+import io.github.mzmine.modules.dataprocessing.align_hierarchical.HierarAlignerGcModule;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinAlignerModule;
+import io.github.mzmine.modules.dataprocessing.align_path.PathAlignerModule;
+import io.github.mzmine.modules.dataprocessing.align_ransac.RansacAlignerModule;
+import io.github.mzmine.modules.dataprocessing.featdet_ADAPchromatogrambuilder.ADAPChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_adap3d.ADAP3DModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogrambuilder.ChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.DeconvolutionModule;
+import io.github.mzmine.modules.dataprocessing.featdet_gridmass.GridMassModule;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionModule;
+import io.github.mzmine.modules.dataprocessing.featdet_msms.MsMsFeatureDetectionModule;
+import io.github.mzmine.modules.dataprocessing.featdet_peakextender.PeakExtenderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_shoulderpeaksfilter.ShoulderPeaksFilterModule;
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.SmoothingModule;
+import io.github.mzmine.modules.dataprocessing.featdet_targeted.TargetedFeatureDetectionModule;
+import io.github.mzmine.modules.dataprocessing.filter_alignscans.AlignScansModule;
+import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrectionModule;
+import io.github.mzmine.modules.dataprocessing.filter_clearannotations.FeatureListClearAnnotationsModule;
+import io.github.mzmine.modules.dataprocessing.filter_cropfilter.CropFilterModule;
+import io.github.mzmine.modules.dataprocessing.filter_duplicatefilter.DuplicateFilterModule;
+import io.github.mzmine.modules.dataprocessing.filter_extractscans.ExtractScansModule;
+import io.github.mzmine.modules.dataprocessing.filter_featurefilter.FeatureFilterModule;
+import io.github.mzmine.modules.dataprocessing.filter_groupms2.GroupMS2Module;
+import io.github.mzmine.modules.dataprocessing.filter_isotopegrouper.IsotopeGrouperModule;
+import io.github.mzmine.modules.dataprocessing.filter_merge.RawFileMergeModule;
+import io.github.mzmine.modules.dataprocessing.filter_neutralloss.NeutralLossFilterModule;
+import io.github.mzmine.modules.dataprocessing.filter_peakcomparisonrowfilter.PeakComparisonRowFilterModule;
+import io.github.mzmine.modules.dataprocessing.filter_rowsfilter.RowsFilterModule;
+import io.github.mzmine.modules.dataprocessing.filter_scanfilters.ScanFiltersModule;
+import io.github.mzmine.modules.dataprocessing.filter_scansmoothing.ScanSmoothingModule;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.PeakFinderModule;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.multithreaded.MultiThreadPeakFinderModule;
+import io.github.mzmine.modules.dataprocessing.gapfill_samerange.SameRangeGapFillerModule;
+import io.github.mzmine.modules.dataprocessing.id_adductsearch.AdductSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_camera.CameraSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_complexsearch.ComplexSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortModule;
+import io.github.mzmine.modules.dataprocessing.id_formulapredictionpeaklist.FormulaPredictionPeakListModule;
+import io.github.mzmine.modules.dataprocessing.id_fragmentsearch.FragmentSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_gnpsresultsimport.GNPSResultsImportModule;
+import io.github.mzmine.modules.dataprocessing.id_isotopepeakscanner.IsotopePeakScannerModule;
+import io.github.mzmine.modules.dataprocessing.id_lipididentification.LipidSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_localcsvsearch.LocalCSVDatabaseSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_mascot.MascotSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_ms2search.Ms2SearchModule;
+import io.github.mzmine.modules.dataprocessing.id_nist.NistMsSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_onlinecompounddb.OnlineDBSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_precursordbsearch.PrecursorDBSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_sirius.SiriusIdentificationModule;
+import io.github.mzmine.modules.dataprocessing.id_spectraldbsearch.LocalSpectralDBSearchModule;
+import io.github.mzmine.modules.dataprocessing.id_spectraldbsearch.sort.SortSpectralDBIdentitiesModule;
+import io.github.mzmine.modules.dataprocessing.modular_featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.norm_linear.LinearNormalizerModule;
+import io.github.mzmine.modules.dataprocessing.norm_rtcalibration.RTCalibrationModule;
+import io.github.mzmine.modules.dataprocessing.norm_standardcompound.StandardCompoundNormalizerModule;
+import io.github.mzmine.modules.io.adapmgfexport.AdapMgfExportModule;
+import io.github.mzmine.modules.io.adapmspexport.AdapMspExportModule;
+import io.github.mzmine.modules.io.csvexport.CSVExportModule;
+import io.github.mzmine.modules.io.exportscans.ExportScansFromRawFilesModule;
+import io.github.mzmine.modules.io.featurechartexport.FeatureChartExportModule;
+import io.github.mzmine.modules.io.featuretableexport.FeatureTableExportModule;
+import io.github.mzmine.modules.io.featuretableimport.FeatureTableImportModule;
+import io.github.mzmine.modules.io.gnpsexport.fbmn.GnpsFbmnExportAndSubmitModule;
+import io.github.mzmine.modules.io.gnpsexport.gc.GnpsGcExportAndSubmitModule;
+import io.github.mzmine.modules.io.metaboanalystexport.MetaboAnalystExportModule;
+import io.github.mzmine.modules.io.mztabexport.MzTabExportModule;
+import io.github.mzmine.modules.io.mztabimport.MzTabImportModule;
+import io.github.mzmine.modules.io.projectload.ProjectLoadModule;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveAsModule;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveModule;
+import io.github.mzmine.modules.io.rawdataexport.RawDataExportModule;
+import io.github.mzmine.modules.io.rawdataimport.RawDataImportModule;
+import io.github.mzmine.modules.io.siriusexport.SiriusExportModule;
+import io.github.mzmine.modules.io.sqlexport.SQLExportModule;
+import io.github.mzmine.modules.io.xmlexport.XMLExportModule;
+import io.github.mzmine.modules.io.xmlimport.XMLImportModule;
+import io.github.mzmine.modules.tools.sortdatafiles.SortDataFilesModule;
+import io.github.mzmine.modules.tools.sortpeaklists.SortPeakListsModule;
+
+/**
+ * List of modules that can be used as batch steps. Modules are only instantiated once they are
+ * needed, so this list (and not the already initialized modules) defines which methods the batch
+ * mode offers. A new processing module must be added here to be available as a batch step.
+ */
+public class BatchModeModulesList {
+
+  public static final List<Class<? extends MZmineProcessingModule>> MODULES = List.of(
+      AnovaModule.class,
+      ADAPHierarchicalClusteringModule.class,
+      ADAPMultivariateCurveResolutionModule.class,
+      ADAP3AlignerModule.class,
+      HierarAlignerGcModule.class,
+      JoinAlignerModule.class,
+      PathAlignerModule.class,
+      RansacAlignerModule.class,
+      ADAPChromatogramBuilderModule.class,
+      ADAP3DModule.class,
+      ChromatogramBuilderModule.class,
+      DeconvolutionModule.class,
+      GridMassModule.class,
+      MassDetectionModule.class,
+      MsMsFeatureDetectionModule.class,
+      PeakExtenderModule.class,
+      ShoulderPeaksFilterModule.class,
+      SmoothingModule.class,
+      TargetedFeatureDetectionModule.class,
+      AlignScansModule.class,
+      BaselineCorrectionModule.class,
+      FeatureListClearAnnotationsModule.class,
+      CropFilterModule.class,
+      DuplicateFilterModule.class,
+      ExtractScansModule.class,
+      FeatureFilterModule.class,
+      GroupMS2Module.class,
+      IsotopeGrouperModule.class,
+      RawFileMergeModule.class,
+      NeutralLossFilterModule.class,
+      PeakComparisonRowFilterModule.class,
+      RowsFilterModule.class,
+      ScanFiltersModule.class,
+      ScanSmoothingModule.class,
+      PeakFinderModule.class,
+      MultiThreadPeakFinderModule.class,
+      SameRangeGapFillerModule.class,
+      AdductSearchModule.class,
+      CameraSearchModule.class,
+      ComplexSearchModule.class,
+      FormulaSortModule.class,
+      FormulaPredictionPeakListModule.class,
+      FragmentSearchModule.class,
+      GNPSResultsImportModule.class,
+      IsotopePeakScannerModule.class,
+      LipidSearchModule.class,
+      LocalCSVDatabaseSearchModule.class,
+      MascotSearchModule.class,
+      Ms2SearchModule.class,
+      NistMsSearchModule.class,
+      OnlineDBSearchModule.class,
+      PrecursorDBSearchModule.class,
+      SiriusIdentificationModule.class,
+      LocalSpectralDBSearchModule.class,
+      SortSpectralDBIdentitiesModule.class,
+      ModularADAPChromatogramBuilderModule.class,
+      LinearNormalizerModule.class,
+      RTCalibrationModule.class,
+      StandardCompoundNormalizerModule.class,
+      AdapMgfExportModule.class,
+      AdapMspExportModule.class,
+      CSVExportModule.class,
+      ExportScansFromRawFilesModule.class,
+      FeatureChartExportModule.class,
+      FeatureTableExportModule.class,
+      FeatureTableImportModule.class,
+      GnpsFbmnExportAndSubmitModule.class,
+      GnpsGcExportAndSubmitModule.class,
+      MetaboAnalystExportModule.class,
+      MzTabExportModule.class,
+      MzTabImportModule.class,
+      ProjectLoadModule.class,
+      ProjectSaveAsModule.class,
+      ProjectSaveModule.class,
+      RawDataExportModule.class,
+      RawDataImportModule.class,
+      SiriusExportModule.class,
+      SQLExportModule.class,
+      XMLExportModule.class,
+      XMLImportModule.class,
+      SortDataFilesModule.class,
+      SortPeakListsModule.class);
+
+}
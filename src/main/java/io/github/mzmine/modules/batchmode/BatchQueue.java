@@ -18,12 +18,11 @@
 
 package io.github.mzmine.modules.batchmode;
 
-import java.util.Collection;
+import java.util.logging.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import io.github.mzmine.main.MZmineCore;
-import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.dataprocessing.filter_rowsfilter.RowsFilterModule;
@@ -37,6 +36,8 @@ import io.github.mzmine.util.javafx.ArrayObservableList;
  */
 public class BatchQueue extends ArrayObservableList<MZmineProcessingStep<MZmineProcessingModule>> {
 
+  private static final Logger logger = Logger.getLogger(BatchQueue.class.getName());
+
   // Batch step element name.
   private static final String BATCH_STEP_ELEMENT = "batchstep";
 
@@ -63,8 +64,23 @@ public class BatchQueue extends ArrayObservableList<MZmineProcessingStep<MZmineP
    *
    * @param xmlElement the element that holds the XML.
    * @return the de-serialized value.
+   * @throws IllegalArgumentException if a batch step refers to a module that cannot be loaded
    */
   public static BatchQueue loadFromXml(final Element xmlElement) {
+    return loadFromXml(xmlElement, false);
+  }
+
+  /**
+   * De-serialize from XML.
+   *
+   * @param xmlElement the element that holds the XML.
+   * @param skipUnknownSteps skip (and log) steps of modules that cannot be loaded instead of
+   *        failing, e.g., for the queue stored in the configuration by another MZmine version
+   * @return the de-serialized value.
+   * @throws IllegalArgumentException if a batch step refers to a module that cannot be loaded and
+   *         skipUnknownSteps is false
+   */
+  public static BatchQueue loadFromXml(final Element xmlElement, final boolean skipUnknownSteps) {
 
     // Set the parameter choice for the RowsFilterModule
     String[] choices;
@@ -76,9 +92,6 @@ public class BatchQueue extends ArrayObservableList<MZmineProcessingStep<MZmineP
     // Create an empty queue.
     final BatchQueue queue = new BatchQueue();
 
-    // Get the loaded modules.
-    final Collection<MZmineModule> allModules = MZmineCore.getAllModules();
-
     // Process the batch step elements.
     final NodeList nodes = xmlElement.getElementsByTagName(BATCH_STEP_ELEMENT);
     final int nodesLength = nodes.getLength();
@@ -87,22 +100,27 @@ public class BatchQueue extends ArrayObservableList<MZmineProcessingStep<MZmineP
       final Element stepElement = (Element) nodes.item(i);
       final String methodName = stepElement.getAttribute(METHOD_ELEMENT);
 
-      // Find a matching module.
-      for (final MZmineModule module : allModules) {
-
-        if (module instanceof MZmineProcessingModule
-            && module.getClass().getName().equals(methodName)) {
-
-          // Get parameters and add step to queue.
-          final ParameterSet parameterSet =
-              MZmineCore.getConfiguration().getModuleParameters(module.getClass());
-          final ParameterSet methodParams = parameterSet.cloneParameterSet();
-          methodParams.loadValuesFromXML(stepElement);
-          queue.add(new MZmineProcessingStepImpl<MZmineProcessingModule>(
-              (MZmineProcessingModule) module, methodParams));
-          break;
-        }
+      // Find the module class. Modules are initialized lazily, so it may not be loaded yet.
+      MZmineProcessingModule module = null;
+      Class<? extends MZmineProcessingModule> moduleClass = null;
+      try {
+        moduleClass = Class.forName(methodName).asSubclass(MZmineProcessingModule.class);
+        module = MZmineCore.getModuleInstance(moduleClass);
+      } catch (ClassNotFoundException | ClassCastException e) {
+        logger.warning("Cannot load batch step " + methodName + ": " + e);
+      }
+      if (module == null) {
+        if (skipUnknownSteps)
+          continue;
+        throw new IllegalArgumentException("Unknown batch step " + methodName);
       }
+
+      // Get parameters and add step to queue.
+      final ParameterSet parameterSet =
+          MZmineCore.getConfiguration().getModuleParameters(moduleClass);
+      final ParameterSet methodParams = parameterSet.cloneParameterSet();
+      methodParams.loadValuesFromXML(stepElement);
+      queue.add(new MZmineProcessingStepImpl<MZmineProcessingModule>(module, methodParams));
     }
 
     return queue;
@@ -122,7 +122,7 @@ public class BatchQueueParameter implements UserParameter<BatchQueue, BatchSetup
 
   @Override
   public void loadValueFromXML(final Element xmlElement) {
-    value = BatchQueue.loadFromXml(xmlElement);
+    value = BatchQueue.loadFromXml(xmlElement, true);
   }
 
   @Override
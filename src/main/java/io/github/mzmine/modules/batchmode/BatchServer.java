@@ -0,0 +1,196 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nonnull;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.project.ProjectManager;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.util.ExitCode;
+
+/**
+ * Batch server (daemon) mode. Watches a directory for batch definition files (*.xml) and runs each
+ * of them against a fresh {@link MZmineProject}. This way, the JVM start-up, class loading and JIT
+ * warm-up are paid only once for many batch jobs.
+ *
+ * Batches are executed one after another: the batch steps resolve their raw data file and feature
+ * list selections against the current project of the {@link ProjectManager}, so the project of a
+ * batch is set as the current project while it runs. The tasks of a single batch still run in
+ * parallel on the task controller.
+ *
+ * Processed batch files are moved to the "done" or "failed" subdirectory of the watched directory.
+ * {@link #stop()} (called from a shutdown hook, e.g., on SIGTERM) finishes the running batch and
+ * stops watching.
+ */
+public class BatchServer implements Runnable {
+
+  public static final String DONE_DIRECTORY = "done";
+  public static final String FAILED_DIRECTORY = "failed";
+
+  private static final String BATCH_FILE_SUFFIX = ".xml";
+
+  /**
+   * Interval between two scans of the watched directory
+   */
+  private static final long POLL_INTERVAL = 2000;
+
+  /**
+   * Only batch files that were not modified for this time are picked up, so we never read a batch
+   * file that is still being written
+   */
+  private static final long MIN_FILE_AGE = 2000;
+
+  private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final File watchDir, doneDir, failedDir;
+
+  private volatile boolean stopped = false;
+  private volatile Thread serverThread;
+
+  // true while a batch is running, guarded by this
+  private boolean running = false;
+
+  /**
+   * @param watchDir directory which is watched for new batch files
+   */
+  public BatchServer(@Nonnull File watchDir) {
+    this.watchDir = watchDir;
+    this.doneDir = new File(watchDir, DONE_DIRECTORY);
+    this.failedDir = new File(watchDir, FAILED_DIRECTORY);
+  }
+
+  @Override
+  public void run() {
+
+    if (!watchDir.isDirectory()) {
+      logger.severe("Cannot watch batch directory " + watchDir + ": not a directory");
+      return;
+    }
+    doneDir.mkdirs();
+    failedDir.mkdirs();
+
+    serverThread = Thread.currentThread();
+    logger.info("Batch server is watching directory " + watchDir);
+
+    while (!stopped) {
+      runNewBatchFiles();
+      try {
+        Thread.sleep(POLL_INTERVAL);
+      } catch (InterruptedException e) {
+        // stop() was called
+      }
+    }
+
+    serverThread = null;
+    logger.info("Batch server stopped");
+  }
+
+  /**
+   * Stops watching the directory and waits until the running batch is finished.
+   */
+  public void stop() {
+    stopped = true;
+    final Thread thread = serverThread;
+    if (thread == null || thread == Thread.currentThread())
+      return;
+    logger.info("Stopping batch server, waiting for the running batch");
+    // only interrupt the sleep between two directory scans, never a running batch
+    synchronized (this) {
+      if (!running)
+        thread.interrupt();
+    }
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void runNewBatchFiles() {
+    final File[] batchFiles =
+        watchDir.listFiles(f -> f.isFile() && f.getName().endsWith(BATCH_FILE_SUFFIX));
+    if (batchFiles == null)
+      return;
+
+    // oldest first
+    Arrays.sort(batchFiles, Comparator.comparingLong(File::lastModified));
+
+    for (File batchFile : batchFiles) {
+      if (stopped)
+        return;
+      if (System.currentTimeMillis() - batchFile.lastModified() < MIN_FILE_AGE)
+        continue;
+      synchronized (this) {
+        running = true;
+        // clear an interrupt of stop() that arrived just before
+        Thread.interrupted();
+      }
+      try {
+        runBatchFile(batchFile);
+      } finally {
+        synchronized (this) {
+          running = false;
+        }
+      }
+    }
+  }
+
+  private void runBatchFile(File batchFile) {
+    final long startTime = System.currentTimeMillis();
+    final ProjectManager projectManager = MZmineCore.getProjectManager();
+    final MZmineProject project = new MZmineProjectImpl();
+    ExitCode exitCode = ExitCode.ERROR;
+    try {
+      // selections of the batch steps resolve against the current project
+      projectManager.setCurrentProject(project);
+      exitCode = BatchModeModule.runBatch(project, batchFile);
+    } catch (Throwable e) {
+      logger.log(Level.SEVERE, "Error while running batch " + batchFile, e);
+    } finally {
+      // Switching the project closes the data files of the batch project and releases their
+      // temporary files, nobody can access them anymore
+      projectManager.setCurrentProject(new MZmineProjectImpl());
+    }
+
+    final long time = System.currentTimeMillis() - startTime;
+    logger.info("Batch " + batchFile.getName() + " finished with " + exitCode + " in " + time
+        + " ms");
+
+    final File targetDir = (exitCode == ExitCode.OK) ? doneDir : failedDir;
+    try {
+      Files.move(batchFile.toPath(), new File(targetDir, batchFile.getName()).toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      // Do not run the same batch again and again
+      logger.log(Level.SEVERE, "Could not move batch file " + batchFile + " to " + targetDir
+          + ", stopping the batch server", e);
+      stopped = true;
+    }
+  }
+
+}
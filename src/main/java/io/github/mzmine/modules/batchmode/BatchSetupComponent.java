@@ -22,7 +22,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -38,7 +38,6 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 import io.github.mzmine.main.MZmineCore;
-import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineModuleCategory;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
@@ -121,33 +120,32 @@ public class BatchSetupComponent extends BorderPane implements LastFilesComponen
     methodsCombo = new ComboBox<Object>();
     // methodsCombo.setMaximumRowCount(14);
 
-    // Add processing modules to combo box by category.
-    final Collection<MZmineModule> allModules = MZmineCore.getAllModules();
+    // Add processing modules to combo box by category. Modules are initialized lazily, so they are
+    // taken from the batch module list and not from the already initialized modules.
+    final List<MZmineProcessingModule> allModules = new ArrayList<>();
+    for (Class<? extends MZmineProcessingModule> moduleClass : BatchModeModulesList.MODULES) {
+      final MZmineProcessingModule module = MZmineCore.getModuleInstance(moduleClass);
+      if (module != null)
+        allModules.add(module);
+    }
 
     for (final MZmineModuleCategory category : MZmineModuleCategory.values()) {
 
       boolean categoryItemAdded = false;
-      for (final MZmineModule module : allModules) {
-
-        // Processing module? Exclude the batch mode module.
-        if (!module.getClass().equals(BatchModeModule.class)
-            && module instanceof MZmineProcessingModule) {
-
-          final MZmineProcessingModule step = (MZmineProcessingModule) module;
+      for (final MZmineProcessingModule step : allModules) {
 
-          // Correct category?
-          if (step.getModuleCategory() == category) {
+        // Correct category?
+        if (step.getModuleCategory() == category) {
 
-            // Add category item?
-            if (!categoryItemAdded) {
-              methodsCombo.getItems().add(category);
-              categoryItemAdded = true;
-            }
-
-            // Add method item.
-            BatchModuleWrapper wrappedModule = new BatchModuleWrapper(step);
-            methodsCombo.getItems().add(wrappedModule);
+          // Add category item?
+          if (!categoryItemAdded) {
+            methodsCombo.getItems().add(category);
+            categoryItemAdded = true;
           }
+
+          // Add method item.
+          BatchModuleWrapper wrappedModule = new BatchModuleWrapper(step);
+          methodsCombo.getItems().add(wrappedModule);
         }
       }
     }
@@ -18,12 +18,18 @@
 
 package io.github.mzmine.modules.dataanalysis.clustering;
 
+import javax.annotation.Nonnull;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.parameters.ParameterSet;
-import weka.core.Instances;
 
 public interface ClusteringAlgorithm extends MZmineModule {
 
-  public ClusteringResult performClustering(Instances dataset, ParameterSet parameters);
+  /**
+   * @param data one vector per clustered item (sample or variable). Must not be changed.
+   * @param names one name per item, e.g., for the hierarchical clustering result
+   * @return the result or null on error
+   */
+  public ClusteringResult performClustering(@Nonnull double[][] data, @Nonnull String[] names,
+      ParameterSet parameters);
 
 }
@@ -21,6 +21,7 @@ import java.text.DecimalFormat;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import javax.swing.SwingUtilities;
 import org.jfree.data.xy.AbstractXYDataset;
 import io.github.mzmine.datamodel.Feature;
@@ -30,7 +31,6 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.gui.Desktop;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineProcessingStep;
-import io.github.mzmine.modules.dataanalysis.clustering.hierarchical.HierarClusterer;
 import io.github.mzmine.modules.dataanalysis.projectionplots.ProjectionPlotDataset;
 import io.github.mzmine.modules.dataanalysis.projectionplots.ProjectionPlotWindow;
 import io.github.mzmine.parameters.ParameterSet;
@@ -47,11 +47,6 @@ import jmprojection.PCA;
 import jmprojection.Preprocess;
 import jmprojection.ProjectionStatus;
 import jmprojection.Sammons;
-import weka.core.Attribute;
-import weka.core.FastVector;
-import weka.core.Instance;
-import weka.core.Instances;
-import weka.core.SparseInstance;
 import weka.gui.hierarchyvisualizer.HierarchyVisualizer;
 
 public class ClusteringTask extends AbstractXYDataset implements ProjectionPlotDataset {
@@ -76,7 +71,6 @@ public class ClusteringTask extends AbstractXYDataset implements ProjectionPlotD
   private ProjectionStatus projectionStatus;
   private MZmineProcessingStep<ClusteringAlgorithm> clusteringStep;
   private ClusteringDataType typeOfData;
-  private Instances dataset;
   private int progress;
   private PeakList peakList;
 
@@ -189,21 +183,28 @@ public class ClusteringTask extends AbstractXYDataset implements ProjectionPlotD
     logger.info("Clustering");
 
     double[][] rawData;
+    String[] names;
 
-    // Creating weka dataset using samples or metabolites (variables)
+    // Creating the data matrix using samples or metabolites (variables)
 
     if (typeOfData == ClusteringDataType.VARIABLES) {
       rawData = createMatrix(false);
-      dataset = createVariableWekaDataset(rawData);
+      names = createVariableNames();
     } else {
       rawData = createMatrix(true);
-      dataset = createSampleWekaDataset(rawData);
+      names = createSampleNames();
     }
 
     // Run the clustering algorithm
     ClusteringAlgorithm clusteringAlgorithm = clusteringStep.getModule();
     ParameterSet clusteringParameters = clusteringStep.getParameterSet();
-    ClusteringResult result = clusteringAlgorithm.performClustering(dataset, clusteringParameters);
+    ClusteringResult result =
+        clusteringAlgorithm.performClustering(rawData, names, clusteringParameters);
+    if (result == null) {
+      errorMessage = "Error while running " + clusteringAlgorithm.getName();
+      status = TaskStatus.ERROR;
+      return;
+    }
 
     String cluster = "";
     if (clusteringAlgorithm.getName().toString().equals("Hierarchical clusterer")) {
@@ -378,114 +379,53 @@ public class ClusteringTask extends AbstractXYDataset implements ProjectionPlotD
         .getValue() == PeakMeasurementType.HEIGHT) {
       useArea = false;
     }
-    double[][] rawData;
-    if (isForSamples) {
-      rawData = new double[selectedRawDataFiles.length][selectedRows.length];
-      for (int rowIndex = 0; rowIndex < selectedRows.length; rowIndex++) {
-        PeakListRow peakListRow = selectedRows[rowIndex];
-        for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
-          RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
-          Feature p = peakListRow.getPeak(rawDataFile);
-          if (p != null) {
-            if (useArea) {
-              rawData[fileIndex][rowIndex] = p.getArea();
-            } else {
-              rawData[fileIndex][rowIndex] = p.getHeight();
-            }
-          }
-        }
-      }
-    } else {
-      rawData = new double[selectedRows.length][selectedRawDataFiles.length];
-      for (int rowIndex = 0; rowIndex < selectedRows.length; rowIndex++) {
-        PeakListRow peakListRow = selectedRows[rowIndex];
-        for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
-          RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
-          Feature p = peakListRow.getPeak(rawDataFile);
-          if (p != null) {
-            if (useArea) {
-              rawData[rowIndex][fileIndex] = p.getArea();
-            } else {
-              rawData[rowIndex][fileIndex] = p.getHeight();
-            }
+    final boolean area = useArea;
+    final double[][] rawData =
+        isForSamples ? new double[selectedRawDataFiles.length][selectedRows.length]
+            : new double[selectedRows.length][selectedRawDataFiles.length];
+    // rows are independent, fill them in parallel
+    IntStream.range(0, selectedRows.length).parallel().forEach(rowIndex -> {
+      PeakListRow peakListRow = selectedRows[rowIndex];
+      for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
+        RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
+        Feature p = peakListRow.getPeak(rawDataFile);
+        if (p != null) {
+          double value = area ? p.getArea() : p.getHeight();
+          if (isForSamples) {
+            rawData[fileIndex][rowIndex] = value;
+          } else {
+            rawData[rowIndex][fileIndex] = value;
           }
         }
       }
-    }
+    });
 
     return rawData;
   }
 
   /**
-   * Creates the weka data set for clustering of samples
-   *
-   * @param rawData Data extracted from selected Raw data files and rows.
-   * @return Weka library data set
+   * @return the names of the selected raw data files
    */
-  private Instances createSampleWekaDataset(double[][] rawData) {
-    FastVector attributes = new FastVector();
-
-    for (int i = 0; i < rawData[0].length; i++) {
-      String varName = "Var" + i;
-      Attribute var = new Attribute(varName);
-      attributes.addElement(var);
+  private String[] createSampleNames() {
+    String[] names = new String[selectedRawDataFiles.length];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = selectedRawDataFiles[i].getName();
     }
-
-    if (clusteringStep.getModule().getClass().equals(HierarClusterer.class)) {
-      Attribute name = new Attribute("name", (FastVector) null);
-      attributes.addElement(name);
-    }
-    Instances data = new Instances("Dataset", attributes, 0);
-
-    for (int i = 0; i < rawData.length; i++) {
-      double[] values = new double[data.numAttributes()];
-      System.arraycopy(rawData[i], 0, values, 0, rawData[0].length);
-      if (clusteringStep.getModule().getClass().equals(HierarClusterer.class)) {
-        values[data.numAttributes() - 1] =
-            data.attribute("name").addStringValue(this.selectedRawDataFiles[i].getName());
-      }
-      Instance inst = new SparseInstance(1.0, values);
-      data.add(inst);
-    }
-    return data;
+    return names;
   }
 
   /**
-   * Creates the weka data set for clustering of variables (metabolites)
-   *
-   * @param rawData Data extracted from selected Raw data files and rows.
-   * @return Weka library data set
+   * @return the names of the selected rows (rounded m/z and RT)
    */
-  private Instances createVariableWekaDataset(double[][] rawData) {
-    FastVector attributes = new FastVector();
-
-    for (int i = 0; i < this.selectedRawDataFiles.length; i++) {
-      String varName = "Var" + i;
-      Attribute var = new Attribute(varName);
-      attributes.addElement(var);
-    }
-
-    if (clusteringStep.getModule().getClass().equals(HierarClusterer.class)) {
-      Attribute name = new Attribute("name", (FastVector) null);
-      attributes.addElement(name);
-    }
-    Instances data = new Instances("Dataset", attributes, 0);
-
-    for (int i = 0; i < selectedRows.length; i++) {
-      double[] values = new double[data.numAttributes()];
-      System.arraycopy(rawData[i], 0, values, 0, rawData[0].length);
-
-      if (clusteringStep.getModule().getClass().equals(HierarClusterer.class)) {
-        DecimalFormat twoDForm = new DecimalFormat("#.##");
-        double MZ = Double.valueOf(twoDForm.format(selectedRows[i].getAverageMZ()));
-        double RT = Double.valueOf(twoDForm.format(selectedRows[i].getAverageRT()));
-        String rowName = "MZ->" + MZ + "/RT->" + RT;
-        values[data.numAttributes() - 1] = data.attribute("name").addStringValue(rowName);
-      }
-      Instance inst = new SparseInstance(1.0, values);
-      data.add(inst);
+  private String[] createVariableNames() {
+    DecimalFormat twoDForm = new DecimalFormat("#.##");
+    String[] names = new String[selectedRows.length];
+    for (int i = 0; i < names.length; i++) {
+      double MZ = Double.valueOf(twoDForm.format(selectedRows[i].getAverageMZ()));
+      double RT = Double.valueOf(twoDForm.format(selectedRows[i].getAverageRT()));
+      names[i] = "MZ->" + MZ + "/RT->" + RT;
     }
-    return data;
+    return names;
   }
 
   @Override
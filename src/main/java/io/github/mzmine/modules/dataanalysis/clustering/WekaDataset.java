@@ -0,0 +1,64 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.dataanalysis.clustering;
+
+import java.util.ArrayList;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+/**
+ * Converts the primitive data matrix of the clustering module into a Weka data set, for the
+ * algorithms that still run in Weka.
+ */
+public class WekaDataset {
+
+  private WekaDataset() {}
+
+  /**
+   * @param data one instance per vector, one numeric attribute per dimension
+   * @param names if not null, an additional string attribute "name" with the names of the
+   *        instances is added (used by the hierarchical clusterer to label the leaves)
+   */
+  @Nonnull
+  public static Instances create(@Nonnull double[][] data, @Nullable String[] names) {
+    final int dimensions = data.length == 0 ? 0 : data[0].length;
+    ArrayList<Attribute> attributes = new ArrayList<>(dimensions + 1);
+    for (int i = 0; i < dimensions; i++) {
+      attributes.add(new Attribute("Var" + i));
+    }
+    if (names != null) {
+      attributes.add(new Attribute("name", (ArrayList<String>) null));
+    }
+
+    Instances dataset = new Instances("Dataset", attributes, data.length);
+    for (int i = 0; i < data.length; i++) {
+      double[] values = new double[dataset.numAttributes()];
+      System.arraycopy(data[i], 0, values, 0, dimensions);
+      if (names != null) {
+        values[dimensions] = dataset.attribute("name").addStringValue(names[i]);
+      }
+      dataset.add(new DenseInstance(1.0, values));
+    }
+    return dataset;
+  }
+
+}
@@ -28,6 +28,7 @@ import javax.annotation.Nonnull;
 
 import io.github.mzmine.modules.dataanalysis.clustering.ClusteringAlgorithm;
 import io.github.mzmine.modules.dataanalysis.clustering.ClusteringResult;
+import io.github.mzmine.modules.dataanalysis.clustering.WekaDataset;
 import io.github.mzmine.parameters.ParameterSet;
 import weka.clusterers.EM;
 import weka.core.Instance;
@@ -45,7 +46,10 @@ public class EMClusterer implements ClusteringAlgorithm {
   }
 
   @Override
-  public ClusteringResult performClustering(Instances dataset, ParameterSet parameters) {
+  public ClusteringResult performClustering(@Nonnull double[][] data, @Nonnull String[] names,
+      ParameterSet parameters) {
+
+    Instances dataset = WekaDataset.create(data, null);
 
     List<Integer> clusters = new ArrayList<Integer>();
     String[] options = new String[2];
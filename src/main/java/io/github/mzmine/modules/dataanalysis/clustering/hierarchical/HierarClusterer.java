@@ -25,6 +25,7 @@ import javax.annotation.Nonnull;
 
 import io.github.mzmine.modules.dataanalysis.clustering.ClusteringAlgorithm;
 import io.github.mzmine.modules.dataanalysis.clustering.ClusteringResult;
+import io.github.mzmine.modules.dataanalysis.clustering.WekaDataset;
 import io.github.mzmine.parameters.ParameterSet;
 import weka.clusterers.HierarchicalClusterer;
 import weka.core.Instances;
@@ -41,7 +42,11 @@ public class HierarClusterer implements ClusteringAlgorithm {
   }
 
   @Override
-  public ClusteringResult performClustering(Instances dataset, ParameterSet parameters) {
+  public ClusteringResult performClustering(@Nonnull double[][] data, @Nonnull String[] names,
+      ParameterSet parameters) {
+
+    // the name attribute is used for the leaves of the Newick tree
+    Instances dataset = WekaDataset.create(data, names);
     HierarchicalClusterer clusterer = new HierarchicalClusterer();
     String[] options = new String[5];
     LinkType link = parameters.getParameter(HierarClustererParameters.linkType).getValue();
@@ -69,6 +74,10 @@ public class HierarClusterer implements ClusteringAlgorithm {
     try {
       clusterer.setOptions(options);
       clusterer.setPrintNewick(true);
+      if (distanceType == DistanceType.EUCLIDIAN) {
+        // same distance, but the distance matrix is computed in parallel
+        clusterer.setDistanceFunction(new PrecomputedEuclideanDistance());
+      }
       clusterer.buildClusterer(dataset);
       // clusterer.graph() gives only the first cluster and in the case
       // there
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.dataanalysis.clustering.hierarchical;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import weka.core.EuclideanDistance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.neighboursearch.PerformanceStats;
+
+/**
+ * Euclidean distance which computes all pairwise distances of the data set in parallel as soon as
+ * the instances are set. Weka's hierarchical clusterer fills its distance matrix on a single
+ * thread, which is the dominating cost for many variables. Distances to instances that are not part
+ * of the data set (e.g., cluster centroids) are computed as usual.
+ */
+class PrecomputedEuclideanDistance extends EuclideanDistance {
+
+  private static final long serialVersionUID = 1L;
+
+  private transient Map<Instance, Integer> indices;
+  private transient double[] distances;
+
+  @Override
+  public void setInstances(Instances insts) {
+    super.setInstances(insts);
+
+    final int n = insts.numInstances();
+    final Instance[] instances = new Instance[n];
+    final Map<Instance, Integer> newIndices = new IdentityHashMap<>(n);
+    for (int i = 0; i < n; i++) {
+      instances[i] = insts.instance(i);
+      newIndices.put(instances[i], i);
+    }
+
+    // the first call initializes the attribute ranges, afterwards distance() is read-only
+    if (n > 0)
+      super.distance(instances[0], instances[0], (PerformanceStats) null);
+
+    // lower triangular matrix without diagonal, row i starts at i*(i-1)/2
+    final double[] newDistances = new double[(int) ((long) n * (n - 1) / 2)];
+    IntStream.range(1, n).parallel().forEach(i -> {
+      final int offset = (int) ((long) i * (i - 1) / 2);
+      for (int j = 0; j < i; j++) {
+        newDistances[offset + j] =
+            super.distance(instances[i], instances[j], (PerformanceStats) null);
+      }
+    });
+
+    indices = newIndices;
+    distances = newDistances;
+  }
+
+  @Override
+  public double distance(Instance first, Instance second) {
+    return distance(first, second, (PerformanceStats) null);
+  }
+
+  @Override
+  public double distance(Instance first, Instance second, PerformanceStats stats) {
+    final Integer i = indices == null ? null : indices.get(first);
+    final Integer j = indices == null ? null : indices.get(second);
+    if (i == null || j == null)
+      return super.distance(first, second, stats);
+    if (i.intValue() == j.intValue())
+      return 0d;
+    final int a = Math.max(i, j);
+    final int b = Math.min(i, j);
+    return distances[(int) ((long) a * (a - 1) / 2) + b];
+  }
+
+}
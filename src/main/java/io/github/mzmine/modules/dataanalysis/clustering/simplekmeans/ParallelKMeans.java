@@ -0,0 +1,365 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.dataanalysis.clustering.simplekmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import javax.annotation.Nonnull;
+
+/**
+ * K-means on a primitive data matrix. The assignment step and the centroid sums run in parallel.
+ * With random initialization and full batches, the result is the same as Weka's SimpleKMeans with
+ * its default options (seed 10, Euclidean distance on attributes normalized to their range, at most
+ * 500 iterations, empty clusters are removed).
+ *
+ * Centroid sums are computed in chunks of fixed size and merged in chunk order, so the result does
+ * not depend on the number of threads.
+ */
+class ParallelKMeans {
+
+  static final int MAX_ITERATIONS = 500;
+  static final long SEED = 10;
+
+  private static final int CHUNK_SIZE = 1024;
+
+  /**
+   * Mini-batch k-means stops after this number of batches or if no center moved further than the
+   * tolerance (squared, normalized data)
+   */
+  private static final int MAX_MINI_BATCHES = 100;
+  private static final double MINI_BATCH_TOLERANCE = 1E-7;
+
+  private final double[][] data;
+  private final int n, dimensions;
+
+  private double[][] centroids;
+
+  /**
+   * @param rawData one vector per item. It is not changed.
+   */
+  ParallelKMeans(@Nonnull double[][] rawData) {
+    n = rawData.length;
+    dimensions = n == 0 ? 0 : rawData[0].length;
+
+    // normalize each dimension to [0, 1] as Weka's EuclideanDistance does
+    final double[] min = new double[dimensions];
+    final double[] range = new double[dimensions];
+    Arrays.fill(min, Double.POSITIVE_INFINITY);
+    Arrays.fill(range, Double.NEGATIVE_INFINITY);
+    for (double[] vector : rawData) {
+      for (int j = 0; j < dimensions; j++) {
+        min[j] = Math.min(min[j], vector[j]);
+        range[j] = Math.max(range[j], vector[j]);
+      }
+    }
+    for (int j = 0; j < dimensions; j++)
+      range[j] -= min[j];
+
+    data = new double[n][];
+    IntStream.range(0, n).parallel().forEach(i -> {
+      final double[] vector = new double[dimensions];
+      for (int j = 0; j < dimensions; j++) {
+        vector[j] = range[j] > 0 ? (rawData[i][j] - min[j]) / range[j] : 0d;
+      }
+      data[i] = vector;
+    });
+  }
+
+  /**
+   * @param k maximum number of clusters. Less clusters are returned if there are less distinct
+   *        vectors or if clusters become empty.
+   * @param miniBatchSize if > 0 and smaller than the number of vectors, the centers are computed
+   *        with mini-batch k-means on random samples of this size
+   * @return the cluster of each vector, clusters are numbered 0 to
+   *         {@link #getNumberOfClusters()}-1
+   */
+  @Nonnull
+  int[] cluster(int k, @Nonnull KMeansInitialization initialization, int miniBatchSize) {
+    if (n == 0) {
+      centroids = new double[0][];
+      return new int[0];
+    }
+
+    final Random random = new Random(SEED);
+    switch (initialization) {
+      case KMEANS_PLUS_PLUS:
+        centroids = initPlusPlus(k, random);
+        break;
+      case RANDOM:
+      default:
+        centroids = initRandom(k, random);
+        break;
+    }
+
+    if (miniBatchSize > 0 && miniBatchSize < n)
+      iterateMiniBatch(miniBatchSize, random);
+    else
+      iterateFullBatch();
+
+    // final assignment to the final centers, empty clusters are removed
+    int[] assignments = new int[n];
+    assign(assignments);
+    return removeEmptyClusters(assignments);
+  }
+
+  int getNumberOfClusters() {
+    return centroids == null ? 0 : centroids.length;
+  }
+
+  /**
+   * Same as Weka's random initialization: random distinct vectors, drawn without replacement
+   */
+  private double[][] initRandom(int k, Random random) {
+    final int[] order = IntStream.range(0, n).toArray();
+    final Set<VectorKey> distinct = new HashSet<>();
+    final List<double[]> centers = new ArrayList<>(k);
+    for (int j = n - 1; j >= 0 && centers.size() < k; j--) {
+      final int index = random.nextInt(j + 1);
+      final double[] vector = data[order[index]];
+      if (distinct.add(new VectorKey(vector)))
+        centers.add(vector.clone());
+      final int tmp = order[j];
+      order[j] = order[index];
+      order[index] = tmp;
+    }
+    return centers.toArray(new double[centers.size()][]);
+  }
+
+  /**
+   * k-means++: each further center is drawn with a probability proportional to its squared
+   * distance to the nearest center chosen so far
+   */
+  private double[][] initPlusPlus(int k, Random random) {
+    final List<double[]> centers = new ArrayList<>(k);
+    centers.add(data[random.nextInt(n)].clone());
+
+    final double[] minDist = new double[n];
+    IntStream.range(0, n).parallel()
+        .forEach(i -> minDist[i] = squaredDistance(data[i], centers.get(0)));
+
+    while (centers.size() < k) {
+      double sum = 0;
+      for (double d : minDist)
+        sum += d;
+      // only duplicates of the current centers are left
+      if (sum <= 0)
+        break;
+
+      final double target = random.nextDouble() * sum;
+      int next = n - 1;
+      double cumulative = 0;
+      for (int i = 0; i < n; i++) {
+        cumulative += minDist[i];
+        if (cumulative > target && minDist[i] > 0) {
+          next = i;
+          break;
+        }
+      }
+
+      final double[] center = data[next].clone();
+      centers.add(center);
+      IntStream.range(0, n).parallel()
+          .forEach(i -> minDist[i] = Math.min(minDist[i], squaredDistance(data[i], center)));
+    }
+    return centers.toArray(new double[centers.size()][]);
+  }
+
+  /**
+   * Lloyd iterations until no assignment changes, as in Weka's SimpleKMeans
+   */
+  private void iterateFullBatch() {
+    int[] assignments = new int[n];
+    boolean converged = false;
+    for (int iteration = 0; !converged && iteration < MAX_ITERATIONS; iteration++) {
+      converged = !assign(assignments);
+      centroids = computeCentroids(assignments, centroids.length);
+      assignments = removeEmptyClusters(assignments);
+    }
+  }
+
+  /**
+   * Mini-batch k-means (Sculley 2010): the centers are moved towards random samples with a
+   * per-center learning rate of 1/(number of vectors assigned so far)
+   */
+  private void iterateMiniBatch(int batchSize, Random random) {
+    final long[] counts = new long[centroids.length];
+    final int[] batch = new int[batchSize];
+    final int[] nearest = new int[batchSize];
+
+    for (int iteration = 0; iteration < MAX_MINI_BATCHES; iteration++) {
+      for (int b = 0; b < batchSize; b++)
+        batch[b] = random.nextInt(n);
+      IntStream.range(0, batchSize).parallel()
+          .forEach(b -> nearest[b] = nearestCentroid(data[batch[b]]));
+
+      double maxShift = 0;
+      final double[][] previous = new double[centroids.length][];
+      for (int b = 0; b < batchSize; b++) {
+        final int c = nearest[b];
+        final double[] center = centroids[c];
+        if (previous[c] == null)
+          previous[c] = center.clone();
+        counts[c]++;
+        final double rate = 1d / counts[c];
+        final double[] vector = data[batch[b]];
+        for (int j = 0; j < dimensions; j++)
+          center[j] += rate * (vector[j] - center[j]);
+      }
+      for (int c = 0; c < centroids.length; c++) {
+        if (previous[c] != null)
+          maxShift = Math.max(maxShift, squaredDistance(previous[c], centroids[c]));
+      }
+      if (maxShift < MINI_BATCH_TOLERANCE)
+        break;
+    }
+  }
+
+  /**
+   * Assigns each vector to its nearest centroid (in parallel)
+   *
+   * @return true if any assignment changed
+   */
+  private boolean assign(int[] assignments) {
+    return IntStream.range(0, n).parallel().map(i -> {
+      final int c = nearestCentroid(data[i]);
+      if (c == assignments[i])
+        return 0;
+      assignments[i] = c;
+      return 1;
+    }).sum() > 0;
+  }
+
+  /**
+   * @return the nearest centroid, the lowest index on ties
+   */
+  private int nearestCentroid(double[] vector) {
+    int best = 0;
+    double bestDist = Double.POSITIVE_INFINITY;
+    for (int c = 0; c < centroids.length; c++) {
+      final double dist = squaredDistance(vector, centroids[c]);
+      if (dist < bestDist) {
+        bestDist = dist;
+        best = c;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Means of the assigned vectors. Empty clusters keep a null centroid.
+   */
+  private double[][] computeCentroids(int[] assignments, int k) {
+    final int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    // partial sums per chunk, the last value of each sum is the count
+    final double[][][] partials = new double[chunks][][];
+    IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      final double[][] sums = new double[k][dimensions + 1];
+      final int end = Math.min(n, (chunk + 1) * CHUNK_SIZE);
+      for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+        final double[] sum = sums[assignments[i]];
+        final double[] vector = data[i];
+        for (int j = 0; j < dimensions; j++)
+          sum[j] += vector[j];
+        sum[dimensions]++;
+      }
+      partials[chunk] = sums;
+    });
+
+    final double[][] result = new double[k][];
+    for (int c = 0; c < k; c++) {
+      final double[] sum = new double[dimensions + 1];
+      for (double[][] partial : partials) {
+        for (int j = 0; j <= dimensions; j++)
+          sum[j] += partial[c][j];
+      }
+      if (sum[dimensions] == 0)
+        continue;
+      final double[] mean = new double[dimensions];
+      for (int j = 0; j < dimensions; j++)
+        mean[j] = sum[j] / sum[dimensions];
+      result[c] = mean;
+    }
+    return result;
+  }
+
+  /**
+   * Removes null centroids and centroids without assigned vectors and renumbers the assignments
+   *
+   * @return the renumbered assignments
+   */
+  private int[] removeEmptyClusters(int[] assignments) {
+    final boolean[] used = new boolean[centroids.length];
+    for (int c : assignments)
+      used[c] = true;
+
+    final int[] newIndex = new int[centroids.length];
+    final List<double[]> remaining = new ArrayList<>(centroids.length);
+    for (int c = 0; c < centroids.length; c++) {
+      if (used[c] && centroids[c] != null) {
+        newIndex[c] = remaining.size();
+        remaining.add(centroids[c]);
+      }
+    }
+    if (remaining.size() == centroids.length)
+      return assignments;
+
+    centroids = remaining.toArray(new double[remaining.size()][]);
+    final int[] result = new int[n];
+    for (int i = 0; i < n; i++)
+      result[i] = newIndex[assignments[i]];
+    return result;
+  }
+
+  private double squaredDistance(double[] a, double[] b) {
+    double sum = 0;
+    for (int j = 0; j < dimensions; j++) {
+      final double diff = a[j] - b[j];
+      sum += diff * diff;
+    }
+    return sum;
+  }
+
+  /**
+   * Vectors compared by value
+   */
+  private static final class VectorKey {
+
+    private final double[] vector;
+
+    private VectorKey(double[] vector) {
+      this.vector = vector;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof VectorKey && Arrays.equals(vector, ((VectorKey) obj).vector);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(vector);
+    }
+  }
+
+}
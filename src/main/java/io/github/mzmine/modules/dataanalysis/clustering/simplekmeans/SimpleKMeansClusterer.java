@@ -18,8 +18,6 @@
 
 package io.github.mzmine.modules.dataanalysis.clustering.simplekmeans;
 
-import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,11 +26,8 @@ import javax.annotation.Nonnull;
 
 import io.github.mzmine.modules.dataanalysis.clustering.ClusteringAlgorithm;
 import io.github.mzmine.modules.dataanalysis.clustering.ClusteringResult;
-import io.github.mzmine.modules.dataanalysis.clustering.em.EMClustererParameters;
 import io.github.mzmine.parameters.ParameterSet;
-import weka.clusterers.SimpleKMeans;
-import weka.core.Instance;
-import weka.core.Instances;
+import io.github.mzmine.util.IntArrayList;
 
 public class SimpleKMeansClusterer implements ClusteringAlgorithm {
 
@@ -46,26 +41,26 @@ public class SimpleKMeansClusterer implements ClusteringAlgorithm {
   }
 
   @Override
-  public ClusteringResult performClustering(Instances dataset, ParameterSet parameters) {
-
-    List<Integer> clusters = new ArrayList<Integer>();
-    String[] options = new String[2];
-    SimpleKMeans clusterer = new SimpleKMeans();
+  public ClusteringResult performClustering(@Nonnull double[][] data, @Nonnull String[] names,
+      ParameterSet parameters) {
 
     int numberOfGroups =
         parameters.getParameter(SimpleKMeansClustererParameters.numberOfGroups).getValue();
-    options[0] = "-N";
-    options[1] = String.valueOf(numberOfGroups);
+    KMeansInitialization initialization =
+        parameters.getParameter(SimpleKMeansClustererParameters.initialization).getValue();
+    int miniBatchSize = 0;
+    if (parameters.getParameter(SimpleKMeansClustererParameters.miniBatchSize).getValue()) {
+      miniBatchSize = parameters.getParameter(SimpleKMeansClustererParameters.miniBatchSize)
+          .getEmbeddedParameter().getValue();
+    }
 
     try {
-      clusterer.setOptions(options);
-      clusterer.buildClusterer(dataset);
-      Enumeration<?> e = dataset.enumerateInstances();
-      while (e.hasMoreElements()) {
-        clusters.add(clusterer.clusterInstance((Instance) e.nextElement()));
-      }
-      ClusteringResult result = new ClusteringResult(clusters, null, clusterer.numberOfClusters(),
-          parameters.getParameter(EMClustererParameters.visualization).getValue());
+      ParallelKMeans clusterer = new ParallelKMeans(data);
+      int[] assignments = clusterer.cluster(numberOfGroups, initialization, miniBatchSize);
+      List<Integer> clusters = new IntArrayList(assignments);
+      ClusteringResult result = new ClusteringResult(clusters, null,
+          clusterer.getNumberOfClusters(),
+          parameters.getParameter(SimpleKMeansClustererParameters.visualization).getValue());
       return result;
 
     } catch (Exception ex) {
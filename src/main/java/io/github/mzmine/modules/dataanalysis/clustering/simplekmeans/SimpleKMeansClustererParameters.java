@@ -23,6 +23,7 @@ import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.IntegerParameter;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
 
 public class SimpleKMeansClustererParameters extends SimpleParameterSet {
 
@@ -33,7 +34,19 @@ public class SimpleKMeansClustererParameters extends SimpleParameterSet {
   public static final IntegerParameter numberOfGroups = new IntegerParameter(
       "Number of clusters to generate", "Specify the number of clusters to generate.", 3);
 
+  public static final ComboParameter<KMeansInitialization> initialization =
+      new ComboParameter<KMeansInitialization>("Initialization",
+          "Random: random distinct samples/variables as initial centers (as Weka's SimpleKMeans)."
+              + " k-means++: spread out initial centers, usually converges faster",
+          KMeansInitialization.values(), KMeansInitialization.RANDOM);
+
+  public static final OptionalParameter<IntegerParameter> miniBatchSize =
+      new OptionalParameter<>(new IntegerParameter("Mini-batch size",
+          "Compute the cluster centers on random batches of this size instead of all"
+              + " samples/variables. Faster for many variables, but the result is approximate",
+          1000, 1, null));
+
   public SimpleKMeansClustererParameters() {
-    super(new Parameter[] {visualization, numberOfGroups});
+    super(new Parameter[] {visualization, numberOfGroups, initialization, miniBatchSize});
   }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.dataanalysis.heatmaps;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+
+/**
+ * Complete linkage hierarchical clustering with euclidean distances, the defaults of R's heatmap.2
+ * (hclust and dist). Missing values (NaN) are handled like in R: only the dimensions present in
+ * both vectors are used and the distance is scaled up to the full number of dimensions.
+ *
+ * The distances are stored in a triangular float matrix, which is computed in parallel. The
+ * clustering itself uses the nearest neighbor chain algorithm (O(n^2) time, no additional memory).
+ * The branches are ordered like heatmap.2 does with reorder(dendrogram, rowMeans): the weight of a
+ * leaf is the mean of its finite values, the weight of a branch is the sum of its leaf weights and
+ * the branch with the lower weight is placed first.
+ */
+class HeatMapDendrogram {
+
+  /**
+   * The triangular distance matrix is indexed with int
+   */
+  static final int MAX_VECTORS = 65536;
+
+  private final int n;
+  // merge i joins the clusters left[i] and right[i] at height[i]. Leaves are 0..n-1, the cluster
+  // created by merge i has the id n+i
+  private final int left[], right[];
+  private final double height[];
+  private final int order[];
+
+  private HeatMapDendrogram(int n, int[] left, int[] right, double[] height) {
+    this.n = n;
+    this.left = left;
+    this.right = right;
+    this.height = height;
+    this.order = computeOrder();
+  }
+
+  /**
+   * @param vectors one vector per clustered item, all of the same length. Vectors without any
+   *        finite value must have been removed before.
+   * @param canceled checked regularly
+   * @return the dendrogram or null if canceled
+   */
+  @Nullable
+  static HeatMapDendrogram cluster(double[][] vectors, BooleanSupplier canceled) {
+    final int n = vectors.length;
+    if (n > MAX_VECTORS)
+      throw new IllegalArgumentException("Cannot cluster more than " + MAX_VECTORS + " items");
+
+    // triangular distance matrix, computed in parallel
+    final float dist[] = new float[(int) ((long) n * (n - 1) / 2)];
+    IntStream.range(1, n).parallel().forEach(i -> {
+      if (canceled.getAsBoolean())
+        return;
+      final int offset = (int) ((long) i * (i - 1) / 2);
+      for (int j = 0; j < i; j++)
+        dist[offset + j] = (float) distance(vectors[i], vectors[j]);
+    });
+    if (canceled.getAsBoolean())
+      return null;
+
+    // vectors without any common value are merged last
+    float maxDist = 0;
+    for (float d : dist)
+      if (d > maxDist)
+        maxDist = d;
+    for (int i = 0; i < dist.length; i++)
+      if (Float.isNaN(dist[i]))
+        dist[i] = maxDist;
+
+    // weights of the clusters to order the branches, the sums of the leaves' mean values
+    final double weight[] = new double[n];
+    for (int i = 0; i < n; i++) {
+      double sum = 0;
+      int count = 0;
+      for (double v : vectors[i]) {
+        if (!Double.isNaN(v)) {
+          sum += v;
+          count++;
+        }
+      }
+      weight[i] = count == 0 ? 0 : sum / count;
+    }
+
+    // nearest neighbor chain
+    final int clusterId[] = new int[n];
+    for (int i = 0; i < n; i++)
+      clusterId[i] = i;
+    final boolean active[] = new boolean[n];
+    Arrays.fill(active, true);
+    final int chain[] = new int[n];
+    int chainSize = 0;
+
+    final int left[] = new int[Math.max(0, n - 1)];
+    final int right[] = new int[left.length];
+    final double height[] = new double[left.length];
+
+    for (int merge = 0; merge < n - 1; merge++) {
+      if (canceled.getAsBoolean())
+        return null;
+
+      if (chainSize == 0) {
+        int first = 0;
+        while (!active[first])
+          first++;
+        chain[chainSize++] = first;
+      }
+
+      int a, b;
+      while (true) {
+        a = chain[chainSize - 1];
+        final int prev = chainSize > 1 ? chain[chainSize - 2] : -1;
+        // nearest neighbor of a, prefer the previous chain element on ties
+        b = prev;
+        float minDist = prev >= 0 ? dist[index(a, prev)] : Float.POSITIVE_INFINITY;
+        for (int k = 0; k < n; k++) {
+          if (k == a || !active[k])
+            continue;
+          final float d = dist[index(a, k)];
+          if (d < minDist) {
+            minDist = d;
+            b = k;
+          }
+        }
+        if (b == prev)
+          break;
+        chain[chainSize++] = b;
+      }
+      chainSize -= 2;
+
+      // merge b into a (complete linkage: maximum distance)
+      final float mergeDist = dist[index(a, b)];
+      for (int k = 0; k < n; k++) {
+        if (k == a || k == b || !active[k])
+          continue;
+        final int ak = index(a, k);
+        final float bk = dist[index(b, k)];
+        if (bk > dist[ak])
+          dist[ak] = bk;
+      }
+      active[b] = false;
+
+      if (weight[a] <= weight[b]) {
+        left[merge] = clusterId[a];
+        right[merge] = clusterId[b];
+      } else {
+        left[merge] = clusterId[b];
+        right[merge] = clusterId[a];
+      }
+      height[merge] = mergeDist;
+      weight[a] += weight[b];
+      clusterId[a] = n + merge;
+    }
+
+    return new HeatMapDendrogram(n, left, right, height);
+  }
+
+  /**
+   * Euclidean distance over the dimensions present in both vectors, scaled to all dimensions.
+   *
+   * @return the distance or NaN if there is no common dimension
+   */
+  private static double distance(double[] a, double[] b) {
+    double sum = 0;
+    int used = 0;
+    for (int d = 0; d < a.length; d++) {
+      if (Double.isNaN(a[d]) || Double.isNaN(b[d]))
+        continue;
+      final double diff = a[d] - b[d];
+      sum += diff * diff;
+      used++;
+    }
+    if (used == 0)
+      return Double.NaN;
+    return Math.sqrt(sum * a.length / used);
+  }
+
+  private static int index(int i, int j) {
+    if (i < j) {
+      final int tmp = i;
+      i = j;
+      j = tmp;
+    }
+    return (int) ((long) i * (i - 1) / 2) + j;
+  }
+
+  private int[] computeOrder() {
+    final int result[] = new int[n];
+    if (n < 2)
+      return result;
+    // depth first from the root, left branch first
+    final int stack[] = new int[n];
+    int stackSize = 0, pos = 0;
+    stack[stackSize++] = n + left.length - 1;
+    while (stackSize > 0) {
+      final int id = stack[--stackSize];
+      if (id < n) {
+        result[pos++] = id;
+      } else {
+        stack[stackSize++] = right[id - n];
+        stack[stackSize++] = left[id - n];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the leaf indices in dendrogram order
+   */
+  int[] getOrder() {
+    return order;
+  }
+
+  int getMergeCount() {
+    return left.length;
+  }
+
+  /**
+   * @return the left cluster of a merge (leaf index or n + merge index)
+   */
+  int getLeft(int merge) {
+    return left[merge];
+  }
+
+  int getRight(int merge) {
+    return right[merge];
+  }
+
+  double getHeight(int merge) {
+    return height[merge];
+  }
+
+}
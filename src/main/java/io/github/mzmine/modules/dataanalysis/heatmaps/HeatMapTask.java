@@ -18,40 +18,59 @@
 
 package io.github.mzmine.modules.dataanalysis.heatmaps;
 
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
 import java.util.logging.Logger;
-
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.commons.math.MathException;
 import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math.stat.inference.TTestImpl;
-
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.annotations.XYTextAnnotation;
+import org.jfree.chart.axis.AxisLocation;
+import org.jfree.chart.axis.AxisSpace;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.SymbolAxis;
+import org.jfree.chart.plot.CombinedRangeXYPlot;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.LookupPaintScale;
+import org.jfree.chart.renderer.xy.XYBlockRenderer;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.chart.title.PaintScaleLegend;
+import org.jfree.chart.ui.RectangleEdge;
+import org.jfree.data.xy.DefaultXYDataset;
+import org.jfree.data.xy.DefaultXYZDataset;
 import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.PeakList;
 import io.github.mzmine.datamodel.PeakListRow;
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.gui.chartbasics.graphicsexport.ChartExportUtil;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.R.REngineType;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
-import io.github.mzmine.util.R.Rsession.Rsession;
 
+/**
+ * Creates a heat map of the feature list, like the heatmap.2 function of R's gplots package: rows
+ * and columns are ordered by hierarchical clustering, the rows dendrogram is drawn next to the heat
+ * map. The data matrix, the clustering and the chart are all computed in Java, so no R installation
+ * is needed and large feature lists are processed in parallel.
+ */
 public class HeatMapTask extends AbstractTask {
 
-  private Logger logger = Logger.getLogger(this.getClass().getName());
+  // size of a text line (for the margins) and the default font size, like in R
+  private static final int LINE_HEIGHT = 12;
+  private static final int POINTS_PER_INCH = 72;
 
-  private RSessionWrapper rSession;
-  private String errorMsg;
+  private Logger logger = Logger.getLogger(this.getClass().getName());
 
   private final MZmineProject project;
-  private final REngineType rEngineType;
   private final String outputType;
   private final boolean log, rcontrol, scale, plegend, area, onlyIdentified;
   private final int height, width, columnMargin, rowMargin, starSize;
@@ -70,7 +89,6 @@ public class HeatMapTask extends AbstractTask {
     this.peakList = peakList;
 
     // Parameters
-    rEngineType = parameters.getParameter(HeatMapParameters.RENGINE_TYPE).getValue();
     outputFile = parameters.getParameter(HeatMapParameters.fileName).getValue();
     outputType = parameters.getParameter(HeatMapParameters.fileTypeSelection).getValue();
     selectedParameter = parameters.getParameter(HeatMapParameters.selectionData).getValue();
@@ -99,27 +117,22 @@ public class HeatMapTask extends AbstractTask {
     return finishedPercentage;
   }
 
-  @Override
-  public void cancel() {
-
-    super.cancel();
-
-    // Turn off R instance, if already existing.
-    try {
-      if (rSession != null)
-        rSession.close(true);
-    } catch (RSessionWrapperException e) {
-      // Silent, always...
-    }
-  }
-
   public void run() {
-    errorMsg = null;
 
     setStatus(TaskStatus.PROCESSING);
 
     logger.info("Heat map plot");
 
+    if (outputType.contains("png")) {
+      if (height < 500 || width < 500) {
+
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage(
+            "Figure height or width is too small. " + "Minimun height and width is 500.");
+        return;
+      }
+    }
+
     if (plegend) {
       newPeakList = groupingDataset(selectedParameter, referenceGroup.toString());
     } else {
@@ -132,179 +145,296 @@ public class HeatMapTask extends AbstractTask {
       return;
     }
 
-    try {
-
-      // Load gplots library
-      String[] reqPackages = {"gplots"};
-      rSession =
-          new RSessionWrapper(this.rEngineType, "HeatMap analysis module", reqPackages, null);
-      rSession.open();
-
-      finishedPercentage = 0.3f;
-
-      if (outputType.contains("png")) {
-        if (height < 500 || width < 500) {
+    finishedPercentage = 0.2f;
 
-          setStatus(TaskStatus.ERROR);
-          setErrorMessage(
-              "Figure height or width is too small. " + "Minimun height and width is 500.");
-          return;
-        }
+    // One vector per row. Rows without any value cannot be clustered (R: na.omit of the
+    // distance matrix), missing values are NaN.
+    final int numColumns = newPeakList.length;
+    final List<Integer> validRows = IntStream.range(0, newPeakList[0].length).filter(row -> {
+      for (int column = 0; column < numColumns; column++) {
+        if (Double.isFinite(newPeakList[column][row]))
+          return true;
       }
+      return false;
+    }).boxed().collect(Collectors.toList());
 
-      rSession.eval("dataset<- matrix(\"\",nrow =" + newPeakList[0].length + ",ncol="
-          + newPeakList.length + ")");
+    if (validRows.isEmpty()) {
+      setStatus(TaskStatus.ERROR);
+      setErrorMessage("The data for heat map is empty.");
+      return;
+    }
 
-      if (plegend) {
-        rSession.eval("stars<- matrix(\"\",nrow =" + newPeakList[0].length + ",ncol="
-            + newPeakList.length + ")");
+    final double rowVectors[][] = new double[validRows.size()][numColumns];
+    IntStream.range(0, validRows.size()).parallel().forEach(i -> {
+      final int row = validRows.get(i);
+      for (int column = 0; column < numColumns; column++) {
+        final double value = newPeakList[column][row];
+        rowVectors[i][column] = Double.isFinite(value) ? value : Double.NaN;
       }
+    });
+    final String validRowNames[] =
+        validRows.stream().map(row -> rowNames[row]).toArray(String[]::new);
+    final String validStars[][] = plegend ? new String[numColumns][validRows.size()] : null;
+    if (plegend) {
+      for (int column = 0; column < numColumns; column++)
+        for (int i = 0; i < validRows.size(); i++)
+          validStars[column][i] = pValueMatrix[column][validRows.get(i)];
+    }
 
-      // assing the values to the matrix
-      for (int row = 0; row < newPeakList[0].length; row++) {
-
-        for (int column = 0; column < newPeakList.length; column++) {
-
-          int r = row + 1;
-          int c = column + 1;
-
-          double value = newPeakList[column][row];
+    // Cluster the rows and the columns
+    HeatMapDendrogram rowDendrogram = null;
+    if (rowVectors.length <= HeatMapDendrogram.MAX_VECTORS) {
+      rowDendrogram = HeatMapDendrogram.cluster(rowVectors, this::isCanceled);
+      if (isCanceled())
+        return;
+    } else {
+      logger.warning("Too many rows to cluster (" + rowVectors.length
+          + "), the rows are shown in the feature list order");
+    }
+    finishedPercentage = 0.7f;
+
+    final double columnVectors[][] = new double[numColumns][rowVectors.length];
+    for (int i = 0; i < rowVectors.length; i++)
+      for (int column = 0; column < numColumns; column++)
+        columnVectors[column][i] = rowVectors[i][column];
+    final HeatMapDendrogram columnDendrogram =
+        HeatMapDendrogram.cluster(columnVectors, this::isCanceled);
+    if (isCanceled())
+      return;
+    finishedPercentage = 0.8f;
 
-          if (plegend) {
-            String pValue = pValueMatrix[column][row];
-            rSession.eval("stars[" + r + "," + c + "] = \"" + pValue + "\"");
-          }
+    try {
+      final JFreeChart chart = createChart(rowVectors, validRowNames, validStars, rowDendrogram,
+          columnDendrogram.getOrder());
 
-          if (!Double.isInfinite(value) && !Double.isNaN(value)) {
+      // The size is given in pixels for png and in inches for the other formats
+      final int scaleFactor = outputType.contains("png") ? 1 : POINTS_PER_INCH;
+      ChartExportUtil.writeChartToFile(chart, null, outputType.toUpperCase(), width * scaleFactor,
+          height * scaleFactor, outputFile, POINTS_PER_INCH);
+    } catch (Exception e) {
+      if (!isCanceled()) {
+        setErrorMessage("Error during heatmap generation. \n" + e.getMessage());
+        setStatus(TaskStatus.ERROR);
+      }
+      return;
+    }
 
-            rSession.eval("dataset[" + r + "," + c + "] = " + value);
-          } else {
+    finishedPercentage = 1.0;
+    setStatus(TaskStatus.FINISHED);
+  }
 
-            rSession.eval("dataset[" + r + "," + c + "] = NA");
-          }
+  /**
+   * Heat map with blue (negative), white (0) and red (positive) values and grey for missing values.
+   * The row dendrogram is drawn on the left, the row names on the right and the column names below
+   * the heat map.
+   */
+  private JFreeChart createChart(double[][] rowVectors, String[] rowLabels, String[][] stars,
+      HeatMapDendrogram rowDendrogram, int[] columnOrder) {
+    final int numRows = rowVectors.length;
+    final int numColumns = columnOrder.length;
+    final int rowOrder[] =
+        rowDendrogram != null ? rowDendrogram.getOrder() : IntStream.range(0, numRows).toArray();
+
+    // heat map data set, missing values are not added and show the background
+    double min = 0, max = 0;
+    int numValues = 0;
+    for (double[] vector : rowVectors) {
+      for (double value : vector) {
+        if (!Double.isNaN(value)) {
+          min = Math.min(min, value);
+          max = Math.max(max, value);
+          numValues++;
         }
       }
-      finishedPercentage = 0.4f;
-
-      rSession.eval("dataset <- apply(dataset, 2, as.numeric)");
-
-      // Assign row names to the data set
-      rSession.assign("rowNames", rowNames);
-      rSession.eval("rownames(dataset)<-rowNames");
-
-      // Assign column names to the data set
-      rSession.assign("colNames", colNames);
-      rSession.eval("colnames(dataset)<-colNames");
-
-      finishedPercentage = 0.5f;
-
-      // Remove the rows with too many NA's. The distances between
-      // rows can't be calculated if the rows don't have
-      // at least one sample in common.
-      rSession.eval("d <- as.matrix(dist(dataset))");
-      rSession.eval("d[upper.tri(d)] <- 0");
-      rSession.eval("naindices <- na.action(na.omit(d))");
-      rSession.eval("if (! is.null(naindices)) dataset <- dataset[-naindices,]");
-
-      finishedPercentage = 0.8f;
-
-      String marginParameter = "margins = c(" + columnMargin + "," + rowMargin + ")";
-      rSession.eval("br<-c(seq(from=min(dataset,na.rm=T),to=0,length.out=256),"
-          + "seq(from=0.00001,to=max(dataset,na.rm=T),length.out=256))", false);
-
-      // Convert the path to R-compatible string
-      final String escapedOutputFileName = Rsession.toRpath(outputFile);
-
-      // Possible output file types
-      if (outputType.contains("pdf")) {
-
-        rSession.eval(
-            "pdf(\"" + escapedOutputFileName + "\", height=" + height + ", width=" + width + ")");
-      } else if (outputType.contains("fig")) {
-
-        rSession.eval("xfig(\"" + escapedOutputFileName + "\", height=" + height + ", width="
-            + width + ", horizontal = FALSE, pointsize = 12)");
-      } else if (outputType.contains("svg")) {
-
-        // Load RSvgDevice library
-        rSession.loadPackage("RSvgDevice");
-
-        rSession.eval("devSVG(\"" + escapedOutputFileName + "\", height=" + height + ", width="
-            + width + ")");
-      } else if (outputType.contains("png")) {
-
-        rSession.eval(
-            "png(\"" + escapedOutputFileName + "\", height=" + height + ", width=" + width + ")");
+    }
+    final double xyz[][] = new double[3][numValues];
+    for (int r = 0, i = 0; r < numRows; r++) {
+      for (int c = 0; c < numColumns; c++) {
+        final double value = rowVectors[rowOrder[r]][columnOrder[c]];
+        if (Double.isNaN(value))
+          continue;
+        xyz[0][i] = c;
+        xyz[1][i] = r;
+        xyz[2][i] = value;
+        i++;
       }
+    }
+    final DefaultXYZDataset dataset = new DefaultXYZDataset();
+    dataset.addSeries("Heat map", xyz);
+
+    // same breaks as the R implementation: 256 colors from min to 0 and from 0 to max
+    if (max <= min)
+      max = min + 1;
+    final LookupPaintScale paintScale = new LookupPaintScale(min, max, Color.LIGHT_GRAY);
+    for (int i = 0; i < 256; i++) {
+      final float f = i / 255f;
+      paintScale.add(min - min * f, new Color(f, f, 1f));
+      paintScale.add(0.00001 + (max - 0.00001) * f, new Color(1f, 1f - f, 1f - f));
+    }
 
-      if (plegend) {
-
-        rSession.eval(
-            "heatmap.2(dataset," + marginParameter + ", trace=\"none\", col=bluered(length(br)-1),"
-                + " breaks=br, cellnote=stars, notecol=\"black\"" + ", notecex=" + starSize
-                + ", na.color=\"grey\")",
-            false);
-      } else {
-
-        rSession.eval("heatmap.2(dataset," + marginParameter
-            + ", trace=\"none\", col=bluered(length(br)-1)," + " breaks=br, na.color=\"grey\")",
-            false);
+    final XYBlockRenderer renderer = new XYBlockRenderer();
+    renderer.setPaintScale(paintScale);
+
+    // axes, font sizes like heatmap.2 (cex = 0.2 + 1/log10(n))
+    final String orderedRowLabels[] = new String[numRows];
+    for (int r = 0; r < numRows; r++)
+      orderedRowLabels[r] = rowLabels[rowOrder[r]];
+    final String orderedColumnLabels[] = new String[numColumns];
+    for (int c = 0; c < numColumns; c++)
+      orderedColumnLabels[c] = colNames[columnOrder[c]];
+
+    final SymbolAxis columnAxis = new SymbolAxis(null, orderedColumnLabels);
+    columnAxis.setVerticalTickLabels(true);
+    columnAxis.setGridBandsVisible(false);
+    columnAxis.setTickLabelFont(getLabelFont(numColumns));
+    columnAxis.setRange(-0.5, numColumns - 0.5);
+
+    final SymbolAxis rowAxis = new SymbolAxis(null, orderedRowLabels);
+    rowAxis.setGridBandsVisible(false);
+    rowAxis.setTickLabelFont(getLabelFont(numRows));
+    rowAxis.setRange(-0.5, numRows - 0.5);
+
+    final XYPlot heatMapPlot = new XYPlot(dataset, columnAxis, null, renderer);
+    heatMapPlot.setBackgroundPaint(Color.LIGHT_GRAY);
+    heatMapPlot.setDomainGridlinesVisible(false);
+    heatMapPlot.setRangeGridlinesVisible(false);
+    heatMapPlot.setOutlineVisible(false);
+
+    // p-value stars
+    if (stars != null) {
+      final Font starFont = new Font("SansSerif", Font.PLAIN, starSize * LINE_HEIGHT);
+      for (int r = 0; r < numRows; r++) {
+        for (int c = 0; c < numColumns; c++) {
+          final String star = stars[columnOrder[c]][rowOrder[r]];
+          if (star == null || star.isEmpty())
+            continue;
+          final XYTextAnnotation annotation = new XYTextAnnotation(star, c, r);
+          annotation.setFont(starFont);
+          annotation.setPaint(Color.BLACK);
+          heatMapPlot.addAnnotation(annotation, false);
+        }
       }
+    }
 
-      rSession.eval("dev.off()", false);
+    // Margins for the labels, the same for both sub plots to keep the rows aligned
+    final AxisSpace domainSpace = new AxisSpace();
+    domainSpace.setBottom(columnMargin * LINE_HEIGHT);
+    heatMapPlot.setFixedDomainAxisSpace(domainSpace);
+
+    final CombinedRangeXYPlot plot = new CombinedRangeXYPlot(rowAxis);
+    plot.setGap(0);
+    plot.setRangeAxisLocation(AxisLocation.BOTTOM_OR_RIGHT);
+    final AxisSpace rangeSpace = new AxisSpace();
+    rangeSpace.setRight(rowMargin * LINE_HEIGHT);
+    plot.setFixedRangeAxisSpace(rangeSpace);
+
+    if (rowDendrogram != null) {
+      final XYPlot dendrogramPlot = createDendrogramPlot(rowDendrogram, numRows);
+      dendrogramPlot.setFixedDomainAxisSpace(domainSpace);
+      plot.add(dendrogramPlot, 1);
+    }
+    plot.add(heatMapPlot, 4);
 
-      // Stands for a (void) collect!
-      this.rSession.runOnlyOnline();
-      // Done: Refresh R code stack
-      this.rSession.clearCode();
+    final JFreeChart chart = new JFreeChart(null, JFreeChart.DEFAULT_TITLE_FONT, plot, false);
+    chart.setBackgroundPaint(Color.WHITE);
 
-      finishedPercentage = 1.0;
+    final NumberAxis scaleAxis = new NumberAxis(null);
+    scaleAxis.setRange(paintScale.getLowerBound(), paintScale.getUpperBound());
+    final PaintScaleLegend legend = new PaintScaleLegend(paintScale, scaleAxis);
+    legend.setPosition(RectangleEdge.TOP);
+    legend.setBackgroundPaint(Color.WHITE);
+    chart.addSubtitle(legend);
 
-      // Turn off R instance, once task ended gracefully.
-      if (!isCanceled())
-        rSession.close(false);
+    return chart;
+  }
 
-    } catch (RSessionWrapperException e) {
-      if (!isCanceled()) {
-        errorMsg = "'R computing error' during heatmap generation. \n" + e.getMessage();
+  /**
+   * Draws the dendrogram with the root on the left. All links are drawn in one series, separated by
+   * NaN values.
+   */
+  private XYPlot createDendrogramPlot(HeatMapDendrogram dendrogram, int numLeaves) {
+    final int merges = dendrogram.getMergeCount();
+    // position of each leaf and cluster on the row axis and the cluster heights
+    final double position[] = new double[numLeaves + merges];
+    final double clusterHeight[] = new double[numLeaves + merges];
+    final int order[] = dendrogram.getOrder();
+    for (int i = 0; i < order.length; i++)
+      position[order[i]] = i;
+
+    final double xy[][] = new double[2][merges * 5];
+    for (int m = 0, i = 0; m < merges; m++) {
+      final int left = dendrogram.getLeft(m);
+      final int right = dendrogram.getRight(m);
+      final double h = dendrogram.getHeight(m);
+      position[numLeaves + m] = (position[left] + position[right]) / 2.0;
+      clusterHeight[numLeaves + m] = h;
+
+      final double x[] = {clusterHeight[left], h, h, clusterHeight[right], 0};
+      final double y[] = {position[left], position[left], position[right], position[right],
+          Double.NaN};
+      for (int p = 0; p < 5; p++, i++) {
+        xy[0][i] = x[p];
+        xy[1][i] = y[p];
       }
-    } catch (Exception e) {
-      if (!isCanceled()) {
-        errorMsg = "'Unknown error' during heatmap generation. \n" + e.getMessage();
+    }
+    final DefaultXYDataset dataset = new DefaultXYDataset();
+    dataset.addSeries("Dendrogram", xy);
+
+    final XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, false);
+    renderer.setSeriesPaint(0, Color.BLACK);
+    renderer.setSeriesStroke(0, new BasicStroke(0.5f));
+
+    final NumberAxis heightAxis = new NumberAxis(null);
+    heightAxis.setInverted(true);
+    heightAxis.setVisible(false);
+
+    final XYPlot dendrogramPlot = new XYPlot(dataset, heightAxis, null, renderer);
+    dendrogramPlot.setBackgroundPaint(Color.WHITE);
+    dendrogramPlot.setDomainGridlinesVisible(false);
+    dendrogramPlot.setRangeGridlinesVisible(false);
+    dendrogramPlot.setOutlineVisible(false);
+    return dendrogramPlot;
+  }
+
+  private Font getLabelFont(int labels) {
+    final double cex = labels > 1 ? 0.2 + 1.0 / Math.log10(labels) : 1.0;
+    return new Font("SansSerif", Font.PLAIN, (int) Math.max(1, Math.round(cex * LINE_HEIGHT)));
+  }
+
+  /**
+   * @return the feature list rows shown in the heat map
+   */
+  private List<PeakListRow> getShownRows() {
+    List<PeakListRow> rows = new ArrayList<PeakListRow>();
+    for (PeakListRow row : peakList.getRows()) {
+      if (!onlyIdentified || row.getPeakIdentities().length > 0) {
+        rows.add(row);
       }
     }
+    return rows;
+  }
 
-    // Turn off R instance, once task ended UNgracefully.
-    try {
-      if (!isCanceled())
-        if (rSession != null)
-          rSession.close(isCanceled());
-    } catch (RSessionWrapperException e) {
-      if (!isCanceled()) {
-        // Do not override potential previous error message.
-        if (errorMsg == null) {
-          errorMsg = e.getMessage();
-        }
+  private void setRowNames(List<PeakListRow> rows) {
+    rowNames = new String[rows.size()];
+    for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+      PeakListRow row = rows.get(rowIndex);
+      if (row.getPeakIdentities() != null && row.getPeakIdentities().length > 0) {
+        rowNames[rowIndex] = row.getPreferredPeakIdentity().getName();
       } else {
-        // User canceled: Silent.
+        rowNames[rowIndex] = "Unknown";
       }
     }
+  }
 
-    // Report error.
-    if (errorMsg != null) {
-      setErrorMessage(errorMsg);
-      setStatus(TaskStatus.ERROR);
-    } else {
-      setStatus(TaskStatus.FINISHED);
-    }
+  private double getValue(Feature peak) {
+    return area ? peak.getArea() : peak.getHeight();
   }
 
   private double[][] modifySimpleDataset(UserParameter<?, ?> selectedParameter,
       String referenceGroup) {
 
     // Collect all data files
-    Vector<RawDataFile> allDataFiles = new Vector<RawDataFile>();
-    allDataFiles.addAll(peakList.getRawDataFiles());
+    List<RawDataFile> allDataFiles = new ArrayList<RawDataFile>(peakList.getRawDataFiles());
 
     // Determine the reference group and non reference group (the rest of
     // the samples) for raw data files
@@ -324,85 +454,47 @@ public class HeatMapTask extends AbstractTask {
       }
     }
 
-    int numRows = 0;
-    for (int row = 0; row < peakList.getNumberOfRows(); row++) {
-
-      if (!onlyIdentified
-          || (onlyIdentified && peakList.getRow(row).getPeakIdentities().length > 0)) {
-        numRows++;
-      }
-    }
-
-    // Create a new aligned feature list with all the samples if the
-    // reference
-    // group has to be shown or with only
-    // the non reference group if not.
-    double[][] dataMatrix;
-    if (rcontrol) {
-      dataMatrix = new double[allDataFiles.size()][numRows];
-    } else {
-      dataMatrix = new double[nonReferenceDataFiles.size()][numRows];
-    }
-
-    // Data files that should be in the heat map
-    List<RawDataFile> shownDataFiles = null;
-    if (rcontrol) {
-      shownDataFiles = allDataFiles;
-    } else {
-      shownDataFiles = nonReferenceDataFiles;
-    }
-
-    for (int row = 0, rowIndex = 0; row < peakList.getNumberOfRows(); row++) {
-      PeakListRow rowPeak = peakList.getRow(row);
-      if (!onlyIdentified || (onlyIdentified && rowPeak.getPeakIdentities().length > 0)) {
-
-        // Average area or height of the reference group
-        double referenceAverage = 0;
-        int referencePeakCount = 0;
-        for (int column = 0; column < referenceDataFiles.size(); column++) {
-
-          if (rowPeak.getPeak(referenceDataFiles.get(column)) != null) {
+    final List<PeakListRow> rows = getShownRows();
 
-            if (area) {
+    // Data files that should be in the heat map: all the samples if the
+    // reference group has to be shown or only the non reference group if not.
+    final List<RawDataFile> shownDataFiles = rcontrol ? allDataFiles : nonReferenceDataFiles;
+    final double[][] dataMatrix = new double[shownDataFiles.size()][rows.size()];
 
-              referenceAverage += rowPeak.getPeak(referenceDataFiles.get(column)).getArea();
-            } else {
+    IntStream.range(0, rows.size()).parallel().forEach(rowIndex -> {
+      PeakListRow rowPeak = rows.get(rowIndex);
 
-              referenceAverage += rowPeak.getPeak(referenceDataFiles.get(column)).getHeight();
-            }
-            referencePeakCount++;
-          }
-        }
-        if (referencePeakCount > 0) {
-
-          referenceAverage /= referencePeakCount;
+      // Average area or height of the reference group
+      double referenceAverage = 0;
+      int referencePeakCount = 0;
+      for (RawDataFile referenceFile : referenceDataFiles) {
+        Feature peak = rowPeak.getPeak(referenceFile);
+        if (peak != null) {
+          referenceAverage += getValue(peak);
+          referencePeakCount++;
         }
+      }
+      if (referencePeakCount > 0) {
 
-        // Divide the area or height of each peak by the average of the
-        // area or height of the reference peaks in each row
-        for (int column = 0; column < shownDataFiles.size(); column++) {
-          double value = Double.NaN;
-          if (rowPeak.getPeak(shownDataFiles.get(column)) != null) {
-
-            Feature peak = rowPeak.getPeak(shownDataFiles.get(column));
-            if (area) {
-
-              value = peak.getArea() / referenceAverage;
-            } else {
+        referenceAverage /= referencePeakCount;
+      }
 
-              value = peak.getHeight() / referenceAverage;
-            }
-            if (log) {
+      // Divide the area or height of each peak by the average of the
+      // area or height of the reference peaks in each row
+      for (int column = 0; column < shownDataFiles.size(); column++) {
+        double value = Double.NaN;
+        Feature peak = rowPeak.getPeak(shownDataFiles.get(column));
+        if (peak != null) {
+          value = getValue(peak) / referenceAverage;
+          if (log) {
 
-              value = Math.log(value);
-            }
+            value = Math.log(value);
           }
-
-          dataMatrix[column][rowIndex] = value;
         }
-        rowIndex++;
+
+        dataMatrix[column][rowIndex] = value;
       }
-    }
+    });
 
     // Scale the data dividing the peak area/height by the standard
     // deviation of each column
@@ -411,169 +503,128 @@ public class HeatMapTask extends AbstractTask {
     }
 
     // Create two arrays: row and column names
-    rowNames = new String[dataMatrix[0].length];
+    setRowNames(rows);
     colNames = new String[shownDataFiles.size()];
 
     for (int column = 0; column < shownDataFiles.size(); column++) {
 
       colNames[column] = shownDataFiles.get(column).getName();
     }
-    for (int row = 0, rowIndex = 0; row < peakList.getNumberOfRows(); row++) {
-      if (!onlyIdentified
-          || (onlyIdentified && peakList.getRow(row).getPeakIdentities().length > 0)) {
-        if (peakList.getRow(row).getPeakIdentities() != null
-            && peakList.getRow(row).getPeakIdentities().length > 0) {
-
-          rowNames[rowIndex++] = peakList.getRow(row).getPreferredPeakIdentity().getName();
-        } else {
-
-          rowNames[rowIndex++] = "Unknown";
-        }
-      }
-    }
 
     return dataMatrix;
   }
 
   private void scale(double[][] peakList) {
-    DescriptiveStatistics stdDevStats = new DescriptiveStatistics();
-
-    for (int columns = 0; columns < peakList.length; columns++) {
-      stdDevStats.clear();
-      for (int row = 0; row < peakList[columns].length; row++) {
-        if (!Double.isInfinite(peakList[columns][row]) && !Double.isNaN(peakList[columns][row])) {
-          stdDevStats.addValue(peakList[columns][row]);
+    IntStream.range(0, peakList.length).parallel().forEach(column -> {
+      final double values[] = peakList[column];
+
+      // sample standard deviation of the finite values
+      double sum = 0;
+      int n = 0;
+      for (double value : values) {
+        if (Double.isFinite(value)) {
+          sum += value;
+          n++;
         }
       }
+      final double mean = n > 0 ? sum / n : 0;
+      double squares = 0;
+      for (double value : values) {
+        if (Double.isFinite(value)) {
+          squares += (value - mean) * (value - mean);
+        }
+      }
+      final double stdDev = n > 1 ? Math.sqrt(squares / (n - 1)) : 0;
 
-      double stdDev = stdDevStats.getStandardDeviation();
-
-      for (int row = 0; row < peakList[columns].length; row++) {
-        if (stdDev != 0) {
-          peakList[columns][row] = peakList[columns][row] / stdDev;
+      if (stdDev != 0) {
+        for (int row = 0; row < values.length; row++) {
+          values[row] = values[row] / stdDev;
         }
       }
-    }
+    });
   }
 
   private double[][] groupingDataset(UserParameter<?, ?> selectedParameter, String referenceGroup) {
     // Collect all data files
-    Vector<RawDataFile> allDataFiles = new Vector<RawDataFile>();
-    DescriptiveStatistics meanControlStats = new DescriptiveStatistics();
-    DescriptiveStatistics meanGroupStats = new DescriptiveStatistics();
-    allDataFiles.addAll(peakList.getRawDataFiles());
+    List<RawDataFile> allDataFiles = new ArrayList<RawDataFile>(peakList.getRawDataFiles());
 
     // Determine the reference group and non reference group (the rest of
     // the samples) for raw data files
     List<RawDataFile> referenceDataFiles = new ArrayList<RawDataFile>();
     List<RawDataFile> nonReferenceDataFiles = new ArrayList<RawDataFile>();
+    List<String> nonReferenceGroups = new ArrayList<String>();
 
     List<String> groups = new ArrayList<String>();
 
     for (RawDataFile rawDataFile : allDataFiles) {
 
-      Object paramValue = project.getParameterValue(selectedParameter, rawDataFile);
-      if (!groups.contains(String.valueOf(paramValue))) {
-        groups.add(String.valueOf(paramValue));
+      String paramValue = String.valueOf(project.getParameterValue(selectedParameter, rawDataFile));
+      if (!groups.contains(paramValue)) {
+        groups.add(paramValue);
       }
-      if (String.valueOf(paramValue).equals(referenceGroup)) {
+      if (paramValue.equals(referenceGroup)) {
 
         referenceDataFiles.add(rawDataFile);
       } else {
 
         nonReferenceDataFiles.add(rawDataFile);
+        nonReferenceGroups.add(paramValue);
       }
     }
 
-    int numRows = 0;
-    for (int row = 0; row < peakList.getNumberOfRows(); row++) {
-
-      if (!onlyIdentified
-          || (onlyIdentified && peakList.getRow(row).getPeakIdentities().length > 0)) {
-        numRows++;
-      }
-    }
-
-    // Create a new aligned feature list with all the samples if the
-    // reference
-    // group has to be shown or with only
-    // the non reference group if not.
-    double[][] dataMatrix = new double[groups.size() - 1][numRows];
-    pValueMatrix = new String[groups.size() - 1][numRows];
-
-    // data files that should be in the heat map
-    List<RawDataFile> shownDataFiles = nonReferenceDataFiles;
+    // the groups shown in the heat map
+    final List<String> shownGroups =
+        groups.stream().filter(g -> !g.equals(referenceGroup)).collect(Collectors.toList());
 
-    for (int row = 0, rowIndex = 0; row < peakList.getNumberOfRows(); row++) {
-      PeakListRow rowPeak = peakList.getRow(row);
-      if (!onlyIdentified || (onlyIdentified && rowPeak.getPeakIdentities().length > 0)) {
-        // Average area or height of the reference group
-        meanControlStats.clear();
-        for (int column = 0; column < referenceDataFiles.size(); column++) {
+    final List<PeakListRow> rows = getShownRows();
 
-          if (rowPeak.getPeak(referenceDataFiles.get(column)) != null) {
+    // Create a new aligned feature list with only the non reference groups
+    final double[][] dataMatrix = new double[shownGroups.size()][rows.size()];
+    pValueMatrix = new String[shownGroups.size()][rows.size()];
 
-            if (area) {
+    IntStream.range(0, rows.size()).parallel().forEach(rowIndex -> {
+      PeakListRow rowPeak = rows.get(rowIndex);
+      DescriptiveStatistics meanControlStats = new DescriptiveStatistics();
+      DescriptiveStatistics meanGroupStats = new DescriptiveStatistics();
 
-              meanControlStats.addValue(rowPeak.getPeak(referenceDataFiles.get(column)).getArea());
-            } else {
-
-              meanControlStats
-                  .addValue(rowPeak.getPeak(referenceDataFiles.get(column)).getHeight());
-            }
+      // Average area or height of the reference group
+      for (RawDataFile referenceFile : referenceDataFiles) {
+        Feature peak = rowPeak.getPeak(referenceFile);
+        if (peak != null) {
+          meanControlStats.addValue(getValue(peak));
+        }
+      }
 
+      // Divide the area or height of each peak by the average of the
+      // area or height of the reference peaks in each row
+      for (int columnIndex = 0; columnIndex < shownGroups.size(); columnIndex++) {
+        String group = shownGroups.get(columnIndex);
+        meanGroupStats.clear();
+
+        for (int dataColumn = 0; dataColumn < nonReferenceDataFiles.size(); dataColumn++) {
+          if (!nonReferenceGroups.get(dataColumn).equals(group))
+            continue;
+          Feature peak = rowPeak.getPeak(nonReferenceDataFiles.get(dataColumn));
+          if (peak != null && !Double.isInfinite(peak.getArea())
+              && !Double.isNaN(peak.getArea())) {
+            meanGroupStats.addValue(getValue(peak));
           }
         }
 
-        // Divide the area or height of each peak by the average of the
-        // area or height of the reference peaks in each row
-        int columnIndex = 0;
-        for (int column = 0; column < groups.size(); column++) {
-          String group = groups.get(column);
-          meanGroupStats.clear();
-          if (!group.equals(referenceGroup)) {
-
-            for (int dataColumn = 0; dataColumn < shownDataFiles.size(); dataColumn++) {
-
-              Object paramValue =
-                  project.getParameterValue(selectedParameter, shownDataFiles.get(dataColumn));
-              if (rowPeak.getPeak(shownDataFiles.get(dataColumn)) != null
-                  && String.valueOf(paramValue).equals(group)) {
-
-                Feature peak = rowPeak.getPeak(shownDataFiles.get(dataColumn));
-
-                if (!Double.isInfinite(peak.getArea()) && !Double.isNaN(peak.getArea())) {
-
-                  if (area) {
-
-                    meanGroupStats.addValue(peak.getArea());
-                  } else {
-
-                    meanGroupStats.addValue(peak.getHeight());
-                  }
-                }
-
-              }
-            }
-
-            double value = meanGroupStats.getMean() / meanControlStats.getMean();
-            if (meanGroupStats.getN() > 1 && meanControlStats.getN() > 1) {
-              pValueMatrix[columnIndex][rowIndex] =
-                  this.getPvalue(meanGroupStats, meanControlStats);
-            } else {
-              pValueMatrix[columnIndex][rowIndex] = "";
-            }
+        double value = meanGroupStats.getMean() / meanControlStats.getMean();
+        if (meanGroupStats.getN() > 1 && meanControlStats.getN() > 1) {
+          pValueMatrix[columnIndex][rowIndex] = this.getPvalue(meanGroupStats, meanControlStats);
+        } else {
+          pValueMatrix[columnIndex][rowIndex] = "";
+        }
 
-            if (log) {
+        if (log) {
 
-              value = Math.log(value);
-            }
-            dataMatrix[columnIndex++][rowIndex] = value;
-          }
+          value = Math.log(value);
         }
-        rowIndex++;
+        dataMatrix[columnIndex][rowIndex] = value;
       }
-    }
+    });
 
     // Scale the data dividing the peak area/height by the standard
     // deviation of each column
@@ -582,30 +633,8 @@ public class HeatMapTask extends AbstractTask {
     }
 
     // Create two arrays: row and column names
-    rowNames = new String[dataMatrix[0].length];
-    colNames = new String[groups.size() - 1];
-
-    int columnIndex = 0;
-    for (String group : groups) {
-
-      if (!group.equals(referenceGroup)) {
-
-        colNames[columnIndex++] = group;
-      }
-    }
-    for (int row = 0, rowIndex = 0; row < peakList.getNumberOfRows(); row++) {
-      if (!onlyIdentified
-          || (onlyIdentified && peakList.getRow(row).getPeakIdentities().length > 0)) {
-        if (peakList.getRow(row).getPeakIdentities() != null
-            && peakList.getRow(row).getPeakIdentities().length > 0) {
-
-          rowNames[rowIndex++] = peakList.getRow(row).getPreferredPeakIdentity().getName();
-        } else {
-
-          rowNames[rowIndex++] = "Unknown";
-        }
-      }
-    }
+    setRowNames(rows);
+    colNames = shownGroups.toArray(new String[0]);
 
     return dataMatrix;
   }
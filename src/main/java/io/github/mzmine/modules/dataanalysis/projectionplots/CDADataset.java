@@ -21,7 +21,6 @@ package io.github.mzmine.modules.dataanalysis.projectionplots;
 import java.util.Vector;
 import java.util.logging.Logger;
 import org.jfree.data.xy.AbstractXYDataset;
-import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.PeakList;
 import io.github.mzmine.datamodel.PeakListRow;
@@ -32,13 +31,14 @@ import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.PeakMeasurementType;
 import jmprojection.CDA;
-import jmprojection.Preprocess;
 import jmprojection.ProjectionStatus;
 
 public class CDADataset extends AbstractXYDataset implements ProjectionPlotDataset {
 
   private static final long serialVersionUID = 1L;
 
+  private static final String CDA_METHOD = "CDA";
+
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
   private double[] component1Coords;
@@ -60,10 +60,11 @@ public class CDADataset extends AbstractXYDataset implements ProjectionPlotDatas
   private int xAxisDimension;
   private int yAxisDimension;
 
-  private TaskStatus status = TaskStatus.WAITING;
+  private volatile TaskStatus status = TaskStatus.WAITING;
   private String errorMessage;
 
-  private ProjectionStatus projectionStatus;
+  private volatile ProjectionStatus projectionStatus;
+  private volatile double matrixPercentage = 0.0;
 
   public CDADataset(MZmineProject project, ParameterSet parameters) {
 
@@ -222,41 +223,36 @@ public class CDADataset extends AbstractXYDataset implements ProjectionPlotDatas
 
     logger.info("Computing projection plot");
 
-    // Generate matrix of raw data (input to CDA)
-    boolean useArea = false;
-    if (parameters.getParameter(ProjectionPlotParameters.peakMeasurementType)
-        .getValue() == PeakMeasurementType.AREA)
-      useArea = true;
-
-    double[][] rawData = new double[selectedRawDataFiles.length][selectedRows.length];
-    for (int rowIndex = 0; rowIndex < selectedRows.length; rowIndex++) {
-      PeakListRow peakListRow = selectedRows[rowIndex];
-      for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
-        RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
-        Feature p = peakListRow.getPeak(rawDataFile);
-        if (p != null) {
-          if (useArea)
-            rawData[fileIndex][rowIndex] = p.getArea();
-          else
-            rawData[fileIndex][rowIndex] = p.getHeight();
-        }
-      }
+    final PeakMeasurementType measurementType =
+        parameters.getParameter(ProjectionPlotParameters.peakMeasurementType).getValue();
+    final boolean useArea = (measurementType == PeakMeasurementType.AREA);
+
+    // Same rows, files and measurement type, e.g., other axes or coloring: reuse the result
+    double[][] result = ProjectionResultCache.get(CDA_METHOD, selectedRows,
+        selectedRawDataFiles, measurementType);
+
+    if (result == null) {
+      // Scaled data matrix with at most one dimension per sample (same distances), features are
+      // streamed for large feature lists
+      final double[][] samplesMatrix = ProjectionMatrix.buildSamplesMatrix(selectedRows,
+          selectedRawDataFiles, useArea, () -> status == TaskStatus.CANCELED,
+          progress -> matrixPercentage = 0.5 * progress);
+      if (samplesMatrix == null)
+        return;
+
+      // Do CDA
+      CDA cdaProj = new CDA(samplesMatrix);
+      projectionStatus = cdaProj.getProjectionStatus();
+      cdaProj.iterate(100);
+
+      if (status == TaskStatus.CANCELED)
+        return;
+
+      result = cdaProj.getState();
+      ProjectionResultCache.put(CDA_METHOD, selectedRows, selectedRawDataFiles,
+          measurementType, result);
     }
 
-    int numComponents = xAxisDimension;
-    if (yAxisDimension > numComponents)
-      numComponents = yAxisDimension;
-
-    // Scale data and do CDA
-    Preprocess.scaleToUnityVariance(rawData);
-    CDA cdaProj = new CDA(rawData);
-    cdaProj.iterate(100);
-
-    if (status == TaskStatus.CANCELED)
-      return;
-
-    double[][] result = cdaProj.getState();
-
     if (status == TaskStatus.CANCELED)
       return;
 
@@ -296,8 +292,8 @@ public class CDADataset extends AbstractXYDataset implements ProjectionPlotDatas
   @Override
   public double getFinishedPercentage() {
     if (projectionStatus == null)
-      return 0;
-    return projectionStatus.getFinishedPercentage();
+      return matrixPercentage;
+    return 0.5 + 0.5 * projectionStatus.getFinishedPercentage();
   }
 
 }
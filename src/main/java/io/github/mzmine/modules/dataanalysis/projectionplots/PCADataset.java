@@ -21,7 +21,6 @@ package io.github.mzmine.modules.dataanalysis.projectionplots;
 import java.util.Vector;
 import java.util.logging.Logger;
 import org.jfree.data.xy.AbstractXYDataset;
-import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.PeakList;
 import io.github.mzmine.datamodel.PeakListRow;
@@ -31,14 +30,13 @@ import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.PeakMeasurementType;
-import jmprojection.PCA;
-import jmprojection.Preprocess;
-import jmprojection.ProjectionStatus;
 
 public class PCADataset extends AbstractXYDataset implements ProjectionPlotDataset {
 
   private static final long serialVersionUID = 1L;
 
+  private static final String PCA_METHOD = "PCA";
+
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
   private double[] component1Coords;
@@ -60,10 +58,10 @@ public class PCADataset extends AbstractXYDataset implements ProjectionPlotDatas
   private int xAxisPC;
   private int yAxisPC;
 
-  private TaskStatus status = TaskStatus.WAITING;
+  private volatile TaskStatus status = TaskStatus.WAITING;
   private String errorMessage;
 
-  private ProjectionStatus projectionStatus;
+  private volatile double finishedPercentage = 0.0;
 
   public PCADataset(MZmineProject project, ParameterSet parameters) {
 
@@ -210,9 +208,9 @@ public class PCADataset extends AbstractXYDataset implements ProjectionPlotDatas
 
     logger.info("Computing PCA projection plot");
 
-    // Generate matrix of raw data (input to PCA)
-    final boolean useArea = (parameters.getParameter(ProjectionPlotParameters.peakMeasurementType)
-        .getValue() == PeakMeasurementType.AREA);
+    final PeakMeasurementType measurementType =
+        parameters.getParameter(ProjectionPlotParameters.peakMeasurementType).getValue();
+    final boolean useArea = (measurementType == PeakMeasurementType.AREA);
 
     if (selectedRows.length == 0) {
       this.status = TaskStatus.ERROR;
@@ -225,41 +223,28 @@ public class PCADataset extends AbstractXYDataset implements ProjectionPlotDatas
       return;
     }
 
-    double[][] rawData = new double[selectedRawDataFiles.length][selectedRows.length];
-    for (int rowIndex = 0; rowIndex < selectedRows.length; rowIndex++) {
-      PeakListRow peakListRow = selectedRows[rowIndex];
-      for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
-        RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
-        Feature p = peakListRow.getPeak(rawDataFile);
-        if (p != null) {
-          if (useArea)
-            rawData[fileIndex][rowIndex] = p.getArea();
-          else
-            rawData[fileIndex][rowIndex] = p.getHeight();
-        }
-      }
-    }
-
-    int numComponents = xAxisPC;
-    if (yAxisPC > numComponents)
-      numComponents = yAxisPC;
-
-    // Scale data and do PCA
-    Preprocess.scaleToUnityVariance(rawData);
-
-    // Replace NaN values with 0.0
-    for (int i = 0; i < rawData.length; i++) {
-      for (int j = 0; j < rawData[i].length; j++) {
-        if (Double.isNaN(rawData[i][j]))
-          rawData[i][j] = 0.0;
-      }
+    // Same rows, files and measurement type, e.g., other axes or coloring: reuse the result
+    double[][] result = ProjectionResultCache.get(PCA_METHOD, selectedRows, selectedRawDataFiles,
+        measurementType);
+
+    if (result == null) {
+      // Scaled data matrix, features are streamed for large feature lists
+      final double[][] samplesMatrix = ProjectionMatrix.buildSamplesMatrix(selectedRows,
+          selectedRawDataFiles, useArea, () -> status == TaskStatus.CANCELED,
+          progress -> finishedPercentage = 0.8 * progress);
+      if (samplesMatrix == null)
+        return;
+
+      // Compute all components that can be selected, so the cached result covers all axes
+      result = ProjectionMatrix.principalComponents(samplesMatrix,
+          ProjectionPlotParameters.componentPossibleValues.length,
+          () -> status == TaskStatus.CANCELED);
+      if (result == null)
+        return;
+      ProjectionResultCache.put(PCA_METHOD, selectedRows, selectedRawDataFiles, measurementType,
+          result);
     }
-
-    PCA pcaProj = new PCA(rawData, numComponents);
-
-    projectionStatus = pcaProj.getProjectionStatus();
-
-    double[][] result = pcaProj.getState();
+    finishedPercentage = 1.0;
 
     if (status == TaskStatus.CANCELED)
       return;
@@ -277,8 +262,6 @@ public class PCADataset extends AbstractXYDataset implements ProjectionPlotDatas
 
   @Override
   public void cancel() {
-    if (projectionStatus != null)
-      projectionStatus.cancel();
     status = TaskStatus.CANCELED;
   }
 
@@ -299,9 +282,7 @@ public class PCADataset extends AbstractXYDataset implements ProjectionPlotDatas
 
   @Override
   public double getFinishedPercentage() {
-    if (projectionStatus == null)
-      return 0;
-    return projectionStatus.getFinishedPercentage();
+    return finishedPercentage;
   }
 
 }
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.dataanalysis.projectionplots;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+import io.github.mzmine.datamodel.Feature;
+import io.github.mzmine.datamodel.PeakListRow;
+import io.github.mzmine.datamodel.RawDataFile;
+
+/**
+ * Input matrix and principal components of the projection plots, computed in parallel.
+ *
+ * All projections only depend on the distances (inner products) between the samples. If there are
+ * more features than samples, the features are therefore streamed in blocks into the samples x
+ * samples inner product matrix, which is then reduced to at most one dimension per sample (pivoted
+ * Cholesky decomposition). The reduced matrix has exactly the same distances and principal
+ * components as the full samples x features matrix, but its size does not depend on the number of
+ * features.
+ */
+final class ProjectionMatrix {
+
+  private static final int FEATURE_BLOCK_SIZE = 256;
+
+  // relative tolerance for the rank of the inner product matrix
+  private static final double RANK_TOLERANCE = 1e-12;
+
+  // subspace iteration for the principal components
+  private static final int OVERSAMPLING = 10;
+  private static final int MAX_ITERATIONS = 300;
+  private static final double CONVERGENCE_TOLERANCE = 1e-9;
+  private static final long RANDOM_SEED = 42;
+
+  private ProjectionMatrix() {}
+
+  /**
+   * Creates the input matrix (one vector per sample) of the scaled data. Each feature is scaled to
+   * zero mean and unit variance, like jmprojection's Preprocess.scaleToUnityVariance. Missing
+   * features count as 0, constant features are 0 after scaling.
+   *
+   * @param progress receives the finished fraction (0-1)
+   * @return samples x dimensions matrix with the same distances between the samples as the scaled
+   *         data (dimensions <= min(samples, features)) or null if canceled
+   */
+  @Nullable
+  static double[][] buildSamplesMatrix(PeakListRow[] rows, RawDataFile[] files, boolean useArea,
+      BooleanSupplier canceled, DoubleConsumer progress) {
+    final int numSamples = files.length;
+    final int numFeatures = rows.length;
+
+    if (numFeatures <= numSamples) {
+      final double data[][] = new double[numSamples][numFeatures];
+      IntStream.range(0, numFeatures).parallel().forEach(f -> {
+        final double values[] = getScaledValues(rows[f], files, useArea);
+        for (int s = 0; s < numSamples; s++)
+          data[s][f] = values[s];
+      });
+      progress.accept(1.0);
+      return data;
+    }
+
+    // Stream the features into the lower triangle of the inner product matrix
+    final double gram[][] = new double[numSamples][];
+    for (int i = 0; i < numSamples; i++)
+      gram[i] = new double[i + 1];
+    final double block[][] = new double[numSamples][FEATURE_BLOCK_SIZE];
+
+    for (int start = 0; start < numFeatures; start += FEATURE_BLOCK_SIZE) {
+      if (canceled.getAsBoolean())
+        return null;
+      final int blockStart = start;
+      final int blockSize = Math.min(FEATURE_BLOCK_SIZE, numFeatures - start);
+      IntStream.range(0, blockSize).parallel().forEach(b -> {
+        final double values[] = getScaledValues(rows[blockStart + b], files, useArea);
+        for (int s = 0; s < numSamples; s++)
+          block[s][b] = values[s];
+      });
+      // each thread updates its own rows
+      IntStream.range(0, numSamples).parallel().forEach(i -> {
+        final double bi[] = block[i];
+        final double gi[] = gram[i];
+        for (int j = 0; j <= i; j++) {
+          final double bj[] = block[j];
+          double sum = 0;
+          for (int b = 0; b < blockSize; b++)
+            sum += bi[b] * bj[b];
+          gi[j] += sum;
+        }
+      });
+      progress.accept(0.9 * (start + blockSize) / numFeatures);
+    }
+
+    final double result[][] = choleskyRows(gram, canceled);
+    progress.accept(1.0);
+    return result;
+  }
+
+  /**
+   * Principal component scores, equal to jmprojection's PCA of the same matrix (up to the sign of
+   * each component).
+   *
+   * @param data samples x dimensions
+   * @param components number of components
+   * @return components x samples or null if canceled
+   */
+  @Nullable
+  static double[][] principalComponents(double[][] data, int components,
+      BooleanSupplier canceled) {
+    final int n = data.length;
+    final int d = n == 0 ? 0 : data[0].length;
+    final double scores[][] = new double[components][n];
+    if (d == 0)
+      return scores;
+
+    final int count = Math.min(components, Math.min(n, d));
+    final double eigenvalues[] = new double[count];
+
+    if (d <= n) {
+      // eigenvectors of the covariance matrix (d x d), scores are the projections on them
+      final double vectors[][] = topEigenvectors(crossProduct(data), count, eigenvalues, canceled);
+      if (vectors == null)
+        return null;
+      IntStream.range(0, n).parallel().forEach(i -> {
+        for (int c = 0; c < count; c++)
+          scores[c][i] = dot(data[i], vectors[c], d);
+      });
+    } else {
+      // eigenvectors of the inner product matrix (n x n), scaled by the singular values
+      final double vectors[][] = topEigenvectors(gram(data), count, eigenvalues, canceled);
+      if (vectors == null)
+        return null;
+      for (int c = 0; c < count; c++) {
+        final double singularValue = Math.sqrt(Math.max(0, eigenvalues[c]));
+        for (int i = 0; i < n; i++)
+          scores[c][i] = vectors[c][i] * singularValue;
+      }
+    }
+    return scores;
+  }
+
+  /**
+   * Same computation as Preprocess.scaleToUnityVariance for one feature
+   */
+  private static double[] getScaledValues(PeakListRow row, RawDataFile[] files, boolean useArea) {
+    final double values[] = new double[files.length];
+    double mean = 0.0, s = 0.0;
+    for (int i = 0; i < files.length; i++) {
+      final Feature p = row.getPeak(files[i]);
+      if (p != null)
+        values[i] = useArea ? p.getArea() : p.getHeight();
+      final double delta = values[i] - mean;
+      mean += delta / (i + 1);
+      s += delta * (values[i] - mean);
+    }
+    s = Math.sqrt(s / (files.length - 1));
+    for (int i = 0; i < files.length; i++) {
+      final double scaled = (values[i] - mean) / s;
+      values[i] = Double.isFinite(scaled) ? scaled : 0.0;
+    }
+    return values;
+  }
+
+  /**
+   * Pivoted Cholesky decomposition G = L * L' of a positive semi-definite matrix. The rows of L
+   * have the same inner products as the vectors that G was computed from.
+   *
+   * @param gram lower triangle of G
+   * @return the rows of L (n x rank) or null if canceled
+   */
+  @Nullable
+  private static double[][] choleskyRows(double[][] gram, BooleanSupplier canceled) {
+    final int n = gram.length;
+    final double diag[] = new double[n];
+    double maxDiag = 0;
+    for (int i = 0; i < n; i++) {
+      diag[i] = gram[i][i];
+      maxDiag = Math.max(maxDiag, diag[i]);
+    }
+    final double tolerance = maxDiag * RANK_TOLERANCE;
+
+    final boolean pivoted[] = new boolean[n];
+    final List<double[]> columns = new ArrayList<>();
+    for (int k = 0; k < n; k++) {
+      if (canceled.getAsBoolean())
+        return null;
+      int p = -1;
+      double max = tolerance;
+      for (int i = 0; i < n; i++) {
+        if (!pivoted[i] && diag[i] > max) {
+          max = diag[i];
+          p = i;
+        }
+      }
+      if (p < 0)
+        break;
+
+      final int pivotIndex = p;
+      final double pivot = Math.sqrt(diag[p]);
+      final double column[] = new double[n];
+      column[p] = pivot;
+      pivoted[p] = true;
+      IntStream.range(0, n).parallel().forEach(i -> {
+        if (pivoted[i])
+          return;
+        double value = i > pivotIndex ? gram[i][pivotIndex] : gram[pivotIndex][i];
+        for (double[] previous : columns)
+          value -= previous[i] * previous[pivotIndex];
+        column[i] = value / pivot;
+        diag[i] -= column[i] * column[i];
+      });
+      columns.add(column);
+    }
+
+    final int rank = columns.size();
+    final double rowsOfL[][] = new double[n][rank];
+    for (int k = 0; k < rank; k++) {
+      final double column[] = columns.get(k);
+      for (int i = 0; i < n; i++)
+        rowsOfL[i][k] = column[i];
+    }
+    return rowsOfL;
+  }
+
+  /**
+   * @return X' * X (d x d)
+   */
+  private static double[][] crossProduct(double[][] data) {
+    final int d = data[0].length;
+    final double result[][] = new double[d][d];
+    IntStream.range(0, d).parallel().forEach(p -> {
+      final double rp[] = result[p];
+      for (double[] row : data) {
+        final double xp = row[p];
+        if (xp == 0.0)
+          continue;
+        for (int q = p; q < d; q++)
+          rp[q] += xp * row[q];
+      }
+    });
+    for (int p = 0; p < d; p++)
+      for (int q = 0; q < p; q++)
+        result[p][q] = result[q][p];
+    return result;
+  }
+
+  /**
+   * @return X * X' (n x n)
+   */
+  private static double[][] gram(double[][] data) {
+    final int n = data.length;
+    final int d = data[0].length;
+    final double result[][] = new double[n][n];
+    IntStream.range(0, n).parallel().forEach(i -> {
+      for (int j = 0; j <= i; j++)
+        result[i][j] = dot(data[i], data[j], d);
+    });
+    for (int i = 0; i < n; i++)
+      for (int j = i + 1; j < n; j++)
+        result[i][j] = result[j][i];
+    return result;
+  }
+
+  /**
+   * Eigenvectors with the largest eigenvalues of a symmetric positive semi-definite matrix by
+   * subspace iteration with Rayleigh-Ritz steps. The matrix products run in parallel.
+   *
+   * @param eigenvalues receives the eigenvalues (descending)
+   * @return count x m eigenvectors or null if canceled
+   */
+  @Nullable
+  private static double[][] topEigenvectors(double[][] matrix, int count, double[] eigenvalues,
+      BooleanSupplier canceled) {
+    final int m = matrix.length;
+    final int blockSize = Math.min(m, count + OVERSAMPLING);
+
+    // random start, the seed is fixed to get the same result for the same data
+    final Random random = new Random(RANDOM_SEED);
+    double basis[][] = new double[blockSize][m];
+    for (double[] vector : basis)
+      for (int i = 0; i < m; i++)
+        vector[i] = random.nextGaussian();
+    orthonormalize(basis);
+
+    for (int iteration = 0;; iteration++) {
+      if (canceled.getAsBoolean())
+        return null;
+
+      // image of the basis
+      final double current[][] = basis;
+      final double image[][] = new double[blockSize][m];
+      IntStream.range(0, m).parallel().forEach(r -> {
+        for (int c = 0; c < blockSize; c++)
+          image[c][r] = dot(matrix[r], current[c], m);
+      });
+
+      // Rayleigh-Ritz: eigen decomposition of the projected matrix
+      final double projected[][] = new double[blockSize][blockSize];
+      for (int a = 0; a < blockSize; a++)
+        for (int b = a; b < blockSize; b++)
+          projected[a][b] = projected[b][a] = dot(basis[a], image[b], m);
+      final double ritzVectors[][] = new double[blockSize][blockSize];
+      final double ritzValues[] = jacobi(projected, ritzVectors);
+
+      // Ritz vectors and their residuals |A*y - lambda*y|
+      final double vectors[][] = new double[count][m];
+      boolean converged = true;
+      for (int c = 0; c < count; c++) {
+        final double imageOfVector[] = new double[m];
+        for (int a = 0; a < blockSize; a++) {
+          final double w = ritzVectors[a][c];
+          for (int i = 0; i < m; i++) {
+            vectors[c][i] += w * basis[a][i];
+            imageOfVector[i] += w * image[a][i];
+          }
+        }
+        double residual = 0;
+        for (int i = 0; i < m; i++) {
+          final double diff = imageOfVector[i] - ritzValues[c] * vectors[c][i];
+          residual += diff * diff;
+        }
+        if (Math.sqrt(residual) > CONVERGENCE_TOLERANCE * Math.abs(ritzValues[0]))
+          converged = false;
+      }
+
+      if (converged || iteration == MAX_ITERATIONS - 1) {
+        System.arraycopy(ritzValues, 0, eigenvalues, 0, count);
+        return vectors;
+      }
+
+      basis = image;
+      orthonormalize(basis);
+    }
+  }
+
+  /**
+   * Modified Gram-Schmidt on the vectors. Linearly dependent vectors are set to 0.
+   */
+  private static void orthonormalize(double[][] vectors) {
+    for (int a = 0; a < vectors.length; a++) {
+      final double va[] = vectors[a];
+      for (int b = 0; b < a; b++) {
+        final double vb[] = vectors[b];
+        final double projection = dot(va, vb, va.length);
+        for (int i = 0; i < va.length; i++)
+          va[i] -= projection * vb[i];
+      }
+      final double norm = Math.sqrt(dot(va, va, va.length));
+      if (norm > Double.MIN_NORMAL * va.length) {
+        for (int i = 0; i < va.length; i++)
+          va[i] /= norm;
+      } else {
+        Arrays.fill(va, 0.0);
+      }
+    }
+  }
+
+  /**
+   * Cyclic Jacobi eigen decomposition of a small symmetric matrix, which is overwritten.
+   *
+   * @param vectors receives the eigenvectors as columns, sorted like the eigenvalues
+   * @return the eigenvalues in descending order
+   */
+  private static double[] jacobi(double[][] a, double[][] vectors) {
+    final int n = a.length;
+    final double v[][] = new double[n][n];
+    for (int i = 0; i < n; i++)
+      v[i][i] = 1.0;
+
+    for (int sweep = 0; sweep < 100; sweep++) {
+      double offDiagonal = 0, diagonal = 0;
+      for (int p = 0; p < n; p++) {
+        diagonal += a[p][p] * a[p][p];
+        for (int q = p + 1; q < n; q++)
+          offDiagonal += a[p][q] * a[p][q];
+      }
+      if (offDiagonal <= 1e-30 * diagonal || offDiagonal == 0)
+        break;
+
+      for (int p = 0; p < n - 1; p++) {
+        for (int q = p + 1; q < n; q++) {
+          if (a[p][q] == 0.0)
+            continue;
+          final double theta = (a[q][q] - a[p][p]) / (2.0 * a[p][q]);
+          final double t =
+              (theta >= 0 ? 1.0 : -1.0) / (Math.abs(theta) + Math.sqrt(theta * theta + 1.0));
+          final double c = 1.0 / Math.sqrt(t * t + 1.0);
+          final double s = t * c;
+          for (int k = 0; k < n; k++) {
+            final double akp = a[k][p], akq = a[k][q];
+            a[k][p] = c * akp - s * akq;
+            a[k][q] = s * akp + c * akq;
+          }
+          for (int k = 0; k < n; k++) {
+            final double apk = a[p][k], aqk = a[q][k];
+            a[p][k] = c * apk - s * aqk;
+            a[q][k] = s * apk + c * aqk;
+          }
+          for (int k = 0; k < n; k++) {
+            final double vkp = v[k][p], vkq = v[k][q];
+            v[k][p] = c * vkp - s * vkq;
+            v[k][q] = s * vkp + c * vkq;
+          }
+        }
+      }
+    }
+
+    // sort descending
+    final Integer order[] = new Integer[n];
+    for (int i = 0; i < n; i++)
+      order[i] = i;
+    Arrays.sort(order, (i, j) -> Double.compare(a[j][j], a[i][i]));
+    final double values[] = new double[n];
+    for (int c = 0; c < n; c++) {
+      values[c] = a[order[c]][order[c]];
+      for (int k = 0; k < n; k++)
+        vectors[k][c] = v[k][order[c]];
+    }
+    return values;
+  }
+
+  private static double dot(double[] a, double[] b, int length) {
+    double sum = 0;
+    for (int i = 0; i < length; i++)
+      sum += a[i] * b[i];
+    return sum;
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.dataanalysis.projectionplots;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedList;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import io.github.mzmine.datamodel.Feature;
+import io.github.mzmine.datamodel.PeakListRow;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.util.PeakMeasurementType;
+
+/**
+ * Least recently used cache of projection results. The projection only depends on the projection
+ * method, the rows, the raw data files and the peak measurement type. Opening the same plot again,
+ * e.g., with a different coloring or other axes, reuses the result.
+ *
+ * Rows and files are held weakly, so the cache does not keep removed feature lists or raw data
+ * files in memory. The features of the rows change, e.g., by manual integration, gap filling or
+ * feature removal, so each result also stores a fingerprint of the features and their values. A
+ * result whose fingerprint does not match the current features is dropped.
+ */
+class ProjectionResultCache {
+
+  private static final int MAX_SIZE = 8;
+
+  // most recently used first
+  private static final LinkedList<Entry> cache = new LinkedList<>();
+
+  /**
+   * @return the projection (dimensions x samples) or null. Must not be changed.
+   */
+  @Nullable
+  static double[][] get(@Nonnull String method, @Nonnull PeakListRow[] rows,
+      @Nonnull RawDataFile[] files, @Nonnull PeakMeasurementType measurementType) {
+    final int hash = Entry.hash(rows, files);
+    final long fingerprint = fingerprint(rows, files, measurementType);
+    synchronized (cache) {
+      for (Iterator<Entry> it = cache.iterator(); it.hasNext();) {
+        final Entry entry = it.next();
+        if (!entry.isAlive()) {
+          it.remove();
+          continue;
+        }
+        if (!entry.matches(method, hash, rows, files, measurementType))
+          continue;
+        it.remove();
+        // the features changed since the projection was computed
+        if (entry.fingerprint != fingerprint)
+          return null;
+        cache.addFirst(entry);
+        return entry.result;
+      }
+      return null;
+    }
+  }
+
+  static void put(@Nonnull String method, @Nonnull PeakListRow[] rows,
+      @Nonnull RawDataFile[] files, @Nonnull PeakMeasurementType measurementType,
+      @Nonnull double[][] result) {
+    final Entry newEntry = new Entry(method, rows, files, measurementType,
+        fingerprint(rows, files, measurementType), result);
+    synchronized (cache) {
+      cache.removeIf(entry -> !entry.isAlive()
+          || entry.matches(method, newEntry.hash, rows, files, measurementType));
+      cache.addFirst(newEntry);
+      while (cache.size() > MAX_SIZE)
+        cache.removeLast();
+    }
+  }
+
+  /**
+   * Hash of the feature of each row and file, by identity, and its height or area
+   */
+  private static long fingerprint(PeakListRow[] rows, RawDataFile[] files,
+      PeakMeasurementType measurementType) {
+    long h = 1;
+    for (PeakListRow row : rows) {
+      for (RawDataFile file : files) {
+        final Feature feature = row.getPeak(file);
+        if (feature == null) {
+          h = h * 31;
+          continue;
+        }
+        final double value =
+            measurementType == PeakMeasurementType.AREA ? feature.getArea() : feature.getHeight();
+        h = (h * 31 + System.identityHashCode(feature)) * 31 + Double.hashCode(value);
+      }
+    }
+    return h;
+  }
+
+  /**
+   * Cached result, rows and files are compared by identity
+   */
+  private static final class Entry {
+
+    private final String method;
+    private final WeakReference<PeakListRow>[] rows;
+    private final WeakReference<RawDataFile>[] files;
+    private final PeakMeasurementType measurementType;
+    private final int hash;
+    private final long fingerprint;
+    private final double[][] result;
+
+    @SuppressWarnings("unchecked")
+    private Entry(String method, PeakListRow[] rows, RawDataFile[] files,
+        PeakMeasurementType measurementType, long fingerprint, double[][] result) {
+      this.method = method;
+      this.measurementType = measurementType;
+      this.fingerprint = fingerprint;
+      this.result = result;
+      this.hash = hash(rows, files);
+
+      this.rows = new WeakReference[rows.length];
+      for (int i = 0; i < rows.length; i++)
+        this.rows[i] = new WeakReference<>(rows[i]);
+      this.files = new WeakReference[files.length];
+      for (int i = 0; i < files.length; i++)
+        this.files[i] = new WeakReference<>(files[i]);
+    }
+
+    private static int hash(PeakListRow[] rows, RawDataFile[] files) {
+      int h = 1;
+      for (RawDataFile file : files)
+        h = h * 31 + System.identityHashCode(file);
+      for (PeakListRow row : rows)
+        h = h * 31 + System.identityHashCode(row);
+      return h;
+    }
+
+    /**
+     * @return false if a row or file was garbage collected
+     */
+    private boolean isAlive() {
+      for (WeakReference<RawDataFile> file : files)
+        if (file.get() == null)
+          return false;
+      for (WeakReference<PeakListRow> row : rows)
+        if (row.get() == null)
+          return false;
+      return true;
+    }
+
+    private boolean matches(String method, int hash, PeakListRow[] rows, RawDataFile[] files,
+        PeakMeasurementType measurementType) {
+      if (this.hash != hash || !this.method.equals(method)
+          || this.measurementType != measurementType || this.rows.length != rows.length
+          || this.files.length != files.length)
+        return false;
+      for (int i = 0; i < files.length; i++)
+        if (this.files[i].get() != files[i])
+          return false;
+      for (int i = 0; i < rows.length; i++)
+        if (this.rows[i].get() != rows[i])
+          return false;
+      return true;
+    }
+  }
+
+}
@@ -21,7 +21,6 @@ package io.github.mzmine.modules.dataanalysis.projectionplots;
 import java.util.Vector;
 import java.util.logging.Logger;
 import org.jfree.data.xy.AbstractXYDataset;
-import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.PeakList;
 import io.github.mzmine.datamodel.PeakListRow;
@@ -31,7 +30,6 @@ import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.PeakMeasurementType;
-import jmprojection.Preprocess;
 import jmprojection.ProjectionStatus;
 import jmprojection.Sammons;
 
@@ -39,6 +37,8 @@ public class SammonsDataset extends AbstractXYDataset implements ProjectionPlotD
 
   private static final long serialVersionUID = 1L;
 
+  private static final String SAMMONS_METHOD = "SAMMONS";
+
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
   private double[] component1Coords;
@@ -60,10 +60,11 @@ public class SammonsDataset extends AbstractXYDataset implements ProjectionPlotD
   private int xAxisDimension;
   private int yAxisDimension;
 
-  private TaskStatus status = TaskStatus.WAITING;
+  private volatile TaskStatus status = TaskStatus.WAITING;
   private String errorMessage;
 
-  private ProjectionStatus projectionStatus;
+  private volatile ProjectionStatus projectionStatus;
+  private volatile double matrixPercentage = 0.0;
 
   public SammonsDataset(MZmineProject project, ParameterSet parameters) {
 
@@ -216,43 +217,37 @@ public class SammonsDataset extends AbstractXYDataset implements ProjectionPlotD
 
     logger.info("Computing projection plot");
 
-    // Generate matrix of raw data (input to Sammon's projection)
-    boolean useArea = false;
-    if (parameters.getParameter(ProjectionPlotParameters.peakMeasurementType)
-        .getValue() == PeakMeasurementType.AREA)
-      useArea = true;
-
-    double[][] rawData = new double[selectedRawDataFiles.length][selectedRows.length];
-    for (int rowIndex = 0; rowIndex < selectedRows.length; rowIndex++) {
-      PeakListRow peakListRow = selectedRows[rowIndex];
-      for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
-        RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
-        Feature p = peakListRow.getPeak(rawDataFile);
-        if (p != null) {
-          if (useArea)
-            rawData[fileIndex][rowIndex] = p.getArea();
-          else
-            rawData[fileIndex][rowIndex] = p.getHeight();
-        }
-      }
-    }
+    final PeakMeasurementType measurementType =
+        parameters.getParameter(ProjectionPlotParameters.peakMeasurementType).getValue();
+    final boolean useArea = (measurementType == PeakMeasurementType.AREA);
 
-    int numComponents = xAxisDimension;
-    if (yAxisDimension > numComponents)
-      numComponents = yAxisDimension;
+    // Same rows, files and measurement type, e.g., other axes or coloring: reuse the result
+    double[][] result = ProjectionResultCache.get(SAMMONS_METHOD, selectedRows,
+        selectedRawDataFiles, measurementType);
 
-    // Scale data and do Sammon's mapping
-    Preprocess.scaleToUnityVariance(rawData);
-    Sammons sammonsProj = new Sammons(rawData);
+    if (result == null) {
+      // Scaled data matrix with at most one dimension per sample (same distances), features are
+      // streamed for large feature lists
+      final double[][] samplesMatrix = ProjectionMatrix.buildSamplesMatrix(selectedRows,
+          selectedRawDataFiles, useArea, () -> status == TaskStatus.CANCELED,
+          progress -> matrixPercentage = 0.5 * progress);
+      if (samplesMatrix == null)
+        return;
 
-    projectionStatus = sammonsProj.getProjectionStatus();
+      // Do Sammon's mapping
+      Sammons sammonsProj = new Sammons(samplesMatrix);
 
-    sammonsProj.iterate(100);
+      projectionStatus = sammonsProj.getProjectionStatus();
 
-    if (status == TaskStatus.CANCELED)
-      return;
+      sammonsProj.iterate(100);
+
+      if (status == TaskStatus.CANCELED)
+        return;
 
-    double[][] result = sammonsProj.getState();
+      result = sammonsProj.getState();
+      ProjectionResultCache.put(SAMMONS_METHOD, selectedRows, selectedRawDataFiles,
+          measurementType, result);
+    }
 
     if (status == TaskStatus.CANCELED)
       return;
@@ -293,8 +288,8 @@ public class SammonsDataset extends AbstractXYDataset implements ProjectionPlotD
   @Override
   public double getFinishedPercentage() {
     if (projectionStatus == null)
-      return 0;
-    return projectionStatus.getFinishedPercentage();
+      return matrixPercentage;
+    return 0.5 + 0.5 * projectionStatus.getFinishedPercentage();
   }
 
   /**
@@ -20,13 +20,11 @@ package io.github.mzmine.modules.dataprocessing.align_hierarchical;
 
 import java.text.NumberFormat;
 
-import io.github.mzmine.modules.dataprocessing.align_hierarchical.ClustererType;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.DoubleParameter;
-import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
@@ -36,39 +34,17 @@ import io.github.mzmine.parameters.parametertypes.tolerances.RTToleranceParamete
 
 public class HierarAlignerGCParameters extends SimpleParameterSet {
 
-  // -- Save RAM 1
-  public static final BooleanParameter saveRAMratherThanCPU_1 = new BooleanParameter(
-      "Save RAM (!! <FULL-EXPENSE-ON-CPU> !!)",
-      "Ignored if clusterer type is not 'Cached'. Saves RAM at the expense of CPU during the whole clustering process (NO precomputed distances).",
-      false);
-  // -- Save RAM 2
-  public static final BooleanParameter saveRAMratherThanCPU_2 = new BooleanParameter(
-      "Save RAM (!! <LAST-PART-ONLY> !!)",
-      "Ignored if clusterer type is not 'Cached'. Saves RAM at the expense of CPU during the 2nd step of the clustering (building clusters from tree).",
-      false);
-
   public static final PeakListsParameter peakLists = new PeakListsParameter();
 
   public static final StringParameter peakListName =
       new StringParameter("Feature list name", "Feature list name", "Aligned feature list");
 
-  // Clusterer choice
-  public static final ComboParameter<ClustererType> clusterer_type =
-      new ComboParameter<ClustererType>("Hierarchical clusterer",
-          "Which clustering algorithm should be used (See: \"Hierarchical clustering\" algorithms in general).",
-          ClustererType.values(), ClustererType.CACHED);
-
   // Clustering linkage strategy
   public static final ComboParameter<ClusteringLinkageStrategyType> linkageStartegyType_0 =
       new ComboParameter<ClusteringLinkageStrategyType>("Clustering strategy",
           "What strategy shall be used for the clustering algorithm decision making (See: \"Hierarchical clustering\" algorithms in general).",
           ClusteringLinkageStrategyType.values(), ClusteringLinkageStrategyType.AVERAGE);
 
-  public static final IntegerParameter hybrid_K_value = new IntegerParameter(
-      "'K' value (Hybrid clusterer)",
-      "Ignored if clusterer type is not 'Hybrid'. Number of clusters for 1st pass (-1 => Let the algorithm decide) - 'Hybrid' uses 'K-Mean algorithm' as a first clustering pass.",
-      -1);
-
   // -- Use unaltered RDF...
   public static final BooleanParameter useOldestRDFAncestor = new BooleanParameter(
       "Use original raw data file",
@@ -134,10 +110,7 @@ public class HierarAlignerGCParameters extends SimpleParameterSet {
   public HierarAlignerGCParameters() {
     super(new Parameter[] {peakLists,
         // useOldestRDFAncestor,
-        //// clusterer_type,
-        //// saveRAMratherThanCPU_1, saveRAMratherThanCPU_2,
         linkageStartegyType_0,
-        // hybrid_K_value,
         peakListName, MZTolerance, MZWeight, RTTolerance, RTWeight, minScore,
         // useKnownCompoundsAsRef,
         // useDetectedMzOnly,
@@ -31,7 +31,9 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import org.gnf.clustering.DataSource;
 import org.gnf.clustering.DistanceMatrix;
 import org.gnf.clustering.FloatSource1D;
@@ -71,12 +73,6 @@ public class HierarAlignerGCTask extends AbstractTask {
   private String peakListName;
   private LinkageMode linkageStartegyType;
 
-  // private boolean use_hybrid_K;
-  // private int hybrid_K_value;
-
-  private boolean saveRAMratherThanCPU_1;
-  private boolean saveRAMratherThanCPU_2;
-  //
   // private boolean useOldestRDFAncestor;
   private MZTolerance mzTolerance;
   private RTTolerance rtTolerance;
@@ -112,8 +108,6 @@ public class HierarAlignerGCTask extends AbstractTask {
   private static final boolean DEBUG_2 = false;
   List<PeakListRow> full_rows_list;
 
-  private ClustererType CLUSTERER_TYPE;
-
   public static final boolean USE_DOUBLE_PRECISION_FOR_DIST = false;
 
   private ClusteringProgression clustProgress;
@@ -135,15 +129,6 @@ public class HierarAlignerGCTask extends AbstractTask {
 
     peakListName = parameters.getParameter(HierarAlignerGCParameters.peakListName).getValue();
 
-    // saveRAMratherThanCPU_1 = parameters
-    // .getParameter(HierarAlignerGCParameters.saveRAMratherThanCPU_1)
-    // .getValue();
-    // saveRAMratherThanCPU_2 = parameters
-    // .getParameter(HierarAlignerGCParameters.saveRAMratherThanCPU_2)
-    // .getValue();
-    saveRAMratherThanCPU_1 = false;
-    saveRAMratherThanCPU_2 = false;
-
     mzTolerance = parameters.getParameter(HierarAlignerGCParameters.MZTolerance).getValue();
     rtTolerance = parameters.getParameter(HierarAlignerGCParameters.RTTolerance).getValue();
 
@@ -178,13 +163,6 @@ public class HierarAlignerGCTask extends AbstractTask {
      * JoinAlignerParameters.compareIsotopePattern).getValue();
      **/
 
-    //
-
-    // CLUSTERER_TYPE = parameters
-    // .getParameter(HierarAlignerGCParameters.clusterer_type)
-    // .getValue();// .ordinal();
-    CLUSTERER_TYPE = ClustererType.CACHED;
-
     //
     ClusteringLinkageStrategyType linkageStartegyType_0 =
         parameters.getParameter(HierarAlignerGCParameters.linkageStartegyType_0).getValue();
@@ -202,9 +180,6 @@ public class HierarAlignerGCTask extends AbstractTask {
         break;
     }
 
-    // this.hybrid_K_value = parameters.getParameter(
-    // JoinAlignerGCParameters.hybrid_K_value).getValue();
-
     //
     maximumScore = mzWeight + rtWeight;
 
@@ -252,13 +227,6 @@ public class HierarAlignerGCTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
     logger.info("Running join aligner");
 
-    // TIME STUFF
-    long startTime, endTime;
-    float ms;
-    //
-    if (DEBUG)
-      startTime = System.currentTimeMillis();
-
     // MEMORY STUFF
     Runtime run_time = Runtime.getRuntime();
     Long prevTotal = 0l;
@@ -314,24 +282,12 @@ public class HierarAlignerGCTask extends AbstractTask {
     Integer[] newIds = orderIds.toArray(new Integer[orderIds.size()]);
     //
 
-    // TriangularMatrix distances = null;
-    DistanceMatrix distancesGNF_Tri = null;
-    DistanceMatrix distancesGNF_Tri_Bkp = null;
-
     int nbPeaks = 0;
     for (int i = 0; i < newIds.length; ++i) {
       PeakList peakList = peakLists[newIds[i]];
       nbPeaks += peakList.getNumberOfRows();
     }
 
-    // If 'Hybrid' or no distance matrix: no need for a matrix
-    if (CLUSTERER_TYPE == ClustererType.HYBRID || !saveRAMratherThanCPU_1) {
-      // distances = new double[nbPeaks][nbPeaks];
-
-      int nRowCount = nbPeaks;
-      distancesGNF_Tri = new DistanceMatrixTriangular1D2D(nRowCount);
-    }
-
     full_rows_list = new ArrayList<>();
 
     for (int i = 0; i < newIds.length; ++i) {
@@ -356,40 +312,37 @@ public class HierarAlignerGCTask extends AbstractTask {
         // rtToleranceAfter,
         maximumScore);
 
-    // If 'Hybrid' or no distance matrix: no need for a matrix
-    if (CLUSTERER_TYPE == ClustererType.HYBRID || !saveRAMratherThanCPU_1) {
-
-      for (int x = 0; x < nbPeaks; ++x) {
+    double max_dist = maximumScore;
 
-        for (int y = x; y < nbPeaks; ++y) {
+    // The full matrix over all rows is only needed to export the whole dendrogram. Otherwise, the
+    // rows are split into independent components that are clustered separately.
+    if (!exportDendrogramAsTxt) {
+      List<List<Integer>> clusters = clusterComponents(distProvider, newIds.length, max_dist);
+      if (clusters == null)
+        return;
+      alignClusters(clusters, infoRowsBackup, rtPeaksBackup);
+      return;
+    }
 
-          float dist = (float) distProvider.getRankedDistance(x, y, mzTolerance.getMzTolerance(),
-              rtTolerance.getTolerance(), minScore);
+    DistanceMatrix distancesGNF_Tri = new DistanceMatrixTriangular1D2D(nbPeaks);
+    for (int x = 0; x < nbPeaks; ++x) {
 
-          // if (CLUSTERER_TYPE == ClustererType.CLASSIC_OLD)
-          // distances.set(x, y , dist);
-          // else
-          distancesGNF_Tri.setValue(x, y, dist);
+      for (int y = x; y < nbPeaks; ++y) {
 
-        }
+        float dist = (float) distProvider.getRankedDistance(x, y, mzTolerance.getMzTolerance(),
+            rtTolerance.getTolerance(), minScore);
+        distancesGNF_Tri.setValue(x, y, dist);
+      }
 
-        processedRows++;
-        if (DEBUG)
-          logger.info(
-              "Treating lists: " + (Math.round(100 * processedRows / (double) nbPeaks)) + " %");
+      processedRows++;
+      if (DEBUG)
+        logger.info(
+            "Treating lists: " + (Math.round(100 * processedRows / (double) nbPeaks)) + " %");
 
-      }
     }
     if (DEBUG)
       printMemoryUsage(logger, run_time, prevTotal, prevFree, "DISTANCES COMPUTED");
 
-    //////
-    double max_dist = maximumScore; // Math.abs(row.getBestPeak().getRT() -
-                                    // k_row.getBestPeak().getRT()) /
-                                    // ((RangeUtils.rangeLength(rtRange) /
-                                    // 2.0));
-
-    // String newickCluster;
     List<List<Integer>> gnfClusters = null;
 
     //////
@@ -406,8 +359,6 @@ public class HierarAlignerGCTask extends AbstractTask {
     if (do_print) {
       rowNames = new String[nRowCount];
       for (int i = 0; i < nRowCount; i++) {
-        // rowNames[i] = "ID_" + i + "_" +
-        // full_rows_list.get(i).getID();
         Feature peak = full_rows_list.get(i).getBestPeak();
         double rt = peak.getRT();
         int end = peak.getDataFile().getName().indexOf(" ");
@@ -415,67 +366,27 @@ public class HierarAlignerGCTask extends AbstractTask {
         rowNames[i] = "@" + rtFormat.format(rt) + "^[" + short_fname + "]";
       }
     }
-    String outputPrefix = null;
-
-    if (CLUSTERER_TYPE == ClustererType.CLASSIC) { // Pure Hierar!
 
-      outputPrefix = "hierar_0";
+    // Back up the distance matrix, it is deeply changed during "clusterDM()" but still needed to
+    // validate the clusters
+    DistanceMatrix distancesGNF_Tri_Bkp = new DistanceMatrixTriangular1D2D(distancesGNF_Tri);
+    if (DEBUG)
+      printMemoryUsage(logger, run_time, prevTotal, prevFree, "GNF CLUSTERER BACKUP MATRIX");
 
-      throw new IllegalStateException(
-          "'" + ClustererType.CLASSIC.toString() + "' algorithm not yet implemented!");
+    if (DEBUG)
+      logger.info("Clustering...");
+    arNodes = org.gnf.clustering.sequentialcache.SequentialCacheClustering
+        .clusterDM(distancesGNF_Tri, linkageStartegyType, null, nRowCount);
+    distancesGNF_Tri = null;
 
-    } else if (CLUSTERER_TYPE == ClustererType.CACHED) { // Pure Hierar!
+    if (DEBUG)
+      printMemoryUsage(logger, run_time, prevTotal, prevFree, "GNF CLUSTERER DONE");
 
-      // TODO: ...!
-      if (DEBUG_2)
-        logger.info(distancesGNF_Tri.toString());
-
-      if (saveRAMratherThanCPU_2) { // Requires: distances values will be
-                                    // recomputed on demand during
-                                    // "getValidatedClusters_3()"
-        distancesGNF_Tri_Bkp = null; // No duplicate backup storage!
-      } else { // Otherwise, backing up the distance matrix (matrix being
-               // deeply changed during "clusterDM()", then no more
-               // exploitable)
-        distancesGNF_Tri_Bkp = new DistanceMatrixTriangular1D2D(distancesGNF_Tri);
-        if (DEBUG)
-          printMemoryUsage(logger, run_time, prevTotal, prevFree, "GNF CLUSTERER BACKUP MATRIX");
+    if (DEBUG_2)
+      for (int i = 0; i < arNodes.length; i++) {
+        logger.info("Node " + i + ": " + arNodes[i]);
       }
 
-      if (DEBUG)
-        logger.info("Clustering...");
-      if (distancesGNF_Tri != null)
-        arNodes = org.gnf.clustering.sequentialcache.SequentialCacheClustering
-            .clusterDM(distancesGNF_Tri, linkageStartegyType, null, nRowCount);
-
-      distancesGNF_Tri = null;
-      System.gc();
-
-      if (DEBUG)
-        printMemoryUsage(logger, run_time, prevTotal, prevFree, "GNF CLUSTERER DONE");
-
-      if (DEBUG_2)
-        logger.info(distancesGNF_Tri.toString());
-
-      if (DEBUG_2)
-        for (int i = 0; i < arNodes.length; i++) {
-          logger.info("Node " + i + ": " + arNodes[i]);
-        }
-
-      // TODO: Use usual interfacing ...
-      // ClusteringResult<org.gnf.clustering.Node> clust_res = new
-      // ClusteringResult<>(
-      // Arrays.asList(arNodes), null, 0, null);
-
-      outputPrefix = "hierar_1";
-
-    } else if (CLUSTERER_TYPE == ClustererType.HYBRID) { // Hybrid!
-
-      throw new IllegalStateException(
-          "'" + ClustererType.HYBRID.toString() + "' algorithm not yet implemented!");
-
-    }
-
     // Sort Nodes by correlation score (Required in
     // 'getValidatedClusters_3')
     int[] rowOrder = new int[nRowCount];
@@ -505,7 +416,7 @@ public class HierarAlignerGCTask extends AbstractTask {
     // File output
 
     int ext_pos = dendrogramTxtFilename.getAbsolutePath().lastIndexOf(".");
-    outputPrefix = dendrogramTxtFilename.getAbsolutePath().substring(0, ext_pos);
+    String outputPrefix = dendrogramTxtFilename.getAbsolutePath().substring(0, ext_pos);
     String outGtr = outputPrefix + ".gtr";
     String outCdt = outputPrefix + ".cdt";
 
@@ -541,6 +452,18 @@ public class HierarAlignerGCTask extends AbstractTask {
 
     }
 
+    alignClusters(gnfClusters, infoRowsBackup, rtPeaksBackup);
+  }
+
+  /**
+   * Creates the aligned feature list with one row per cluster and adds it to the project
+   *
+   * @param gnfClusters clusters of indices into full_rows_list
+   */
+  private void alignClusters(List<List<Integer>> gnfClusters,
+      Hashtable<PeakListRow, Object[]> infoRowsBackup,
+      Hashtable<SimpleFeature, Double> rtPeaksBackup) {
+
     ////// Arrange row clustered list with method 0,1,2
     List<List<PeakListRow>> clustersList = new ArrayList<>();
 
@@ -557,8 +480,6 @@ public class HierarAlignerGCTask extends AbstractTask {
       processedRows += rows_cluster.size();
     }
 
-    if (DEBUG)
-      printMemoryUsage(logger, run_time, prevTotal, prevFree, "GNF CLUSTERER CLUSTER_LIST");
 
     // DEBUG stuff: REMOVE !!!
     /** printAlignedPeakList(clustersList); */
@@ -646,13 +567,6 @@ public class HierarAlignerGCTask extends AbstractTask {
 
     }
 
-    //
-    if (DEBUG) {
-      endTime = System.currentTimeMillis();
-      ms = (endTime - startTime);
-      logger.info("## >> Whole JoinAlignerGCTask processing took " + Float.toString(ms) + " ms.");
-    }
-
     // ----------------------------------------------------------------------
 
     // Add new aligned feature list to the project
@@ -672,6 +586,89 @@ public class HierarAlignerGCTask extends AbstractTask {
 
   }
 
+  /**
+   * Clusters the rows component by component (see {@link RowCandidateComponents}). Each component
+   * gets its own small distance matrix, the components are processed in parallel.
+   *
+   * @return clusters of indices into full_rows_list or null if canceled
+   */
+  private List<List<Integer>> clusterComponents(RowVsRowDistanceProvider distProvider, int level,
+      double max_dist) {
+
+    final int nbRows = full_rows_list.size();
+    final AtomicInteger scored = new AtomicInteger(0);
+    final int processedBefore = processedRows;
+
+    RowCandidateComponents candidates =
+        new RowCandidateComponents(full_rows_list, distProvider, mzTolerance.getMzTolerance(),
+            rtTolerance.getTolerance(), minScore, max_dist);
+    List<List<Integer>> components = candidates.computeComponents(() -> {
+      processedRows = processedBefore + scored.incrementAndGet();
+    });
+    processedRows = processedBefore + nbRows;
+
+    if (isCanceled())
+      return null;
+
+    logger.info("Clustering " + nbRows + " rows in " + components.size() + " components");
+
+    final AtomicInteger clustered = new AtomicInteger(0);
+    List<List<List<Integer>>> componentClusters = components.parallelStream().map(component -> {
+      if (isCanceled())
+        return new ArrayList<List<Integer>>();
+      List<List<Integer>> clusters = clusterComponent(component, distProvider, level, max_dist);
+      clustProgress.setProgress((double) clustered.addAndGet(component.size()) / nbRows);
+      return clusters;
+    }).collect(Collectors.toList());
+
+    if (isCanceled())
+      return null;
+
+    List<List<Integer>> clusters = new ArrayList<>();
+    componentClusters.forEach(clusters::addAll);
+    return clusters;
+  }
+
+  private List<List<Integer>> clusterComponent(List<Integer> component,
+      RowVsRowDistanceProvider distProvider, int level, double max_dist) {
+
+    final int n = component.size();
+    if (n == 1) {
+      List<List<Integer>> single = new ArrayList<>();
+      single.add(component);
+      return single;
+    }
+
+    // distance matrix of this component only (local indices)
+    DistanceMatrix distances = new DistanceMatrixTriangular1D2D(n);
+    for (int x = 0; x < n; ++x) {
+      for (int y = x; y < n; ++y) {
+        float dist = (float) distProvider.getRankedDistance(component.get(x), component.get(y),
+            mzTolerance.getMzTolerance(), rtTolerance.getTolerance(), minScore);
+        distances.setValue(x, y, dist);
+      }
+    }
+    // the matrix is changed during clustering, but is needed to validate the clusters
+    DistanceMatrix distancesBkp = new DistanceMatrixTriangular1D2D(distances);
+
+    org.gnf.clustering.Node[] arNodes = org.gnf.clustering.sequentialcache.SequentialCacheClustering
+        .clusterDM(distances, linkageStartegyType, null, n);
+    org.gnf.clustering.Utils.NodeSort(arNodes, n - 2, 0, new int[n]);
+
+    List<List<Integer>> localClusters =
+        getValidatedClusters_3(arNodes, 0.0f, level, max_dist, distancesBkp, null);
+
+    // map back to indices of full_rows_list
+    List<List<Integer>> clusters = new ArrayList<>(localClusters.size());
+    for (List<Integer> localCluster : localClusters) {
+      List<Integer> cluster = new ArrayList<>(localCluster.size());
+      for (int local : localCluster)
+        cluster.add(component.get(local));
+      clusters.add(cluster);
+    }
+    return clusters;
+  }
+
   /**
    * Two clusters can be merged if and only if: - The resulting merged cluster: (their parent)
    * doesn't exceed 'level' leaves - The distance between them two is acceptable (close enough)
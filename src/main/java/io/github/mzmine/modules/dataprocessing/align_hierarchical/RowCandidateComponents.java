@@ -0,0 +1,149 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_hierarchical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+import io.github.mzmine.datamodel.PeakListRow;
+
+/**
+ * Splits the rows to align into connected components of the "can be clustered together" graph. Two
+ * rows are connected if their ranked distance is below the maximum cluster distance. Validated
+ * clusters never contain two rows with a larger distance, so every cluster lies within one
+ * component and each component can be clustered on its own small distance matrix. This replaces
+ * the full triangular matrix over all rows, where almost all entries are out of tolerance.
+ *
+ * Candidate pairs are only searched inside the RT tolerance window (rows sorted by RT) and the
+ * distances are computed in parallel.
+ */
+class RowCandidateComponents {
+
+  private final List<PeakListRow> rows;
+  private final RowVsRowDistanceProvider distProvider;
+  private final double mzMaxDiff, rtMaxDiff, minScore, maxDist;
+
+  // union-find forest, updated concurrently
+  private final AtomicIntegerArray parent;
+
+  RowCandidateComponents(List<PeakListRow> rows, RowVsRowDistanceProvider distProvider,
+      double mzMaxDiff, double rtMaxDiff, double minScore, double maxDist) {
+    this.rows = rows;
+    this.distProvider = distProvider;
+    this.mzMaxDiff = mzMaxDiff;
+    this.rtMaxDiff = rtMaxDiff;
+    this.minScore = minScore;
+    this.maxDist = maxDist;
+    this.parent = new AtomicIntegerArray(rows.size());
+    for (int i = 0; i < rows.size(); i++)
+      parent.set(i, i);
+  }
+
+  /**
+   * Computes the candidate distances in parallel and returns the components as lists of row
+   * indices (into the rows list). Components and their members are sorted by their smallest index,
+   * so the result does not depend on the thread scheduling.
+   *
+   * @param progress called once per processed row (from several threads)
+   */
+  List<List<Integer>> computeComponents(Runnable progress) {
+    final int n = rows.size();
+
+    // sort by RT to only compare rows inside the RT window
+    final double rts[] = new double[n];
+    final double mzs[] = new double[n];
+    for (int i = 0; i < n; i++) {
+      rts[i] = rows.get(i).getBestPeak().getRT();
+      mzs[i] = rows.get(i).getBestPeak().getMZ();
+    }
+    final Integer sorted[] = IntStream.range(0, n).boxed().toArray(Integer[]::new);
+    Arrays.sort(sorted, Comparator.comparingDouble(i -> rts[i]));
+
+    // same criteria as RowVsRowDistanceProvider.getRankedDistance for "not a candidate"
+    final double rtWindow = rtMaxDiff / 2.0;
+    final double mzWindow = mzMaxDiff / 2.0;
+
+    IntStream.range(0, n).parallel().forEach(si -> {
+      final int i = sorted[si];
+      for (int sj = si + 1; sj < n; sj++) {
+        final int j = sorted[sj];
+        if (rts[j] - rts[i] >= rtWindow)
+          break;
+        if (Math.abs(mzs[j] - mzs[i]) >= mzWindow)
+          continue;
+        if (find(i) == find(j))
+          continue;
+        double dist = distProvider.getRankedDistance(i, j, mzMaxDiff, rtMaxDiff, minScore);
+        if (dist < maxDist + HierarAlignerGCTask.EPSILON)
+          union(i, j);
+      }
+      progress.run();
+    });
+
+    // collect components
+    Map<Integer, List<Integer>> components = new HashMap<>();
+    List<List<Integer>> result = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      final int root = find(i);
+      List<Integer> component = components.get(root);
+      if (component == null) {
+        component = new ArrayList<>();
+        components.put(root, component);
+        result.add(component);
+      }
+      component.add(i);
+    }
+    return result;
+  }
+
+  private int find(int x) {
+    int p = parent.get(x);
+    while (p != x) {
+      // path halving
+      final int gp = parent.get(p);
+      parent.compareAndSet(x, p, gp);
+      x = gp;
+      p = parent.get(x);
+    }
+    return x;
+  }
+
+  private void union(int a, int b) {
+    while (true) {
+      int ra = find(a);
+      int rb = find(b);
+      if (ra == rb)
+        return;
+      // always link the larger root to the smaller one
+      if (ra < rb) {
+        int tmp = ra;
+        ra = rb;
+        rb = tmp;
+      }
+      if (parent.compareAndSet(ra, ra, rb))
+        return;
+    }
+  }
+
+}
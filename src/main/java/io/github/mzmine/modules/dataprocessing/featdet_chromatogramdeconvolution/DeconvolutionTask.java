@@ -23,9 +23,10 @@ import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconv
 import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.DeconvolutionParameters.RetentionTimeMSMS;
 import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.DeconvolutionParameters.SUFFIX;
 import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.DeconvolutionParameters.mzRangeMSMS;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import io.github.mzmine.datamodel.Feature;
+import java.util.stream.IntStream;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.PeakList;
 import io.github.mzmine.datamodel.PeakList.PeakListAppliedMethod;
@@ -55,7 +56,7 @@ public class DeconvolutionTask extends AbstractTask {
   private PeakList newPeakList;
 
   // Counters.
-  private int processedRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
   private int totalRows;
 
   // User parameters
@@ -83,7 +84,6 @@ public class DeconvolutionTask extends AbstractTask {
     parameters = parameterSet;
     originalPeakList = list;
     newPeakList = null;
-    processedRows = 0;
     totalRows = 0;
     this.mzCenterFunction = mzCenterFunction;
   }
@@ -97,7 +97,7 @@ public class DeconvolutionTask extends AbstractTask {
   @Override
   public double getFinishedPercentage() {
 
-    return totalRows == 0 ? 0.0 : (double) processedRows / (double) totalRows;
+    return totalRows == 0 ? 0.0 : (double) processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -125,7 +125,7 @@ public class DeconvolutionTask extends AbstractTask {
           final MZmineProcessingStep<PeakResolver> resolver =
               parameters.getParameter(PEAK_RESOLVER).getValue();
 
-          if (resolver.getModule().getRequiresR()) {
+          if (resolver.getModule().getRequiresR(resolver.getParameterSet())) {
             // Check R availability, by trying to open the
             // connection.
             String[] reqPackages = resolver.getModule().getRequiredRPackages();
@@ -245,26 +245,54 @@ public class DeconvolutionTask extends AbstractTask {
         "Peak deconvolution by " + resolver, resolver.getParameterSet()));
 
     // Initialise counters.
-    processedRows = 0;
+    processedRows.set(0);
     totalRows = peakList.getNumberOfRows();
     int peakId = 1;
 
     // Process each chromatogram.
     final PeakListRow[] peakListRows = peakList.getRows().toArray(PeakListRow[]::new);
     final int chromatogramCount = peakListRows.length;
-    for (int index = 0; !isCanceled() && index < chromatogramCount; index++) {
+    final PeakResolver resolverModule = resolver.getModule();
+    final ParameterSet resolverParams = resolver.getParameterSet();
+    final ResolvedPeak[][] resolved = new ResolvedPeak[chromatogramCount][];
+
+    if (rSession == null) {
+      // The chromatograms are independent and resolvers without R keep no state: resolve in
+      // parallel
+      try {
+        IntStream.range(0, chromatogramCount).parallel().forEach(index -> {
+          if (isCanceled())
+            return;
+          try {
+            resolved[index] = resolverModule.resolvePeaks(peakListRows[index].getPeak(dataFile),
+                resolverParams, null, mzCenterFunction, msmsRange, RTRangeMSMS);
+          } catch (RSessionWrapperException e) {
+            throw new IllegalStateException(e);
+          }
+          processedRows.incrementAndGet();
+        });
+      } catch (IllegalStateException e) {
+        if (e.getCause() instanceof RSessionWrapperException)
+          throw (RSessionWrapperException) e.getCause();
+        throw e;
+      }
+    } else {
+      // R calls are serialized on the session
+      for (int index = 0; !isCanceled() && index < chromatogramCount; index++) {
+        resolved[index] = resolverModule.resolvePeaks(peakListRows[index].getPeak(dataFile),
+            resolverParams, rSession, mzCenterFunction, msmsRange, RTRangeMSMS);
+        processedRows.incrementAndGet();
+      }
+    }
 
-      final PeakListRow currentRow = peakListRows[index];
-      final Feature chromatogram = currentRow.getPeak(dataFile);
+    if (isCanceled())
+      return resolvedPeaks;
 
-      // Resolve peaks.
-      final PeakResolver resolverModule = resolver.getModule();
-      final ParameterSet resolverParams = resolver.getParameterSet();
-      final ResolvedPeak[] peaks = resolverModule.resolvePeaks(chromatogram, resolverParams,
-          rSession, mzCenterFunction, msmsRange, RTRangeMSMS);
+    // Add peaks to the new feature list, in chromatogram order to keep the IDs deterministic.
+    for (int index = 0; index < chromatogramCount; index++) {
 
-      // Add peaks to the new feature list.
-      for (final ResolvedPeak peak : peaks) {
+      final PeakListRow currentRow = peakListRows[index];
+      for (final ResolvedPeak peak : resolved[index]) {
 
         peak.setParentChromatogramRowID(currentRow.getID());
 
@@ -273,8 +301,6 @@ public class DeconvolutionTask extends AbstractTask {
         newRow.setPeakInformation(peak.getPeakInformation());
         resolvedPeaks.addRow(newRow);
       }
-
-      processedRows++;
     }
 
     return resolvedPeaks;
@@ -33,6 +33,13 @@ public interface PeakResolver extends MZmineModule {
    */
   public boolean getRequiresR();
 
+  /**
+   * Gets if resolver requires R with the given parameters, if applicable
+   */
+  public default boolean getRequiresR(final ParameterSet parameters) {
+    return getRequiresR();
+  }
+
   /**
    * Gets R required packages for the resolver's method, if applicable
    */
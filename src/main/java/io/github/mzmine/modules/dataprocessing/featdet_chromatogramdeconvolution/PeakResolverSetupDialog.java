@@ -274,7 +274,7 @@ public class PeakResolverSetupDialog extends ParameterSetupDialog {
         RSessionWrapper rSession;
         try {
 
-          if (peakResolver.getRequiresR()) {
+          if (peakResolver.getRequiresR(parameters)) {
             // Check R availability, by trying to open the
             // connection.
             String[] reqPackages = peakResolver.getRequiredRPackages();
@@ -0,0 +1,862 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import com.google.common.collect.Range;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveDetectorParameters.PeakIntegrationMethod;
+
+/**
+ * Java implementation of xcms findPeaks.centWave for the single EIC the CentWaveDetector builds
+ * (one m/z value per scan, ppm=0, mzdiff=0, the non-zero sections as regions of interest, no
+ * Gaussian fit). The wavelet transform, local maxima and ridge lines follow the MassSpecWavelet
+ * functions bundled with xcms (MSW.cwt, MSW.getLocalMaximumCWT, MSW.getRidge).
+ * <p>
+ * Experimental: it has not been validated against xcms on reference data yet.
+ */
+final class CentWaveAlgorithm {
+
+  // Columns of the peak matrix, as in the matrix returned by findPeaks.centWave.
+  static final int MZ = 0, MZMIN = 1, MZMAX = 2, RT = 3, RTMIN = 4, RTMAX = 5, INTO = 6, MAXO = 7;
+  private static final int COLUMNS = 8;
+
+  // Gap threshold and minimum window size of MSW.getRidge and MSW.getLocalMaximumCWT.
+  private static final int GAP_THRESHOLD = 3;
+  private static final int MIN_WINDOW_SIZE = 5;
+
+  // Mexican hat wavelet, sampled as in MSW.cwt.
+  private static final int PSI_POINTS = 1024;
+  private static final double[] PSI = new double[PSI_POINTS];
+  private static final double PSI_DX;
+  private static final double PSI_XMAX;
+
+  static {
+    final double[] x = new double[PSI_POINTS];
+    final double by = 16.0 / (PSI_POINTS - 1);
+    for (int i = 0; i < PSI_POINTS; i++)
+      x[i] = i == PSI_POINTS - 1 ? 8.0 : -8.0 + i * by;
+    for (int i = 0; i < PSI_POINTS; i++)
+      PSI[i] = (2.0 / Math.sqrt(3.0) * Math.pow(Math.PI, -0.25)) * (1.0 - x[i] * x[i])
+          * Math.exp(-x[i] * x[i] / 2.0);
+    PSI_DX = x[1] - x[0];
+    PSI_XMAX = x[PSI_POINTS - 1] - x[0];
+  }
+
+  private CentWaveAlgorithm() {}
+
+  /**
+   * Detect peaks in an EIC.
+   *
+   * @param scanTime retention times of the scans, in seconds.
+   * @param intensity intensity values (for each scan).
+   * @param mz fixed m/z value of the EIC.
+   * @param snrThreshold signal:noise ratio threshold.
+   * @param peakWidth peak width range, in seconds.
+   * @param integrationMethod integration method.
+   * @return a matrix with a row for each detected peak, or null if there are no peaks.
+   */
+  static double[][] findPeaks(final double[] scanTime, final double[] intensity, final double mz,
+      final double snrThreshold, final Range<Double> peakWidth,
+      final PeakIntegrationMethod integrationMethod) {
+
+    final int numScans = scanTime.length;
+    if (numScans < 2)
+      return null;
+
+    // Wavelet scales, in number of scans.
+    double meanScanDiff = 0.0;
+    for (int i = 1; i < numScans; i++)
+      meanScanDiff += scanTime[i] - scanTime[i - 1];
+    meanScanDiff /= numScans - 1;
+    final int lowScale = (int) Math.rint(peakWidth.lowerEndpoint() / meanScanDiff / 2.0);
+    final int highScale = (int) Math.rint(peakWidth.upperEndpoint() / meanScanDiff / 2.0);
+    final int[] scales;
+    if (lowScale > 0 && highScale > 0) {
+      scales = new int[(highScale - lowScale) / 2 + 1];
+      for (int i = 0; i < scales.length; i++)
+        scales[i] = lowScale + 2 * i;
+    } else if (lowScale > 0 || highScale > 0) {
+      scales = new int[] {Math.max(lowScale, highScale)};
+    } else {
+      return null;
+    }
+
+    final int minPeakWidth = scales[0];
+    final int smallNoiseRange = 3 * minPeakWidth;
+    final int noiseRange = 3 * scales[scales.length - 1];
+    final int minPtsAboveBaseline = Math.max(4, minPeakWidth - 2);
+    final int scanRangeTolerance = minPeakWidth / 2;
+    final int maxDescOutlier = minPeakWidth / 2;
+
+    final List<double[]> peaks = new ArrayList<>();
+
+    // Regions of interest: the non-zero sections (0-based, inclusive).
+    for (int start = 0; start < numScans; start++) {
+
+      if (intensity[start] <= 0.0)
+        continue;
+
+      int end = start;
+      while (end + 1 < numScans && intensity[end + 1] > 0.0)
+        end++;
+
+      findRoiPeaks(scanTime, intensity, mz, snrThreshold, integrationMethod, scales, start, end,
+          smallNoiseRange, noiseRange, minPtsAboveBaseline, scanRangeTolerance, maxDescOutlier,
+          peaks);
+
+      start = end;
+    }
+
+    if (peaks.isEmpty())
+      return null;
+
+    // Remove overlapping peaks, keeping the ones with the largest area (rectUnique).
+    final Integer[] order = new Integer[peaks.size()];
+    for (int i = 0; i < order.length; i++)
+      order[i] = i;
+    Arrays.sort(order, (a, b) -> Double.compare(peaks.get(b)[INTO], peaks.get(a)[INTO]));
+    final boolean[] keep = new boolean[order.length];
+    for (int i = 0; i < order.length; i++) {
+      final double[] peak = peaks.get(order[i]);
+      keep[order[i]] = true;
+      for (int j = 0; j < i; j++) {
+        final double[] other = peaks.get(order[j]);
+        if (keep[order[j]] && !(peak[MZMIN] - other[MZMAX] > 0.0
+            || other[MZMIN] - peak[MZMAX] > 0.0 || peak[RTMIN] - other[RTMAX] > -0.00001
+            || other[RTMIN] - peak[RTMAX] > -0.00001)) {
+          keep[order[i]] = false;
+          break;
+        }
+      }
+    }
+
+    final List<double[]> unique = new ArrayList<>();
+    for (int i = 0; i < keep.length; i++)
+      if (keep[i])
+        unique.add(peaks.get(i));
+    return unique.toArray(new double[unique.size()][]);
+  }
+
+  /**
+   * Detect the peaks of one region of interest, given by its first and last scan (0-based).
+   */
+  private static void findRoiPeaks(final double[] scanTime, final double[] intensity,
+      final double mz, final double snrThreshold, final PeakIntegrationMethod integrationMethod,
+      final int[] scales, final int roiStart, final int roiEnd, final int smallNoiseRange,
+      final int noiseRange, final int minPtsAboveBaseline, final int scanRangeTolerance,
+      final int maxDescOutlier, final List<double[]> peaks) {
+
+    final int numScans = scanTime.length;
+    final int roiLength = roiEnd - roiStart + 1;
+
+    // ROI extended by the noise range, used for baseline detection and wavelet analysis.
+    final int first = Math.max(0, roiStart - noiseRange);
+    final int last = Math.min(numScans - 1, roiEnd + noiseRange);
+    final double[] d = Arrays.copyOfRange(intensity, first, last + 1);
+    final int length = d.length;
+
+    // ROI extended by the scan range tolerance, as indices into d.
+    final int fLow = Math.max(first, roiStart - scanRangeTolerance) - first;
+    final int fHigh = Math.min(last, roiEnd + scanRangeTolerance) - first;
+    final double[] fd = Arrays.copyOfRange(d, fLow, fHigh + 1);
+
+    // First baseline guess: trimmed mean, over all scans for very long mass traces.
+    final double noise = estimateChromNoise(roiLength >= 10 * scales[0] ? intensity : d,
+        3 * scales[0]);
+    if (!continuousPtsAboveThreshold(fd, noise, minPtsAboveBaseline))
+      return;
+
+    // Second estimate from the data outside the peak range.
+    final double[] localNoise = getLocalNoiseEstimate(d, fLow, fHigh, smallNoiseRange, numScans,
+        noise, minPtsAboveBaseline);
+    final double baseline = Math.max(1.0, Math.min(localNoise[0], noise));
+    final double sdNoise = Math.max(1.0, localNoise[1]);
+    final double sdThreshold = sdNoise * snrThreshold;
+
+    boolean aboveThreshold = false;
+    for (final double value : fd)
+      aboveThreshold |= value - baseline >= sdThreshold;
+    if (!aboveThreshold)
+      return;
+
+    final double[][] wCoefs = cwt(d, scales);
+    if (wCoefs.length == 0)
+      return;
+    aboveThreshold = false;
+    for (final double[] column : wCoefs)
+      for (final double value : column)
+        aboveThreshold |= value - baseline >= sdThreshold;
+    if (!aboveThreshold)
+      return;
+
+    // Same workaround as xcms: the local maxima fail otherwise.
+    if (last == numScans - 1 && length > 1)
+      for (final double[] column : wCoefs)
+        column[length - 1] = column[length - 2] * 0.99;
+
+    final int[] usedScales = Arrays.copyOf(scales, wCoefs.length);
+    final boolean[][] localMax = getLocalMaximumCWT(wCoefs, usedScales);
+    final List<int[]> ridges = getRidge(localMax, usedScales);
+
+    final List<double[]> roiPeaks = new ArrayList<>();
+    final List<int[]> peakInfo = new ArrayList<>();
+
+    for (final int[] ridge : ridges) {
+
+      // xcms checks the ridge on the coefficients of the first scale.
+      boolean ridgeAbove = false;
+      for (final int pos : ridge)
+        ridgeAbove |= wCoefs[0][pos] - baseline >= sdThreshold;
+      if (!ridgeAbove)
+        continue;
+
+      // Final S/N check on the ridge positions within the original data range.
+      final Set<Integer> positions = new LinkedHashSet<>();
+      for (final int pos : ridge)
+        positions.add(pos);
+      boolean inRange = false;
+      boolean signal = false;
+      for (final int pos : positions) {
+        if (pos >= fLow && pos <= fHigh) {
+          inRange = true;
+          signal |= d[pos] - baseline >= sdThreshold;
+        }
+      }
+      if (!inRange || !signal)
+        continue;
+
+      // Decide which scale describes the peak best.
+      final int intRange = (scales[0] + 1) / 2;
+      int best = 0;
+      double bestSum = Double.NEGATIVE_INFINITY;
+      for (int k = 0; k < ridge.length; k++) {
+        double sum = 0.0;
+        for (int i = Math.max(0, ridge[k] - intRange); i <= Math.min(length - 1,
+            ridge[k] + intRange); i++)
+          sum += d[i];
+        if (sum > bestSum) {
+          bestSum = sum;
+          best = k;
+        }
+      }
+      best = Math.min(best, usedScales.length - 1);
+      final int bestScale = usedScales[best];
+      final int bestPos = ridge[best];
+
+      final double[] peak = new double[COLUMNS];
+      peak[MZ] = peak[MZMIN] = peak[MZMAX] = mz;
+      roiPeaks.add(peak);
+      peakInfo.add(new int[] {best, bestPos, Math.max(0, bestPos - bestScale),
+          Math.min(bestPos + bestScale, length - 1)});
+    }
+
+    // Find the minima around each peak and integrate.
+    for (int p = 0; p < roiPeaks.size(); p++) {
+
+      final double[] peak = roiPeaks.get(p);
+      final int[] info = peakInfo.get(p);
+
+      int[] lm = null;
+      if (integrationMethod == PeakIntegrationMethod.UseSmoothedData) {
+        lm = descendMin(wCoefs[info[0]], info[1]);
+        boolean gap = true;
+        for (int i = lm[0]; i <= lm[1]; i++)
+          gap &= d[i] == 0.0;
+        if (lm[0] == lm[1] || gap)
+          lm = null;
+      }
+      if (lm == null)
+        lm = descendMinTol(d, info[2], info[3], maxDescOutlier);
+
+      // Narrow down the peak boundaries by skipping zeros.
+      final int np = lm[1] - lm[0] + 1;
+      int left = np;
+      for (int i = 0; i < np; i++) {
+        if (d[lm[0] + i] >= 1.0) {
+          left = i;
+          break;
+        }
+      }
+      int right = np;
+      for (int i = 0; i < np; i++) {
+        if (d[lm[1] - i] >= 1.0) {
+          right = i;
+          break;
+        }
+      }
+      final int lmLeft = lm[0] + Math.max(0, left - 1);
+      final int lmRight = lm[1] - Math.max(0, right - 1);
+
+      final int scanLeft = first + lmLeft;
+      final int scanRight = first + lmRight;
+      peak[RTMIN] = scanTime[scanLeft];
+      peak[RTMAX] = scanTime[scanRight];
+
+      double sum = 0.0;
+      double max = Double.NEGATIVE_INFINITY;
+      int maxIndex = lmLeft;
+      for (int i = Math.min(lmLeft, lmRight); i <= Math.max(lmLeft, lmRight); i++) {
+        sum += d[i];
+        if (d[i] > max) {
+          max = d[i];
+          maxIndex = i;
+        }
+      }
+      double pwid = (scanTime[scanRight] - scanTime[scanLeft]) / (scanRight - scanLeft);
+      if (Double.isNaN(pwid))
+        pwid = 1.0;
+      peak[MAXO] = max;
+      peak[INTO] = pwid * sum;
+      peak[RT] = scanTime[first + maxIndex];
+
+      peaks.add(peak);
+    }
+  }
+
+  /**
+   * Trimmed mean (5%) of the positive values, or the mean of all values if there are less than
+   * minPts positive values (estimateChromNoise).
+   */
+  private static double estimateChromNoise(final double[] x, final int minPts) {
+    final double[] positive = Arrays.stream(x).filter(v -> v > 0.0).sorted().toArray();
+    if (positive.length < minPts)
+      return Arrays.stream(x).average().orElse(Double.NaN);
+    final int n = positive.length;
+    final int lo = (int) Math.floor(n * 0.05);
+    final int hi = n - lo;
+    double sum = 0.0;
+    for (int i = lo; i < hi; i++)
+      sum += positive[i];
+    return sum / (hi - lo);
+  }
+
+  /**
+   * Whether there are at least num consecutive values above the threshold.
+   */
+  private static boolean continuousPtsAboveThreshold(final double[] y, final double threshold,
+      final int num) {
+    int count = 0;
+    for (final double value : y) {
+      count = value > threshold ? count + 1 : 0;
+      if (count >= num)
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Marks the values that are in runs of at least num consecutive values above the threshold.
+   */
+  private static boolean[] continuousPtsAboveThresholdIdx(final double[] y,
+      final double threshold, final int num) {
+    final boolean[] marked = new boolean[y.length];
+    int count = 0;
+    for (int i = 0; i <= y.length; i++) {
+      if (i < y.length && y[i] > threshold) {
+        count++;
+      } else {
+        if (count >= num)
+          Arrays.fill(marked, i - count, i, true);
+        count = 0;
+      }
+    }
+    return marked;
+  }
+
+  /**
+   * Baseline and noise (mean and standard deviation) from the data outside the peak range [fLow,
+   * fHigh], without the sections that are above the first baseline guess (getLocalNoiseEstimate).
+   */
+  private static double[] getLocalNoiseEstimate(final double[] d, final int fLow, final int fHigh,
+      final int smallNoiseRange, final int numScans, final double threshold, final int num) {
+
+    if (d.length < numScans) {
+
+      // Wide noise range: everything outside the peak range.
+      final double[] n1 = new double[d.length - (fHigh - fLow + 1)];
+      System.arraycopy(d, 0, n1, 0, fLow);
+      System.arraycopy(d, fHigh + 1, n1, fLow, d.length - fHigh - 1);
+      final double[] stats1 = meanAndSd(withoutPeaks(n1, threshold, num));
+
+      // Small noise range next to the peak range, including its boundaries.
+      final double[] n2 = new double[(fLow - Math.max(0, fLow - smallNoiseRange) + 1)
+          + (Math.min(d.length - 1, fHigh + smallNoiseRange) - fHigh + 1)];
+      int k = 0;
+      for (int i = Math.max(0, fLow - smallNoiseRange); i <= fLow; i++)
+        n2[k++] = d[i];
+      for (int i = fHigh; i <= Math.min(d.length - 1, fHigh + smallNoiseRange); i++)
+        n2[k++] = d[i];
+      final double[] stats2 = meanAndSd(withoutPeaks(n2, threshold, num));
+
+      return new double[] {Math.min(stats1[0], stats2[0]), Math.min(stats1[1], stats2[1])};
+    }
+
+    // The ROI covers all scans: 5% - 95% quantiles of the positive values.
+    final double[] positive = Arrays.stream(d).filter(v -> v > 0.0).sorted().toArray();
+    final int n = positive.length;
+    final int lo = Math.max(1, (int) Math.rint(n * 0.05 + 1));
+    final int hi = Math.min(n, (int) Math.rint(n * 0.95));
+    if (hi - lo < 1)
+      return new double[] {lo <= hi ? positive[lo - 1] : Double.NaN, Double.NaN};
+    return meanAndSd(Arrays.copyOfRange(positive, lo - 1, hi));
+  }
+
+  private static double[] withoutPeaks(final double[] x, final double threshold, final int num) {
+    final boolean[] marked = continuousPtsAboveThresholdIdx(x, threshold, num);
+    final double[] result = new double[x.length];
+    int k = 0;
+    for (int i = 0; i < x.length; i++)
+      if (!marked[i])
+        result[k++] = x[i];
+    return Arrays.copyOf(result, k);
+  }
+
+  /**
+   * Mean and sample standard deviation, both 1 for less than two values.
+   */
+  private static double[] meanAndSd(final double[] x) {
+    if (x.length < 2)
+      return new double[] {1.0, 1.0};
+    double mean = 0.0;
+    for (final double value : x)
+      mean += value;
+    mean /= x.length;
+    double var = 0.0;
+    for (final double value : x)
+      var += (value - mean) * (value - mean);
+    return new double[] {mean, Math.sqrt(var / (x.length - 1))};
+  }
+
+  /**
+   * Continuous wavelet transform with the Mexican hat wavelet (MSW.cwt): the data is extended to a
+   * power of two by reflection at the end and correlated with the wavelet of each scale. Scales
+   * whose wavelet does not fit the extended data are left out.
+   *
+   * @return the coefficients, one array per scale.
+   */
+  private static double[][] cwt(final double[] ms, final int[] scales) {
+
+    final int oldLength = ms.length;
+    int length = 1;
+    while (length < oldLength)
+      length <<= 1;
+
+    final double[] xRe = Arrays.copyOf(ms, length);
+    for (int i = oldLength; i < length; i++)
+      xRe[i] = ms[oldLength - 1 - (i - oldLength)];
+    final double[] xIm = new double[length];
+    fft(xRe, xIm, false);
+
+    final List<double[]> coefs = new ArrayList<>();
+    for (final int scale : scales) {
+
+      final int waveLength = (int) Math.floor(scale * PSI_XMAX) + 1;
+      final int[] j = new int[Math.max(2, waveLength)];
+      for (int k = 0; k < waveLength; k++)
+        j[k] = Math.min(PSI_POINTS - 1, (int) Math.floor(k / (scale * PSI_DX)));
+      final int lenWave = j.length;
+      if (lenWave > length)
+        break;
+
+      double mean = 0.0;
+      for (final int index : j)
+        mean += PSI[index];
+      mean /= lenWave;
+
+      final double[] fRe = new double[length];
+      final double[] fIm = new double[length];
+      for (int k = 0; k < lenWave; k++)
+        fRe[k] = PSI[j[lenWave - 1 - k]] - mean;
+      fft(fRe, fIm, false);
+
+      // Circular correlation: ifft(fft(x) * Conj(fft(f))) / length.
+      for (int k = 0; k < length; k++) {
+        final double re = xRe[k] * fRe[k] + xIm[k] * fIm[k];
+        final double im = xIm[k] * fRe[k] - xRe[k] * fIm[k];
+        fRe[k] = re;
+        fIm[k] = im;
+      }
+      fft(fRe, fIm, true);
+
+      // Shift the position with half wavelet width.
+      final int shift = lenWave / 2;
+      final double factor = 1.0 / Math.sqrt(scale) / length;
+      final double[] column = new double[oldLength];
+      for (int i = 0; i < oldLength; i++)
+        column[i] = factor * fRe[Math.floorMod(i - shift, length)];
+      coefs.add(column);
+    }
+
+    return coefs.toArray(new double[coefs.size()][]);
+  }
+
+  /**
+   * In-place radix-2 FFT, unnormalized in both directions. The length must be a power of two.
+   */
+  private static void fft(final double[] re, final double[] im, final boolean inverse) {
+    final int n = re.length;
+    for (int i = 1, j = 0; i < n; i++) {
+      int bit = n >> 1;
+      for (; (j & bit) != 0; bit >>= 1)
+        j ^= bit;
+      j ^= bit;
+      if (i < j) {
+        double t = re[i];
+        re[i] = re[j];
+        re[j] = t;
+        t = im[i];
+        im[i] = im[j];
+        im[j] = t;
+      }
+    }
+    for (int len = 2; len <= n; len <<= 1) {
+      final double angle = 2 * Math.PI / len * (inverse ? 1 : -1);
+      final double wRe = Math.cos(angle);
+      final double wIm = Math.sin(angle);
+      for (int i = 0; i < n; i += len) {
+        double curRe = 1.0;
+        double curIm = 0.0;
+        for (int k = 0; k < len / 2; k++) {
+          final int a = i + k;
+          final int b = a + len / 2;
+          final double bRe = re[b] * curRe - im[b] * curIm;
+          final double bIm = re[b] * curIm + im[b] * curRe;
+          re[b] = re[a] - bRe;
+          im[b] = im[a] - bIm;
+          re[a] += bRe;
+          im[a] += bIm;
+          final double nextRe = curRe * wRe - curIm * wIm;
+          curIm = curRe * wIm + curIm * wRe;
+          curRe = nextRe;
+        }
+      }
+    }
+  }
+
+  /**
+   * Local maxima of the coefficients of each scale (MSW.getLocalMaximumCWT), negative
+   * coefficients excluded.
+   */
+  private static boolean[][] getLocalMaximumCWT(final double[][] wCoefs, final int[] scales) {
+    final boolean[][] localMax = new boolean[wCoefs.length][];
+    for (int c = 0; c < wCoefs.length; c++) {
+      localMax[c] = localMaximum(wCoefs[c], Math.max(MIN_WINDOW_SIZE, scales[c] * 2 + 1));
+      for (int i = 0; i < wCoefs[c].length; i++)
+        if (wCoefs[c][i] < 0.0)
+          localMax[c][i] = false;
+    }
+    return localMax;
+  }
+
+  /**
+   * Local maxima in windows of winSize values, and in the windows shifted by half their size. Of
+   * two maxima closer than winSize, the lower one is dropped (localMaximum).
+   */
+  private static boolean[] localMaximum(final double[] x, final int winSize) {
+    final int len = x.length;
+    final boolean[] localMax = new boolean[len];
+
+    for (final int shift : new int[] {0, winSize / 2}) {
+      final int columns = (len + shift + winSize - 1) / winSize;
+      for (int c = 0; c < columns; c++) {
+        int maxIndex = 0;
+        double max = Double.NEGATIVE_INFINITY;
+        double firstValue = 0.0;
+        double lastValue = 0.0;
+        for (int t = 0; t < winSize; t++) {
+          final int pos = c * winSize + t - shift;
+          final double value = x[Math.max(0, Math.min(len - 1, pos))];
+          if (value > max) {
+            max = value;
+            maxIndex = t;
+          }
+          if (t == 0)
+            firstValue = value;
+          if (t == winSize - 1)
+            lastValue = value;
+        }
+        final int pos = c * winSize + maxIndex - shift;
+        if (max > firstValue && max > lastValue && pos >= 0 && pos < len)
+          localMax[pos] = true;
+      }
+    }
+
+    final List<Integer> maxIndices = new ArrayList<>();
+    for (int i = 0; i < len; i++)
+      if (localMax[i])
+        maxIndices.add(i);
+    final List<Integer> dropped = new ArrayList<>();
+    for (int i = 0; i + 1 < maxIndices.size(); i++) {
+      final int a = maxIndices.get(i);
+      final int b = maxIndices.get(i + 1);
+      if (b - a < winSize)
+        dropped.add(x[a] - x[b] <= 0.0 ? a : b);
+    }
+    for (final int index : dropped)
+      localMax[index] = false;
+
+    return localMax;
+  }
+
+  /**
+   * A ridge line while it is traced: the row of its current local maximum (its name in
+   * MSW.getRidge), its rows so far and the number of scales it has been missing.
+   */
+  private static final class Ridge {
+    int name;
+    final List<Integer> path = new ArrayList<>();
+    int status;
+
+    Ridge(final int name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Ridge lines of the local maxima, traced from the largest to the smallest scale (MSW.getRidge),
+   * including its handling of disconnected and duplicated ridges.
+   *
+   * @return the rows of each ridge, from the smallest to the largest scale.
+   */
+  private static List<int[]> getRidge(final boolean[][] localMax, final int[] scales) {
+
+    final int numCols = localMax.length;
+    final int nMz = localMax[0].length;
+    final int iInit = numCols - 1;
+
+    List<Integer> maxIndCurr = rowsOf(localMax[iInit]);
+    List<Ridge> ridges = new ArrayList<>();
+    for (final int row : maxIndCurr) {
+      final Ridge ridge = new Ridge(row);
+      ridge.path.add(row);
+      ridges.add(ridge);
+    }
+
+    final List<List<Integer>> orphans = new ArrayList<>();
+    final List<String> orphanNames = new ArrayList<>();
+
+    final int[] colInd;
+    if (numCols > 1) {
+      colInd = new int[numCols - 1];
+      for (int j = 0; j < colInd.length; j++)
+        colInd[j] = iInit - 1 - j;
+    } else {
+      colInd = new int[] {0};
+    }
+
+    for (final int col : colInd) {
+
+      final int scale = scales[col];
+      if (maxIndCurr.isEmpty()) {
+        maxIndCurr = rowsOf(localMax[col]);
+        continue;
+      }
+
+      final int winSize = Math.max(MIN_WINDOW_SIZE, scale / 2);
+      final List<Integer> selPeak = new ArrayList<>();
+      final Set<Integer> remove = new HashSet<>();
+
+      for (final int ind : maxIndCurr) {
+        final int start = Math.max(0, ind - winSize);
+        final int end = Math.min(nMz - 1, ind + winSize);
+        int current = -1;
+        for (int r = start; r <= end; r++)
+          if (localMax[col][r] && (current < 0 || Math.abs(r - ind) < Math.abs(current - ind)))
+            current = r;
+
+        Ridge ridge = findRidge(ridges, ind);
+        if (current < 0) {
+          final int status = ridge == null ? GAP_THRESHOLD + 1 : ridge.status;
+          if (status > GAP_THRESHOLD && scale >= 2) {
+            final List<Integer> path = ridge == null ? new ArrayList<>()
+                : new ArrayList<>(ridge.path.subList(0, ridge.path.size() - status));
+            orphans.add(path);
+            orphanNames.add((col + 1 + status + 1) + "_" + (ind + 1));
+            remove.add(ind);
+            continue;
+          }
+          current = ind;
+          if (ridge == null) {
+            ridge = new Ridge(ind);
+            ridges.add(ridge);
+          }
+          ridge.status = status + 1;
+        } else {
+          if (ridge == null) {
+            ridge = new Ridge(ind);
+            ridges.add(ridge);
+          }
+          ridge.status = 0;
+        }
+        ridge.path.add(current);
+        selPeak.add(current);
+      }
+
+      // Remove the disconnected ridges.
+      ridges.removeIf(ridge -> remove.contains(ridge.name));
+
+      // Of the ridges ending at the same row, keep the longest. As in MSW.getRidge, the ridge at the
+      // position of the longest one within the duplicates is kept as orphan.
+      final Set<Integer> seen = new HashSet<>();
+      final Set<Integer> dupPeaks = new LinkedHashSet<>();
+      for (final int row : selPeak)
+        if (!seen.add(row))
+          dupPeaks.add(row);
+      if (!dupPeaks.isEmpty()) {
+        final Set<Integer> removeInd = new HashSet<>();
+        for (final int dup : dupPeaks) {
+          final List<Integer> selInd = new ArrayList<>();
+          for (int i = 0; i < selPeak.size(); i++)
+            if (selPeak.get(i) == dup)
+              selInd.add(i);
+          int longest = 0;
+          for (int i = 1; i < selInd.size(); i++)
+            if (ridges.get(selInd.get(i)).path.size() > ridges.get(selInd.get(longest)).path
+                .size())
+              longest = i;
+          for (int i = 0; i < selInd.size(); i++)
+            if (i != longest)
+              removeInd.add(selInd.get(i));
+          orphans.add(new ArrayList<>(ridges.get(longest).path));
+          orphanNames.add((col + 1) + "_" + (selPeak.get(longest) + 1));
+        }
+        final List<Integer> keptPeaks = new ArrayList<>();
+        final List<Ridge> keptRidges = new ArrayList<>();
+        for (int i = 0; i < selPeak.size(); i++) {
+          if (!removeInd.contains(i)) {
+            keptPeaks.add(selPeak.get(i));
+            keptRidges.add(ridges.get(i));
+          }
+        }
+        selPeak.clear();
+        selPeak.addAll(keptPeaks);
+        ridges = keptRidges;
+      }
+
+      // The ridges are named by their new rows.
+      for (int i = 0; i < ridges.size(); i++)
+        ridges.get(i).name = selPeak.get(i);
+
+      // From scale 2 on, the unselected maxima of this scale start new ridges.
+      if (scale >= 2) {
+        final List<Integer> next = new ArrayList<>(selPeak);
+        for (final int row : rowsOf(localMax[col])) {
+          if (!selPeak.contains(row)) {
+            final Ridge ridge = new Ridge(row);
+            ridge.path.add(row);
+            ridges.add(ridge);
+            next.add(row);
+          }
+        }
+        maxIndCurr = next;
+      } else {
+        maxIndCurr = selPeak;
+      }
+    }
+
+    // Ridges first, then orphans, each from the smallest to the largest scale, without duplicated
+    // names.
+    final List<int[]> result = new ArrayList<>();
+    final Set<String> names = new HashSet<>();
+    for (final Ridge ridge : ridges)
+      if (names.add("1_" + (ridge.name + 1)))
+        result.add(reversed(ridge.path));
+    for (int i = 0; i < orphans.size(); i++)
+      if (names.add(orphanNames.get(i)))
+        result.add(reversed(orphans.get(i)));
+    return result;
+  }
+
+  private static Ridge findRidge(final List<Ridge> ridges, final int name) {
+    for (final Ridge ridge : ridges)
+      if (ridge.name == name)
+        return ridge;
+    return null;
+  }
+
+  private static List<Integer> rowsOf(final boolean[] column) {
+    final List<Integer> rows = new ArrayList<>();
+    for (int i = 0; i < column.length; i++)
+      if (column[i])
+        rows.add(i);
+    return rows;
+  }
+
+  private static int[] reversed(final List<Integer> path) {
+    final int[] result = new int[path.size()];
+    for (int i = 0; i < result.length; i++)
+      result[i] = path.get(path.size() - 1 - i);
+    return result;
+  }
+
+  /**
+   * Descend from start to the nearest minima on both sides (descendMin).
+   */
+  private static int[] descendMin(final double[] y, final int start) {
+    int lower = start;
+    while (lower > 0 && y[lower - 1] < y[lower])
+      lower--;
+    int upper = start;
+    while (upper < y.length - 1 && y[upper + 1] < y[upper])
+      upper++;
+    return new int[] {lower, upper};
+  }
+
+  /**
+   * Descend from the left and right start positions while the data decreases, tolerating up to
+   * maxDescOutlier higher values (descendMinTol).
+   */
+  private static int[] descendMinTol(final double[] d, final int leftStart, final int rightStart,
+      final int maxDescOutlier) {
+    final int n = d.length;
+
+    int l = leftStart;
+    int outliers = 0;
+    int outlierPos = 0;
+    while (l > 0 && d[l] > 0.0 && outliers <= maxDescOutlier) {
+      final int vpos = outliers > 0 ? outlierPos : l;
+      outliers = d[l - 1] > d[vpos] ? outliers + 1 : 0;
+      if (outliers == 1)
+        outlierPos = l;
+      l--;
+    }
+    if (outliers > 0)
+      l += outliers;
+
+    int r = rightStart;
+    outliers = 0;
+    while (r < n - 1 && d[r] > 0.0 && outliers <= maxDescOutlier) {
+      final int vpos = outliers > 0 ? outlierPos : r;
+      outliers = d[r + 1] > d[vpos] ? outliers + 1 : 0;
+      if (outliers == 1)
+        outlierPos = r;
+      r++;
+    }
+    if (outliers > 0)
+      r -= outliers;
+
+    return new int[] {l, r};
+  }
+
+}
@@ -49,7 +49,8 @@ import io.github.mzmine.util.R.RSessionWrapperException;
 import io.github.mzmine.util.maths.CenterFunction;
 
 /**
- * Use XCMS findPeaks.centWave to identify peaks.
+ * Use XCMS findPeaks.centWave to identify peaks. Needs an R session with the xcms package, unless
+ * the experimental Java implementation of centWave (CentWaveAlgorithm) is selected.
  */
 public class CentWaveDetector implements PeakResolver {
 
@@ -84,6 +85,11 @@ public class CentWaveDetector implements PeakResolver {
     return true;
   }
 
+  @Override
+  public boolean getRequiresR(final ParameterSet parameters) {
+    return !parameters.getParameter(CentWaveDetectorParameters.USE_JAVA).getValue();
+  }
+
   @Override
   public String[] getRequiredRPackages() {
     return new String[] {"xcms"};
@@ -122,10 +128,22 @@ public class CentWaveDetector implements PeakResolver {
     // Call findPeaks.centWave.
     double[][] peakMatrix = null;
 
-    peakMatrix = centWave(rSession, retentionTimes, intensities, chromatogram.getMZ(),
-        parameters.getParameter(SN_THRESHOLD).getValue(),
-        parameters.getParameter(PEAK_SCALES).getValue(),
-        parameters.getParameter(INTEGRATION_METHOD).getValue());
+    if (rSession != null) {
+      peakMatrix = centWave(rSession, retentionTimes, intensities, chromatogram.getMZ(),
+          parameters.getParameter(SN_THRESHOLD).getValue(),
+          parameters.getParameter(PEAK_SCALES).getValue(),
+          parameters.getParameter(INTEGRATION_METHOD).getValue());
+    } else {
+      final double[] scanTimeSec = new double[scanCount];
+      for (int i = 0; i < scanCount; i++)
+        scanTimeSec[i] = retentionTimes[i] * SECONDS_PER_MINUTE;
+      final Range<Double> peakWidth = parameters.getParameter(PEAK_SCALES).getValue();
+      peakMatrix = CentWaveAlgorithm.findPeaks(scanTimeSec, intensities, chromatogram.getMZ(),
+          parameters.getParameter(SN_THRESHOLD).getValue(),
+          Range.closed(peakWidth.lowerEndpoint() * SECONDS_PER_MINUTE,
+              peakWidth.upperEndpoint() * SECONDS_PER_MINUTE),
+          parameters.getParameter(INTEGRATION_METHOD).getValue());
+    }
 
     final List<ResolvedPeak> resolvedPeaks;
     if (peakMatrix == null) {
@@ -144,8 +162,8 @@ public class CentWaveDetector implements PeakResolver {
       for (final double[] peakRow : peakMatrix) {
 
         // Get peak start and end.
-        final int peakLeft = findRTIndex(retentionTimes, peakRow[4]);
-        final int peakRight = findRTIndex(retentionTimes, peakRow[5]);
+        final int peakLeft = findRTIndex(retentionTimes, peakRow[CentWaveAlgorithm.RTMIN]);
+        final int peakRight = findRTIndex(retentionTimes, peakRow[CentWaveAlgorithm.RTMAX]);
 
         // Partition into sections bounded by null data points, creating
         // a peak for each.
@@ -33,6 +33,7 @@ import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.PeakResolverSetupDialog;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.DoubleParameter;
 import io.github.mzmine.parameters.parametertypes.ranges.DoubleRangeParameter;
@@ -101,10 +102,18 @@ public class CentWaveDetectorParameters extends SimpleParameterSet {
       "R engine", "The R engine to be used for communicating with R.", REngineType.values(),
       REngineType.RCALLER);
 
+  /**
+   * Java implementation instead of R.
+   */
+  public static final BooleanParameter USE_JAVA = new BooleanParameter(
+      "Java implementation (experimental)",
+      "Detect the peaks in Java instead of the \"xcms\" R-package. No R installation is needed, but the results have not been validated against xcms yet.",
+      false);
+
   public CentWaveDetectorParameters() {
 
     super(new Parameter[] {SN_THRESHOLD, PEAK_SCALES, PEAK_DURATION, INTEGRATION_METHOD,
-        RENGINE_TYPE});
+        RENGINE_TYPE, USE_JAVA});
   }
 
   @Override
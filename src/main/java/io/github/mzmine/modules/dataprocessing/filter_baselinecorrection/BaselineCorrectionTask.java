@@ -115,11 +115,14 @@ public class BaselineCorrectionTask extends AbstractTask {
     try {
 
       // Check R availability, by trying to open the connection.
-      String[] reqPackages = this.baselineCorrectorProcStep.getModule().getRequiredRPackages();
-      String callerFeatureName = this.baselineCorrectorProcStep.getModule().getName();
-      this.rSession = new RSessionWrapper(rEngineType, callerFeatureName, reqPackages, null);
+      if (this.baselineCorrectorProcStep.getModule()
+          .getRequiresR(baselineCorrectorProcStep.getParameterSet())) {
+        String[] reqPackages = this.baselineCorrectorProcStep.getModule().getRequiredRPackages();
+        String callerFeatureName = this.baselineCorrectorProcStep.getModule().getName();
+        this.rSession = new RSessionWrapper(rEngineType, callerFeatureName, reqPackages, null);
 
-      this.rSession.open();
+        this.rSession.open();
+      }
 
       this.baselineCorrectorProcStep.getModule().initProgress(origDataFile);
 
@@ -146,7 +149,7 @@ public class BaselineCorrectionTask extends AbstractTask {
         logger.info("Baseline corrected " + origDataFile.getName());
       }
       // Turn off R instance, once task ended gracefully.
-      if (!isCanceled())
+      if (!isCanceled() && this.rSession != null)
         this.rSession.close(false);
 
     } catch (IOException | RSessionWrapperException e) {
@@ -163,7 +166,7 @@ public class BaselineCorrectionTask extends AbstractTask {
 
     // Turn off R instance, once task ended UNgracefully.
     try {
-      if (!isCanceled())
+      if (!isCanceled() && this.rSession != null)
         this.rSession.close(isCanceled());
     } catch (RSessionWrapperException e) {
       if (!isCanceled()) {
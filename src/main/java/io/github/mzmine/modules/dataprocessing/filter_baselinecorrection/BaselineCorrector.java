@@ -21,6 +21,7 @@ package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.Range;
 
@@ -73,6 +74,14 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     progressMap = new HashMap<RawDataFile, int[]>();
   }
 
+  /**
+   * Most correctors rely on R packages. Correctors with a Java implementation override this.
+   */
+  @Override
+  public boolean getRequiresR(ParameterSet parameters) {
+    return true;
+  }
+
   /**
    * Getting general parameters (common to all the correctors).
    * 
@@ -105,7 +114,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       final RawDataFile dataFile, final ParameterSet parameters,
       final ParameterSet commonParameters) throws IOException, RSessionWrapperException {
 
-    if (isAborted(dataFile) || !rSession.isSessionRunning())
+    if (isAborted(dataFile) || (rSession != null && !rSession.isSessionRunning()))
       return null;
     // Get very last information from root module setup
     // this.setGeneralParameters(MZmineCore.getConfiguration().getModuleParameters(BaselineCorrectionModule.class));
@@ -207,20 +216,8 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       // Get original scan.
       final Scan origScan = origDataFile.getScan(scanNumbers[scanIndex]);
 
-      // Get data points (m/z and intensity pairs) of the original scan
-      final DataPoint[] origDataPoints = origScan.getDataPoints();
-      final DataPoint[] newDataPoints = new DataPoint[origDataPoints.length];
-
-      // Copy original data points.
-      int i = 0;
-      for (final DataPoint dp : origDataPoints) {
-        newDataPoints[i++] = new SimpleDataPoint(dp);
-      }
-
-      // Create new copied scan.
-      final SimpleScan newScan = new SimpleScan(origScan);
-      newScan.setDataPoints(newDataPoints);
-      writer.addScan(newScan);
+      // The scan is not changed, the new file links its data points instead of writing a copy
+      writer.addScan(origScan);
       progressMap.get(origDataFile)[0]++;
     }
   }
@@ -254,11 +251,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     // Calculate baselines: done in-place, i.e. overwrite chromatograms to
     // save memory.
     logger.finest("Calculating baselines.");
-    for (int binIndex = 0; !isAborted(origDataFile) && binIndex < numBins; binIndex++) {
-      baseChrom[binIndex] =
-          computeBaseline(rSession, origDataFile, baseChrom[binIndex], parameters);
-      progressMap.get(origDataFile)[0]++;
-    }
+    computeBaselines(rSession, origDataFile, baseChrom, parameters, false);
 
     // Subtract baselines.
     logger.finest("Subtracting baselines.");
@@ -306,22 +299,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     // Calculate baselines: done in-place, i.e. overwrite chromatograms to
     // save memory.
     logger.finest("Calculating baselines.");
-    for (int binIndex = 0; !isAborted(origDataFile) && binIndex < numBins; binIndex++) {
-
-      // Calculate baseline.
-      // final double[] baseline = asymBaseline(baseChrom[binIndex]);
-      final double[] baseline =
-          computeBaseline(rSession, origDataFile, baseChrom[binIndex], parameters);
-
-      // Normalize the baseline w.r.t. chromatogram (TIC).
-      for (int scanIndex = 0; !isAborted(origDataFile) && scanIndex < numScans; scanIndex++) {
-        final double bc = baseChrom[binIndex][scanIndex];
-        if (bc != 0.0) {
-          baseChrom[binIndex][scanIndex] = baseline[scanIndex] / bc;
-        }
-      }
-      progressMap.get(origDataFile)[0]++;
-    }
+    computeBaselines(rSession, origDataFile, baseChrom, parameters, true);
 
     // Subtract baselines.
     logger.finest("Subtracting baselines.");
@@ -343,6 +321,70 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
 
   }
 
+  /**
+   * Calculate the baselines of all bins: done in-place, i.e. overwrite chromatograms to save
+   * memory. Without R session, the chromatograms are processed in parallel.
+   * 
+   * @param rSession the R session or null if the corrector does not require R.
+   * @param origDataFile dataFile of concern.
+   * @param chromatograms the chromatograms, replaced by the baselines.
+   * @param parameters parameters specific to the actual method for baseline computing.
+   * @param normalize normalize the baseline w.r.t. chromatogram (TIC).
+   * @throws RSessionWrapperException
+   */
+  private void computeBaselines(final RSessionWrapper rSession, final RawDataFile origDataFile,
+      final double[][] chromatograms, final ParameterSet parameters, final boolean normalize)
+      throws RSessionWrapperException {
+
+    if (rSession == null) {
+      try {
+        IntStream.range(0, chromatograms.length).parallel().forEach(binIndex -> {
+          if (isAborted(origDataFile))
+            return;
+          try {
+            computeBinBaseline(rSession, origDataFile, chromatograms, binIndex, parameters,
+                normalize);
+          } catch (RSessionWrapperException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+      } catch (IllegalStateException e) {
+        if (e.getCause() instanceof RSessionWrapperException)
+          throw (RSessionWrapperException) e.getCause();
+        throw e;
+      }
+    } else {
+      // R calls are serialized on the session anyway
+      for (int binIndex = 0; !isAborted(origDataFile) && binIndex < chromatograms.length; binIndex++)
+        computeBinBaseline(rSession, origDataFile, chromatograms, binIndex, parameters, normalize);
+    }
+  }
+
+  private void computeBinBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
+      final double[][] chromatograms, final int binIndex, final ParameterSet parameters,
+      final boolean normalize) throws RSessionWrapperException {
+
+    final double[] chromatogram = chromatograms[binIndex];
+    final double[] baseline = computeBaseline(rSession, origDataFile, chromatogram, parameters);
+
+    if (normalize) {
+      // Normalize the baseline w.r.t. chromatogram (TIC).
+      for (int scanIndex = 0; scanIndex < chromatogram.length; scanIndex++) {
+        final double bc = chromatogram[scanIndex];
+        if (bc != 0.0) {
+          chromatogram[scanIndex] = baseline[scanIndex] / bc;
+        }
+      }
+    } else {
+      chromatograms[binIndex] = baseline;
+    }
+
+    final int[] progress = progressMap.get(origDataFile);
+    synchronized (progress) {
+      progress[0]++;
+    }
+  }
+
   /**
    * Constructs base peak (max) chromatograms - one for each m/z bin.
    * 
@@ -197,10 +197,14 @@ public class BaselineCorrectorSetupDialog extends ParameterSetupDialogWithChroma
 
         // Check R availability, by trying to open the connection
         try {
-          String[] reqPackages = baselineCorrector.getRequiredRPackages();
-          this.rSession = new RSessionWrapper(baselineCorrector.getRengineType(),
-              baselineCorrector.getName(), reqPackages, null);
-          this.rSession.open();
+          if (baselineCorrector.getRequiresR(correctorParameters)) {
+            String[] reqPackages = baselineCorrector.getRequiredRPackages();
+            this.rSession = new RSessionWrapper(baselineCorrector.getRengineType(),
+                baselineCorrector.getName(), reqPackages, null);
+            this.rSession.open();
+          } else {
+            this.rSession = null;
+          }
         } catch (RSessionWrapperException e) {
           errorMsg = e.getMessage();
           updateStatus(TaskStatus.ERROR);
@@ -251,7 +255,7 @@ public class BaselineCorrectorSetupDialog extends ParameterSetupDialogWithChroma
 
         // Turn off R instance.
         try {
-          if (!this.userCanceled)
+          if (!this.userCanceled && this.rSession != null)
             this.rSession.close(false);
         } catch (RSessionWrapperException e) {
           if (!this.userCanceled) {
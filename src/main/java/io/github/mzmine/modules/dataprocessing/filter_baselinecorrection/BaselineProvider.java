@@ -29,13 +29,21 @@ import io.github.mzmine.util.R.RSessionWrapperException;
  */
 public interface BaselineProvider {
 
+  /**
+   * Does the corrector's method need an R session with the given parameters of the corrector? If
+   * not, computeBaseline is called with a null session and the chromatograms are processed in
+   * parallel.
+   */
+  public boolean getRequiresR(ParameterSet parameters);
+
   /**
    * Gets R required packages for the corrector's method, if applicable
    */
   public String[] getRequiredRPackages();
 
   /**
-   * Returns a baseline for correcting the given chromatogram using R
+   * Returns a baseline for correcting the given chromatogram using R (rSession is null if the
+   * method does not require R)
    * 
    * @throws RSessionWrapperException
    */
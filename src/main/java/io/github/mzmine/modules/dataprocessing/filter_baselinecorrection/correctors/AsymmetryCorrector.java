@@ -18,6 +18,8 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
+import java.util.Arrays;
+
 import javax.annotation.Nonnull;
 
 import io.github.mzmine.datamodel.RawDataFile;
@@ -30,10 +32,21 @@ import io.github.mzmine.util.R.RSessionWrapperException;
  * @description Asymmetric baseline corrector. Estimates a trend based on asymmetric least squares.
  *              Uses "asysm" feature from "ptw" R-package
  *              (http://cran.r-project.org/web/packages/ptw/ptw.pdf).
+ *              <p>
+ *              Optionally, an experimental Java implementation is used instead, which needs no R
+ *              session. It uses the same iteration limit as asysm (maxit = 25), but has not been
+ *              validated against the R-package yet.
  * 
  */
 public class AsymmetryCorrector extends BaselineCorrector {
 
+  private static final int MAX_ITERATIONS = 25;
+
+  @Override
+  public boolean getRequiresR(ParameterSet parameters) {
+    return !parameters.getParameter(AsymmetryCorrectorParameters.USE_JAVA).getValue();
+  }
+
   @Override
   public String[] getRequiredRPackages() {
     return new String[] { /* "rJava", "Rserve", */"ptw"};
@@ -49,31 +62,125 @@ public class AsymmetryCorrector extends BaselineCorrector {
     final double asymmetry =
         parameters.getParameter(AsymmetryCorrectorParameters.ASYMMETRY).getValue();
 
+    if (rSession == null)
+      return asysm(chromatogram, smoothing, asymmetry);
+
     // Compute baseline.
     final double[] baseline;
 
-    // try {
     // Set chromatogram.
-    // rSession.assignDoubleArray("chromatogram", chromatogram);
     rSession.assign("chromatogram", chromatogram);
     // Calculate baseline.
     rSession.eval("baseline <- asysm(chromatogram," + smoothing + ',' + asymmetry + ')');
-    // baseline = rSession.collectDoubleArray("baseline");
     baseline = (double[]) rSession.collect("baseline");
     // Done: Refresh R code stack
     rSession.clearCode();
 
-    // }
-    // catch (Throwable t) {
-    // //t.printStackTrace();
-    // throw new
-    // IllegalStateException("R error during baseline correction (" +
-    // this.getName() + ").", t);
-    // }
-
     return baseline;
   }
 
+  /**
+   * Asymmetric least squares baseline, same as "asysm" from the "ptw" R-package: iteratively solves
+   * (W + lambda * D'D) z = W y with second order differences D and weights p for points above and
+   * 1-p for points below the baseline.
+   */
+  private static double[] asysm(final double[] y, final double lambda, final double p) {
+    final int n = y.length;
+    if (n < 3)
+      return y.clone();
+
+    // Penalty lambda * D'D is a symmetric pentadiagonal matrix: main diagonal and the first and
+    // second super diagonals
+    final double[] p0 = new double[n];
+    final double[] p1 = new double[n - 1];
+    final double[] p2 = new double[n - 2];
+    for (int i = 0; i < n - 2; i++) {
+      // row of D: (1, -2, 1) at columns i, i+1, i+2
+      p0[i] += lambda;
+      p0[i + 1] += 4 * lambda;
+      p0[i + 2] += lambda;
+      p1[i] += -2 * lambda;
+      p1[i + 1] += -2 * lambda;
+      p2[i] += lambda;
+    }
+
+    final double[] w = new double[n];
+    Arrays.fill(w, 1.0);
+    double[] z = y;
+    final double[] a0 = new double[n];
+    final double[] wy = new double[n];
+
+    for (int it = 0; it < MAX_ITERATIONS; it++) {
+      for (int i = 0; i < n; i++) {
+        a0[i] = p0[i] + w[i];
+        wy[i] = w[i] * y[i];
+      }
+      final double[] zNew = solvePentadiagonal(a0, p1, p2, wy);
+
+      // stop as soon as the weights do not change anymore
+      boolean changed = false;
+      for (int i = 0; i < n; i++) {
+        final double wi = y[i] > zNew[i] ? p : 1.0 - p;
+        changed |= wi != w[i];
+        w[i] = wi;
+      }
+      z = zNew;
+      if (!changed)
+        break;
+    }
+    return z;
+  }
+
+  /**
+   * Solves A x = b for a symmetric positive definite pentadiagonal matrix A (main diagonal a0, first
+   * and second super diagonals a1, a2) by LDL' decomposition.
+   */
+  private static double[] solvePentadiagonal(final double[] a0, final double[] a1,
+      final double[] a2, final double[] b) {
+    final int n = a0.length;
+    final double[] d = new double[n];
+    final double[] l1 = new double[n - 1];
+    final double[] l2 = new double[n - 2];
+
+    for (int i = 0; i < n; i++) {
+      double di = a0[i];
+      if (i >= 1)
+        di -= l1[i - 1] * l1[i - 1] * d[i - 1];
+      if (i >= 2)
+        di -= l2[i - 2] * l2[i - 2] * d[i - 2];
+      d[i] = di;
+      if (i < n - 1) {
+        double v = a1[i];
+        if (i >= 1)
+          v -= l2[i - 1] * d[i - 1] * l1[i - 1];
+        l1[i] = v / di;
+      }
+      if (i < n - 2)
+        l2[i] = a2[i] / di;
+    }
+
+    // forward substitution L y = b
+    final double[] x = new double[n];
+    for (int i = 0; i < n; i++) {
+      double v = b[i];
+      if (i >= 1)
+        v -= l1[i - 1] * x[i - 1];
+      if (i >= 2)
+        v -= l2[i - 2] * x[i - 2];
+      x[i] = v;
+    }
+    // diagonal and backward substitution L' x = D^-1 y
+    for (int i = n - 1; i >= 0; i--) {
+      double v = x[i] / d[i];
+      if (i < n - 1)
+        v -= l1[i] * x[i + 1];
+      if (i < n - 2)
+        v -= l2[i] * x[i + 2];
+      x[i] = v;
+    }
+    return x;
+  }
+
   @Override
   public @Nonnull String getName() {
     return "Asymmetric baseline corrector";
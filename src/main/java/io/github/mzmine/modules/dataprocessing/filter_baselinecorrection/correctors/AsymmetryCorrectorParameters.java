@@ -22,6 +22,7 @@ import java.text.DecimalFormat;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrectorSetupDialog;
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.DoubleParameter;
 import io.github.mzmine.util.ExitCode;
 
@@ -45,8 +46,16 @@ public class AsymmetryCorrectorParameters extends SimpleParameterSet {
       "The weight (0 <= p <= 1) for points above the trend line, whereas 1-p is the weight for points below it. Naturally, p should be small for estimating baselines.",
       DecimalFormat.getNumberInstance(), 0.001, 0.0, 1.0);
 
+  /**
+   * Java implementation instead of R.
+   */
+  public static final BooleanParameter USE_JAVA = new BooleanParameter(
+      "Java implementation (experimental)",
+      "Compute the baseline in Java instead of the \"ptw\" R-package. No R installation is needed, but the results have not been validated against R yet.",
+      false);
+
   public AsymmetryCorrectorParameters() {
-    super(new UserParameter[] {SMOOTHING, ASYMMETRY});
+    super(new UserParameter[] {SMOOTHING, ASYMMETRY, USE_JAVA});
   }
 
   @Override
@@ -32,10 +32,23 @@ import io.github.mzmine.util.R.RSessionWrapperException;
  *              (http://cran.r-project.org/web/packages/baseline/baseline.pdf). (Ideas from Rolling
  *              Ball algorithm for X-ray spectra by M.A.Kneen and H.J. Annegarn. Variable window
  *              width has been left out).
+ *              <p>
+ *              Optionally, an experimental Java implementation is used instead, which needs no R
+ *              session. It has not been validated against the R-package yet.
+ *              <p>
+ *              The windows at both ends of the chromatogram follow the start and end sections of
+ *              the R-package: the window of the first point reaches ceiling((w+1)/2)+1 points into
+ *              the chromatogram and grows alternately by one and two points until the full window
+ *              of 2w+1 points is reached. The end is handled the same way, mirrored.
  * 
  */
 public class RollingBallCorrector extends BaselineCorrector {
 
+  @Override
+  public boolean getRequiresR(ParameterSet parameters) {
+    return !parameters.getParameter(RollingBallCorrectorParameters.USE_JAVA).getValue();
+  }
+
   @Override
   public String[] getRequiredRPackages() {
     return new String[] { /* "rJava", "Rserve", */"baseline"};
@@ -45,9 +58,27 @@ public class RollingBallCorrector extends BaselineCorrector {
   public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
       double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
 
-    // Rolling Ball parameters.
-    double wm = parameters.getParameter(RollingBallCorrectorParameters.MIN_MAX_WIDTH).getValue();
-    double ws = parameters.getParameter(RollingBallCorrectorParameters.SMOOTHING).getValue();
+    // Rolling Ball parameters (window half widths in number of scans).
+    final int wm = (int) Math.max(0,
+        parameters.getParameter(RollingBallCorrectorParameters.MIN_MAX_WIDTH).getValue());
+    final int ws =
+        (int) Math.max(0, parameters.getParameter(RollingBallCorrectorParameters.SMOOTHING).getValue());
+
+    if (rSession != null)
+      return computeBaselineR(rSession, chromatogram, wm, ws);
+
+    if (chromatogram.length == 0)
+      return new double[0];
+
+    // Minimize, maximize (rolling the ball below the signal) and smooth.
+    final int n = chromatogram.length;
+    final double[] minimized = runningExtremum(chromatogram, new Windows(n, wm), false);
+    final double[] maximized = runningExtremum(minimized, new Windows(n, wm), true);
+    return runningMean(maximized, new Windows(n, ws));
+  }
+
+  private static double[] computeBaselineR(final RSessionWrapper rSession,
+      final double[] chromatogram, final int wm, final int ws) throws RSessionWrapperException {
 
     final double[] baseline;
 
@@ -82,6 +113,95 @@ public class RollingBallCorrector extends BaselineCorrector {
     return baseline;
   }
 
+  /**
+   * Windows of the points of a chromatogram, as in "rollingBall" of the "baseline" R-package: the
+   * window of point i (0-based) is [i-w, i+w] in the middle. In the start section (the first w
+   * points) the window is [0, u(i)], where u grows from ceiling((w+1)/2) alternately by one and two
+   * points and ends at 2w-1, just before the full window [0, 2w] of point w. The end section is the
+   * mirror image. Both window ends never move backwards.
+   */
+  private static class Windows {
+
+    private final int n, w;
+    // last point of the start window of point i, 0-based
+    private final int[] startEnd;
+
+    Windows(final int n, final int w) {
+      this.n = n;
+      this.w = w;
+      startEnd = new int[w];
+      if (w > 0) {
+        // R (1-based): u1 <- ceiling((w+1)/2)+1, then u2 <- u1+1+(i%%2) for i in 2..w
+        int u = (w + 2) / 2 + 1;
+        startEnd[0] = u - 1;
+        for (int i = 2; i <= w; i++) {
+          u += 1 + (i % 2);
+          startEnd[i - 1] = u - 1;
+        }
+      }
+    }
+
+    int first(final int i) {
+      if (i < w)
+        return 0;
+      if (i >= n - w)
+        return Math.max(0, n - 1 - startEnd[n - 1 - i]);
+      return i - w;
+    }
+
+    int last(final int i) {
+      if (i >= n - w)
+        return n - 1;
+      if (i < w)
+        return Math.min(n - 1, startEnd[i]);
+      return i + w;
+    }
+  }
+
+  /**
+   * Minimum or maximum over the window of every point. Both window ends never move backwards, so a
+   * monotonic queue of indices keeps this linear in the length of the values.
+   */
+  private static double[] runningExtremum(final double[] values, final Windows windows,
+      final boolean max) {
+    final int n = values.length;
+    final double[] result = new double[n];
+    final int[] queue = new int[n];
+    int head = 0, tail = 0;
+    int next = 0;
+    for (int i = 0; i < n; i++) {
+      // add values entering the window
+      for (final int last = windows.last(i); next <= last; next++) {
+        while (tail > head && (max ? values[queue[tail - 1]] <= values[next]
+            : values[queue[tail - 1]] >= values[next]))
+          tail--;
+        queue[tail++] = next;
+      }
+      // drop values leaving the window
+      final int first = windows.first(i);
+      while (queue[head] < first)
+        head++;
+      result[i] = values[queue[head]];
+    }
+    return result;
+  }
+
+  /**
+   * Mean over the window of every point.
+   */
+  private static double[] runningMean(final double[] values, final Windows windows) {
+    final int n = values.length;
+    final double[] prefix = new double[n + 1];
+    for (int i = 0; i < n; i++)
+      prefix[i + 1] = prefix[i] + values[i];
+    final double[] result = new double[n];
+    for (int i = 0; i < n; i++) {
+      final int first = windows.first(i), last = windows.last(i);
+      result[i] = (prefix[last + 1] - prefix[first]) / (last - first + 1);
+    }
+    return result;
+  }
+
   @Override
   public @Nonnull String getName() {
     return "RollingBall baseline corrector";
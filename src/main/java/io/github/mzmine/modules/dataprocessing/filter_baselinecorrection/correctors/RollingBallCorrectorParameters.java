@@ -21,6 +21,7 @@ package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correc
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrectorSetupDialog;
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.util.ExitCode;
 
@@ -42,8 +43,16 @@ public class RollingBallCorrectorParameters extends SimpleParameterSet {
   public static final IntegerParameter SMOOTHING = new IntegerParameter("ws (number of scans)",
       "Width of local window for smoothing (in number of scans).", null, 0, null);
 
+  /**
+   * Java implementation instead of R.
+   */
+  public static final BooleanParameter USE_JAVA = new BooleanParameter(
+      "Java implementation (experimental)",
+      "Compute the baseline in Java instead of the \"baseline\" R-package. No R installation is needed, but the results have not been validated against R yet.",
+      false);
+
   public RollingBallCorrectorParameters() {
-    super(new UserParameter[] {MIN_MAX_WIDTH, SMOOTHING});
+    super(new UserParameter[] {MIN_MAX_WIDTH, SMOOTHING, USE_JAVA});
   }
 
   @Override
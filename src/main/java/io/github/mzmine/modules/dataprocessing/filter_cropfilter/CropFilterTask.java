@@ -86,16 +86,19 @@ public class CropFilterTask extends AbstractTask {
 
       for (Scan scan : scans) {
 
-        SimpleScan scanCopy = new SimpleScan(scan);
-
-        // Check if we have something to crop
-        if (!mzRange.encloses(scan.getDataPointMZRange())) {
+        // Check if we have something to crop, unchanged scans are linked to the original file
+        if (mzRange.encloses(scan.getDataPointMZRange())) {
+          rawDataFileWriter.addScan(scan);
+        } else {
           DataPoint croppedDataPoints[] = scan.getDataPointsByMass(mzRange);
-          scanCopy.setDataPoints(croppedDataPoints);
+          SimpleScan scanCopy = new SimpleScan(scan.getDataFile(), scan.getScanNumber(),
+              scan.getMSLevel(), scan.getRetentionTime(), scan.getMobility(),
+              scan.getPrecursorMZ(), scan.getPrecursorCharge(), scan.getFragmentScanNumbers(),
+              croppedDataPoints, scan.getSpectrumType(), scan.getPolarity(),
+              scan.getScanDefinition(), scan.getScanningMZRange());
+          rawDataFileWriter.addScan(scanCopy);
         }
 
-        rawDataFileWriter.addScan(scanCopy);
-
         processedScans++;
       }
 
@@ -18,9 +18,13 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_isotopegrouper;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Vector;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.IsotopePattern.IsotopePatternStatus;
@@ -75,6 +79,12 @@ class IsotopeGrouperTask extends AbstractTask {
   private int maximumCharge;
   private ParameterSet parameters;
 
+  // peaks sorted by descending height, removed peaks are null
+  private Feature[] sortedPeaks;
+  // indices into sortedPeaks and m/z values, sorted by ascending m/z
+  private int[] mzOrder;
+  private double[] mzValues;
+
   /**
    * @param rawDataFile
    * @param parameters
@@ -136,9 +146,17 @@ class IsotopeGrouperTask extends AbstractTask {
       charges[i] = i + 1;
 
     // Sort peaks by descending height
-    Feature[] sortedPeaks = peakList.getPeaks(dataFile).toArray(Feature[]::new);
+    sortedPeaks = peakList.getPeaks(dataFile).toArray(Feature[]::new);
     Arrays.sort(sortedPeaks, new PeakSorter(SortingProperty.Height, SortingDirection.Descending));
 
+    // Index by m/z to search the isotope candidates in a small m/z window only
+    mzOrder = IntStream.range(0, sortedPeaks.length).boxed()
+        .sorted(Comparator.comparingDouble(i -> sortedPeaks[i].getMZ()))
+        .mapToInt(Integer::intValue).toArray();
+    mzValues = new double[mzOrder.length];
+    for (int i = 0; i < mzOrder.length; i++)
+      mzValues[i] = sortedPeaks[mzOrder[i]].getMZ();
+
     // Loop through all peaks
     totalPeaks = sortedPeaks.length;
 
@@ -155,28 +173,38 @@ class IsotopeGrouperTask extends AbstractTask {
         continue;
       }
 
-      // Check which charge state fits best around this peak
+      // Check which charge state fits best around this peak. The charge states are fitted in
+      // parallel, sortedPeaks is not changed meanwhile.
+      final int peakIndex = ind;
+      @SuppressWarnings("unchecked")
+      final List<Integer>[] fits = new List[charges.length];
+      IntStream.range(0, charges.length).parallel().forEach(c -> {
+        List<Integer> fittedPeaks = new ArrayList<>();
+        fittedPeaks.add(peakIndex);
+        fitPattern(fittedPeaks, aPeak, charges[c]);
+        fits[c] = fittedPeaks;
+      });
+
       int bestFitCharge = 0;
       int bestFitScore = -1;
-      Vector<Feature> bestFitPeaks = null;
-      for (int charge : charges) {
-
-        Vector<Feature> fittedPeaks = new Vector<Feature>();
-        fittedPeaks.add(aPeak);
-        fitPattern(fittedPeaks, aPeak, charge, sortedPeaks);
-
-        int score = fittedPeaks.size();
+      List<Integer> bestFitIndices = null;
+      for (int c = 0; c < charges.length; c++) {
+        final int charge = charges[c];
+        int score = fits[c].size();
         if ((score > bestFitScore) || ((score == bestFitScore) && (bestFitCharge > charge))) {
           bestFitScore = score;
           bestFitCharge = charge;
-          bestFitPeaks = fittedPeaks;
+          bestFitIndices = fits[c];
         }
-
       }
 
       PeakListRow oldRow = peakList.getPeakRow(aPeak);
 
-      assert bestFitPeaks != null;
+      assert bestFitIndices != null;
+
+      final List<Feature> bestFitPeaks = new ArrayList<>(bestFitIndices.size());
+      for (int i : bestFitIndices)
+        bestFitPeaks.add(sortedPeaks[i]);
 
       // Verify the number of detected isotopes. If there is only one
       // isotope, we skip this left the original peak in the feature list.
@@ -220,10 +248,8 @@ class IsotopeGrouperTask extends AbstractTask {
       deisotopedPeakList.addRow(newRow);
 
       // Remove all peaks already assigned to isotope pattern
-      for (int i = 0; i < sortedPeaks.length; i++) {
-        if (bestFitPeaks.contains(sortedPeaks[i]))
-          sortedPeaks[i] = null;
-      }
+      for (int i : bestFitIndices)
+        sortedPeaks[i] = null;
 
       // Update completion rate
       processedPeaks++;
@@ -257,8 +283,7 @@ class IsotopeGrouperTask extends AbstractTask {
    * @param p Pattern is fitted around this peak
    * @param charge Charge state of the fitted pattern
    */
-  private void fitPattern(Vector<Feature> fittedPeaks, Feature p, int charge,
-      Feature[] sortedPeaks) {
+  private void fitPattern(List<Integer> fittedPeaks, Feature p, int charge) {
 
     if (charge == 0) {
       return;
@@ -266,11 +291,11 @@ class IsotopeGrouperTask extends AbstractTask {
 
     // Search for peaks before the start peak
     if (!monotonicShape) {
-      fitHalfPattern(p, charge, -1, fittedPeaks, sortedPeaks);
+      fitHalfPattern(p, charge, -1, fittedPeaks);
     }
 
     // Search for peaks after the start peak
-    fitHalfPattern(p, charge, 1, fittedPeaks, sortedPeaks);
+    fitHalfPattern(p, charge, 1, fittedPeaks);
 
   }
 
@@ -281,15 +306,17 @@ class IsotopeGrouperTask extends AbstractTask {
    * @param charge Charge state of the fitted pattern
    * @param direction Defines which half to fit: -1=fit to peaks before start M/Z, +1=fit to peaks
    *        after start M/Z
-   * @param fittedPeaks All matching peaks will be added to this set
+   * @param fittedPeaks Indices of all matching peaks (in sortedPeaks) will be added to this list
    */
-  private void fitHalfPattern(Feature p, int charge, int direction, Vector<Feature> fittedPeaks,
-      Feature[] sortedPeaks) {
+  private void fitHalfPattern(Feature p, int charge, int direction, List<Integer> fittedPeaks) {
 
     // Use M/Z and RT of the strongest peak of the pattern (peak 'p')
     double mainMZ = p.getMZ();
     double mainRT = p.getRT();
 
+    // The m/z tolerance depends on the isotope m/z, search in a wider window and check exactly
+    final double searchWidth = 2 * mzTolerance.getMzToleranceForMass(mainMZ);
+
     // Variable n is the number of peak we are currently searching. 1=first
     // peak before/after start peak, 2=peak before/after previous, 3=...
     boolean followingPeakFound;
@@ -300,11 +327,20 @@ class IsotopeGrouperTask extends AbstractTask {
       // will end the loop)
       followingPeakFound = false;
 
-      // Loop through all peaks, and collect candidates for the n:th peak
-      // in the pattern
-      Vector<Feature> goodCandidates = new Vector<Feature>();
-      for (int ind = 0; ind < sortedPeaks.length; ind++) {
-
+      // Loop through all peaks around the expected m/z, and collect
+      // candidates for the n:th peak in the pattern
+      final double expectedMZ = mainMZ + isotopeDistance * direction * n / charge;
+      List<Integer> goodCandidates = new ArrayList<>();
+      int first = Arrays.binarySearch(mzValues, expectedMZ - searchWidth);
+      if (first < 0)
+        first = -first - 1;
+      // binarySearch returns any of several equal values
+      while (first > 0 && mzValues[first - 1] >= expectedMZ - searchWidth)
+        first--;
+      for (int pos = first; pos < mzValues.length
+          && mzValues[pos] <= expectedMZ + searchWidth; pos++) {
+
+        final int ind = mzOrder[pos];
         Feature candidatePeak = sortedPeaks[ind];
 
         if (candidatePeak == null)
@@ -322,8 +358,8 @@ class IsotopeGrouperTask extends AbstractTask {
 
         if (mzTolerance.checkWithinTolerance(isotopeMZ, mainMZ)
             && rtTolerance.checkWithinTolerance(candidatePeakRT, mainRT)
-            && (!fittedPeaks.contains(candidatePeak))) {
-          goodCandidates.add(candidatePeak);
+            && (!fittedPeaks.contains(ind))) {
+          goodCandidates.add(ind);
 
         }
 
@@ -333,6 +369,8 @@ class IsotopeGrouperTask extends AbstractTask {
       // 2.3 and older, only the highest candidate was added)
       if (!goodCandidates.isEmpty()) {
 
+        // same order as the sequential search by descending height
+        Collections.sort(goodCandidates);
         fittedPeaks.addAll(goodCandidates);
 
         // n:th peak was found, so let's move on to n+1
@@ -19,6 +19,7 @@
 package io.github.mzmine.modules.dataprocessing.filter_scanfilters;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import io.github.mzmine.datamodel.MZmineProject;
@@ -31,6 +32,7 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.scans.ScanWindowReader;
 
 class ScanFilteringTask extends AbstractTask {
 
@@ -105,25 +107,33 @@ class ScanFilteringTask extends AbstractTask {
     scanNumbers = dataFile.getScanNumbers();
     totalScans = scanNumbers.length;
 
-    try {
+    // Only the scans which are filtered are read, ahead of the filtering
+    final int filteredScanNumbers[] = Arrays.stream(scanNumbers)
+        .filter(scanNumber -> select.matches(dataFile.getScan(scanNumber))).toArray();
+
+    try (ScanWindowReader reader = new ScanWindowReader(dataFile, filteredScanNumbers, 1)) {
 
       // Create new raw data file
 
       String newName = dataFile.getName() + " " + suffix;
       RawDataFileWriter rawDataFileWriter = MZmineCore.createNewFile(newName);
 
+      int filteredIndex = 0;
       for (int i = 0; i < totalScans; i++) {
 
         if (isCanceled()) {
           return;
         }
 
-        Scan scan = dataFile.getScan(scanNumbers[i]);
         Scan newScan = null;
-        if (select.matches(scan))
+        if (filteredIndex < filteredScanNumbers.length
+            && filteredScanNumbers[filteredIndex] == scanNumbers[i]) {
+          Scan scan = reader.get(filteredIndex++).getScanCopy();
           newScan = rawDataFilter.getModule().filterScan(scan, rawDataFilter.getParameterSet());
-        else
-          newScan = scan;
+        } else {
+          // Unchanged scans are linked to the original file, not copied
+          newScan = dataFile.getScan(scanNumbers[i]);
+        }
 
         if (newScan != null) {
           rawDataFileWriter.addScan(newScan);
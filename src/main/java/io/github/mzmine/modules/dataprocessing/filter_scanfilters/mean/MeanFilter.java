@@ -18,7 +18,6 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_scanfilters.mean;
 
-import java.util.Vector;
 import javax.annotation.Nonnull;
 
 import io.github.mzmine.datamodel.DataPoint;
@@ -39,53 +38,40 @@ public class MeanFilter implements ScanFilter {
 
     // changed to also allow MS2 if selected in ScanSelection
 
-    Vector<Double> massWindow = new Vector<Double>();
-    Vector<Double> intensityWindow = new Vector<Double>();
-
-    double currentMass;
-    double lowLimit;
-    double hiLimit;
-    double mzVal;
-
-    double elSum;
-
     DataPoint oldDataPoints[] = sc.getDataPoints();
     DataPoint newDataPoints[] = new DataPoint[oldDataPoints.length];
 
-    int addi = 0;
+    final double mzValues[] = new double[oldDataPoints.length];
+    final double intensityValues[] = new double[oldDataPoints.length];
+    for (int i = 0; i < oldDataPoints.length; i++) {
+      mzValues[i] = oldDataPoints[i].getMZ();
+      intensityValues[i] = oldDataPoints[i].getIntensity();
+    }
+
+    // The window [low, high) moves forward with the current m/z
+    int low = 0, high = 0;
     for (int i = 0; i < oldDataPoints.length; i++) {
 
-      currentMass = oldDataPoints[i].getMZ();
-      lowLimit = currentMass - windowLength;
-      hiLimit = currentMass + windowLength;
+      final double currentMass = mzValues[i];
+      final double lowLimit = currentMass - windowLength;
+      final double hiLimit = currentMass + windowLength;
 
       // Remove all elements from window whose m/z value is less than the
       // low limit
-      if (massWindow.size() > 0) {
-        mzVal = massWindow.get(0).doubleValue();
-        while ((massWindow.size() > 0) && (mzVal < lowLimit)) {
-          massWindow.remove(0);
-          intensityWindow.remove(0);
-          if (massWindow.size() > 0) {
-            mzVal = massWindow.get(0).doubleValue();
-          }
-        }
-      }
+      while (low < high && mzValues[low] < lowLimit)
+        low++;
 
       // Add new elements as long as their m/z values are less than the hi
       // limit
-      while ((addi < oldDataPoints.length) && (oldDataPoints[addi].getMZ() <= hiLimit)) {
-        massWindow.add(oldDataPoints[addi].getMZ());
-        intensityWindow.add(oldDataPoints[addi].getIntensity());
-        addi++;
-      }
+      while (high < mzValues.length && mzValues[high] <= hiLimit)
+        high++;
 
-      elSum = 0;
-      for (int j = 0; j < intensityWindow.size(); j++) {
-        elSum += (intensityWindow.get(j)).doubleValue();
+      double elSum = 0;
+      for (int j = low; j < high; j++) {
+        elSum += intensityValues[j];
       }
 
-      newDataPoints[i] = new SimpleDataPoint(currentMass, elSum / intensityWindow.size());
+      newDataPoints[i] = new SimpleDataPoint(currentMass, elSum / (high - low));
 
     }
 
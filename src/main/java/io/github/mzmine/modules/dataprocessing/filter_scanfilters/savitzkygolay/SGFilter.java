@@ -123,8 +123,12 @@ public class SGFilter implements ScanFilter {
 
     }
 
-    SimpleScan newScan = new SimpleScan(scan);
-    newScan.setDataPoints(newDataPoints);
+    // Do not copy the old data points, they may have to be read from the raw data file again
+    SimpleScan newScan = new SimpleScan(scan.getDataFile(), scan.getScanNumber(),
+        scan.getMSLevel(), scan.getRetentionTime(), scan.getMobility(), scan.getPrecursorMZ(),
+        scan.getPrecursorCharge(), scan.getFragmentScanNumbers(), newDataPoints,
+        scan.getSpectrumType(), scan.getPolarity(), scan.getScanDefinition(),
+        scan.getScanningMZRange());
     return newScan;
 
   }
@@ -32,6 +32,8 @@ import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.scans.ScanWindowReader;
+import io.github.mzmine.util.scans.ScanWindowReader.Spectrum;
 
 public class ScanSmoothingTask extends AbstractTask {
 
@@ -108,130 +110,119 @@ public class ScanSmoothingTask extends AbstractTask {
     RawDataFileWriter newRDFW = null;
     int timepassed = 0;
     int mzpassed = 0;
-    try {
+
+    // Scan windows for the smoothing in time space
+    final int windowStart[] = new int[totalScans];
+    final int windowEnd[] = new int[totalScans];
+    final int windowSize = findTimeWindows(windowStart, windowEnd);
+
+    // Each scan is read once, the window of neighbouring scans is kept in memory
+    try (ScanWindowReader reader = new ScanWindowReader(dataFile, scanNumbers, windowSize)) {
       newRDFW = MZmineCore.createNewFile(dataFile.getName() + ' ' + suffix);
 
-      DataPoint mzValues[][] = null; // [relative scan][j value]
-      int i, j, si, sj, ii, k, ssi, ssj;
+      double mzValues[][] = null; // [relative scan][j value]
+      double intensityValues[][] = null;
+      int i, j, si, sj, ii, k;
       for (i = 0; i < totalScans; i++) {
 
         if (isCanceled())
           return;
 
         // Smoothing in TIME space
-        Scan scan = dataFile.getScan(scanNumbers[i]);
+        final Spectrum spectrum = reader.get(i);
+        Scan scan = spectrum.getScan();
         if (scan != null) {
-          double rt = scan.getRetentionTime();
-          final SimpleScan newScan = new SimpleScan(scan);
-          DataPoint[] newDP = null;
-          sj = si = i;
-          ssi = ssj = i;
+          double newMZ[] = null, newIntensity[] = null;
           if (timeSpan > 0 || scanSpan > 0) {
             double timeMZtol = Math.max(mzTol, 1e-5);
-            for (si = i; si > 1; si--) {
-              Scan scanS = dataFile.getScan(scanNumbers[si - 1]);
-              if (scanS == null || scanS.getRetentionTime() < rt - timeSpan / 2) {
-                break;
-              }
-            }
-            for (sj = i; sj < totalScans - 1; sj++) {
-              Scan scanS = dataFile.getScan(scanNumbers[sj + 1]);
-              if (scanS == null || scanS.getRetentionTime() >= rt + timeSpan / 2) {
-                break;
-              }
-            }
-            ssi = i - (scanSpan - 1) / 2;
-            ssj = i + (scanSpan - 1) / 2;
-            if (ssi < 0) {
-              ssj += -ssi;
-              ssi = 0;
-            }
-            if (ssj >= totalScans) {
-              ssi -= (ssj - totalScans + 1);
-              ssj = totalScans - 1;
-            }
-            if (sj - si + 1 < scanSpan) {
-              si = ssi;
-              sj = ssj;
-              // si = Math.min(si, ssi);
-              // sj = Math.max(sj, ssj);
-            }
+            si = windowStart[i];
+            sj = windowEnd[i];
             if (sj > si) {
               timepassed++;
               // Allocate
-              if (mzValues == null || mzValues.length < sj - si + 1)
-                mzValues = new DataPoint[sj - si + 1][];
+              final int length = sj - si + 1;
+              if (mzValues == null || mzValues.length < length) {
+                mzValues = new double[length][];
+                intensityValues = new double[length][];
+              }
               // Load Data Points
               for (j = si; j <= sj; j++) {
-                Scan xscan = dataFile.getScan(scanNumbers[j]);
-                mzValues[j - si] = xscan.getDataPoints();
+                Spectrum xspectrum = reader.get(j);
+                mzValues[j - si] = xspectrum.getMZValues();
+                intensityValues[j - si] = xspectrum.getIntensityValues();
               }
               // Estimate Averages
               ii = i - si;
-              newDP = new DataPoint[mzValues[ii].length];
-              for (k = 0; k < mzValues[ii].length; k++) {
-                DataPoint dp = mzValues[ii][k];
-                double mz = dp.getMZ();
+              newMZ = mzValues[ii];
+              newIntensity = new double[newMZ.length];
+              for (k = 0; k < newMZ.length; k++) {
+                double mz = newMZ[k];
                 double intensidad = 0;
-                if (dp.getIntensity() > 0) { // only process
+                if (intensityValues[ii][k] > 0) { // only process
                   // those > 0
                   double a = 0;
                   short c = 0;
                   int f = 0;
-                  for (j = 0; j < mzValues.length; j++) {
-                    // System.out.println(j);
-                    if (mzValues[j].length > k
-                        && Math.abs(mzValues[j][k].getMZ() - mz) < timeMZtol) {
+                  for (j = 0; j < length; j++) {
+                    if (mzValues[j].length > k && Math.abs(mzValues[j][k] - mz) < timeMZtol) {
                       f = k;
                     } else {
+                      if (mzValues[j].length == 0)
+                        continue;
                       f = findFirstMass(mz, mzValues[j]);
-                      if (Math.abs(mzValues[j][f].getMZ() - mz) > timeMZtol) {
+                      if (Math.abs(mzValues[j][f] - mz) > timeMZtol) {
                         f = -f;
                       }
                     }
-                    if (f >= 0 && mzValues[j][f].getIntensity() >= minimumHeight) {
-                      a += mzValues[j][f].getIntensity();
+                    if (f >= 0 && intensityValues[j][f] >= minimumHeight) {
+                      a += intensityValues[j][f];
                       c++;
-                    } else {
-                      c = (short) (c + 0);
                     }
                   }
                   intensidad = c > 0 ? a / c : 0;
                 }
-                newDP[k] = new SimpleDataPoint(mz, intensidad);
+                newIntensity[k] = intensidad;
               }
             }
-          } else if (scan != null) {
-            newDP = scan.getDataPoints();
+          } else {
+            newMZ = spectrum.getMZValues();
+            newIntensity = spectrum.getIntensityValues();
           }
 
           // Smoothing in MZ space
 
-          if ((mzTol > 0 || mzPoints > 0)) {
+          if ((mzTol > 0 || mzPoints > 0) && newMZ != null) {
             mzpassed++;
-            DataPoint[] updatedDP = new DataPoint[newDP.length];
-            for (k = 0; k < newDP.length; k++) {
-              double mz = newDP[k].getMZ();
+            double updatedIntensity[] = new double[newMZ.length];
+            for (k = 0; k < newMZ.length; k++) {
+              double mz = newMZ[k];
               double intensidad = 0;
-              if (newDP[k].getIntensity() > 0) {
-                for (si = k; si > 0
-                    && (newDP[si].getMZ() + mzTol >= mz || k - si <= mzPoints); si--);
-                for (sj = k; sj < newDP.length - 1
-                    && (newDP[sj].getMZ() - mzTol <= mz || sj - k <= mzPoints); sj++);
+              if (newIntensity[k] > 0) {
+                for (si = k; si > 0 && (newMZ[si] + mzTol >= mz || k - si <= mzPoints); si--);
+                for (sj = k; sj < newMZ.length - 1
+                    && (newMZ[sj] - mzTol <= mz || sj - k <= mzPoints); sj++);
                 double sum = 0;
                 for (j = si; j <= sj; j++) {
-                  sum += newDP[j].getIntensity();
+                  sum += newIntensity[j];
                 }
                 intensidad = sum / (sj - si + 1);
               }
-              updatedDP[k] = new SimpleDataPoint(mz, intensidad);
+              updatedIntensity[k] = intensidad;
             }
-            newDP = updatedDP;
+            newIntensity = updatedIntensity;
           }
 
           // Register new smoothing data
-          if (scan != null && newDP != null) {
-            newScan.setDataPoints(newDP);
+          if (newMZ != null) {
+            DataPoint newDP[] = new DataPoint[newMZ.length];
+            for (k = 0; k < newMZ.length; k++)
+              newDP[k] = new SimpleDataPoint(newMZ[k], newIntensity[k]);
+            // Only the metadata is copied, the data points of the scan are not read again
+            final SimpleScan newScan = new SimpleScan(scan.getDataFile(), scan.getScanNumber(),
+                scan.getMSLevel(), scan.getRetentionTime(), scan.getMobility(),
+                scan.getPrecursorMZ(), scan.getPrecursorCharge(), scan.getFragmentScanNumbers(),
+                newDP, scan.getSpectrumType(), scan.getPolarity(), scan.getScanDefinition(),
+                scan.getScanningMZRange());
             newRDFW.addScan(newScan);
           }
         }
@@ -264,19 +255,72 @@ public class ScanSmoothingTask extends AbstractTask {
 
     } catch (IOException e) {
       e.printStackTrace();
+      setStatus(TaskStatus.ERROR);
+      setErrorMessage("Error while smoothing scans in " + dataFile + ": " + e.getMessage());
+    }
+
+  }
+
+  /**
+   * Finds the range of neighbouring scans which are averaged for each scan. Only the retention
+   * times are needed, the data points are not read here.
+   *
+   * @return the maximum number of scans in a window
+   */
+  private int findTimeWindows(int windowStart[], int windowEnd[]) {
+    final double rts[] = new double[totalScans];
+    for (int i = 0; i < totalScans; i++) {
+      Scan scan = dataFile.getScan(scanNumbers[i]);
+      rts[i] = (scan != null) ? scan.getRetentionTime() : Double.NaN;
     }
 
+    int maxSize = 1;
+    int si, sj, ssi, ssj;
+    for (int i = 0; i < totalScans; i++) {
+      double rt = rts[i];
+      sj = si = i;
+      if (timeSpan > 0 || scanSpan > 0) {
+        for (si = i; si > 1; si--) {
+          if (Double.isNaN(rts[si - 1]) || rts[si - 1] < rt - timeSpan / 2) {
+            break;
+          }
+        }
+        for (sj = i; sj < totalScans - 1; sj++) {
+          if (Double.isNaN(rts[sj + 1]) || rts[sj + 1] >= rt + timeSpan / 2) {
+            break;
+          }
+        }
+        ssi = i - (scanSpan - 1) / 2;
+        ssj = i + (scanSpan - 1) / 2;
+        if (ssi < 0) {
+          ssj += -ssi;
+          ssi = 0;
+        }
+        if (ssj >= totalScans) {
+          ssi -= (ssj - totalScans + 1);
+          ssj = totalScans - 1;
+        }
+        if (sj - si + 1 < scanSpan) {
+          si = ssi;
+          sj = ssj;
+        }
+      }
+      windowStart[i] = si;
+      windowEnd[i] = sj;
+      maxSize = Math.max(maxSize, sj - si + 1);
+    }
+    return maxSize;
   }
 
-  static int findFirstMass(double mass, DataPoint mzValues[]) {
+  static int findFirstMass(double mass, double mzValues[]) {
     int l = 0;
     int r = mzValues.length - 1;
     int mid = 0;
     while (l < r) {
       mid = (r + l) / 2;
-      if (mzValues[mid].getMZ() > mass) {
+      if (mzValues[mid] > mass) {
         r = mid - 1;
-      } else if (mzValues[mid].getMZ() < mass) {
+      } else if (mzValues[mid] < mass) {
         l = mid + 1;
       } else {
         r = mid;
@@ -17,8 +17,14 @@
  */
 package io.github.mzmine.modules.dataprocessing.id_formulapredictionpeaklist;
 
+import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
@@ -56,18 +62,19 @@ import io.github.mzmine.util.FormulaUtils;
 public class FormulaPredictionPeakListTask extends AbstractTask {
 
   private Logger logger = Logger.getLogger(this.getClass().getName());
-  private Range<Double> massRange;
   private MolecularFormulaRange elementCounts;
-  private MolecularFormulaGenerator generator;
+  // generators of the groups processed in parallel
+  private final Set<MolecularFormulaGenerator> generators = ConcurrentHashMap.newKeySet();
   private IonizationType ionType;
-  private double searchedMass;
   private int charge;
   private PeakList peakList;
   private boolean checkIsotopes, checkMSMS, checkRatios, checkRDBE;
   private ParameterSet isotopeParameters, msmsParameters, ratiosParameters, rdbeParameters;
   private MZTolerance mzTolerance;
-  private String message;
-  private int totalRows, finishedRows;
+  // set by the parallel group workers
+  private volatile String message;
+  private int totalRows;
+  private final AtomicInteger finishedRows = new AtomicInteger(0);
   private int maxBestFormulasPerPeak;
   private final double minScore;
   private final double minMSMSScore;
@@ -76,6 +83,9 @@ public class FormulaPredictionPeakListTask extends AbstractTask {
   private Double sortIsotopeFactor = 0d;
   private Double sortMSMSFactor = 0d;
 
+  // Maximum m/z width of a group of rows sharing one formula generation, in row windows
+  private static final double MAX_GROUP_WIDTH = 4.0;
+
   /**
    *
    * @param parameters
@@ -152,7 +162,7 @@ public class FormulaPredictionPeakListTask extends AbstractTask {
   public double getFinishedPercentage() {
     if (totalRows == 0)
       return 0.0;
-    return (double) finishedRows / (double) totalRows;
+    return (double) finishedRows.get() / (double) totalRows;
   }
 
   /**
@@ -173,80 +183,166 @@ public class FormulaPredictionPeakListTask extends AbstractTask {
 
     totalRows = peakList.getNumberOfRows();
 
+    // Rows without identities, sorted by the searched neutral mass
+    List<PeakListRow> rows = new ArrayList<>();
     for (PeakListRow row : peakList.getRows()) {
-
       if (row.getPeakIdentities().length > 0) {
+        finishedRows.incrementAndGet();
         continue;
       }
+      rows.add(row);
+    }
+    rows.sort(Comparator.comparingDouble(this::getSearchedMass));
+
+    // Rows with overlapping mass windows share one formula generation. Rows with the same or
+    // similar masses (e.g. in-source fragments, adducts and duplicates) are common.
+    List<List<PeakListRow>> groups = new ArrayList<>();
+    Range<Double> groupRange = null;
+    for (PeakListRow row : rows) {
+      Range<Double> rowRange = mzTolerance.getToleranceRange(getSearchedMass(row));
+      // Chains of overlapping windows are split, so a group never generates formulas for more
+      // than MAX_GROUP_WIDTH row windows
+      if (groupRange == null || rowRange.lowerEndpoint() > groupRange.upperEndpoint()
+          || rowRange.upperEndpoint() - groupRange.lowerEndpoint() > MAX_GROUP_WIDTH
+              * (rowRange.upperEndpoint() - rowRange.lowerEndpoint())) {
+        groups.add(new ArrayList<>());
+        groupRange = rowRange;
+      } else {
+        groupRange = groupRange.span(rowRange);
+      }
+      groups.get(groups.size() - 1).add(row);
+    }
+
+    // Groups are independent
+    groups.parallelStream().forEach(this::predictFormulas);
+
+    if (isCanceled() || getStatus() == TaskStatus.ERROR)
+      return;
+
+    logger.finest("Finished formula search for all the peaks");
 
-      this.searchedMass = (row.getAverageMZ() - ionType.getAddedMass()) * charge;
+    setStatus(TaskStatus.FINISHED);
 
-      message = "Formula prediction for "
-          + MZmineCore.getConfiguration().getMZFormat().format(searchedMass);
+  }
 
-      massRange = mzTolerance.getToleranceRange(searchedMass);
+  private double getSearchedMass(PeakListRow row) {
+    return (row.getAverageMZ() - ionType.getAddedMass()) * charge;
+  }
 
-      IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-      generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-          massRange.upperEndpoint(), elementCounts);
+  /**
+   * Generates the formulas for the combined mass range of a group of rows once and assigns them to
+   * the rows by a range query on the mass sorted formulas.
+   */
+  private void predictFormulas(List<PeakListRow> group) {
 
-      IMolecularFormula cdkFormula;
+    if (isCanceled() || getStatus() == TaskStatus.ERROR)
+      return;
 
-      // create a map to store ResultFormula and relative mass deviation
-      // for sorting
-      List<MolecularFormulaIdentity> flist = new ArrayList<>();
+    final double minMass =
+        mzTolerance.getToleranceRange(getSearchedMass(group.get(0))).lowerEndpoint();
+    double maxMass = minMass;
+    for (PeakListRow row : group)
+      maxMass = Math.max(maxMass,
+          mzTolerance.getToleranceRange(getSearchedMass(row)).upperEndpoint());
+
+    // Groups run in parallel and the shared number format is not thread safe: format with a copy
+    final NumberFormat mzFormat =
+        (NumberFormat) MZmineCore.getConfiguration().getMZFormat().clone();
+    message = "Formula prediction for " + mzFormat.format(getSearchedMass(group.get(0)));
+
+    IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+    MolecularFormulaGenerator generator =
+        new MolecularFormulaGenerator(builder, minMass, maxMass, elementCounts);
+    generators.add(generator);
+
+    // Formulas passing the row independent constraints
+    List<IMolecularFormula> formulas = new ArrayList<>();
+    IMolecularFormula cdkFormula;
+    try {
       while ((cdkFormula = generator.getNextFormula()) != null) {
         if (isCanceled())
           return;
 
-        // Mass is ok, so test other constraints
-        if (checkConstraints(cdkFormula, row)) {
-          Double isotopeScore = calcIsotopePatternScore(cdkFormula, row);
-          Double msmsScore = calcIsotopePatternScore(cdkFormula, row);
-          if (getStatus().equals(TaskStatus.ERROR))
-            return;
-
-          if ((isotopeScore == null || isotopeScore >= minScore)
-              && (msmsScore == null || msmsScore >= minMSMSScore)) {
-            // write to map
-            MolecularFormulaIdentity molf =
-                new MolecularFormulaIdentity(cdkFormula, searchedMass, isotopeScore, msmsScore);
-            flist.add(molf);
-          }
-        }
+        if (checkConstraints(cdkFormula))
+          formulas.add(cdkFormula);
       }
+    } finally {
+      generators.remove(generator);
+    }
 
-      if (isCanceled())
+    // Sort by mass for the range queries
+    final int n = formulas.size();
+    final Integer[] order = new Integer[n];
+    final double[] unsortedMasses = new double[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+      unsortedMasses[i] = MolecularFormulaManipulator.getTotalExactMass(formulas.get(i));
+    }
+    Arrays.sort(order, Comparator.comparingDouble(i -> unsortedMasses[i]));
+    final IMolecularFormula[] sortedFormulas = new IMolecularFormula[n];
+    final double[] masses = new double[n];
+    for (int i = 0; i < n; i++) {
+      sortedFormulas[i] = formulas.get(order[i]);
+      masses[i] = unsortedMasses[order[i]];
+    }
+
+    // Score the rows of large groups in parallel
+    group.parallelStream().forEach(row -> {
+      if (isCanceled() || getStatus() == TaskStatus.ERROR)
         return;
+      predictFormulas(row, sortedFormulas, masses);
+      finishedRows.incrementAndGet();
+    });
+  }
 
-      // sort formulas by ppm difference
-      FormulaUtils.sortFormulaList(flist, sortPPMFactor, sortIsotopeFactor, sortMSMSFactor);
-
-      // Add the new formula entry top results
-      int ctr = 0;
-      for (MolecularFormulaIdentity f : flist) {
-        if (ctr < maxBestFormulasPerPeak) {
-          f.setPropertyValue(PeakIdentity.PROPERTY_METHOD, this.getClass().getName());
-          row.addPeakIdentity(f, false);
-          ctr++;
-        }
-      }
+  private void predictFormulas(PeakListRow row, IMolecularFormula[] formulas, double[] masses) {
+
+    final double searchedMass = getSearchedMass(row);
+    final Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
+
+    int first = Arrays.binarySearch(masses, massRange.lowerEndpoint());
+    if (first < 0)
+      first = -first - 1;
+    while (first > 0 && masses[first - 1] >= massRange.lowerEndpoint())
+      first--;
+
+    // create a map to store ResultFormula and relative mass deviation
+    // for sorting
+    List<MolecularFormulaIdentity> flist = new ArrayList<>();
+    for (int i = first; i < masses.length && masses[i] <= massRange.upperEndpoint(); i++) {
       if (isCanceled())
         return;
-      finishedRows++;
-
-    }
 
-    if (isCanceled())
-      return;
+      IMolecularFormula cdkFormula = formulas[i];
+      Double isotopeScore = calcIsotopePatternScore(cdkFormula, row);
+      Double msmsScore = calcMSMSPatternScore(cdkFormula, row);
+      if (getStatus().equals(TaskStatus.ERROR))
+        return;
 
-    logger.finest("Finished formula search for all the peaks");
+      if ((isotopeScore == null || isotopeScore >= minScore)
+          && (msmsScore == null || msmsScore >= minMSMSScore)) {
+        // write to map
+        MolecularFormulaIdentity molf =
+            new MolecularFormulaIdentity(cdkFormula, searchedMass, isotopeScore, msmsScore);
+        flist.add(molf);
+      }
+    }
 
-    setStatus(TaskStatus.FINISHED);
+    // sort formulas by ppm difference
+    FormulaUtils.sortFormulaList(flist, sortPPMFactor, sortIsotopeFactor, sortMSMSFactor);
 
+    // Add the new formula entry top results
+    int ctr = 0;
+    for (MolecularFormulaIdentity f : flist) {
+      if (ctr < maxBestFormulasPerPeak) {
+        f.setPropertyValue(PeakIdentity.PROPERTY_METHOD, this.getClass().getName());
+        row.addPeakIdentity(f, false);
+        ctr++;
+      }
+    }
   }
 
-  private boolean checkConstraints(IMolecularFormula cdkFormula, PeakListRow peakListRow) {
+  private boolean checkConstraints(IMolecularFormula cdkFormula) {
 
     // Check elemental ratios
     if (checkRatios) {
@@ -338,9 +434,9 @@ public class FormulaPredictionPeakListTask extends AbstractTask {
   public void cancel() {
     super.cancel();
 
-    // We need to cancel the formula generator, because searching for next
+    // We need to cancel the formula generators, because searching for next
     // candidate formula may take a looong time
-    if (generator != null) {
+    for (MolecularFormulaGenerator generator : generators) {
       generator.cancel();
     }
 
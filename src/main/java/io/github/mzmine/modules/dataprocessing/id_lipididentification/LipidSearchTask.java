@@ -21,6 +21,9 @@ package io.github.mzmine.modules.dataprocessing.id_lipididentification;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.logging.Logger;
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
@@ -63,6 +66,14 @@ public class LipidSearchTask extends AbstractTask {
   private double[] lipidModificationMasses;
   private LipidModification[] lipidModification;
 
+  // all lipids to search for and their m/z sorted ion masses
+  private LipidIdentity[] lipids;
+  private double[] indexMasses;
+  // entry of each index mass: lipid index * entriesPerLipid + (0 for the lipid ion or 1 + index of
+  // the modification)
+  private int[] indexEntries;
+  private int entriesPerLipid;
+
 
 
   private ParameterSet parameters;
@@ -141,9 +152,40 @@ public class LipidSearchTask extends AbstractTask {
     if (searchForModifications == true) {
       lipidModificationMasses = getLipidModificationMasses(lipidModification);
     }
-    // Calculate how many possible lipids we will try
-    totalSteps = ((maxChainLength - minChainLength + 1) * (maxDoubleBonds - minDoubleBonds + 1))
-        * selectedLipids.length;
+
+    buildLipidIndex();
+    logger.info("Searching for " + lipids.length + " lipids, " + indexMasses.length + " ion masses");
+
+    totalSteps = rows.length;
+
+    // Rows are independent, each row checks the lipids in the same order as before
+    Arrays.stream(rows).parallel().forEach(row -> {
+      if (isCanceled())
+        return;
+      findPossibleLipids(row);
+      synchronized (this) {
+        finishedSteps++;
+      }
+    });
+
+    if (isCanceled())
+      return;
+
+    // Add task description to peakList
+    ((SimplePeakList) peakList)
+        .addDescriptionOfAppliedTask(new SimplePeakListAppliedMethod("Lipid search", parameters));
+
+    setStatus(TaskStatus.FINISHED);
+
+    logger.info("Finished lipid search task in " + peakList);
+  }
+
+  /**
+   * Builds all combinations of lipid classes, fatty acid lengths and double bonds once and indexes
+   * their ion masses (and the masses of their modifications) sorted by m/z
+   */
+  private void buildLipidIndex() {
+    List<LipidIdentity> lipidList = new ArrayList<>();
 
     // Try all combinations of fatty acid lengths and double bonds
     for (int i = 0; i < selectedLipids.length; i++) {
@@ -152,77 +194,97 @@ public class LipidSearchTask extends AbstractTask {
       for (int chainLength = minChainLength; chainLength <= maxChainLength; chainLength++) {
         for (int chainDoubleBonds =
             minDoubleBonds; chainDoubleBonds <= maxDoubleBonds; chainDoubleBonds++) {
-          // Task canceled?
-          if (isCanceled())
-            return;
 
           // If we have non-zero fatty acid, which is shorter
           // than minimal length, skip this lipid
           if (((chainLength > 0) && (chainLength < minChainLength))) {
-            finishedSteps++;
             continue;
           }
 
           // If we have more double bonds than carbons, it
           // doesn't make sense, so let's skip such lipids
           if (((chainDoubleBonds > 0) && (chainDoubleBonds > chainLength - 1))) {
-            finishedSteps++;
             continue;
           }
           // Prepare a lipid instance
-          LipidIdentity lipidChain = new LipidIdentity(selectedLipids[i], chainLength,
-              chainDoubleBonds, numberOfAcylChains, numberOfAlkylChains);
-          // Find all rows that match this lipid
-          findPossibleLipid(lipidChain, rows);
-          finishedSteps++;
+          lipidList.add(new LipidIdentity(selectedLipids[i], chainLength, chainDoubleBonds,
+              numberOfAcylChains, numberOfAlkylChains));
         }
       }
     }
-    // Add task description to peakList
-    ((SimplePeakList) peakList)
-        .addDescriptionOfAppliedTask(new SimplePeakListAppliedMethod("Lipid search", parameters));
+    lipids = lipidList.toArray(LipidIdentity[]::new);
+
+    // One entry per lipid ion and per modified lipid ion. The order key keeps the sequence of the
+    // annotations of a row: lipid by lipid, the lipid ion before its modifications
+    final int numModifications = searchForModifications ? lipidModificationMasses.length : 0;
+    final int entriesPerLipid = numModifications + 1;
+    final int numEntries = lipids.length * entriesPerLipid;
+    final double[] masses = new double[numEntries];
+    for (int l = 0; l < lipids.length; l++) {
+      final double lipidIonMass = lipids[l].getMass() + ionizationType.getAddedMass();
+      masses[l * entriesPerLipid] = lipidIonMass;
+      for (int j = 0; j < numModifications; j++)
+        masses[l * entriesPerLipid + j + 1] = lipidIonMass + lipidModificationMasses[j];
+    }
 
-    setStatus(TaskStatus.FINISHED);
+    Integer[] order = new Integer[numEntries];
+    for (int e = 0; e < numEntries; e++)
+      order[e] = e;
+    Arrays.sort(order, Comparator.comparingDouble(e -> masses[e]));
 
-    logger.info("Finished lipid search task in " + peakList);
+    indexMasses = new double[numEntries];
+    indexEntries = new int[numEntries];
+    for (int e = 0; e < numEntries; e++) {
+      indexEntries[e] = order[e];
+      indexMasses[e] = masses[order[e]];
+    }
+    this.entriesPerLipid = entriesPerLipid;
   }
 
   /**
-   * Check if candidate peak may be a possible adduct of a given main peak
-   *
-   * @param mainPeak
-   * @param possibleFragment
+   * Annotates a row with all lipids (and modified lipids) within the m/z tolerance
    */
-  private void findPossibleLipid(LipidIdentity lipid, PeakListRow rows[]) {
-    double lipidIonMass = 0.0;
-    double lipidMass = lipid.getMass();
-    lipidIonMass = lipidMass + ionizationType.getAddedMass();
-    logger.info("Searching for lipid " + lipid.getDescription() + ", " + lipidIonMass + " m/z");
-    for (int rowIndex = 0; rowIndex < rows.length; rowIndex++) {
+  private void findPossibleLipids(PeakListRow row) {
+    Range<Double> mzTolRange12C = mzTolerance.getToleranceRange(row.getAverageMZ());
+
+    int first = Arrays.binarySearch(indexMasses, mzTolRange12C.lowerEndpoint());
+    if (first < 0)
+      first = -first - 1;
+    while (first > 0 && indexMasses[first - 1] >= mzTolRange12C.lowerEndpoint())
+      first--;
+
+    List<Integer> matches = new ArrayList<>();
+    for (int e = first; e < indexMasses.length
+        && indexMasses[e] <= mzTolRange12C.upperEndpoint(); e++) {
+      matches.add(indexEntries[e]);
+    }
+    if (matches.isEmpty())
+      return;
+    Collections.sort(matches);
+
+    for (int entry : matches) {
       if (isCanceled())
         return;
-      Range<Double> mzTolRange12C = mzTolerance.getToleranceRange(rows[rowIndex].getAverageMZ());
-      if (mzTolRange12C.contains(lipidIonMass)) {
+      final LipidIdentity lipid = lipids[entry / entriesPerLipid];
+      final int modification = entry % entriesPerLipid - 1;
+      final double lipidIonMass = lipid.getMass() + ionizationType.getAddedMass();
 
+      if (modification < 0) {
         // Calc rel mass deviation;
-        double relMassDev =
-            ((lipidIonMass - rows[rowIndex].getAverageMZ()) / lipidIonMass) * 1000000;
-        rows[rowIndex].addPeakIdentity(lipid, false);
-        rows[rowIndex].setComment("Ionization: " + ionizationType.getAdduct() + ", Δ "
+        double relMassDev = ((lipidIonMass - row.getAverageMZ()) / lipidIonMass) * 1000000;
+        row.addPeakIdentity(lipid, false);
+        row.setComment("Ionization: " + ionizationType.getAdduct() + ", Δ "
             + NumberFormat.getInstance().format(relMassDev) + " ppm"); // Format relativ mass
                                                                        // deviation
         // If search for MSMS fragments is selected search for fragments
         if (searchForMSMSFragments == true) {
-          searchMsmsFragments(rows[rowIndex], lipidIonMass, lipid);
+          searchMsmsFragments(row, lipidIonMass, lipid);
         }
-        logger.info("Found lipid: " + lipid.getName() + ", Δ "
+        logger.finest("Found lipid: " + lipid.getName() + ", Δ "
             + NumberFormat.getInstance().format(relMassDev) + " ppm");
-      }
-      // If search for modifications is selected search for modifications
-      // in MS1
-      if (searchForModifications == true) {
-        searchModifications(rows[rowIndex], lipidIonMass, lipid, lipidModificationMasses,
-            mzTolRange12C);
+      } else {
+        // Modification in MS1
+        addModification(row, lipidIonMass, lipid, modification);
       }
     }
   }
@@ -236,8 +298,12 @@ public class LipidSearchTask extends AbstractTask {
 
     // Check if selected feature has MSMS spectra
     if (row.getAllMS2Fragmentations() != null) {
+      // Rows are searched in parallel and the shared RT format is not thread safe
+      final NumberFormat rtFormat =
+          (NumberFormat) MZmineCore.getConfiguration().getRTFormat().clone();
       Scan[] msmsScans = row.getAllMS2Fragmentations();
       for (Scan msmsScan : msmsScans) {
+        final String rt = rtFormat.format(msmsScan.getRetentionTime());
 
         DataPoint[] massList = null;
         // check if MS/MS scan already has a mass list
@@ -273,13 +339,11 @@ public class LipidSearchTask extends AbstractTask {
                 // Add possible composition to comment
                 if (row.getComment().equals(null)) {
                   row.setComment(" " + listOfPossibleFattyAcidCompositions.get(i) + " MS/MS scan "
-                      + msmsScan.getScanNumber() + ", RT " + MZmineCore.getConfiguration()
-                          .getRTFormat().format(msmsScan.getRetentionTime()));
+                      + msmsScan.getScanNumber() + ", RT " + rt);
                 } else {
                   row.setComment(row.getComment() + ";" + " "
                       + listOfPossibleFattyAcidCompositions.get(i) + " MS/MS scan "
-                      + msmsScan.getScanNumber() + ", RT " + MZmineCore.getConfiguration()
-                          .getRTFormat().format(msmsScan.getRetentionTime()));
+                      + msmsScan.getScanNumber() + ", RT " + rt);
                 }
               }
 
@@ -291,13 +355,11 @@ public class LipidSearchTask extends AbstractTask {
                   // Add fragment to comment
                   if (row.getComment().equals(null)) {
                     row.setComment(" " + listOfAnnotatedNegativeFragments.get(i) + " MS/MS scan "
-                        + msmsScan.getScanNumber() + ", RT " + MZmineCore.getConfiguration()
-                            .getRTFormat().format(msmsScan.getRetentionTime()));
+                        + msmsScan.getScanNumber() + ", RT " + rt);
                   } else {
                     row.setComment(row.getComment() + ";" + " "
                         + listOfAnnotatedNegativeFragments.get(i) + " MS/MS scan "
-                        + msmsScan.getScanNumber() + ", RT " + MZmineCore.getConfiguration()
-                            .getRTFormat().format(msmsScan.getRetentionTime()));
+                        + msmsScan.getScanNumber() + ", RT " + rt);
                   }
                 }
               }
@@ -331,13 +393,11 @@ public class LipidSearchTask extends AbstractTask {
               // Add possible composition to comment
               if (row.getComment().equals(null)) {
                 row.setComment(" " + listOfPossibleFattyAcidCompositions.get(i) + " MS/MS scan "
-                    + msmsScan.getScanNumber() + ", RT " + MZmineCore.getConfiguration()
-                        .getRTFormat().format(msmsScan.getRetentionTime()));
+                    + msmsScan.getScanNumber() + ", RT " + rt);
               } else {
                 row.setComment(
                     row.getComment() + ";" + " " + listOfPossibleFattyAcidCompositions.get(i)
-                        + " MS/MS scan " + msmsScan.getScanNumber() + ", RT " + MZmineCore
-                            .getConfiguration().getRTFormat().format(msmsScan.getRetentionTime()));
+                        + " MS/MS scan " + msmsScan.getScanNumber() + ", RT " + rt);
               }
             }
 
@@ -347,13 +407,11 @@ public class LipidSearchTask extends AbstractTask {
                 // Add fragment to comment
                 if (row.getComment().equals(null)) {
                   row.setComment(" " + listOfAnnotatedPositiveFragments.get(i) + " MS/MS scan "
-                      + msmsScan.getScanNumber() + ", RT " + MZmineCore.getConfiguration()
-                          .getRTFormat().format(msmsScan.getRetentionTime()));
+                      + msmsScan.getScanNumber() + ", RT " + rt);
                 } else {
                   row.setComment(row.getComment() + ";" + " "
                       + listOfAnnotatedPositiveFragments.get(i) + " MS/MS scan "
-                      + msmsScan.getScanNumber() + ", RT " + MZmineCore.getConfiguration()
-                          .getRTFormat().format(msmsScan.getRetentionTime()));
+                      + msmsScan.getScanNumber() + ", RT " + rt);
                 }
               }
             }
@@ -363,21 +421,17 @@ public class LipidSearchTask extends AbstractTask {
     }
   }
 
-  private void searchModifications(PeakListRow rows, double lipidIonMass, LipidIdentity lipid,
-      double[] lipidModificationMasses, Range<Double> mzTolModification) {
-    for (int j = 0; j < lipidModificationMasses.length; j++) {
-      if (mzTolModification.contains(lipidIonMass + (lipidModificationMasses[j]))) {
-        // Calc relativ mass deviation
-        double relMassDev = ((lipidIonMass + (lipidModificationMasses[j]) - rows.getAverageMZ())
-            / (lipidIonMass + lipidModificationMasses[j])) * 1000000;
-        // Add row identity
-        rows.addPeakIdentity(new SimplePeakIdentity(lipid + " " + lipidModification[j]), false);
-        rows.setComment("Ionization: " + ionizationType.getAdduct() + " " + lipidModification[j]
-            + ", Δ " + NumberFormat.getInstance().format(relMassDev) + " ppm");
-        logger.info("Found modified lipid: " + lipid.getName() + " " + lipidModification[j] + ", Δ "
-            + NumberFormat.getInstance().format(relMassDev) + " ppm");
-      }
-    }
+  private void addModification(PeakListRow rows, double lipidIonMass, LipidIdentity lipid,
+      int j) {
+    // Calc relativ mass deviation
+    double relMassDev = ((lipidIonMass + (lipidModificationMasses[j]) - rows.getAverageMZ())
+        / (lipidIonMass + lipidModificationMasses[j])) * 1000000;
+    // Add row identity
+    rows.addPeakIdentity(new SimplePeakIdentity(lipid + " " + lipidModification[j]), false);
+    rows.setComment("Ionization: " + ionizationType.getAdduct() + " " + lipidModification[j]
+        + ", Δ " + NumberFormat.getInstance().format(relMassDev) + " ppm");
+    logger.finest("Found modified lipid: " + lipid.getName() + " " + lipidModification[j] + ", Δ "
+        + NumberFormat.getInstance().format(relMassDev) + " ppm");
   }
 
   private double[] getLipidModificationMasses(LipidModification[] lipidModification) {
@@ -62,9 +62,13 @@ public class CSVExportParameters extends SimpleParameterSet {
       "Filter rows", "Limit the exported rows to those with MS/MS data (or annotated rows)",
       RowFilter.values(), RowFilter.ALL);
 
+  public static final BooleanParameter compress = new BooleanParameter("Compress (gzip)",
+      "If checked, the file is written gzip compressed with the additional extension \".gz\"",
+      false);
+
   public CSVExportParameters() {
     super(new Parameter[] {peakLists, filename, fieldSeparator, exportCommonItems,
-        exportDataFileItems, exportAllPeakInfo, idSeparator, filter});
+        exportDataFileItems, exportAllPeakInfo, idSeparator, filter, compress});
   }
 
 }
@@ -18,14 +18,20 @@
 
 package io.github.mzmine.modules.io.csvexport;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
 import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.PeakIdentity;
@@ -42,6 +48,14 @@ import io.github.mzmine.util.RangeUtils;
 
 public class CSVExportTask extends AbstractTask {
 
+  public static final String GZIP_SUFFIX = ".gz";
+
+  // Rows are formatted in parallel in blocks of rows, a chunk of blocks is written at once. A few
+  // blocks per thread keep all threads busy while only a small part of the file is held in memory.
+  private static final int ROWS_PER_BLOCK = 256;
+  private static final int BLOCKS_PER_CHUNK = 4 * Runtime.getRuntime().availableProcessors();
+  private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
   private PeakList[] peakLists;
   private int processedRows = 0, totalRows = 0;
 
@@ -54,6 +68,7 @@ public class CSVExportTask extends AbstractTask {
   private Boolean exportAllPeakInfo;
   private String idSeparator;
   private RowFilter filter;
+  private boolean compress = false;
 
   public CSVExportTask(ParameterSet parameters) {
     this.peakLists =
@@ -65,6 +80,7 @@ public class CSVExportTask extends AbstractTask {
     exportAllPeakInfo = parameters.getParameter(CSVExportParameters.exportAllPeakInfo).getValue();
     idSeparator = parameters.getParameter(CSVExportParameters.idSeparator).getValue();
     this.filter = parameters.getParameter(CSVExportParameters.filter).getValue();
+    this.compress = parameters.getParameter(CSVExportParameters.compress).getValue();
 
   }
 
@@ -133,10 +149,16 @@ public class CSVExportTask extends AbstractTask {
         curFile = new File(newFilename);
       }
 
+      if (compress)
+        curFile = new File(curFile.getPath() + GZIP_SUFFIX);
+
       // Open file
-      FileWriter writer;
+      Writer writer;
       try {
-        writer = new FileWriter(curFile);
+        OutputStream out = new FileOutputStream(curFile);
+        if (compress)
+          out = new GZIPOutputStream(out, WRITE_BUFFER_SIZE);
+        writer = new BufferedWriter(new OutputStreamWriter(out), WRITE_BUFFER_SIZE);
       } catch (Exception e) {
         setStatus(TaskStatus.ERROR);
         setErrorMessage("Could not open file " + curFile + " for writing.");
@@ -170,12 +192,11 @@ public class CSVExportTask extends AbstractTask {
 
   }
 
-  private void exportPeakList(PeakList peakList, FileWriter writer, File fileName) {
-    NumberFormat mzForm = MZmineCore.getConfiguration().getMZFormat();
+  private void exportPeakList(PeakList peakList, Writer writer, File fileName) {
     RawDataFile rawDataFiles[] = peakList.getRawDataFiles().toArray(RawDataFile[]::new);
 
     // Buffer for writing
-    StringBuffer line = new StringBuffer();
+    StringBuilder line = new StringBuilder();
 
     // Write column headers
 
@@ -227,183 +248,201 @@ public class CSVExportTask extends AbstractTask {
       return;
     }
 
-    // Write data rows
-    for (PeakListRow peakListRow : peakList.getRows()) {
-
-      if (!filter.filter(peakListRow)) {
-        processedRows++;
-        continue;
-      }
+    // Write data rows. Blocks of rows are formatted in parallel and written in order.
+    final PeakListRow[] rows = peakList.getRows().toArray(PeakListRow[]::new);
+    final int numBlocks = (rows.length + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+    for (int chunkStart = 0; chunkStart < numBlocks; chunkStart += BLOCKS_PER_CHUNK) {
 
       // Cancel?
       if (isCanceled()) {
         return;
       }
 
-      // Reset the buffer
-      line.setLength(0);
+      final int firstBlock = chunkStart;
+      final int chunkEnd = Math.min(numBlocks, chunkStart + BLOCKS_PER_CHUNK);
+      final String[] blocks = new String[chunkEnd - chunkStart];
+      IntStream.range(chunkStart, chunkEnd).parallel().forEach(block -> {
+        // The shared number formats are not thread safe, each block formats with its own copies
+        final NumberFormat mzFormat =
+            (NumberFormat) MZmineCore.getConfiguration().getMZFormat().clone();
+        final NumberFormat rtFormat =
+            (NumberFormat) MZmineCore.getConfiguration().getRTFormat().clone();
+        final StringBuilder buffer = new StringBuilder();
+        final int end = Math.min(rows.length, (block + 1) * ROWS_PER_BLOCK);
+        for (int r = block * ROWS_PER_BLOCK; r < end; r++) {
+          if (filter.filter(rows[r]))
+            appendRow(buffer, rows[r], rawDataFiles, peakInformationFields, mzFormat, rtFormat);
+        }
+        blocks[block - firstBlock] = buffer.toString();
+      });
 
-      // Common elements
-      length = commonElements.length;
-      for (int i = 0; i < length; i++) {
-        switch (commonElements[i]) {
-          case ROW_ID:
-            line.append(peakListRow.getID() + fieldSeparator);
-            break;
-          case ROW_MZ:
-            line.append(peakListRow.getAverageMZ() + fieldSeparator);
-            break;
-          case ROW_RT:
-            line.append(peakListRow.getAverageRT() + fieldSeparator);
-            break;
-          case ROW_IDENTITY:
-            // Identity elements
-            PeakIdentity peakId = peakListRow.getPreferredPeakIdentity();
-            if (peakId == null) {
-              line.append(fieldSeparator);
-              break;
-            }
-            String propertyValue = peakId.toString();
-            propertyValue = escapeStringForCSV(propertyValue);
-            line.append(propertyValue + fieldSeparator);
-            break;
-          case ROW_IDENTITY_ALL:
-            // Identity elements
-            PeakIdentity[] peakIdentities = peakListRow.getPeakIdentities();
-            propertyValue = "";
-            for (int x = 0; x < peakIdentities.length; x++) {
-              if (x > 0)
-                propertyValue += idSeparator;
-              propertyValue += peakIdentities[x].toString();
-            }
-            propertyValue = escapeStringForCSV(propertyValue);
-            line.append(propertyValue + fieldSeparator);
-            break;
-          case ROW_IDENTITY_DETAILS:
-            peakId = peakListRow.getPreferredPeakIdentity();
-            if (peakId == null) {
-              line.append(fieldSeparator);
-              break;
-            }
-            propertyValue = peakId.getDescription();
-            if (propertyValue != null)
-              propertyValue = propertyValue.replaceAll("\\n", ";");
-            propertyValue = escapeStringForCSV(propertyValue);
-            line.append(propertyValue + fieldSeparator);
+      try {
+        for (String block : blocks)
+          writer.write(block);
+      } catch (Exception e) {
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("Could not write to file " + fileName);
+        return;
+      }
+
+      processedRows +=
+          Math.min(rows.length, chunkEnd * ROWS_PER_BLOCK) - chunkStart * ROWS_PER_BLOCK;
+    }
+  }
+
+  /**
+   * Appends the line of one row, peak names are formatted with the given formats
+   */
+  private void appendRow(StringBuilder line, PeakListRow row, RawDataFile[] rawDataFiles,
+      Set<String> peakInformationFields, NumberFormat mzFormat, NumberFormat rtFormat) {
+
+    // Common elements
+    for (int i = 0; i < commonElements.length; i++) {
+      switch (commonElements[i]) {
+        case ROW_ID:
+          line.append(row.getID()).append(fieldSeparator);
+          break;
+        case ROW_MZ:
+          line.append(row.getAverageMZ()).append(fieldSeparator);
+          break;
+        case ROW_RT:
+          line.append(row.getAverageRT()).append(fieldSeparator);
+          break;
+        case ROW_IDENTITY:
+          // Identity elements
+          PeakIdentity peakId = row.getPreferredPeakIdentity();
+          if (peakId == null) {
+            line.append(fieldSeparator);
             break;
-          case ROW_COMMENT:
-            String comment = escapeStringForCSV(peakListRow.getComment());
-            line.append(comment + fieldSeparator);
+          }
+          String propertyValue = peakId.toString();
+          propertyValue = escapeStringForCSV(propertyValue);
+          line.append(propertyValue).append(fieldSeparator);
+          break;
+        case ROW_IDENTITY_ALL:
+          // Identity elements
+          PeakIdentity[] peakIdentities = row.getPeakIdentities();
+          propertyValue = "";
+          for (int x = 0; x < peakIdentities.length; x++) {
+            if (x > 0)
+              propertyValue += idSeparator;
+            propertyValue += peakIdentities[x].toString();
+          }
+          propertyValue = escapeStringForCSV(propertyValue);
+          line.append(propertyValue).append(fieldSeparator);
+          break;
+        case ROW_IDENTITY_DETAILS:
+          peakId = row.getPreferredPeakIdentity();
+          if (peakId == null) {
+            line.append(fieldSeparator);
             break;
-          case ROW_PEAK_NUMBER:
-            int numDetected = 0;
-            for (Feature p : peakListRow.getPeaks()) {
-              if (p.getFeatureStatus() == FeatureStatus.DETECTED) {
-                numDetected++;
-              }
+          }
+          propertyValue = peakId.getDescription();
+          if (propertyValue != null)
+            propertyValue = propertyValue.replaceAll("\\n", ";");
+          propertyValue = escapeStringForCSV(propertyValue);
+          line.append(propertyValue).append(fieldSeparator);
+          break;
+        case ROW_COMMENT:
+          String comment = escapeStringForCSV(row.getComment());
+          line.append(comment).append(fieldSeparator);
+          break;
+        case ROW_PEAK_NUMBER:
+          int numDetected = 0;
+          for (Feature p : row.getPeaks()) {
+            if (p.getFeatureStatus() == FeatureStatus.DETECTED) {
+              numDetected++;
             }
-            line.append(numDetected + fieldSeparator);
-            break;
-        }
+          }
+          line.append(numDetected).append(fieldSeparator);
+          break;
       }
+    }
 
-      // peak Information
-      if (exportAllPeakInfo) {
-        if (peakListRow.getPeakInformation() != null) {
-          Map<String, String> allPropertiesMap =
-              peakListRow.getPeakInformation().getAllProperties();
-
-          for (String key : peakInformationFields) {
-            String value = allPropertiesMap.get(key);
-            if (value == null)
-              value = "";
-            line.append(value + fieldSeparator);
-          }
+    // peak Information
+    if (exportAllPeakInfo) {
+      if (row.getPeakInformation() != null) {
+        Map<String, String> allPropertiesMap = row.getPeakInformation().getAllProperties();
+
+        for (String key : peakInformationFields) {
+          String value = allPropertiesMap.get(key);
+          if (value == null)
+            value = "";
+          line.append(value).append(fieldSeparator);
         }
       }
+    }
 
-      // Data file elements
-      length = dataFileElements.length;
-      for (RawDataFile dataFile : rawDataFiles) {
-        for (int i = 0; i < length; i++) {
-          Feature peak = peakListRow.getPeak(dataFile);
-          if (peak != null) {
-            switch (dataFileElements[i]) {
-              case PEAK_STATUS:
-                line.append(peak.getFeatureStatus() + fieldSeparator);
-                break;
-              case PEAK_NAME:
-                line.append(PeakUtils.peakToString(peak) + fieldSeparator);
-                break;
-              case PEAK_MZ:
-                line.append(peak.getMZ() + fieldSeparator);
-                break;
-              case PEAK_RT:
-                line.append(peak.getRT() + fieldSeparator);
-                break;
-              case PEAK_RT_START:
-                line.append(peak.getRawDataPointsRTRange().lowerEndpoint() + fieldSeparator);
-                break;
-              case PEAK_RT_END:
-                line.append(peak.getRawDataPointsRTRange().upperEndpoint() + fieldSeparator);
-                break;
-              case PEAK_DURATION:
-                line.append(
-                    RangeUtils.rangeLength(peak.getRawDataPointsRTRange()) + fieldSeparator);
-                break;
-              case PEAK_HEIGHT:
-                line.append(peak.getHeight() + fieldSeparator);
-                break;
-              case PEAK_AREA:
-                line.append(peak.getArea() + fieldSeparator);
-                break;
-              case PEAK_CHARGE:
-                line.append(peak.getCharge() + fieldSeparator);
-                break;
-              case PEAK_DATAPOINTS:
-                line.append(peak.getScanNumbers().length + fieldSeparator);
-                break;
-              case PEAK_FWHM:
-                line.append(peak.getFWHM() + fieldSeparator);
-                break;
-              case PEAK_TAILINGFACTOR:
-                line.append(peak.getTailingFactor() + fieldSeparator);
-                break;
-              case PEAK_ASYMMETRYFACTOR:
-                line.append(peak.getAsymmetryFactor() + fieldSeparator);
-                break;
-              case PEAK_MZMIN:
-                line.append(peak.getRawDataPointsMZRange().lowerEndpoint() + fieldSeparator);
-                break;
-              case PEAK_MZMAX:
-                line.append(peak.getRawDataPointsMZRange().upperEndpoint() + fieldSeparator);
-                break;
-            }
-          } else {
-            switch (dataFileElements[i]) {
-              case PEAK_STATUS:
-                line.append(FeatureStatus.UNKNOWN + fieldSeparator);
-                break;
-              default:
-                line.append("0" + fieldSeparator);
-                break;
-            }
+    // Data file elements
+    for (RawDataFile dataFile : rawDataFiles) {
+      for (int i = 0; i < dataFileElements.length; i++) {
+        Feature peak = row.getPeak(dataFile);
+        if (peak != null) {
+          switch (dataFileElements[i]) {
+            case PEAK_STATUS:
+              line.append(peak.getFeatureStatus()).append(fieldSeparator);
+              break;
+            case PEAK_NAME:
+              line.append(PeakUtils.peakToString(peak, mzFormat, rtFormat)).append(fieldSeparator);
+              break;
+            case PEAK_MZ:
+              line.append(peak.getMZ()).append(fieldSeparator);
+              break;
+            case PEAK_RT:
+              line.append(peak.getRT()).append(fieldSeparator);
+              break;
+            case PEAK_RT_START:
+              line.append(peak.getRawDataPointsRTRange().lowerEndpoint()).append(fieldSeparator);
+              break;
+            case PEAK_RT_END:
+              line.append(peak.getRawDataPointsRTRange().upperEndpoint()).append(fieldSeparator);
+              break;
+            case PEAK_DURATION:
+              line.append(
+                  RangeUtils.rangeLength(peak.getRawDataPointsRTRange()) + fieldSeparator);
+              break;
+            case PEAK_HEIGHT:
+              line.append(peak.getHeight()).append(fieldSeparator);
+              break;
+            case PEAK_AREA:
+              line.append(peak.getArea()).append(fieldSeparator);
+              break;
+            case PEAK_CHARGE:
+              line.append(peak.getCharge()).append(fieldSeparator);
+              break;
+            case PEAK_DATAPOINTS:
+              line.append(peak.getScanNumbers().length).append(fieldSeparator);
+              break;
+            case PEAK_FWHM:
+              line.append(peak.getFWHM()).append(fieldSeparator);
+              break;
+            case PEAK_TAILINGFACTOR:
+              line.append(peak.getTailingFactor()).append(fieldSeparator);
+              break;
+            case PEAK_ASYMMETRYFACTOR:
+              line.append(peak.getAsymmetryFactor()).append(fieldSeparator);
+              break;
+            case PEAK_MZMIN:
+              line.append(peak.getRawDataPointsMZRange().lowerEndpoint()).append(fieldSeparator);
+              break;
+            case PEAK_MZMAX:
+              line.append(peak.getRawDataPointsMZRange().upperEndpoint()).append(fieldSeparator);
+              break;
+          }
+        } else {
+          switch (dataFileElements[i]) {
+            case PEAK_STATUS:
+              line.append(FeatureStatus.UNKNOWN).append(fieldSeparator);
+              break;
+            default:
+              line.append("0").append(fieldSeparator);
+              break;
           }
         }
       }
-
-      line.append("\n");
-
-      try {
-        writer.write(line.toString());
-      } catch (Exception e) {
-        setStatus(TaskStatus.ERROR);
-        setErrorMessage("Could not write to file " + fileName);
-        return;
-      }
-
-      processedRows++;
     }
+
+    line.append("\n");
   }
 
   private String escapeStringForCSV(final String inputString) {
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.io.featurechartexport;
+
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.ComboParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
+import io.github.mzmine.parameters.parametertypes.selectors.PeakListsParameter;
+
+public class FeatureChartExportParameters extends SimpleParameterSet {
+
+  public enum ExportTarget {
+    MULTI_PAGE_PDF("Multi-page PDF file"), DIRECTORY("One file per row in a directory");
+
+    private final String name;
+
+    ExportTarget(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  public static final PeakListsParameter peakLists = new PeakListsParameter(1);
+
+  public static final ComboParameter<ExportTarget> target = new ComboParameter<>("Export to",
+      "Write all charts to one PDF file (one chart per page) or one file per chart",
+      ExportTarget.values(), ExportTarget.MULTI_PAGE_PDF);
+
+  public static final FileNameParameter path = new FileNameParameter("Filename",
+      "PDF file or directory. "
+          + "Use pattern \"{}\" in the name to substitute with feature list name. "
+          + "Existing files are overwritten.",
+      FileSelectionType.SAVE);
+
+  public static final ComboParameter<String> format = new ComboParameter<>("Format",
+      "The image format of the single files (not used for the multi-page PDF)",
+      new String[] {"PDF", "EMF", "EPS", "SVG", "JPG", "PNG"}, "PNG");
+
+  public static final IntegerParameter width =
+      new IntegerParameter("Width", "Chart width (pixels or points)", 800, 10, null);
+
+  public static final IntegerParameter height =
+      new IntegerParameter("Height", "Chart height (pixels or points)", 500, 10, null);
+
+  public FeatureChartExportParameters() {
+    super(new Parameter[] {peakLists, target, path, format, width, height});
+  }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.io.featurechartexport;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.annotation.Nonnull;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.Feature;
+import io.github.mzmine.datamodel.PeakList;
+import io.github.mzmine.datamodel.PeakListRow;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.gui.chartbasics.chartthemes.EStandardChartTheme;
+import io.github.mzmine.gui.chartbasics.graphicsexport.BatchChartExporter;
+import io.github.mzmine.gui.chartbasics.graphicsexport.BatchChartExporter.ChartSpec;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.io.featurechartexport.FeatureChartExportParameters.ExportTarget;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+
+/**
+ * Exports the chromatograms of all features of each row as one chart per row. The charts are
+ * created and written on several threads without any GUI component, see
+ * {@link BatchChartExporter}.
+ */
+public class FeatureChartExportTask extends AbstractTask {
+
+  private Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final PeakList[] peakLists;
+  private final String plNamePattern = "{}";
+  private final NumberFormat mzFormat = MZmineCore.getConfiguration().getMZFormat();
+  private final NumberFormat rtFormat = MZmineCore.getConfiguration().getRTFormat();
+
+  // parameter values
+  private final ExportTarget target;
+  private final File path;
+  private final String format;
+  private final int width, height;
+
+  private int totalRows = 0, previouslyExportedRows = 0;
+  private BatchChartExporter exporter;
+
+  public FeatureChartExportTask(ParameterSet parameters) {
+    this.peakLists = parameters.getParameter(FeatureChartExportParameters.peakLists).getValue()
+        .getMatchingPeakLists();
+    target = parameters.getParameter(FeatureChartExportParameters.target).getValue();
+    path = parameters.getParameter(FeatureChartExportParameters.path).getValue();
+    format = parameters.getParameter(FeatureChartExportParameters.format).getValue();
+    width = parameters.getParameter(FeatureChartExportParameters.width).getValue();
+    height = parameters.getParameter(FeatureChartExportParameters.height).getValue();
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    if (totalRows == 0) {
+      return 0;
+    }
+    final BatchChartExporter currentExporter = exporter;
+    final int exportedRows = previouslyExportedRows
+        + (currentExporter == null ? 0 : currentExporter.getExportedCharts());
+    return (double) exportedRows / (double) totalRows;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Exporting feature chromatograms of " + Arrays.toString(peakLists);
+  }
+
+  @Override
+  public void run() {
+
+    setStatus(TaskStatus.PROCESSING);
+
+    // Shall export several files?
+    boolean substitute = path.getPath().contains(plNamePattern);
+
+    for (PeakList peakList : peakLists) {
+      totalRows += peakList.getNumberOfRows();
+      if (!substitute)
+        break;
+    }
+
+    final EStandardChartTheme theme = MZmineCore.getConfiguration().getDefaultChartTheme();
+
+    for (PeakList peakList : peakLists) {
+
+      File curFile = path;
+      if (substitute) {
+        // Cleanup from illegal filename characters
+        String cleanPlName = peakList.getName().replaceAll("[^a-zA-Z0-9.-]", "_");
+        // Substitute
+        String newFilename = path.getPath().replaceAll(Pattern.quote(plNamePattern), cleanPlName);
+        curFile = new File(newFilename);
+      }
+
+      logger.info("Exporting feature chromatograms of " + peakList + " to " + curFile);
+
+      final List<ChartSpec> specs = new ArrayList<>();
+      for (PeakListRow row : peakList.getRows()) {
+        specs.add(new RowChartSpec(peakList, row));
+      }
+
+      exporter = new BatchChartExporter(theme, target == ExportTarget.MULTI_PAGE_PDF ? "PDF" : format,
+          width, height, 72);
+      try {
+        if (target == ExportTarget.MULTI_PAGE_PDF)
+          exporter.exportToPDF(specs, curFile, this::isCanceled);
+        else
+          exporter.exportToDirectory(specs, curFile, this::isCanceled);
+      } catch (IOException e) {
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("Could not export feature chromatograms to " + curFile + ": "
+            + e.getMessage());
+        return;
+      }
+      previouslyExportedRows += exporter.getExportedCharts();
+      exporter = null;
+
+      if (isCanceled())
+        return;
+
+      // If feature list substitution pattern wasn't found,
+      // treat one feature list only
+      if (!substitute)
+        break;
+    }
+
+    if (getStatus() == TaskStatus.PROCESSING)
+      setStatus(TaskStatus.FINISHED);
+  }
+
+  /**
+   * Chromatograms of all features of a row, one series per raw data file. The charts are created
+   * by parallel workers, so the name and title are formatted when the spec is created (the shared
+   * number formats are not thread safe).
+   */
+  private class RowChartSpec implements ChartSpec {
+
+    private final PeakListRow row;
+    private final String name, title;
+
+    private RowChartSpec(PeakList peakList, PeakListRow row) {
+      this.row = row;
+      final String mz = mzFormat.format(row.getAverageMZ());
+      final String rt = rtFormat.format(row.getAverageRT());
+      name = peakList.getName() + "_" + row.getID() + "_" + mz + "_" + rt;
+      title = "#" + row.getID() + " m/z " + mz + " @ " + rt + " min";
+    }
+
+    @Override
+    public @Nonnull String getName() {
+      return name;
+    }
+
+    @Override
+    public @Nonnull JFreeChart createChart(@Nonnull EStandardChartTheme theme) {
+      final XYSeriesCollection dataset = new XYSeriesCollection();
+      for (Feature feature : row.getPeaks()) {
+        final RawDataFile dataFile = feature.getDataFile();
+        String key = dataFile.getName();
+        if (dataset.getSeriesIndex(key) >= 0)
+          key = key + " (" + dataset.getSeriesCount() + ")";
+
+        final XYSeries series = new XYSeries(key, false, true);
+        for (int scanNumber : feature.getScanNumbers()) {
+          final DataPoint dataPoint = feature.getDataPoint(scanNumber);
+          series.add(dataFile.getScan(scanNumber).getRetentionTime(),
+              dataPoint == null ? 0.0 : dataPoint.getIntensity(), false);
+        }
+        dataset.addSeries(series);
+      }
+
+      final JFreeChart chart = ChartFactory.createXYLineChart(title, "Retention time (min)",
+          "Intensity", dataset, PlotOrientation.VERTICAL, true, false, false);
+      theme.apply(chart);
+      return chart;
+    }
+  }
+
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+package io.github.mzmine.modules.io.featuretableexport;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.DictionaryProvider.MapDictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import io.github.mzmine.datamodel.Feature;
+import io.github.mzmine.datamodel.PeakIdentity;
+import io.github.mzmine.datamodel.PeakList;
+import io.github.mzmine.datamodel.PeakListRow;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+
+/**
+ * Writes feature lists as Apache Arrow IPC files in the {@link FeatureTableFormat}
+ */
+public class FeatureTableExportTask extends AbstractTask {
+
+  // The rows are written in record batches, each holding about this many bytes of values
+  private static final long BATCH_BYTES = 32L << 20;
+
+  private Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final PeakList[] peakLists;
+  private final String plNamePattern = "{}";
+  private int processedRows = 0, totalRows = 0;
+
+  // parameter values
+  private final File fileName;
+
+  public FeatureTableExportTask(ParameterSet parameters) {
+    this.peakLists = parameters.getParameter(FeatureTableExportParameters.peakLists).getValue()
+        .getMatchingPeakLists();
+    fileName = parameters.getParameter(FeatureTableExportParameters.filename).getValue();
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    if (totalRows == 0) {
+      return 0;
+    }
+    return (double) processedRows / (double) totalRows;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Exporting feature list(s) " + Arrays.toString(peakLists) + " to feature table file(s)";
+  }
+
+  @Override
+  public void run() {
+
+    setStatus(TaskStatus.PROCESSING);
+
+    // Shall export several files?
+    boolean substitute = fileName.getPath().contains(plNamePattern);
+
+    // Total number of rows, each row is written and read back once
+    for (PeakList peakList : peakLists) {
+      totalRows += 2 * peakList.getNumberOfRows();
+      if (!substitute)
+        break;
+    }
+
+    // Process feature lists
+    for (PeakList peakList : peakLists) {
+
+      // Filename
+      File curFile = fileName;
+      if (substitute) {
+        // Cleanup from illegal filename characters
+        String cleanPlName = peakList.getName().replaceAll("[^a-zA-Z0-9.-]", "_");
+        // Substitute
+        String newFilename =
+            fileName.getPath().replaceAll(Pattern.quote(plNamePattern), cleanPlName);
+        curFile = new File(newFilename);
+      }
+
+      logger.info("Exporting feature list " + peakList + " to " + curFile);
+
+      // The rows are written to a partial file, which replaces the target only after it was
+      // completed and read back, so a canceled or failed export leaves no unreadable file behind
+      final File partFile =
+          new File(curFile.getAbsoluteFile().getParentFile(), curFile.getName() + ".part");
+
+      try {
+        exportPeakList(peakList, partFile);
+      } catch (IOException e) {
+        partFile.delete();
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("Could not write file " + curFile + ": " + e.getMessage());
+        return;
+      }
+
+      // Cancel?
+      if (isCanceled()) {
+        partFile.delete();
+        return;
+      }
+
+      try {
+        checkFile(peakList, partFile);
+      } catch (IOException e) {
+        partFile.delete();
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("Written file " + curFile + " could not be read back: " + e.getMessage());
+        return;
+      }
+
+      // Cancel?
+      if (isCanceled()) {
+        partFile.delete();
+        return;
+      }
+
+      try {
+        Files.move(partFile.toPath(), curFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+        partFile.delete();
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("Could not write file " + curFile + ": " + e.getMessage());
+        return;
+      }
+
+      // If feature list substitution pattern wasn't found,
+      // treat one feature list only
+      if (!substitute)
+        break;
+    }
+
+    if (getStatus() == TaskStatus.PROCESSING)
+      setStatus(TaskStatus.FINISHED);
+  }
+
+  private static Schema createSchema(PeakList peakList) {
+    final String dataFileNames[] =
+        peakList.getRawDataFiles().stream().map(RawDataFile::getName).toArray(String[]::new);
+    return FeatureTableFormat.createSchema(peakList.getName(), dataFileNames);
+  }
+
+  /**
+   * @return the values of the columns by column name, in the order of the schema
+   */
+  private static Map<String, ColumnValue> createColumns(RawDataFile dataFiles[]) {
+
+    final Map<String, ColumnValue> columns = new LinkedHashMap<>();
+    columns.put(FeatureTableFormat.ROW_ID,
+        (vector, index, row) -> ((IntVector) vector).setSafe(index, row.getID()));
+    columns.put(FeatureTableFormat.ROW_MZ, doubleValue(PeakListRow::getAverageMZ));
+    columns.put(FeatureTableFormat.ROW_RT, doubleValue(PeakListRow::getAverageRT));
+    columns.put(FeatureTableFormat.ROW_COMMENT, stringValue(PeakListRow::getComment));
+    columns.put(FeatureTableFormat.IDENTITY_NAME, identityValue(PeakIdentity.PROPERTY_NAME));
+    columns.put(FeatureTableFormat.IDENTITY_FORMULA, identityValue(PeakIdentity.PROPERTY_FORMULA));
+    columns.put(FeatureTableFormat.IDENTITY_METHOD, identityValue(PeakIdentity.PROPERTY_METHOD));
+    columns.put(FeatureTableFormat.IDENTITY_ID, identityValue(PeakIdentity.PROPERTY_ID));
+    columns.put(FeatureTableFormat.IDENTITY_URL, identityValue(PeakIdentity.PROPERTY_URL));
+    for (int f = 0; f < dataFiles.length; f++) {
+      final RawDataFile dataFile = dataFiles[f];
+      columns.put(FeatureTableFormat.getDataFileColumn(f, FeatureTableFormat.FEATURE_STATUS),
+          (vector, index, row) -> {
+            Feature peak = row.getPeak(dataFile);
+            if (peak == null)
+              ((TinyIntVector) vector).setNull(index);
+            else
+              ((TinyIntVector) vector).setSafe(index, peak.getFeatureStatus().ordinal());
+          });
+      columns.put(FeatureTableFormat.getDataFileColumn(f, FeatureTableFormat.FEATURE_MZ),
+          featureValue(dataFile, Feature::getMZ));
+      columns.put(FeatureTableFormat.getDataFileColumn(f, FeatureTableFormat.FEATURE_RT),
+          featureValue(dataFile, Feature::getRT));
+      columns.put(FeatureTableFormat.getDataFileColumn(f, FeatureTableFormat.FEATURE_HEIGHT),
+          featureValue(dataFile, Feature::getHeight));
+      columns.put(FeatureTableFormat.getDataFileColumn(f, FeatureTableFormat.FEATURE_AREA),
+          featureValue(dataFile, Feature::getArea));
+    }
+    return columns;
+  }
+
+  /**
+   * Fills the vectors of the root with the values of the rows from first (inclusive) to end
+   * (exclusive)
+   */
+  private static void fillBatch(VectorSchemaRoot root, Map<String, ColumnValue> columns,
+      PeakListRow rows[], int first, int end) {
+    root.allocateNew();
+    // The columns are independent, fill them in parallel
+    columns.entrySet().parallelStream().forEach(column -> {
+      final FieldVector vector = root.getVector(column.getKey());
+      for (int r = first; r < end; r++)
+        column.getValue().set(vector, r - first, rows[r]);
+    });
+    root.setRowCount(end - first);
+  }
+
+  private void exportPeakList(PeakList peakList, File file) throws IOException {
+
+    final RawDataFile[] dataFiles = peakList.getRawDataFiles().toArray(RawDataFile[]::new);
+    final PeakListRow[] rows = peakList.getRows().toArray(PeakListRow[]::new);
+    final Schema schema = createSchema(peakList);
+    final Map<String, ColumnValue> columns = createColumns(dataFiles);
+
+    final int batchRows = (int) Math.max(1, BATCH_BYTES / (Double.BYTES * columns.size()));
+
+    try (BufferAllocator allocator = new RootAllocator();
+        VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator);
+        FileOutputStream out = new FileOutputStream(file);
+        ArrowFileWriter writer =
+            new ArrowFileWriter(root, new MapDictionaryProvider(), out.getChannel())) {
+
+      writer.start();
+      for (int start = 0; start < rows.length; start += batchRows) {
+
+        // Cancel? The caller deletes the incomplete file
+        if (isCanceled()) {
+          return;
+        }
+
+        final int end = Math.min(rows.length, start + batchRows);
+        fillBatch(root, columns, rows, start, end);
+        writer.writeBatch();
+
+        processedRows += end - start;
+      }
+      writer.end();
+    }
+  }
+
+  /**
+   * Reads the written file back with the Arrow reader and compares the schema and every value
+   * with the feature list, so a file that cannot be imported again is reported right away.
+   */
+  private void checkFile(PeakList peakList, File file) throws IOException {
+
+    final RawDataFile[] dataFiles = peakList.getRawDataFiles().toArray(RawDataFile[]::new);
+    final PeakListRow[] rows = peakList.getRows().toArray(PeakListRow[]::new);
+    final Schema schema = createSchema(peakList);
+    final Map<String, ColumnValue> columns = createColumns(dataFiles);
+
+    try (BufferAllocator allocator = new RootAllocator();
+        VectorSchemaRoot expected = VectorSchemaRoot.create(schema, allocator);
+        FileInputStream in = new FileInputStream(file);
+        ArrowFileReader reader = new ArrowFileReader(in.getChannel(), allocator)) {
+
+      final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+      final Schema readSchema = root.getSchema();
+      if (!schema.getCustomMetadata().equals(readSchema.getCustomMetadata()))
+        throw new IOException("Metadata differs");
+      if (schema.getFields().size() != readSchema.getFields().size())
+        throw new IOException("Number of columns differs");
+      for (int c = 0; c < schema.getFields().size(); c++) {
+        Field field = schema.getFields().get(c), readField = readSchema.getFields().get(c);
+        if (!field.getName().equals(readField.getName())
+            || !field.getType().equals(readField.getType()))
+          throw new IOException("Column " + field.getName() + " differs");
+      }
+
+      int r = 0;
+      while (reader.loadNextBatch()) {
+
+        // Cancel?
+        if (isCanceled()) {
+          return;
+        }
+
+        final int numRows = root.getRowCount();
+        if (r + numRows > rows.length)
+          throw new IOException("More than " + rows.length + " rows were read");
+
+        // Compare the values column by column with the values that were written
+        fillBatch(expected, columns, rows, r, r + numRows);
+        for (String column : columns.keySet()) {
+          final FieldVector vector = root.getVector(column);
+          final FieldVector expectedVector = expected.getVector(column);
+          for (int i = 0; i < numRows; i++) {
+            if (!Objects.equals(expectedVector.getObject(i), vector.getObject(i)))
+              throw new IOException("Column " + column + " of row " + (r + i + 1) + " differs");
+          }
+        }
+
+        r += numRows;
+        processedRows += numRows;
+      }
+      if (r != rows.length)
+        throw new IOException(r + " of " + rows.length + " rows were read");
+    }
+  }
+
+  private static ColumnValue doubleValue(ToDoubleFunction<PeakListRow> value) {
+    return (vector, index, row) -> ((Float8Vector) vector).setSafe(index,
+        value.applyAsDouble(row));
+  }
+
+  private static ColumnValue stringValue(Function<PeakListRow, String> value) {
+    return (vector, index, row) -> {
+      String string = value.apply(row);
+      if (string == null)
+        ((VarCharVector) vector).setNull(index);
+      else
+        ((VarCharVector) vector).setSafe(index, string.getBytes(StandardCharsets.UTF_8));
+    };
+  }
+
+  private static ColumnValue identityValue(String property) {
+    return stringValue(row -> {
+      PeakIdentity identity = row.getPreferredPeakIdentity();
+      return identity == null ? null : identity.getPropertyValue(property);
+    });
+  }
+
+  private static ColumnValue featureValue(RawDataFile dataFile, ToDoubleFunction<Feature> value) {
+    return (vector, index, row) -> {
+      Feature peak = row.getPeak(dataFile);
+      if (peak == null)
+        ((Float8Vector) vector).setNull(index);
+      else
+        ((Float8Vector) vector).setSafe(index, value.applyAsDouble(peak));
+    };
+  }
+
+  @FunctionalInterface
+  private interface ColumnValue {
+    void set(FieldVector vector, int index, PeakListRow row);
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+package io.github.mzmine.modules.io.featuretableexport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import io.github.mzmine.datamodel.FeatureStatus;
+
+/**
+ * Layout of aligned feature tables in Apache Arrow IPC files (the random access file format), so
+ * the tables can be read by any Arrow reader, e.g. pyarrow.ipc.open_file() in Python or
+ * arrow::read_ipc_file() in R. The table has one record per feature list row:
+ *
+ * <pre>
+ * row ID, row m/z, row retention time     int32, float64, float64
+ * row comment, identity name, formula,    utf8 (null if not set)
+ * method, ID and URL
+ * per data file i:
+ *   data file i status                    int8, ordinal of the feature status
+ *   data file i m/z, retention time,      float64
+ *   height and area
+ * </pre>
+ *
+ * The values of missing features are null. The schema metadata contains the feature list name,
+ * the number of data files and the name of each data file, the data file columns also carry the
+ * name of their data file in the field metadata.
+ */
+public class FeatureTableFormat {
+
+  public static final String FILE_EXTENSION = "arrow";
+
+  // schema metadata
+  public static final String FEATURE_LIST_NAME = "feature list name";
+  public static final String DATA_FILE_COUNT = "data file count";
+
+  // field metadata of the data file columns
+  public static final String DATA_FILE_NAME = "data file name";
+  public static final String STATUS_VALUES = "status values";
+
+  // row columns
+  public static final String ROW_ID = "row ID";
+  public static final String ROW_MZ = "row m/z";
+  public static final String ROW_RT = "row retention time";
+  public static final String ROW_COMMENT = "row comment";
+  public static final String IDENTITY_NAME = "identity name";
+  public static final String IDENTITY_FORMULA = "identity formula";
+  public static final String IDENTITY_METHOD = "identity method";
+  public static final String IDENTITY_ID = "identity ID";
+  public static final String IDENTITY_URL = "identity URL";
+
+  // data file columns, see getDataFileColumn
+  public static final String FEATURE_STATUS = "status";
+  public static final String FEATURE_MZ = "m/z";
+  public static final String FEATURE_RT = "retention time";
+  public static final String FEATURE_HEIGHT = "height";
+  public static final String FEATURE_AREA = "area";
+
+  private static final ArrowType INT = new ArrowType.Int(32, true);
+  private static final ArrowType BYTE = new ArrowType.Int(8, true);
+  private static final ArrowType DOUBLE =
+      new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+  private static final ArrowType STRING = ArrowType.Utf8.INSTANCE;
+
+  /**
+   * @param dataFileIndex index of the data file in the schema metadata
+   * @return key of the data file name in the schema metadata
+   */
+  public static String getDataFileKey(int dataFileIndex) {
+    return "data file " + dataFileIndex;
+  }
+
+  /**
+   * @param dataFileIndex index of the data file in the schema metadata
+   * @param value one of the FEATURE_ values
+   * @return name of the column of a data file
+   */
+  public static String getDataFileColumn(int dataFileIndex, String value) {
+    return getDataFileKey(dataFileIndex) + " " + value;
+  }
+
+  /**
+   * @return the schema of a feature table with the given data files
+   */
+  public static Schema createSchema(String peakListName, String dataFileNames[]) {
+
+    final List<Field> fields = new ArrayList<>();
+    fields.add(createField(ROW_ID, INT, false, null));
+    fields.add(createField(ROW_MZ, DOUBLE, false, null));
+    fields.add(createField(ROW_RT, DOUBLE, false, null));
+    for (String name : new String[] {ROW_COMMENT, IDENTITY_NAME, IDENTITY_FORMULA,
+        IDENTITY_METHOD, IDENTITY_ID, IDENTITY_URL})
+      fields.add(createField(name, STRING, true, null));
+
+    final String statusValues = Arrays.stream(FeatureStatus.values()).map(FeatureStatus::name)
+        .collect(Collectors.joining(","));
+    final Map<String, String> metadata = new HashMap<>();
+    metadata.put(FEATURE_LIST_NAME, peakListName);
+    metadata.put(DATA_FILE_COUNT, String.valueOf(dataFileNames.length));
+
+    for (int f = 0; f < dataFileNames.length; f++) {
+      metadata.put(getDataFileKey(f), dataFileNames[f]);
+
+      final Map<String, String> dataFile = Map.of(DATA_FILE_NAME, dataFileNames[f]);
+      fields.add(createField(getDataFileColumn(f, FEATURE_STATUS), BYTE, true,
+          Map.of(DATA_FILE_NAME, dataFileNames[f], STATUS_VALUES, statusValues)));
+      for (String value : new String[] {FEATURE_MZ, FEATURE_RT, FEATURE_HEIGHT, FEATURE_AREA})
+        fields.add(createField(getDataFileColumn(f, value), DOUBLE, true, dataFile));
+    }
+
+    return new Schema(fields, metadata);
+  }
+
+  private static Field createField(String name, ArrowType type, boolean nullable,
+      Map<String, String> metadata) {
+    return new Field(name, new FieldType(nullable, type, null, metadata), null);
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.io.featuretableimport;
+
+import java.io.File;
+import java.util.Collection;
+import javax.annotation.Nonnull;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.modules.MZmineModuleCategory;
+import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.util.ExitCode;
+
+public class FeatureTableImportModule implements MZmineProcessingModule {
+
+  private static final String MODULE_NAME = "Import Apache Arrow feature table";
+  private static final String MODULE_DESCRIPTION =
+      "This method imports a feature list from an Apache Arrow feature table file.";
+
+  @Override
+  public @Nonnull String getName() {
+    return MODULE_NAME;
+  }
+
+  @Override
+  public @Nonnull String getDescription() {
+    return MODULE_DESCRIPTION;
+  }
+
+  @Override
+  public @Nonnull MZmineModuleCategory getModuleCategory() {
+    return MZmineModuleCategory.PEAKLISTIMPORT;
+  }
+
+  @Override
+  public @Nonnull Class<? extends ParameterSet> getParameterSetClass() {
+    return FeatureTableImportParameters.class;
+  }
+
+  @Override
+  public @Nonnull ExitCode runModule(@Nonnull MZmineProject project,
+      @Nonnull ParameterSet parameters, @Nonnull Collection<Task> tasks) {
+    File inputFiles[] = parameters.getParameter(FeatureTableImportParameters.file).getValue();
+    for (File inputFile : inputFiles) {
+      FeatureTableImportTask task = new FeatureTableImportTask(project, inputFile);
+      tasks.add(task);
+    }
+    return ExitCode.OK;
+  }
+
+}
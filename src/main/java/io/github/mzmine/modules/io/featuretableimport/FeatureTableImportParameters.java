@@ -0,0 +1,39 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.io.featuretableimport;
+
+import java.util.List;
+import io.github.mzmine.modules.io.featuretableexport.FeatureTableFormat;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNamesParameter;
+import javafx.stage.FileChooser.ExtensionFilter;
+
+public class FeatureTableImportParameters extends SimpleParameterSet {
+
+  private static final List<ExtensionFilter> filters = List.of(new ExtensionFilter(
+      "Apache Arrow feature table files", "*." + FeatureTableFormat.FILE_EXTENSION));
+
+  public static final FileNamesParameter file =
+      new FileNamesParameter("Feature table files", "Feature table files to import.", filters);
+
+  public FeatureTableImportParameters() {
+    super(new Parameter[] {file});
+  }
+}
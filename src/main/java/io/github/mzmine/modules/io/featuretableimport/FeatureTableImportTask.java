@@ -0,0 +1,238 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.io.featuretableimport;
+
+import static io.github.mzmine.modules.io.featuretableexport.FeatureTableFormat.getDataFileColumn;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.Feature;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.PeakList;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.RawDataFileWriter;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.impl.SimpleFeature;
+import io.github.mzmine.datamodel.impl.SimplePeakIdentity;
+import io.github.mzmine.datamodel.impl.SimplePeakList;
+import io.github.mzmine.datamodel.impl.SimplePeakListRow;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.io.featuretableexport.FeatureTableFormat;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+
+/**
+ * Reads a feature list from an Apache Arrow IPC file in the {@link FeatureTableFormat}. Only the
+ * values stored in the table are restored, the features have no data points or scans. Raw data
+ * files are matched by name, if a file is not in the project an empty one is created.
+ */
+class FeatureTableImportTask extends AbstractTask {
+
+  private final MZmineProject project;
+  private final File inputFile;
+  private double finishedPercentage = 0.0;
+
+  FeatureTableImportTask(MZmineProject project, File inputFile) {
+    this.project = project;
+    this.inputFile = inputFile;
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return finishedPercentage;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Loading feature list from feature table file " + inputFile;
+  }
+
+  @Override
+  public void run() {
+
+    setStatus(TaskStatus.PROCESSING);
+
+    try (BufferAllocator allocator = new RootAllocator();
+        FileInputStream in = new FileInputStream(inputFile);
+        ArrowFileReader reader = new ArrowFileReader(in.getChannel(), allocator)) {
+
+      final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+      final Map<String, String> metadata = root.getSchema().getCustomMetadata();
+      final String peakListName = metadata.get(FeatureTableFormat.FEATURE_LIST_NAME);
+      final String dataFileCount = metadata.get(FeatureTableFormat.DATA_FILE_COUNT);
+      if (peakListName == null || dataFileCount == null) {
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage(inputFile + " is not a feature table file");
+        return;
+      }
+
+      final RawDataFile dataFiles[] = new RawDataFile[Integer.parseInt(dataFileCount)];
+      for (int f = 0; f < dataFiles.length; f++) {
+        final String name = metadata.get(FeatureTableFormat.getDataFileKey(f));
+        if (name == null)
+          throw new IOException("Missing name of data file " + f);
+        dataFiles[f] = getRawDataFile(name);
+      }
+
+      // Rows are added batch by batch
+      final PeakList newPeakList = new SimplePeakList(peakListName, dataFiles);
+      final int numBatches = reader.getRecordBlocks().size();
+      int batch = 0;
+      while (reader.loadNextBatch()) {
+
+        // Stop the process if cancel() was called
+        if (isCanceled())
+          return;
+
+        importRows(newPeakList, root, dataFiles);
+        finishedPercentage = (double) ++batch / numBatches;
+      }
+
+      // Add the new feature list to the project
+      project.addPeakList(newPeakList);
+
+      // Finish
+      setStatus(TaskStatus.FINISHED);
+      finishedPercentage = 1.0;
+
+    } catch (Exception e) {
+      setStatus(TaskStatus.ERROR);
+      setErrorMessage("Could not import data from " + inputFile + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Adds the rows of the loaded record batch
+   */
+  private void importRows(PeakList newPeakList, VectorSchemaRoot root, RawDataFile dataFiles[])
+      throws IOException {
+
+    final int numRows = root.getRowCount();
+    final IntVector ids = getVector(root, FeatureTableFormat.ROW_ID, IntVector.class);
+    final Float8Vector mzs = getVector(root, FeatureTableFormat.ROW_MZ, Float8Vector.class);
+    final Float8Vector rts = getVector(root, FeatureTableFormat.ROW_RT, Float8Vector.class);
+    final VarCharVector comments =
+        getVector(root, FeatureTableFormat.ROW_COMMENT, VarCharVector.class);
+    final VarCharVector names =
+        getVector(root, FeatureTableFormat.IDENTITY_NAME, VarCharVector.class);
+    final VarCharVector formulas =
+        getVector(root, FeatureTableFormat.IDENTITY_FORMULA, VarCharVector.class);
+    final VarCharVector methods =
+        getVector(root, FeatureTableFormat.IDENTITY_METHOD, VarCharVector.class);
+    final VarCharVector identityIds =
+        getVector(root, FeatureTableFormat.IDENTITY_ID, VarCharVector.class);
+    final VarCharVector urls =
+        getVector(root, FeatureTableFormat.IDENTITY_URL, VarCharVector.class);
+
+    final SimplePeakListRow rows[] = new SimplePeakListRow[numRows];
+    for (int r = 0; r < numRows; r++) {
+      rows[r] = new SimplePeakListRow(ids.get(r));
+      rows[r].setComment(getString(comments, r));
+      if (!names.isNull(r)) {
+        rows[r].addPeakIdentity(new SimplePeakIdentity(getString(names, r),
+            getString(formulas, r), getString(methods, r), getString(identityIds, r),
+            getString(urls, r)), false);
+      }
+    }
+
+    final FeatureStatus statusValues[] = FeatureStatus.values();
+    for (int f = 0; f < dataFiles.length; f++) {
+
+      // Stop the process if cancel() was called
+      if (isCanceled())
+        return;
+
+      final RawDataFile dataFile = dataFiles[f];
+      final TinyIntVector status = getVector(root,
+          getDataFileColumn(f, FeatureTableFormat.FEATURE_STATUS), TinyIntVector.class);
+      final Float8Vector featureMzs = getVector(root,
+          getDataFileColumn(f, FeatureTableFormat.FEATURE_MZ), Float8Vector.class);
+      final Float8Vector featureRts = getVector(root,
+          getDataFileColumn(f, FeatureTableFormat.FEATURE_RT), Float8Vector.class);
+      final Float8Vector heights = getVector(root,
+          getDataFileColumn(f, FeatureTableFormat.FEATURE_HEIGHT), Float8Vector.class);
+      final Float8Vector areas = getVector(root,
+          getDataFileColumn(f, FeatureTableFormat.FEATURE_AREA), Float8Vector.class);
+
+      for (int r = 0; r < numRows; r++) {
+        if (status.isNull(r))
+          continue;
+
+        final int statusIndex = status.get(r);
+        if (statusIndex < 0 || statusIndex >= statusValues.length)
+          throw new IOException("Unknown feature status " + statusIndex);
+
+        final double mz = featureMzs.get(r), rt = featureRts.get(r), height = heights.get(r);
+        DataPoint finalDataPoint[] = new DataPoint[] {new SimpleDataPoint(mz, height)};
+        Feature peak = new SimpleFeature(dataFile, mz, rt, height, areas.get(r), new int[0],
+            finalDataPoint, statusValues[statusIndex], 0, 0, new int[] {0}, Range.singleton(rt),
+            Range.singleton(mz), Range.singleton(height));
+        rows[r].addPeak(dataFile, peak);
+      }
+    }
+
+    for (int r = 0; r < numRows; r++) {
+      // Keep the stored row values instead of the averages of the restored features
+      rows[r].setAverageMZ(mzs.get(r));
+      rows[r].setAverageRT(rts.get(r));
+      newPeakList.addRow(rows[r]);
+    }
+  }
+
+  private static <T extends FieldVector> T getVector(VectorSchemaRoot root, String name,
+      Class<T> type) throws IOException {
+    FieldVector vector = root.getVector(name);
+    if (!type.isInstance(vector))
+      throw new IOException("Missing column " + name);
+    return type.cast(vector);
+  }
+
+  private static String getString(VarCharVector vector, int index) {
+    return vector.isNull(index) ? null : new String(vector.get(index), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the raw data file of that name in the project or a new empty one
+   */
+  private RawDataFile getRawDataFile(String name) throws IOException {
+    for (RawDataFile f : project.getDataFiles()) {
+      if (f.getName().equals(name))
+        return f;
+    }
+    RawDataFileWriter writer = MZmineCore.createNewFile(name);
+    RawDataFile rawDataFile = writer.finishWriting();
+    project.addFile(rawDataFile);
+    return rawDataFile;
+  }
+
+}
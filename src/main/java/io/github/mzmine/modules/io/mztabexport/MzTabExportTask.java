@@ -23,6 +23,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.MZmineProject;
@@ -43,13 +45,17 @@ import uk.ac.ebi.pride.jmztab.model.MZTabDescription;
 import uk.ac.ebi.pride.jmztab.model.Metadata;
 import uk.ac.ebi.pride.jmztab.model.MsRun;
 import uk.ac.ebi.pride.jmztab.model.Section;
-import uk.ac.ebi.pride.jmztab.model.SmallMolecule;
 import uk.ac.ebi.pride.jmztab.model.SmallMoleculeColumn;
 import uk.ac.ebi.pride.jmztab.model.StudyVariable;
 
 class MzTabExportTask extends AbstractTask {
 
-  private int processedRows = 0, totalRows = 0;
+  private static final int WRITE_BUFFER_SIZE = 1 << 20;
+  private static final String SML_PREFIX = "SML";
+  private static final String NULL_VALUE = "null";
+
+  private volatile int processedRows = 0;
+  private int totalRows = 0;
   String newLine = System.lineSeparator();
 
   // parameter values
@@ -189,89 +195,77 @@ class MzTabExportTask extends AbstractTask {
         }
 
         // Write to file
-        BufferedWriter out = new BufferedWriter(writer);
-        out.write(mtd.toString());
-        out.write(newLine);
-        out.write(factory.toString());
-        out.write(newLine);
-
-        // Write data rows
-        for (PeakListRow peakListRow : peakList.getRows()) {
-
-          // Cancel?
-          if (isCanceled()) {
-            return;
-          }
+        try (BufferedWriter out = new BufferedWriter(writer, WRITE_BUFFER_SIZE)) {
+          out.write(mtd.toString());
+          out.write(newLine);
+          final String header = factory.toString();
+          out.write(header);
+          out.write(newLine);
+
+          // Resolve the column positions once, the rows are written directly without creating a
+          // SmallMolecule per row (the jmzTab lookup by column header is linear in the number of
+          // columns, which is quadratic per row for many assays)
+          final SmallMoleculeColumns columns =
+              new SmallMoleculeColumns(header.trim().split("\t"), rawDataFiles.length);
+          final String cells[] = new String[columns.size];
+          final StringBuilder line = new StringBuilder();
+
+          // Write data rows
+          for (PeakListRow peakListRow : peakList.getRows()) {
+
+            // Cancel?
+            if (isCanceled()) {
+              return;
+            }
+
+            processedRows++;
+
+            PeakIdentity peakIdentity = peakListRow.getPreferredPeakIdentity();
+            if (!exportall && peakIdentity == null)
+              continue;
+
+            Arrays.fill(cells, NULL_VALUE);
+            cells[0] = SML_PREFIX;
 
-          PeakIdentity peakIdentity = peakListRow.getPreferredPeakIdentity();
-          if (exportall || peakIdentity != null) {
-            SmallMolecule sm = new SmallMolecule(factory, mtd);
             if (peakIdentity != null) {
               // Identity information
-              String identifier = escapeString(peakIdentity.getPropertyValue("ID"));
-              String database = peakIdentity.getPropertyValue("Identification method");
-              String formula = peakIdentity.getPropertyValue("Molecular formula");
-              String description = escapeString(peakIdentity.getPropertyValue("Name"));
-              String url = peakIdentity.getPropertyValue("URL");
-
-              if (identifier != null) {
-                sm.setIdentifier(identifier);
-              }
-              if (database != null) {
-                sm.setDatabase(database);
-              }
-              if (formula != null) {
-                sm.setChemicalFormula(formula);
-              }
-              if (description != null) {
-                sm.setDescription(description);
-              }
-              if (url != null) {
-                sm.setURI(url);
-              }
+              columns.set(cells, columns.identifier, peakIdentity.getPropertyValue("ID"));
+              columns.set(cells, columns.database,
+                  peakIdentity.getPropertyValue("Identification method"));
+              columns.set(cells, columns.formula,
+                  peakIdentity.getPropertyValue("Molecular formula"));
+              columns.set(cells, columns.description, peakIdentity.getPropertyValue("Name"));
+              columns.set(cells, columns.uri, peakIdentity.getPropertyValue("URL"));
             }
 
-            Double rowMZ = peakListRow.getAverageMZ();
+            columns.set(cells, columns.mz, String.valueOf(peakListRow.getAverageMZ()));
             int rowCharge = peakListRow.getRowCharge();
-            String rowRT = String.valueOf(peakListRow.getAverageRT());
-
-            if (rowMZ != null) {
-              sm.setExpMassToCharge(rowMZ);
-            }
             if (rowCharge > 0) {
-              sm.setCharge(rowCharge);
-            }
-            if (rowRT != null) {
-              sm.setRetentionTime(rowRT);
+              columns.set(cells, columns.charge, String.valueOf(rowCharge));
             }
+            columns.set(cells, columns.rt, String.valueOf(peakListRow.getAverageRT()));
 
-            int dataFileCount = 0;
-            for (RawDataFile dataFile : rawDataFiles) {
-              dataFileCount++;
-              Feature peak = peakListRow.getPeak(dataFile);
+            for (int i = 0; i < rawDataFiles.length; i++) {
+              Feature peak = peakListRow.getPeak(rawDataFiles[i]);
               if (peak != null) {
-                String peakMZ = String.valueOf(peak.getMZ());
-                String peakRT = String.valueOf(String.valueOf(peak.getRT()));
-                String peakHeight = String.valueOf(peak.getHeight());
-                Double peakArea = peak.getArea();
-
-                sm.setOptionColumnValue(new Assay(dataFileCount), "peak_mz", peakMZ);
-                sm.setOptionColumnValue(new Assay(dataFileCount), "peak_rt", peakRT);
-                sm.setOptionColumnValue(new Assay(dataFileCount), "peak_height", peakHeight);
-                sm.setAbundanceColumnValue(new Assay(dataFileCount), peakArea);
+                columns.set(cells, columns.peakMZ[i], String.valueOf(peak.getMZ()));
+                columns.set(cells, columns.peakRT[i], String.valueOf(peak.getRT()));
+                columns.set(cells, columns.peakHeight[i], String.valueOf(peak.getHeight()));
+                columns.set(cells, columns.abundance[i], String.valueOf(peak.getArea()));
               }
             }
 
-            out.write(sm.toString());
-            out.write(newLine);
+            line.setLength(0);
+            for (int c = 0; c < cells.length; c++) {
+              if (c > 0)
+                line.append('\t');
+              line.append(cells[c]);
+            }
+            line.append(newLine);
+            out.append(line);
           }
-
         }
 
-        out.flush();
-        out.close();
-        writer.close();
-
       } catch (Exception e) {
         e.printStackTrace();
         setStatus(TaskStatus.ERROR);
@@ -285,7 +279,49 @@ class MzTabExportTask extends AbstractTask {
 
   }
 
-  private String escapeString(final String inputString) {
+  /**
+   * Positions of the exported columns in the SMH header line, -1 for columns which are not present
+   */
+  private static class SmallMoleculeColumns {
+
+    private final int size;
+    private final int identifier, formula, description, database, uri, mz, charge, rt;
+    private final int abundance[], peakMZ[], peakRT[], peakHeight[];
+
+    private SmallMoleculeColumns(String header[], int numberOfAssays) {
+      final Map<String, Integer> positions = new HashMap<>();
+      for (int i = 0; i < header.length; i++)
+        positions.put(header[i], i);
+      size = header.length;
+      identifier = positions.getOrDefault("identifier", -1);
+      formula = positions.getOrDefault("chemical_formula", -1);
+      description = positions.getOrDefault("description", -1);
+      database = positions.getOrDefault("database", -1);
+      uri = positions.getOrDefault("uri", -1);
+      mz = positions.getOrDefault("exp_mass_to_charge", -1);
+      charge = positions.getOrDefault("charge", -1);
+      rt = positions.getOrDefault("retention_time", -1);
+      abundance = new int[numberOfAssays];
+      peakMZ = new int[numberOfAssays];
+      peakRT = new int[numberOfAssays];
+      peakHeight = new int[numberOfAssays];
+      for (int i = 0; i < numberOfAssays; i++) {
+        final String assay = "assay[" + (i + 1) + "]";
+        abundance[i] = positions.getOrDefault("smallmolecule_abundance_" + assay, -1);
+        peakMZ[i] = positions.getOrDefault("opt_" + assay + "_peak_mz", -1);
+        peakRT[i] = positions.getOrDefault("opt_" + assay + "_peak_rt", -1);
+        peakHeight[i] = positions.getOrDefault("opt_" + assay + "_peak_height", -1);
+      }
+    }
+
+    private void set(String cells[], int column, String value) {
+      if (column < 0 || value == null)
+        return;
+      cells[column] = escapeString(value);
+    }
+  }
+
+  private static String escapeString(final String inputString) {
 
     if (inputString == null)
       return "";
@@ -19,17 +19,17 @@
 package io.github.mzmine.modules.io.mztabimport;
 
 import java.io.File;
-import java.io.OutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import com.google.common.collect.Range;
-import com.google.common.io.ByteStreams;
-import com.google.common.math.DoubleMath;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.FeatureStatus;
@@ -51,13 +51,6 @@ import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import uk.ac.ebi.pride.jmztab.model.Assay;
-import uk.ac.ebi.pride.jmztab.model.MZTabFile;
-import uk.ac.ebi.pride.jmztab.model.MsRun;
-import uk.ac.ebi.pride.jmztab.model.SmallMolecule;
-import uk.ac.ebi.pride.jmztab.model.SplitList;
-import uk.ac.ebi.pride.jmztab.model.StudyVariable;
-import uk.ac.ebi.pride.jmztab.utils.MZTabFileParser;
 
 class MzTabImportTask extends AbstractTask {
 
@@ -112,27 +105,14 @@ class MzTabImportTask extends AbstractTask {
 
     setStatus(TaskStatus.PROCESSING);
 
-    try {
-      // Prevent MZTabFileParser from writing to console
-      OutputStream logStream = ByteStreams.nullOutputStream();
-
-      // Load mzTab file
-      MZTabFileParser mzTabFileParser = new MZTabFileParser(inputFile, logStream);
+    // Read the file line by line, rows are created while reading the small molecule section
+    try (MzTabSmallMoleculeReader mzTabReader = new MzTabSmallMoleculeReader(inputFile)) {
 
-      if (!mzTabFileParser.getErrorList().getErrorList().isEmpty()) {
-        setStatus(TaskStatus.ERROR);
-        setErrorMessage(
-            "Error processing " + inputFile + ":\n" + mzTabFileParser.getErrorList().toString());
-        return;
-      }
-
-      MZTabFile mzTabFile = mzTabFileParser.getMZTabFile();
-
-      // Let's say the initial parsing took 10% of the time
+      // Let's say the metadata parsing took 10% of the time
       finishedPercentage = 0.1;
 
       // Import raw data files
-      SortedMap<Integer, RawDataFile> rawDataFiles = importRawDataFiles(mzTabFile);
+      SortedMap<Integer, RawDataFile> rawDataFiles = importRawDataFiles(mzTabReader);
 
       // Check if not canceled
       if (isCanceled())
@@ -148,14 +128,14 @@ class MzTabImportTask extends AbstractTask {
         return;
 
       // Import variables
-      importVariables(mzTabFile, rawDataFiles);
+      importVariables(mzTabReader, rawDataFiles);
 
       // Check if not canceled
       if (isCanceled())
         return;
 
       // import small molecules (=feature list rows)
-      importSmallMolecules(newPeakList, mzTabFile, rawDataFiles);
+      importSmallMolecules(newPeakList, mzTabReader, rawDataFiles);
 
       // Check if not canceled
       if (isCanceled())
@@ -177,17 +157,18 @@ class MzTabImportTask extends AbstractTask {
 
   }
 
-  private SortedMap<Integer, RawDataFile> importRawDataFiles(MZTabFile mzTabFile) throws Exception {
+  private SortedMap<Integer, RawDataFile> importRawDataFiles(MzTabSmallMoleculeReader mzTabReader)
+      throws Exception {
 
-    SortedMap<Integer, MsRun> msrun = mzTabFile.getMetadata().getMsRunMap();
+    SortedMap<Integer, String> msrun = mzTabReader.getMsRunLocations();
 
     SortedMap<Integer, RawDataFile> rawDataFiles = new TreeMap<>();
 
     // If we are importing files, let's run RawDataImportModule
     if (importRawFiles) {
       List<File> filesToImport = new ArrayList<>();
-      for (Entry<Integer, MsRun> entry : msrun.entrySet()) {
-        File fileToImport = new File(entry.getValue().getLocation().getPath());
+      for (Entry<Integer, String> entry : msrun.entrySet()) {
+        File fileToImport = getLocationFile(entry.getValue());
 
         if (fileToImport.exists() && fileToImport.canRead())
           filesToImport.add(fileToImport);
@@ -268,9 +249,9 @@ class MzTabImportTask extends AbstractTask {
     }
 
     // Find a matching RawDataFile for each MsRun entry
-    for (Entry<Integer, MsRun> entry : msrun.entrySet()) {
+    for (Entry<Integer, String> entry : msrun.entrySet()) {
 
-      String rawFileName = new File(entry.getValue().getLocation().getPath()).getName();
+      String rawFileName = getLocationFile(entry.getValue()).getName();
       RawDataFile rawDataFile = null;
 
       // Check if we already have a RawDataFile of that name
@@ -295,10 +276,19 @@ class MzTabImportTask extends AbstractTask {
     return rawDataFiles;
   }
 
-  private void importVariables(MZTabFile mzTabFile, Map<Integer, RawDataFile> rawDataFiles) {
+  private File getLocationFile(String location) {
+    try {
+      return new File(new URL(location).getPath());
+    } catch (MalformedURLException e) {
+      return new File(location);
+    }
+  }
+
+  private void importVariables(MzTabSmallMoleculeReader mzTabReader,
+      Map<Integer, RawDataFile> rawDataFiles) {
 
     // Add sample parameters if available in mzTab file
-    SortedMap<Integer, StudyVariable> variableMap = mzTabFile.getMetadata().getStudyVariableMap();
+    SortedMap<Integer, String> variableMap = mzTabReader.getStudyVariables();
 
     if (variableMap.isEmpty())
       return;
@@ -307,21 +297,20 @@ class MzTabImportTask extends AbstractTask {
         new StringParameter(inputFile.getName() + " study variable", "");
     project.addParameter(newParameter);
 
-    for (Entry<Integer, StudyVariable> entry : variableMap.entrySet()) {
+    for (Entry<Integer, String> entry : variableMap.entrySet()) {
 
       // Stop the process if cancel() was called
       if (isCanceled())
         return;
 
-      String variableValue = entry.getValue().getDescription();
+      String variableValue = entry.getValue();
 
-      SortedMap<Integer, Assay> assayMap = entry.getValue().getAssayMap();
+      Set<Integer> assays = mzTabReader.getStudyVariableAssays(entry.getKey());
 
       for (Entry<Integer, RawDataFile> rawDataEntry : rawDataFiles.entrySet()) {
 
         RawDataFile rawData = rawDataEntry.getValue();
-        Assay dataFileAssay = assayMap.get(rawDataEntry.getKey());
-        if (dataFileAssay != null)
+        if (assays.contains(rawDataEntry.getKey()))
           project.setParameterValue(newParameter, rawData, variableValue);
       }
 
@@ -329,59 +318,57 @@ class MzTabImportTask extends AbstractTask {
 
   }
 
-  private void importSmallMolecules(PeakList newPeakList, MZTabFile mzTabFile,
-      Map<Integer, RawDataFile> rawDataFiles) {
-    SortedMap<Integer, Assay> assayMap = mzTabFile.getMetadata().getAssayMap();
-    Collection<SmallMolecule> smallMolecules = mzTabFile.getSmallMolecules();
+  private void importSmallMolecules(PeakList newPeakList, MzTabSmallMoleculeReader mzTabReader,
+      Map<Integer, RawDataFile> rawDataFiles) throws IOException {
+
+    // Column positions, the assay of each raw data file has the index of its ms_run
+    final int identifierColumn = mzTabReader.getColumn("identifier");
+    final int formulaColumn = mzTabReader.getColumn("chemical_formula");
+    final int descriptionColumn = mzTabReader.getColumn("description");
+    final int databaseColumn = mzTabReader.getColumn("database");
+    final int uriColumn = mzTabReader.getColumn("uri");
+    final int mzColumn = mzTabReader.getColumn("exp_mass_to_charge");
+    final int rtColumn = mzTabReader.getColumn("retention_time");
+
+    final RawDataFile rawDataArray[] = rawDataFiles.values().toArray(new RawDataFile[0]);
+    final String assays[] = rawDataFiles.keySet().stream().map(key -> "assay[" + key + "]")
+        .toArray(String[]::new);
+    final int abundanceColumns[] = new int[assays.length];
+    final int peakMZColumns[] = new int[assays.length];
+    final int peakRTColumns[] = new int[assays.length];
+    final int peakHeightColumns[] = new int[assays.length];
+    for (int i = 0; i < assays.length; i++) {
+      abundanceColumns[i] = mzTabReader.getColumn("smallmolecule_abundance_" + assays[i]);
+      peakMZColumns[i] = mzTabReader.getColumn("opt_" + assays[i] + "_peak_mz");
+      peakRTColumns[i] = mzTabReader.getColumn("opt_" + assays[i] + "_peak_rt");
+      peakHeightColumns[i] = mzTabReader.getColumn("opt_" + assays[i] + "_peak_height");
+    }
 
     // Loop through SML data
-    String formula, description, database, url = "";
-    double mzExp = 0, abundance = 0, peak_mz = 0, peak_rt = 0, peak_height = 0, rtValue = 0;
-    // int charge = 0;
+    double abundance = 0, peak_mz = 0, peak_rt = 0, peak_height = 0;
     int rowCounter = 0;
+    String cells[];
 
-    for (SmallMolecule smallMolecule : smallMolecules) {
+    while ((cells = mzTabReader.nextSmallMolecule()) != null) {
 
       // Stop the process if cancel() was called
       if (isCanceled())
         return;
 
       rowCounter++;
-      formula = smallMolecule.getChemicalFormula();
-      // smile = smallMolecule.getSmiles();
-      // inchiKey = smallMolecule.getInchiKey();
-      description = smallMolecule.getDescription();
-      // species = smallMolecule.getSpecies();
-      database = smallMolecule.getDatabase();
-      // dbVersion = smallMolecule.getDatabaseVersion();
-      // reliability = smallMolecule.getReliability();
-
-      if (smallMolecule.getURI() != null) {
-        url = smallMolecule.getURI().toString();
-      }
+      String formula = MzTabSmallMoleculeReader.getValue(cells, formulaColumn);
+      String description = MzTabSmallMoleculeReader.getValue(cells, descriptionColumn);
+      String database = MzTabSmallMoleculeReader.getValue(cells, databaseColumn);
+      String url = MzTabSmallMoleculeReader.getValue(cells, uriColumn);
+      String identifier = MzTabSmallMoleculeReader.getValue(cells, identifierColumn);
 
-      String identifier = smallMolecule.getIdentifier().toString();
-      SplitList<Double> rt = smallMolecule.getRetentionTime();
-      // SplitList<Modification> modifications =
-      // smallMolecule.getModifications();
-
-      if (smallMolecule.getExpMassToCharge() != null) {
-        mzExp = smallMolecule.getExpMassToCharge();
-      }
-      // if (smallMolecule.getCharge() != null) charge =
-      // smallMolecule.getCharge();
+      Double mzValue = mzTabReader.getDouble(cells, mzColumn);
+      double mzExp = (mzValue != null) ? mzValue : 0;
 
       // Calculate average RT if multiple values are available
-      if (rt != null && !rt.isEmpty()) {
-        rtValue = DoubleMath.mean(rt);
-      }
+      Double rt = mzTabReader.getMeanDouble(cells, rtColumn);
+      double rtValue = (rt != null) ? rt : 0;
 
-      if ((url != null) && (url.equals("null"))) {
-        url = null;
-      }
-      if (identifier.equals("null")) {
-        identifier = null;
-      }
       if (description == null && identifier != null) {
         description = identifier;
       }
@@ -397,40 +384,25 @@ class MzTabImportTask extends AbstractTask {
       }
 
       // Add raw data file entries to row
-      for (Entry<Integer, RawDataFile> rawDataEntry : rawDataFiles.entrySet()) {
+      for (int i = 0; i < rawDataArray.length; i++) {
 
-        RawDataFile rawData = rawDataEntry.getValue();
-        Assay dataFileAssay = assayMap.get(rawDataEntry.getKey());
+        RawDataFile rawData = rawDataArray[i];
 
-        abundance = 0;
-        peak_mz = 0;
-        peak_rt = 0;
-        peak_height = 0;
+        Double value = mzTabReader.getDouble(cells, abundanceColumns[i]);
+        abundance = (value != null) ? value : 0;
 
-        if (smallMolecule.getAbundanceColumnValue(dataFileAssay) != null) {
-          abundance = smallMolecule.getAbundanceColumnValue(dataFileAssay);
-        }
+        // Only detected features are added to the row
+        if (!(abundance > 0))
+          continue;
 
-        if (smallMolecule.getOptionColumnValue(dataFileAssay, "peak_mz") != null) {
-          peak_mz =
-              Double.parseDouble(smallMolecule.getOptionColumnValue(dataFileAssay, "peak_mz"));
-        } else {
-          peak_mz = mzExp;
-        }
+        value = mzTabReader.getDouble(cells, peakMZColumns[i]);
+        peak_mz = (value != null) ? value : mzExp;
 
-        if (smallMolecule.getOptionColumnValue(dataFileAssay, "peak_rt") != null) {
-          peak_rt =
-              Double.parseDouble(smallMolecule.getOptionColumnValue(dataFileAssay, "peak_rt"));
-        } else {
-          peak_rt = rtValue;
-        }
+        value = mzTabReader.getDouble(cells, peakRTColumns[i]);
+        peak_rt = (value != null) ? value : rtValue;
 
-        if (smallMolecule.getOptionColumnValue(dataFileAssay, "peak_height") != null) {
-          peak_height =
-              Double.parseDouble(smallMolecule.getOptionColumnValue(dataFileAssay, "peak_height"));
-        } else {
-          peak_height = 0.0;
-        }
+        value = mzTabReader.getDouble(cells, peakHeightColumns[i]);
+        peak_height = (value != null) ? value : 0.0;
 
         int scanNumbers[] = {};
         DataPoint finalDataPoint[] = new DataPoint[1];
@@ -447,15 +419,16 @@ class MzTabImportTask extends AbstractTask {
             scanNumbers, finalDataPoint, status, representativeScan, fragmentScan, allFragmentScans,
             finalRTRange, finalMZRange, finalIntensityRange);
 
-        if (abundance > 0) {
-          newRow.addPeak(rawData, peak);
-        }
+        newRow.addPeak(rawData, peak);
 
       }
 
       // Add row to feature list
       newPeakList.addRow(newRow);
 
+      finishedPercentage = importRawFiles ? 0.9 + 0.1 * mzTabReader.getProgress()
+          : 0.5 + 0.5 * mzTabReader.getProgress();
+
     }
   }
 
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.io.mztabimport;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import com.google.common.io.CountingInputStream;
+
+/**
+ * Line based reader of the metadata and the small molecule section of mzTab files. In contrast to
+ * the jmzTab parser, which creates the object model of the whole file, the small molecule rows are
+ * read one by one, so the memory consumption does not depend on the size of the file.
+ *
+ * The metadata section and the small molecule header are read when the reader is opened, so the
+ * columns are known before the first row is read. The metadata section must precede the small
+ * molecule section, as required by the mzTab specification. Only the keys which are needed for the import
+ * are checked, the file is not validated against the whole specification.
+ */
+class MzTabSmallMoleculeReader implements Closeable {
+
+  private static final String METADATA = "MTD";
+  private static final String SMALL_MOLECULE_HEADER = "SMH";
+  private static final String SMALL_MOLECULE = "SML";
+  private static final String NULL_VALUE = "null";
+  private static final String INFINITY_VALUE = "INF";
+  private static final String VERSION = "mzTab-version";
+
+  private static final Pattern MS_RUN_LOCATION = Pattern.compile("ms_run\\[(\\d+)\\]-location");
+  private static final Pattern STUDY_VARIABLE_DESCRIPTION =
+      Pattern.compile("study_variable\\[(\\d+)\\]-description");
+  private static final Pattern STUDY_VARIABLE_ASSAYS =
+      Pattern.compile("study_variable\\[(\\d+)\\]-assay_refs");
+  private static final Pattern ASSAY_REF = Pattern.compile("assay\\[(\\d+)\\]");
+
+  private final long fileSize;
+  private final CountingInputStream counter;
+  private final BufferedReader reader;
+
+  private final SortedMap<Integer, String> msRunLocations = new TreeMap<>();
+  private final SortedMap<Integer, String> studyVariables = new TreeMap<>();
+  private final Map<Integer, Set<Integer>> studyVariableAssays = new HashMap<>();
+
+  private String mzTabVersion;
+  private String header[];
+  private Map<String, Integer> columns;
+  private String nextLine;
+  private int lineNumber = 0;
+
+  MzTabSmallMoleculeReader(File file) throws IOException {
+    fileSize = file.length();
+    counter = new CountingInputStream(new FileInputStream(file));
+    reader = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8));
+    readMetadata();
+    readSmallMoleculeHeader();
+  }
+
+  private void readMetadata() throws IOException {
+    while ((nextLine = readLine()) != null) {
+      if (nextLine.isEmpty())
+        continue;
+      final String cells[] = nextLine.split("\t", -1);
+      if (!cells[0].equals(METADATA))
+        break;
+      if (cells.length < 3)
+        continue;
+
+      if (cells[1].trim().equals(VERSION)) {
+        mzTabVersion = cells[2].trim();
+        continue;
+      }
+      Matcher m = MS_RUN_LOCATION.matcher(cells[1]);
+      if (m.matches()) {
+        msRunLocations.put(Integer.parseInt(m.group(1)), cells[2].trim());
+        continue;
+      }
+      m = STUDY_VARIABLE_DESCRIPTION.matcher(cells[1]);
+      if (m.matches()) {
+        studyVariables.put(Integer.parseInt(m.group(1)), cells[2].trim());
+        continue;
+      }
+      m = STUDY_VARIABLE_ASSAYS.matcher(cells[1]);
+      if (m.matches()) {
+        Set<Integer> assays = new HashSet<>();
+        Matcher assayMatcher = ASSAY_REF.matcher(cells[2]);
+        while (assayMatcher.find())
+          assays.add(Integer.parseInt(assayMatcher.group(1)));
+        studyVariableAssays.put(Integer.parseInt(m.group(1)), assays);
+      }
+    }
+    if (msRunLocations.isEmpty() && nextLine == null)
+      throw new IOException("Empty mzTab file");
+
+    // Required metadata
+    if (mzTabVersion == null || mzTabVersion.isEmpty())
+      throw new IOException("Missing " + VERSION + " in the metadata section");
+    if (msRunLocations.isEmpty())
+      throw new IOException("Missing ms_run[1]-location in the metadata section");
+    for (Map.Entry<Integer, String> msRun : msRunLocations.entrySet()) {
+      if (msRun.getValue().isEmpty() || msRun.getValue().equals(NULL_VALUE))
+        throw new IOException("Empty ms_run[" + msRun.getKey() + "]-location");
+    }
+  }
+
+  /**
+   * Skips the lines of the other sections up to the small molecule header. Without small molecule
+   * section the whole file is skipped.
+   */
+  private void readSmallMoleculeHeader() throws IOException {
+    while (nextLine != null || (nextLine = readLine()) != null) {
+      final String line = nextLine;
+      nextLine = null;
+      if (line.startsWith(SMALL_MOLECULE_HEADER)) {
+        readHeader(line);
+        return;
+      }
+      if (line.startsWith(SMALL_MOLECULE))
+        throw new IOException("Line " + lineNumber + ": small molecule row before header");
+    }
+  }
+
+  private void readHeader(String line) {
+    header = line.split("\t", -1);
+    columns = new HashMap<>();
+    for (int i = 0; i < header.length; i++)
+      columns.put(header[i].trim(), i);
+  }
+
+  /**
+   * @return ms_run locations by ms_run index
+   */
+  SortedMap<Integer, String> getMsRunLocations() {
+    return msRunLocations;
+  }
+
+  /**
+   * @return study variable descriptions by study variable index
+   */
+  SortedMap<Integer, String> getStudyVariables() {
+    return studyVariables;
+  }
+
+  /**
+   * @return the indexes of the assays which belong to the given study variable
+   */
+  Set<Integer> getStudyVariableAssays(int studyVariable) {
+    return studyVariableAssays.getOrDefault(studyVariable, Collections.emptySet());
+  }
+
+  /**
+   * @return the position of the column in the small molecule rows, or -1 if the column does not
+   *         exist (or the file has no small molecule section)
+   */
+  int getColumn(String header) {
+    if (columns == null)
+      return -1;
+    return columns.getOrDefault(header, -1);
+  }
+
+  /**
+   * Reads the next small molecule row. Lines of all other sections are skipped.
+   *
+   * @return the cells of the row, starting with the SML prefix, or null at the end of the file
+   */
+  @Nullable
+  String[] nextSmallMolecule() throws IOException {
+    while (true) {
+      if (nextLine == null)
+        nextLine = readLine();
+      if (nextLine == null)
+        return null;
+      final String line = nextLine;
+      nextLine = null;
+
+      if (line.startsWith(SMALL_MOLECULE_HEADER)) {
+        readHeader(line);
+      } else if (line.startsWith(SMALL_MOLECULE)) {
+        if (columns == null)
+          throw new IOException("Line " + lineNumber + ": small molecule row before header");
+        final String cells[] = line.split("\t", -1);
+        if (cells.length != columns.size())
+          throw new IOException("Line " + lineNumber + ": expected " + columns.size()
+              + " columns, found " + cells.length);
+        return cells;
+      }
+    }
+  }
+
+  /**
+   * @return the value of the cell, or null if the column does not exist or the value is "null"
+   */
+  @Nullable
+  static String getValue(String cells[], int column) {
+    if (column < 0)
+      return null;
+    final String value = cells[column].trim();
+    if (value.isEmpty() || value.equals(NULL_VALUE))
+      return null;
+    return value;
+  }
+
+  /**
+   * @return the number value of the cell in the current row, or null if the column does not exist
+   *         or the value is "null"
+   * @throws IOException if the value is not a number, with the line and column in the message
+   */
+  @Nullable
+  Double getDouble(String cells[], int column) throws IOException {
+    final String value = getValue(cells, column);
+    if (value == null)
+      return null;
+    return parseDouble(value, column);
+  }
+
+  /**
+   * @return the mean of the "|" separated numbers of the cell in the current row, or null if the
+   *         column does not exist or the value is "null"
+   * @throws IOException if a value is not a number, with the line and column in the message
+   */
+  @Nullable
+  Double getMeanDouble(String cells[], int column) throws IOException {
+    final String value = getValue(cells, column);
+    if (value == null)
+      return null;
+    final String values[] = value.split("\\|");
+    double sum = 0;
+    for (String v : values)
+      sum += parseDouble(v.trim(), column);
+    return sum / values.length;
+  }
+
+  private double parseDouble(String value, int column) throws IOException {
+    if (value.equals(INFINITY_VALUE))
+      return Double.POSITIVE_INFINITY;
+    if (value.equals("-" + INFINITY_VALUE))
+      return Double.NEGATIVE_INFINITY;
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new IOException("Line " + lineNumber + ": invalid number \"" + value + "\" in column "
+          + header[column].trim());
+    }
+  }
+
+  /**
+   * @return the fraction of the file which was read
+   */
+  double getProgress() {
+    if (fileSize == 0)
+      return 0.0;
+    return Math.min(1.0, (double) counter.getCount() / fileSize);
+  }
+
+  private String readLine() throws IOException {
+    String line = reader.readLine();
+    if (line != null)
+      lineNumber++;
+    return line;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+}
@@ -20,7 +20,7 @@ package io.github.mzmine.modules.io.projectsave;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.RandomAccessFile;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Logger;
@@ -51,7 +51,7 @@ class RawDataFileSaveHandler {
   private int numOfScans, completedScans;
   private ZipOutputStream zipOutputStream;
   private boolean canceled = false;
-  private Map<Integer, Long> dataPointsOffsets;
+  private List<Integer> storageIDs;
   private Map<Integer, Long> consolidatedDataPointsOffsets;
   private Map<Integer, Integer> dataPointsLengths;
   private double progress = 0;
@@ -77,7 +77,7 @@ class RawDataFileSaveHandler {
     numOfScans = rawDataFile.getNumOfScans();
 
     // Get the structure of the data points file
-    dataPointsOffsets = rawDataFile.getDataPointsOffsets();
+    storageIDs = rawDataFile.getStorageIDs();
     dataPointsLengths = rawDataFile.getDataPointsLengths();
     consolidatedDataPointsOffsets = new TreeMap<Integer, Long>();
 
@@ -91,26 +91,25 @@ class RawDataFileSaveHandler {
     // We save only those data points that still have a reference in the
     // dataPointsOffset table. Some deleted mass lists may still be present
     // in the data points file, we don't want to copy those.
+    // Data points linked from another file are saved as part of this file.
     long newOffset = 0;
     byte buffer[] = new byte[1 << 20];
-    RandomAccessFile dataPointsFile = rawDataFile.getDataPointsFile();
-    for (Integer storageID : dataPointsOffsets.keySet()) {
+    int savedIDs = 0;
+    for (Integer storageID : storageIDs) {
 
       if (canceled)
         return;
 
-      final long offset = dataPointsOffsets.get(storageID);
-      dataPointsFile.seek(offset);
-
       final int bytes = dataPointsLengths.get(storageID) * 4 * 2;
       consolidatedDataPointsOffsets.put(storageID, newOffset);
       if (buffer.length < bytes) {
         buffer = new byte[bytes * 2];
       }
-      dataPointsFile.read(buffer, 0, bytes);
+      rawDataFile.readDataPointBytes(storageID, buffer);
       zipOutputStream.write(buffer, 0, bytes);
       newOffset += bytes;
-      progress = 0.9 * ((double) offset / dataPointsFile.length());
+      savedIDs++;
+      progress = 0.9 * ((double) savedIDs / storageIDs.size());
     }
 
     if (canceled)
@@ -158,10 +157,10 @@ class RawDataFileSaveHandler {
 
     // <STORED_DATAPOINTS>
     atts.addAttribute("", "", RawDataElementName.QUANTITY.getElementName(), "CDATA",
-        String.valueOf(dataPointsOffsets.size()));
+        String.valueOf(storageIDs.size()));
     hd.startElement("", "", RawDataElementName.STORED_DATAPOINTS.getElementName(), atts);
     atts.clear();
-    for (Integer storageID : dataPointsOffsets.keySet()) {
+    for (Integer storageID : storageIDs) {
       if (canceled)
         return;
       int length = dataPointsLengths.get(storageID);
@@ -21,6 +21,7 @@ package io.github.mzmine.modules.io.sqlexport;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.BooleanParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.PeakListsParameter;
 
@@ -42,8 +43,13 @@ public class SQLExportParameters extends SimpleParameterSet {
       "Export empty feature list",
       "If selected, an empty feature list will be exported with null values for all column other than the rawdatafile and any constant values.");
 
+  public static final IntegerParameter batchSize = new IntegerParameter("Batch size",
+      "Number of feature list rows inserted with one batch of statements. All rows are committed in one transaction.",
+      1000, 1, null);
+
   public SQLExportParameters() {
-    super(new Parameter[] {peakList, connectionString, tableName, exportColumns, emptyExport});
+    super(new Parameter[] {peakList, connectionString, tableName, exportColumns, emptyExport,
+        batchSize});
   }
 
 }
@@ -24,6 +24,11 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.Feature;
 import io.github.mzmine.datamodel.IsotopePattern;
@@ -41,13 +46,21 @@ import io.github.mzmine.util.scans.ScanUtils;
 
 class SQLExportTask extends AbstractTask {
 
+  private static final String SQLITE_PREFIX = "jdbc:sqlite:";
+
+  private Logger logger = Logger.getLogger(this.getClass().getName());
+
   private final PeakList peakList;
   private final String connectionString;
   private final String tableName;
   private final SQLColumnSettings exportColumns;
   private final boolean emptyExport;
+  private final int batchSize;
+  private final boolean sqlite;
 
-  private int processedRows = 0, totalRows = 0;
+  private volatile int processedRows = 0;
+  private int totalRows = 0;
+  private long startTime;
 
   private Connection dbConnection;
 
@@ -61,6 +74,8 @@ class SQLExportTask extends AbstractTask {
     this.tableName = parameters.getParameter(SQLExportParameters.tableName).getValue();
     this.exportColumns = parameters.getParameter(SQLExportParameters.exportColumns).getValue();
     this.emptyExport = parameters.getParameter(SQLExportParameters.emptyExport).getValue();
+    this.batchSize = parameters.getParameter(SQLExportParameters.batchSize).getValue();
+    this.sqlite = connectionString.startsWith(SQLITE_PREFIX);
 
   }
 
@@ -74,7 +89,11 @@ class SQLExportTask extends AbstractTask {
 
   @Override
   public String getTaskDescription() {
-    return "Exporting feature list \"" + peakList + "\" to SQL table " + tableName;
+    String description = "Exporting feature list \"" + peakList + "\" to SQL table " + tableName;
+    final long time = System.currentTimeMillis() - startTime;
+    if (processedRows > 0 && time > 0)
+      description += " (" + (processedRows * 1000L / time) + " rows/s)";
+    return description;
   }
 
   @Override
@@ -95,43 +114,71 @@ class SQLExportTask extends AbstractTask {
     PeakListRow rows[] = peakList.getRows().toArray(PeakListRow[]::new);
 
     try {
+      // One transaction for the whole feature list
       dbConnection.setAutoCommit(false);
+      startTime = System.currentTimeMillis();
 
-      // If select, an empty row with just the raw data file
-      // information will be exported
-      if (rows.length < 1 && emptyExport) {
-        exportPeakListRow(null);
-      } else {
-        for (PeakListRow row : rows) {
-          if (getStatus() != TaskStatus.PROCESSING)
-            break;
-          exportPeakListRow(row);
-          processedRows++;
+      try (PreparedStatement statement = dbConnection.prepareStatement(createInsertStatement())) {
+
+        // If select, an empty row with just the raw data file
+        // information will be exported
+        if (rows.length < 1 && emptyExport) {
+          bindValues(statement, getEmptyRowValues());
+          statement.executeUpdate();
+        } else {
+          for (int start = 0; start < rows.length; start += batchSize) {
+            if (getStatus() != TaskStatus.PROCESSING)
+              break;
+
+            // Collect the values of a batch in parallel (e.g. MS/MS spectra are read from the
+            // raw data), then bind them in row order
+            final int end = Math.min(rows.length, start + batchSize);
+            List<List<Object[]>> batchValues = Arrays.stream(rows, start, end).parallel()
+                .map(this::getRowValues).collect(Collectors.toList());
+            for (List<Object[]> rowValues : batchValues) {
+              for (Object[] values : rowValues) {
+                bindValues(statement, values);
+                statement.addBatch();
+              }
+            }
+            statement.executeBatch();
+            processedRows = end;
+          }
         }
       }
-      dbConnection.commit();
+
+      if (getStatus() == TaskStatus.PROCESSING)
+        dbConnection.commit();
+      else
+        dbConnection.rollback();
       dbConnection.close();
     } catch (SQLException e) {
       setStatus(TaskStatus.ERROR);
       setErrorMessage("Error running SQL query: " + e.toString());
+      // Drivers may commit an open transaction on close, discard the partial export explicitly
+      try {
+        dbConnection.rollback();
+      } catch (SQLException e1) {
+        // silent
+      }
+      try {
+        dbConnection.close();
+      } catch (SQLException e1) {
+        // silent
+      }
       return;
     }
 
+    final long time = Math.max(1, System.currentTimeMillis() - startTime);
+    logger.info("Exported " + processedRows + " rows of " + peakList + " to SQL table " + tableName
+        + " in " + time + " ms (" + (processedRows * 1000L / time) + " rows/s)");
+
     if (getStatus() == TaskStatus.PROCESSING)
       setStatus(TaskStatus.FINISHED);
 
   }
 
-  private void exportPeakListRow(PeakListRow row) throws SQLException {
-
-    // Cancel?
-    if (isCanceled()) {
-      return;
-    }
-
-    // Value for looping through raw data files
-    boolean loopDataFiles = false;
-
+  private String createInsertStatement() {
     StringBuilder sql = new StringBuilder();
     sql.append("INSERT INTO ");
     sql.append(tableName);
@@ -148,166 +195,215 @@ class SQLExportTask extends AbstractTask {
         sql.append(",");
     }
     sql.append(")");
+    return sql.toString();
+  }
+
+  /**
+   * Binds the values collected by getRowValues or getEmptyRowValues to the statement
+   */
+  private void bindValues(PreparedStatement statement, Object[] values) throws SQLException {
+    for (int i = 0; i < values.length; i++) {
+      final Object value = values[i];
+      if (value instanceof NullValue) {
+        statement.setNull(i + 1, ((NullValue) value).sqlType);
+      } else if (value instanceof Double) {
+        statement.setDouble(i + 1, (Double) value);
+      } else if (value instanceof Integer) {
+        statement.setInt(i + 1, (Integer) value);
+      } else if (value instanceof byte[]) {
+        // The SQLite driver does not support blob streams
+        if (sqlite)
+          statement.setBytes(i + 1, (byte[]) value);
+        else
+          statement.setBlob(i + 1, new ByteArrayInputStream((byte[]) value));
+      } else {
+        statement.setString(i + 1, (String) value);
+      }
+    }
+  }
+
+  private Object[] getEmptyRowValues() {
+    Object values[] = new Object[exportColumns.getRowCount()];
+    for (int i = 0; i < exportColumns.getRowCount(); i++) {
+      SQLExportDataType dataType = (SQLExportDataType) exportColumns.getValueAt(i, 1);
+      String dataValue = (String) exportColumns.getValueAt(i, 2);
+      switch (dataType) {
+        case CONSTANT:
+          values[i] = dataValue;
+          break;
+        case RAWFILE:
+          RawDataFile rawdatafiles[] = peakList.getRawDataFiles().toArray(RawDataFile[]::new);
+          values[i] = rawdatafiles[0].getName();
+          break;
+        default:
+          values[i] = null;
+          break;
+      }
+    }
+    return values;
+  }
+
+  /**
+   * @return the values of the insert statements of one row: one statement per raw data file, if
+   *         data file elements are exported, otherwise only one
+   */
+  private List<Object[]> getRowValues(PeakListRow row) {
+
+    List<Object[]> result = new ArrayList<>();
 
-    PreparedStatement statement = dbConnection.prepareStatement(sql.toString());
+    // Cancel?
+    if (isCanceled()) {
+      return result;
+    }
+
+    // Value for looping through raw data files
+    boolean loopDataFiles = false;
+
+    for (RawDataFile rawDataFile : row.getRawDataFiles()) {
+      Feature peak = row.getPeak(rawDataFile);
+      Object values[] = new Object[exportColumns.getRowCount()];
 
-    if (row == null) {
       for (int i = 0; i < exportColumns.getRowCount(); i++) {
         SQLExportDataType dataType = (SQLExportDataType) exportColumns.getValueAt(i, 1);
         String dataValue = (String) exportColumns.getValueAt(i, 2);
         switch (dataType) {
           case CONSTANT:
-            statement.setString(i + 1, dataValue);
+            values[i] = dataValue;
+            break;
+          case MZ:
+            values[i] = row.getAverageMZ();
+            break;
+          case RT:
+            values[i] = row.getAverageRT();
+            break;
+          case ID:
+            values[i] = row.getID();
+            break;
+          case PEAKCHARGE:
+            values[i] = (double) peak.getCharge();
+            loopDataFiles = true;
+            break;
+          case PEAKDURATION:
+            values[i] = RangeUtils.rangeLength(peak.getRawDataPointsRTRange());
+            loopDataFiles = true;
+            break;
+          case PEAKSTATUS:
+            values[i] = peak.getFeatureStatus().name();
+            loopDataFiles = true;
+            break;
+          case PEAKMZ:
+            values[i] = peak.getMZ();
+            loopDataFiles = true;
+            break;
+          case PEAKRT:
+            values[i] = peak.getRT();
+            loopDataFiles = true;
+            break;
+          case PEAKRT_START:
+            values[i] = peak.getRawDataPointsRTRange().lowerEndpoint();
+            loopDataFiles = true;
+            break;
+          case PEAKRT_END:
+            values[i] = peak.getRawDataPointsRTRange().upperEndpoint();
+            loopDataFiles = true;
+            break;
+          case PEAKHEIGHT:
+            values[i] = peak.getHeight();
+            loopDataFiles = true;
+            break;
+          case PEAKAREA:
+            values[i] = peak.getArea();
+            loopDataFiles = true;
+            break;
+          case DATAPOINTS:
+            values[i] = (double) peak.getScanNumbers().length;
+            loopDataFiles = true;
+            break;
+          case FWHM:
+            values[i] = peak.getFWHM();
+            loopDataFiles = true;
+            break;
+          case TAILINGFACTOR:
+            values[i] = peak.getTailingFactor();
+            loopDataFiles = true;
+            break;
+          case ASYMMETRYFACTOR:
+            values[i] = peak.getAsymmetryFactor();
+            loopDataFiles = true;
             break;
           case RAWFILE:
-            RawDataFile rawdatafiles[] = peakList.getRawDataFiles().toArray(RawDataFile[]::new);
-            statement.setString(i + 1, rawdatafiles[0].getName());
+            values[i] = rawDataFile.getName();
+            loopDataFiles = true;
             break;
-          default:
-            statement.setString(i + 1, null);
+          case HEIGHT:
+            values[i] = row.getAverageHeight();
             break;
-        }
-      }
-      statement.executeUpdate();
-    }
-
-    else {
-      for (RawDataFile rawDataFile : row.getRawDataFiles()) {
-        Feature peak = row.getPeak(rawDataFile);
-
-        for (int i = 0; i < exportColumns.getRowCount(); i++) {
-          SQLExportDataType dataType = (SQLExportDataType) exportColumns.getValueAt(i, 1);
-          String dataValue = (String) exportColumns.getValueAt(i, 2);
-          switch (dataType) {
-            case CONSTANT:
-              statement.setString(i + 1, dataValue);
-              break;
-            case MZ:
-              statement.setDouble(i + 1, row.getAverageMZ());
-              break;
-            case RT:
-              statement.setDouble(i + 1, row.getAverageRT());
-              break;
-            case ID:
-              statement.setInt(i + 1, row.getID());
-              break;
-            case PEAKCHARGE:
-              statement.setDouble(i + 1, peak.getCharge());
-              loopDataFiles = true;
-              break;
-            case PEAKDURATION:
-              statement.setDouble(i + 1, RangeUtils.rangeLength(peak.getRawDataPointsRTRange()));
-              loopDataFiles = true;
-              break;
-            case PEAKSTATUS:
-              statement.setString(i + 1, peak.getFeatureStatus().name());
-              loopDataFiles = true;
-              break;
-            case PEAKMZ:
-              statement.setDouble(i + 1, peak.getMZ());
-              loopDataFiles = true;
-              break;
-            case PEAKRT:
-              statement.setDouble(i + 1, peak.getRT());
-              loopDataFiles = true;
-              break;
-            case PEAKRT_START:
-              statement.setDouble(i + 1, peak.getRawDataPointsRTRange().lowerEndpoint());
-              loopDataFiles = true;
-              break;
-            case PEAKRT_END:
-              statement.setDouble(i + 1, peak.getRawDataPointsRTRange().upperEndpoint());
-              loopDataFiles = true;
-              break;
-            case PEAKHEIGHT:
-              statement.setDouble(i + 1, peak.getHeight());
-              loopDataFiles = true;
-              break;
-            case PEAKAREA:
-              statement.setDouble(i + 1, peak.getArea());
-              loopDataFiles = true;
-              break;
-            case DATAPOINTS:
-              statement.setDouble(i + 1, peak.getScanNumbers().length);
-              loopDataFiles = true;
-              break;
-            case FWHM:
-              statement.setDouble(i + 1, peak.getFWHM());
-              loopDataFiles = true;
-              break;
-            case TAILINGFACTOR:
-              statement.setDouble(i + 1, peak.getTailingFactor());
-              loopDataFiles = true;
-              break;
-            case ASYMMETRYFACTOR:
-              statement.setDouble(i + 1, peak.getAsymmetryFactor());
-              loopDataFiles = true;
-              break;
-            case RAWFILE:
-              statement.setString(i + 1, rawDataFile.getName());
-              loopDataFiles = true;
-              break;
-            case HEIGHT:
-              statement.setDouble(i + 1, row.getAverageHeight());
-              break;
-            case AREA:
-              statement.setDouble(i + 1, row.getAverageArea());
-              break;
-            case COMMENT:
-              statement.setString(i + 1, row.getComment());
-              break;
-            case IDENTITY:
-              PeakIdentity id = row.getPreferredPeakIdentity();
-              if (id != null) {
-                statement.setString(i + 1, id.getName());
-              } else {
-                statement.setNull(i + 1, Types.VARCHAR);
-              }
-              break;
-            case ISOTOPEPATTERN:
-              IsotopePattern isotopes = row.getBestIsotopePattern();
-              if (isotopes == null) {
-                statement.setNull(i + 1, Types.BLOB);
-                break;
-              }
-              DataPoint dataPoints[] = isotopes.getDataPoints();
-              byte bytes[] = ScanUtils.encodeDataPointsToBytes(dataPoints);
-              ByteArrayInputStream is = new ByteArrayInputStream(bytes);
-              statement.setBlob(i + 1, is);
+          case AREA:
+            values[i] = row.getAverageArea();
+            break;
+          case COMMENT:
+            values[i] = row.getComment();
+            break;
+          case IDENTITY:
+            PeakIdentity id = row.getPreferredPeakIdentity();
+            if (id != null) {
+              values[i] = id.getName();
+            } else {
+              values[i] = new NullValue(Types.VARCHAR);
+            }
+            break;
+          case ISOTOPEPATTERN:
+            IsotopePattern isotopes = row.getBestIsotopePattern();
+            if (isotopes == null) {
+              values[i] = new NullValue(Types.BLOB);
               break;
-            case MSMS:
-              int msmsScanNum = row.getBestPeak().getMostIntenseFragmentScanNumber();
-              // Check if there is any MS/MS scan
-              if (msmsScanNum <= 0) {
-                statement.setNull(i + 1, Types.BLOB);
-                break;
-              }
-              RawDataFile dataFile = row.getBestPeak().getDataFile();
-              Scan msmsScan = dataFile.getScan(msmsScanNum);
-              MassList msmsMassList = msmsScan.getMassList(dataValue);
-              // Check if there is a masslist for the scan
-              if (msmsMassList == null) {
-                statement.setNull(i + 1, Types.BLOB);
-                break;
-              }
-              dataPoints = msmsMassList.getDataPoints();
-              bytes = ScanUtils.encodeDataPointsToBytes(dataPoints);
-              is = new ByteArrayInputStream(bytes);
-              statement.setBlob(i + 1, is);
+            }
+            DataPoint dataPoints[] = isotopes.getDataPoints();
+            values[i] = ScanUtils.encodeDataPointsToBytes(dataPoints);
+            break;
+          case MSMS:
+            int msmsScanNum = row.getBestPeak().getMostIntenseFragmentScanNumber();
+            // Check if there is any MS/MS scan
+            if (msmsScanNum <= 0) {
+              values[i] = new NullValue(Types.BLOB);
               break;
-            default:
+            }
+            RawDataFile dataFile = row.getBestPeak().getDataFile();
+            Scan msmsScan = dataFile.getScan(msmsScanNum);
+            MassList msmsMassList = msmsScan.getMassList(dataValue);
+            // Check if there is a masslist for the scan
+            if (msmsMassList == null) {
+              values[i] = new NullValue(Types.BLOB);
               break;
-          }
+            }
+            dataPoints = msmsMassList.getDataPoints();
+            values[i] = ScanUtils.encodeDataPointsToBytes(dataPoints);
+            break;
+          default:
+            values[i] = new NullValue(Types.NULL);
+            break;
         }
-        statement.executeUpdate();
+      }
+      result.add(values);
 
-        // If no data file elements are selected then don't loop through
-        // all
-        // data files in feature list
-        if (!loopDataFiles) {
-          break;
-        }
+      // If no data file elements are selected then don't loop through
+      // all
+      // data files in feature list
+      if (!loopDataFiles) {
+        break;
       }
     }
+    return result;
+  }
+
+  /**
+   * SQL NULL of a specific type
+   */
+  private static final class NullValue {
+    private final int sqlType;
+
+    private NullValue(int sqlType) {
+      this.sqlType = sqlType;
+    }
   }
 }
@@ -36,12 +36,12 @@ import com.google.common.primitives.Ints;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.datamodel.ScanSummary;
+import io.github.mzmine.gui.chartbasics.ChartDataLoader;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.scans.ScanUtils;
-import javafx.application.Platform;
 
 /**
  * TIC visualizer data set. One data set is created per file shown in this visualizer. We need to
@@ -59,12 +59,6 @@ public class TICDataSet extends AbstractXYZDataset implements Task {
   // For comparing small differences.
   private static final double EPSILON = 0.0000001;
 
-  // Refresh interval (in milliseconds).
-  private static final long REDRAW_INTERVAL = 100L;
-
-  // Last time the data set was redrawn.
-  private static long lastRedrawTime = System.currentTimeMillis();
-
   private final RawDataFile dataFile;
 
   private final Scan scans[];
@@ -78,9 +72,11 @@ public class TICDataSet extends AbstractXYZDataset implements Task {
   private double intensityMin;
   private double intensityMax;
 
-  private TaskStatus status;
+  private volatile TaskStatus status;
   private String errorMessage;
 
+  private final ChartDataLoader loader = new ChartDataLoader(this, this::fireDatasetChanged);
+
   // Plot type
   private TICPlotType plotType;
 
@@ -127,8 +123,7 @@ public class TICDataSet extends AbstractXYZDataset implements Task {
 
     this.plotType = plotType;
 
-    // Start-up the refresh task.
-    MZmineCore.getTaskController().addTask(this, TaskPriority.HIGH);
+    startCalculation();
   }
 
   /**
@@ -162,8 +157,7 @@ public class TICDataSet extends AbstractXYZDataset implements Task {
 
     this.plotType = TICPlotType.TIC;
 
-    // Start-up the refresh task.
-    MZmineCore.getTaskController().addTask(this, TaskPriority.HIGH);
+    startCalculation();
   }
 
   @Override
@@ -192,12 +186,12 @@ public class TICDataSet extends AbstractXYZDataset implements Task {
     try {
       status = TaskStatus.PROCESSING;
 
-      calculateValues();
+      calculateValues(false);
 
       if (status != TaskStatus.CANCELED) {
 
         // Always redraw when we add last value.
-        refresh();
+        loader.refreshNow();
 
         logger.info("TIC data calculated for " + dataFile);
         status = TaskStatus.FINISHED;
@@ -358,37 +352,85 @@ public class TICDataSet extends AbstractXYZDataset implements Task {
     return this.plotType;
   }
 
-  private void calculateValues() {
+  /**
+   * Calculates the values right away if all of them are known from the scan summaries of the data
+   * file (no data points need to be read), otherwise starts the task which reads the scans.
+   */
+  private void startCalculation() {
+    if (calculateValues(true)) {
+      status = TaskStatus.FINISHED;
+      return;
+    }
+
+    // Start-up the refresh task.
+    loader.start();
+  }
+
+  /**
+   * @param summaryOnly stop (and return false) if a scan's data points would have to be read
+   * @return true if all values were calculated
+   */
+  private boolean calculateValues(boolean summaryOnly) {
 
     // Determine plot type (now done from constructor).
     final TICPlotType plotType = this.plotType;
 
+    // Scan summary of the current scan's file and MS level
+    ScanSummary summary = null;
+    RawDataFile summaryDataFile = null;
+    int summaryMSLevel = 0;
+
     // Process each scan.
     for (int index = 0; status != TaskStatus.CANCELED && index < totalScans; index++) {
 
       // Current scan.
       final Scan scan = scans[index];
 
-      // Determine base peak value.
-      final DataPoint basePeak =
-          mzRange.encloses(scan.getDataPointMZRange()) ? scan.getHighestDataPoint()
-              : ScanUtils.findBasePeak(scan, mzRange);
-      if (basePeak != null) {
+      if (summary == null || scan.getMSLevel() != summaryMSLevel
+          || scan.getDataFile() != summaryDataFile) {
+        summaryMSLevel = scan.getMSLevel();
+        summaryDataFile = scan.getDataFile();
+        summary = summaryDataFile.getScanSummary(summaryMSLevel);
+      }
 
-        basePeakValues[index] = basePeak.getMZ();
+      // Determine base peak and total ion count. The precomputed values are used, if the scan has
+      // no data points outside of the m/z range. Scans without data points in the m/z range are
+      // skipped. Otherwise the data points are read once and the m/z range is searched in them.
+      double basePeakMZ = 0.0, basePeakIntensity = 0.0, tic = 0.0;
+      final int summaryIndex = summary.indexOf(scan.getScanNumber());
+      if (summaryIndex >= 0 && summary.isEnclosedBy(summaryIndex, mzRange)) {
+        basePeakMZ = summary.getBasePeakMZs()[summaryIndex];
+        basePeakIntensity = summary.getBasePeakIntensities()[summaryIndex];
+        tic = summary.getTotalIonCurrents()[summaryIndex];
+      } else if (summaryIndex >= 0 && summary.isDisjointFrom(summaryIndex, mzRange)) {
+        // no data points in the m/z range
+      } else if (summaryOnly) {
+        processedScans = 0;
+        return false;
+      } else {
+        final DataPoint dataPoints[] = scan.getDataPoints();
+        final int first = ScanUtils.findFirstPeakWithin(dataPoints, mzRange);
+        final int last = first < 0 ? -1 : ScanUtils.findLastPeakWithin(dataPoints, mzRange);
+        for (int i = first; i >= 0 && i <= last; i++) {
+          tic += dataPoints[i].getIntensity();
+          if (dataPoints[i].getIntensity() > basePeakIntensity) {
+            basePeakMZ = dataPoints[i].getMZ();
+            basePeakIntensity = dataPoints[i].getIntensity();
+          }
+        }
       }
+      basePeakValues[index] = basePeakMZ;
 
       // Determine peak intensity.
       double intensity = 0.0;
       if (plotType == TICPlotType.TIC) {
 
         // Total ion count.
-        intensity = mzRange.encloses(scan.getDataPointMZRange()) ? scan.getTIC()
-            : ScanUtils.calculateTIC(scan, mzRange);
+        intensity = tic;
 
-      } else if (plotType == TICPlotType.BASEPEAK && basePeak != null) {
+      } else if (plotType == TICPlotType.BASEPEAK) {
 
-        intensity = basePeak.getIntensity();
+        intensity = basePeakIntensity;
       }
 
       intensityValues[index] = intensity;
@@ -408,28 +450,19 @@ public class TICDataSet extends AbstractXYZDataset implements Task {
 
       processedScans++;
 
-      // Refresh every REDRAW_INTERVAL ms.
-      synchronized (TICDataSet.class) {
-
-        if (System.currentTimeMillis() - lastRedrawTime > REDRAW_INTERVAL) {
+      if (summaryOnly)
+        continue;
 
-          refresh();
-          lastRedrawTime = System.currentTimeMillis();
-        }
-      }
+      // Refresh every REDRAW_INTERVAL ms.
+      loader.refresh();
     }
-  }
-
-  /**
-   * Notify data set listener (on the EDT).
-   */
-  private void refresh() {
-    Platform.runLater(() -> fireDatasetChanged());
+    return true;
   }
 
   @Override
   public void cancel() {
     status = TaskStatus.CANCELED;
+    loader.cancel();
   }
 
   @Override
@@ -48,6 +48,7 @@ import io.github.mzmine.gui.chartbasics.chartthemes.EStandardChartTheme;
 import io.github.mzmine.gui.chartbasics.gui.javafx.EChartViewer;
 import io.github.mzmine.gui.chartbasics.listener.ZoomHistory;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.taskcontrol.Task;
 import javafx.scene.Cursor;
 import javafx.scene.control.MenuItem;
 import javafx.stage.Stage;
@@ -556,6 +557,10 @@ public class TICPlot extends EChartViewer {
     final int dataSetCount = plot.getDatasetCount();
     for (int index = 0; index < dataSetCount; index++) {
 
+      // Stop loading the removed data sets
+      if (plot.getDataset(index) instanceof Task) {
+        ((Task) plot.getDataset(index)).cancel();
+      }
       plot.setDataset(index, null);
     }
     numOfPeaks = 0;
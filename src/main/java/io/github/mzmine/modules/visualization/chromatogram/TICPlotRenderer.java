@@ -32,6 +32,8 @@ import org.jfree.chart.renderer.xy.XYItemRendererState;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.xy.XYDataset;
 
+import io.github.mzmine.gui.chartbasics.chartutils.XYItemDecimation;
+
 public class TICPlotRenderer extends XYLineAndShapeRenderer {
 
   /**
@@ -40,6 +42,9 @@ public class TICPlotRenderer extends XYLineAndShapeRenderer {
   private static final long serialVersionUID = 1L;
   private double transparency = 1.0f;
 
+  // Items which are visible at the current zoom
+  private transient XYItemDecimation decimation;
+
   public TICPlotRenderer() {
     super(true, false);
     setDrawSeriesLineAsPath(true);
@@ -50,10 +55,30 @@ public class TICPlotRenderer extends XYLineAndShapeRenderer {
     return (AlphaComposite.getInstance(type, (float) alpha));
   }
 
+  /**
+   * Selects the items which change the picture at the current zoom. The series are drawn as paths,
+   * so the lines can be decimated.
+   */
+  @Override
+  public XYItemRendererState initialise(Graphics2D g2, Rectangle2D dataArea, XYPlot plot,
+      XYDataset data, PlotRenderingInfo info) {
+    getDecimation().update(data, plot, dataArea, true, getDefaultShapesVisible());
+    return super.initialise(g2, dataArea, plot, data, info);
+  }
+
+  private XYItemDecimation getDecimation() {
+    if (decimation == null)
+      decimation = new XYItemDecimation();
+    return decimation;
+  }
+
   public void drawItem(Graphics2D g2, XYItemRendererState state, Rectangle2D dataArea,
       PlotRenderingInfo info, XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis,
       XYDataset dataset, int series, int item, CrosshairState crosshairState, int pass) {
 
+    if (!getDecimation().isDrawn(state, series, item))
+      return;
+
     g2.setComposite(makeComposite(transparency));
 
     super.drawItem(g2, state, dataArea, info, plot, domainAxis, rangeAxis, dataset, series, item,
@@ -101,4 +126,11 @@ public class TICPlotRenderer extends XYLineAndShapeRenderer {
 
   }
 
+  @Override
+  public Object clone() throws CloneNotSupportedException {
+    TICPlotRenderer clone = (TICPlotRenderer) super.clone();
+    clone.decimation = null;
+    return clone;
+  }
+
 }
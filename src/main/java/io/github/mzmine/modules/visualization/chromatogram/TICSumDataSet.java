@@ -30,12 +30,12 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.datamodel.ScanSummary;
+import io.github.mzmine.gui.chartbasics.ChartDataLoader;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.scans.ScanUtils;
-import javafx.application.Platform;
 
 /**
  * TIC visualizer data set. Sum of all TIC
@@ -50,12 +50,6 @@ public class TICSumDataSet extends AbstractXYZDataset implements Task {
   // rt bin for summing different files
   private final double RT_BIN = 0.001;
 
-  // Refresh interval (in milliseconds).
-  private static final long REDRAW_INTERVAL = 100L;
-
-  // Last time the data set was redrawn.
-  private static long lastRedrawTime = System.currentTimeMillis();
-
   private final RawDataFile[] dataFiles;
 
   private final @Nonnull List<SummedTICDataPoint> data;
@@ -65,9 +59,11 @@ public class TICSumDataSet extends AbstractXYZDataset implements Task {
   private double intensityMin;
   private double intensityMax;
 
-  private TaskStatus status;
+  private volatile TaskStatus status;
   private String errorMessage;
 
+  private final ChartDataLoader loader = new ChartDataLoader(this, this::fireDatasetChanged);
+
   // Plot type
   private TICPlotType plotType;
 
@@ -115,14 +111,16 @@ public class TICSumDataSet extends AbstractXYZDataset implements Task {
     calcTotalScans();
 
     // Start-up the refresh task.
-    MZmineCore.getTaskController().addTask(this, TaskPriority.HIGH);
+    loader.start();
   }
 
   private void calcTotalScans() {
     totalScans = 0;
     for (RawDataFile raw : dataFiles) {
-      int[] scans = raw.getScanNumbers(1, rangeRT);
-      totalScans += scans.length;
+      for (double rt : raw.getScanSummary(1).getRetentionTimes()) {
+        if (rangeRT.contains(rt))
+          totalScans++;
+      }
     }
   }
 
@@ -161,7 +159,7 @@ public class TICSumDataSet extends AbstractXYZDataset implements Task {
       if (status != TaskStatus.CANCELED) {
 
         // Always redraw when we add last value.
-        refresh();
+        loader.refreshNow();
 
         logger.info("TIC sum data calculated for " + rawFileString());
         status = TaskStatus.FINISHED;
@@ -225,40 +223,54 @@ public class TICSumDataSet extends AbstractXYZDataset implements Task {
     // all raw data files
     for (int r = 0; r < dataFiles.length; r++) {
       RawDataFile raw = dataFiles[r];
-      int[] scans = raw.getScanNumbers(1, rangeRT);
+      final ScanSummary summary = raw.getScanSummary(1);
+      final double rts[] = summary.getRetentionTimes();
       // Process each scan.
-      for (int index = 0; status != TaskStatus.CANCELED && index < scans.length; index++) {
-        // Current scan.
-        final Scan scan = raw.getScan(scans[index]);
-        double rt = scan.getRetentionTime();
+      for (int index = 0; status != TaskStatus.CANCELED && index < rts.length; index++) {
+        if (!rangeRT.contains(rts[index]))
+          continue;
+        double rt = rts[index];
         double mzBasePeak = 0;
         double intensityBasePeak = 0;
+        double tic = 0;
         double intensity = 0.0;
 
-        // Determine base peak value.
-        final DataPoint basePeak =
-            mzRange.encloses(scan.getDataPointMZRange()) ? scan.getHighestDataPoint()
-                : ScanUtils.findBasePeak(scan, mzRange);
-        if (basePeak != null) {
-          mzBasePeak = basePeak.getMZ();
-          intensityBasePeak = basePeak.getIntensity();
+        // Determine base peak and total ion count. The precomputed values are used, if the scan
+        // has no data points outside of the m/z range. Scans without data points in the m/z range
+        // are skipped. Otherwise the data points are read once and the m/z range is searched.
+        if (summary.isEnclosedBy(index, mzRange)) {
+          mzBasePeak = summary.getBasePeakMZs()[index];
+          intensityBasePeak = summary.getBasePeakIntensities()[index];
+          tic = summary.getTotalIonCurrents()[index];
+        } else if (!summary.isDisjointFrom(index, mzRange)) {
+          final Scan scan = raw.getScan(summary.getScanNumbers()[index]);
+          final DataPoint dataPoints[] = scan.getDataPoints();
+          final int first = ScanUtils.findFirstPeakWithin(dataPoints, mzRange);
+          final int last = first < 0 ? -1 : ScanUtils.findLastPeakWithin(dataPoints, mzRange);
+          for (int i = first; i >= 0 && i <= last; i++) {
+            tic += dataPoints[i].getIntensity();
+            if (dataPoints[i].getIntensity() > intensityBasePeak) {
+              mzBasePeak = dataPoints[i].getMZ();
+              intensityBasePeak = dataPoints[i].getIntensity();
+            }
+          }
         }
 
         // Determine peak intensity.
         if (plotType == TICPlotType.TIC) {
 
           // Total ion count.
-          intensity = mzRange.encloses(scan.getDataPointMZRange()) ? scan.getTIC()
-              : ScanUtils.calculateTIC(scan, mzRange);
+          intensity = tic;
 
-        } else if (plotType == TICPlotType.BASEPEAK && basePeak != null) {
+        } else if (plotType == TICPlotType.BASEPEAK) {
 
-          intensity = basePeak.getIntensity();
+          intensity = intensityBasePeak;
         }
 
         // search for fitting value to calc sum
         if (!data.isEmpty() && rt < data.get(data.size() - 1).getRetentionTime() + RT_BIN) {
-          for (int i = 0; i < data.size(); i++) {
+          // data points more than RT_BIN before rt can neither match nor follow rt
+          for (int i = findFirstDataPoint(rt - RT_BIN); i < data.size(); i++) {
             SummedTICDataPoint dp = data.get(i);
             // matches rt
             if (matchesRT(rt, dp.getRetentionTime())) {
@@ -285,18 +297,30 @@ public class TICSumDataSet extends AbstractXYZDataset implements Task {
         intensityMax = Math.max(intensity, intensityMax);
 
         // Refresh every REDRAW_INTERVAL ms.
-        synchronized (TICSumDataSet.class) {
-          if (System.currentTimeMillis() - lastRedrawTime > REDRAW_INTERVAL) {
-            refresh();
-            lastRedrawTime = System.currentTimeMillis();
-          }
-        }
+        loader.refresh();
 
         processedScans++;
       }
     }
   }
 
+  /**
+   * Binary search in the data points, which are sorted by retention time
+   *
+   * @return index of the first data point with a retention time >= rt
+   */
+  private int findFirstDataPoint(double rt) {
+    int low = 0, high = data.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (data.get(mid).getRetentionTime() < rt)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
   /**
    * difference smaller than RT_BIN?
    *
@@ -308,16 +332,10 @@ public class TICSumDataSet extends AbstractXYZDataset implements Task {
     return Math.abs(a - b) <= RT_BIN;
   }
 
-  /**
-   * Notify data set listener (on the EDT).
-   */
-  private void refresh() {
-    Platform.runLater(() -> fireDatasetChanged());
-  }
-
   @Override
   public void cancel() {
     status = TaskStatus.CANCELED;
+    loader.cancel();
   }
 
   @Override
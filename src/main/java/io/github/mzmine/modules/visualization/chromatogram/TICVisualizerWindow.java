@@ -413,6 +413,7 @@ public class TICVisualizerWindow extends Stage {
 
   public void removeRawDataFile(RawDataFile file) {
     TICDataSet dataset = ticDataSets.get(file);
+    dataset.cancel();
     ticPlot.getXYPlot().setDataset(ticPlot.getXYPlot().indexOf(dataset), null);
     ticDataSets.remove(file);
   }
@@ -23,7 +23,7 @@ import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.MassList;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.gui.chartbasics.ChartDataLoader;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
@@ -31,7 +31,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Vector;
-import javafx.application.Platform;
 import org.jfree.chart.labels.XYToolTipGenerator;
 import org.jfree.data.xy.AbstractXYDataset;
 import org.jfree.data.xy.XYDataset;
@@ -41,7 +40,9 @@ public class CombinedModuleDataset extends AbstractXYDataset implements Task, XY
   private RawDataFile rawDataFile;
   private Range<Double> totalRTRange, totalMZRange;
   private CombinedModuleVisualizerWindowController visualizer;
-  private TaskStatus status = TaskStatus.WAITING;
+  private volatile TaskStatus status = TaskStatus.WAITING;
+
+  private final ChartDataLoader loader = new ChartDataLoader(this, this::fireDatasetChanged);
   private int processedScans, scanNumbers[];
   private HashMap<Integer, Vector<CombinedModuleDataPoint>> dataSeries;
   int totalScans;
@@ -73,7 +74,7 @@ public class CombinedModuleDataset extends AbstractXYDataset implements Task, XY
     dataSeries.put(PRECURSOR_LEVEL, new Vector<CombinedModuleDataPoint>(totalScans));
     dataSeries.put(NEUTRALLOSS_LEVEL, new Vector<CombinedModuleDataPoint>(totalScans));
 
-    MZmineCore.getTaskController().addTask(this, TaskPriority.HIGH);
+    loader.start();
   }
 
   @Override
@@ -146,6 +147,7 @@ public class CombinedModuleDataset extends AbstractXYDataset implements Task, XY
         dataSeries.get(0).add(newPoint);
       }
       processedScans++;
+      loader.refresh();
     }
 
     refresh();
@@ -153,7 +155,7 @@ public class CombinedModuleDataset extends AbstractXYDataset implements Task, XY
   }
 
   private void refresh() {
-    Platform.runLater(this::fireDatasetChanged);
+    loader.refreshNow();
   }
 
   @Override
@@ -188,6 +190,7 @@ public class CombinedModuleDataset extends AbstractXYDataset implements Task, XY
   @Override
   public void cancel() {
     status = TaskStatus.CANCELED;
+    loader.cancel();
   }
 
   public void setStatus(TaskStatus newStatus) {
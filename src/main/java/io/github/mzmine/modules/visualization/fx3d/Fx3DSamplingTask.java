@@ -18,16 +18,25 @@
 
 package io.github.mzmine.modules.visualization.fx3d;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.Range;
 
 import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.gui.Desktop;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
@@ -36,6 +45,7 @@ import io.github.mzmine.util.ExceptionUtils;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.scans.ScanUtils.BinningType;
 import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.scene.paint.Color;
 
 /**
@@ -52,12 +62,29 @@ class Fx3DSamplingTask extends AbstractTask {
   // Data resolution on m/z and retention time axis
   private int rtResolution, mzResolution;
   private Random random = new Random();
-  private int retrievedScans = 0;
+  private volatile int retrievedScans = 0;
 
   // maximum value on Z axis
   private double maxBinnedIntensity;
 
   private Fx3DStageController controller;
+
+  // Recently sampled grids, re-opening a view of the same data does not sample again
+  private static final int MAX_CACHED_GRIDS = 16;
+  private static final Map<SamplingKey, SampledGrid> sampledGrids =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SamplingKey, SampledGrid> eldest) {
+          return size() > MAX_CACHED_GRIDS;
+        }
+      };
+
+  // The grids of files removed from the project are evicted right away
+  private static final ListChangeListener<RawDataFile> rawDataFilesListener =
+      change -> evictRemovedFiles(change.getList());
+  // Project whose raw data files are observed, guarded by sampledGrids
+  private static WeakReference<MZmineProject> observedProject = new WeakReference<>(null);
+
   private static final Color[] PEAK_COLORS = {Color.BLUE, Color.GREEN, Color.RED, Color.YELLOW,
       Color.DARKORANGE, Color.CYAN, Color.FUCHSIA, Color.GOLD, Color.AQUA, Color.BROWN,
       Color.CHARTREUSE, Color.CRIMSON, Color.DARKBLUE, Color.DARKMAGENTA};
@@ -106,26 +133,117 @@ class Fx3DSamplingTask extends AbstractTask {
 
     try {
 
-      final double rtStep = (rtRange.upperEndpoint() - rtRange.lowerEndpoint()) / rtResolution;
-
-      // create an array for all data points
-      float[][] intensityValues = new float[1][mzResolution * rtResolution];
-      boolean rtDataSet[] = new boolean[rtResolution];
+      // Check scan numbers.
+      if (scans.length == 0) {
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("No scans found in " + dataFile);
+        return;
+      }
 
-      // load scans
-      for (int scanIndex = 0; scanIndex < scans.length; scanIndex++) {
+      final SamplingKey key = new SamplingKey(dataFile, scans, mzRange, rtResolution, mzResolution);
+      SampledGrid grid;
+      synchronized (sampledGrids) {
+        observeCurrentProject();
+        grid = sampledGrids.get(key);
+      }
 
-        if (isCanceled())
+      if (grid == null) {
+        grid = sample();
+        if (grid == null)
           return;
+        synchronized (sampledGrids) {
+          // the file may have been removed while sampling
+          if (MZmineCore.getProjectManager().getCurrentProject().getRawDataFiles()
+              .contains(dataFile))
+            sampledGrids.put(key, grid);
+        }
+      } else {
+        retrievedScans = scans.length;
+      }
+
+      final float[][] finalIntensityValues = grid.intensityValues;
+      maxBinnedIntensity = grid.maxBinnedIntensity;
+
+      Fx3DRawDataFileDataset plotMesh =
+          new Fx3DRawDataFileDataset(dataFile, finalIntensityValues, rtResolution, mzResolution,
+              maxBinnedIntensity, dataFile.toString(), PEAK_COLORS[random.nextInt(14)]);
+
+      Platform.runLater(() -> {
+        controller.addDataset(plotMesh);
+      });
+
+    } catch (Throwable e) {
+      setStatus(TaskStatus.ERROR);
+      setErrorMessage("Error while sampling 3D data," + ExceptionUtils.exceptionToString(e));
+      return;
+    }
+
+    logger.info("Finished sampling 3D plot of " + dataFile);
+
+    setStatus(TaskStatus.FINISHED);
+
+  }
+
+  /**
+   * Observes the raw data files of the current project. If the project has changed since the last
+   * call, the grids of files that are not part of the current project are evicted.
+   */
+  private static void observeCurrentProject() {
+    final MZmineProject project = MZmineCore.getProjectManager().getCurrentProject();
+    final MZmineProject previous = observedProject.get();
+    if (project == previous)
+      return;
+
+    if (previous != null)
+      previous.getRawDataFiles().removeListener(rawDataFilesListener);
+    project.getRawDataFiles().addListener(rawDataFilesListener);
+    observedProject = new WeakReference<>(project);
+    evictRemovedFiles(project.getRawDataFiles());
+  }
+
+  private static void evictRemovedFiles(List<? extends RawDataFile> projectFiles) {
+    synchronized (sampledGrids) {
+      sampledGrids.keySet().removeIf(key -> !projectFiles.contains(key.dataFile));
+    }
+  }
+
+  /**
+   * Bins the scans into the RT x m/z grid. The scans of each RT bin are binned in parallel (each
+   * RT bin is one row of the grid, so no synchronization is needed), then the missing RT rows are
+   * interpolated and the grid is normalized.
+   *
+   * @return the sampled grid, or null if the task was canceled
+   */
+  private SampledGrid sample() {
+
+    final double rtStep = (rtRange.upperEndpoint() - rtRange.lowerEndpoint()) / rtResolution;
+
+    // group the scans by RT bin
+    final List<List<Scan>> binScans = new ArrayList<>(rtResolution);
+    for (int rtIndex = 0; rtIndex < rtResolution; rtIndex++)
+      binScans.add(new ArrayList<>());
+    for (Scan scan : scans) {
+      double rt = scan.getRetentionTime();
+      int scanBinIndex = (int) ((rt - rtRange.lowerEndpoint()) / rtStep);
+
+      // last scan falls into last bin
+      if (scanBinIndex == rtResolution) {
+        scanBinIndex--;
+      }
+      binScans.get(scanBinIndex).add(scan);
+    }
+
+    // [rt][m/z]
+    final float[][] intensityValues = new float[rtResolution][mzResolution];
+    final boolean rtDataSet[] = new boolean[rtResolution];
+    final AtomicInteger processedScans = new AtomicInteger(0);
 
-        Scan scan = scans[scanIndex];
-        final Desktop desktop = MZmineCore.getDesktop();
+    IntStream.range(0, rtResolution).parallel().forEach(rtIndex -> {
+      final float row[] = intensityValues[rtIndex];
+      for (Scan scan : binScans.get(rtIndex)) {
 
-        // Check scan numbers.
-        if (scans.length == 0) {
-          desktop.displayErrorMessage("No scans found");
+        if (isCanceled())
           return;
-        }
 
         DataPoint dataPoints[] = scan.getDataPoints();
         double[] scanMZValues = new double[dataPoints.length];
@@ -138,93 +256,126 @@ class Fx3DSamplingTask extends AbstractTask {
         double[] binnedIntensities = ScanUtils.binValues(scanMZValues, scanIntensityValues, mzRange,
             mzResolution, scan.getSpectrumType() != MassSpectrumType.CENTROIDED, BinningType.MAX);
 
-        int scanBinIndex;
-
-        double rt = scan.getRetentionTime();
-        scanBinIndex = (int) ((rt - rtRange.lowerEndpoint()) / rtStep);
-
-        // last scan falls into last bin
-        if (scanBinIndex == rtResolution) {
-          scanBinIndex--;
-        }
-
         for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++) {
-
-          int intensityValuesIndex = (rtResolution * mzIndex) + scanBinIndex;
-          if (binnedIntensities[mzIndex] > intensityValues[0][intensityValuesIndex]) {
-            intensityValues[0][intensityValuesIndex] = (float) binnedIntensities[mzIndex];
+          if (binnedIntensities[mzIndex] > row[mzIndex]) {
+            row[mzIndex] = (float) binnedIntensities[mzIndex];
           }
-          if (intensityValues[0][intensityValuesIndex] > maxBinnedIntensity)
-            maxBinnedIntensity = (double) binnedIntensities[mzIndex];
         }
 
-        rtDataSet[scanBinIndex] = true;
+        rtDataSet[rtIndex] = true;
+        retrievedScans = processedScans.incrementAndGet();
+      }
+    });
 
-        retrievedScans++;
+    if (isCanceled())
+      return null;
 
+    double maxIntensity = 0.0;
+    for (float row[] : intensityValues) {
+      for (float value : row) {
+        if (value > maxIntensity)
+          maxIntensity = value;
       }
+    }
 
-      // Interpolate missing values on the RT-axis
-      for (int rtIndex = 1; rtIndex < rtResolution - 1; rtIndex++) {
+    // Nearest RT rows with data before and after each row
+    final int prevIndices[] = new int[rtResolution];
+    final int nextIndices[] = new int[rtResolution];
+    int last = -1;
+    for (int rtIndex = 0; rtIndex < rtResolution; rtIndex++) {
+      prevIndices[rtIndex] = last;
+      if (rtDataSet[rtIndex])
+        last = rtIndex;
+    }
+    last = rtResolution;
+    for (int rtIndex = rtResolution - 1; rtIndex >= 0; rtIndex--) {
+      nextIndices[rtIndex] = last;
+      if (rtDataSet[rtIndex])
+        last = rtIndex;
+    }
 
-        // If the data was set, go to next RT line
-        if (rtDataSet[rtIndex])
-          continue;
-        int prevIndex, nextIndex;
-        for (prevIndex = rtIndex - 1; prevIndex >= 0; prevIndex--) {
-          if (rtDataSet[prevIndex])
-            break;
-        }
-        for (nextIndex = rtIndex + 1; nextIndex < rtResolution; nextIndex++) {
-          if (rtDataSet[nextIndex])
-            break;
-        }
+    // Interpolate missing values on the RT-axis
+    for (int rtIndex = 1; rtIndex < rtResolution - 1; rtIndex++) {
 
-        // If no neighboring data was found, give up
-        if ((prevIndex < 0) || (nextIndex >= rtResolution))
-          continue;
+      // If the data was set, go to next RT line
+      if (rtDataSet[rtIndex])
+        continue;
+      final int prevIndex = prevIndices[rtIndex];
+      final int nextIndex = nextIndices[rtIndex];
 
-        for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++) {
+      // If no neighboring data was found, give up
+      if ((prevIndex < 0) || (nextIndex >= rtResolution))
+        continue;
 
-          int valueIndex = (rtResolution * mzIndex) + rtIndex;
-          int nextValueIndex = (rtResolution * mzIndex) + nextIndex;
-          int prevValueIndex = (rtResolution * mzIndex) + prevIndex;
+      for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++) {
 
-          double prevValue = intensityValues[0][prevValueIndex];
-          double nextValue = intensityValues[0][nextValueIndex];
+        double prevValue = intensityValues[prevIndex][mzIndex];
+        double nextValue = intensityValues[nextIndex][mzIndex];
 
-          double slope = (nextValue - prevValue) / (nextIndex - prevIndex);
-          intensityValues[0][valueIndex] = (float) (prevValue + (slope * (rtIndex - prevIndex)));
+        double slope = (nextValue - prevValue) / (nextIndex - prevIndex);
+        intensityValues[rtIndex][mzIndex] = (float) (prevValue + (slope * (rtIndex - prevIndex)));
 
-        }
       }
+    }
 
-      float[][] finalIntensityValues = new float[rtResolution][mzResolution];
-      for (int rtIndex = 0; rtIndex < rtResolution; rtIndex++) {
-        for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++) {
-          int valueIndex = (rtResolution * mzIndex) + rtIndex;
-          finalIntensityValues[rtIndex][mzIndex] =
-              (float) (intensityValues[0][valueIndex] / maxBinnedIntensity);
-        }
-      }
-      Fx3DRawDataFileDataset plotMesh =
-          new Fx3DRawDataFileDataset(dataFile, finalIntensityValues, rtResolution, mzResolution,
-              maxBinnedIntensity, dataFile.toString(), PEAK_COLORS[random.nextInt(14)]);
+    // normalize
+    for (float row[] : intensityValues) {
+      for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++)
+        row[mzIndex] = (float) (row[mzIndex] / maxIntensity);
+    }
 
-      Platform.runLater(() -> {
-        controller.addDataset(plotMesh);
-      });
+    return new SampledGrid(intensityValues, maxIntensity);
+  }
 
-    } catch (Throwable e) {
-      setStatus(TaskStatus.ERROR);
-      setErrorMessage("Error while sampling 3D data," + ExceptionUtils.exceptionToString(e));
-      return;
+  /**
+   * Sampled and normalized intensities. The values are never modified after sampling, so the
+   * datasets of several views can share them.
+   */
+  private static class SampledGrid {
+
+    private final float[][] intensityValues;
+    private final double maxBinnedIntensity;
+
+    private SampledGrid(float[][] intensityValues, double maxBinnedIntensity) {
+      this.intensityValues = intensityValues;
+      this.maxBinnedIntensity = maxBinnedIntensity;
     }
+  }
 
-    logger.info("Finished sampling 3D plot of " + dataFile);
+  /**
+   * Data file (by identity), scans, m/z range and resolution of a sampled grid
+   */
+  private static class SamplingKey {
+
+    private final RawDataFile dataFile;
+    private final int scanNumbers[];
+    private final Range<Double> mzRange;
+    private final int rtResolution, mzResolution;
+
+    private SamplingKey(RawDataFile dataFile, Scan scans[], Range<Double> mzRange,
+        int rtResolution, int mzResolution) {
+      this.dataFile = dataFile;
+      this.scanNumbers = Arrays.stream(scans).mapToInt(Scan::getScanNumber).toArray();
+      this.mzRange = mzRange;
+      this.rtResolution = rtResolution;
+      this.mzResolution = mzResolution;
+    }
 
-    setStatus(TaskStatus.FINISHED);
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof SamplingKey))
+        return false;
+      SamplingKey other = (SamplingKey) obj;
+      return dataFile == other.dataFile && rtResolution == other.rtResolution
+          && mzResolution == other.mzResolution && mzRange.equals(other.mzRange)
+          && Arrays.equals(scanNumbers, other.scanNumbers);
+    }
 
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(dataFile), Arrays.hashCode(scanNumbers), mzRange,
+          rtResolution, mzResolution);
+    }
   }
 
 }
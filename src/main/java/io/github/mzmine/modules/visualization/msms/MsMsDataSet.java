@@ -19,14 +19,13 @@
 package io.github.mzmine.modules.visualization.msms;
 
 import java.awt.Color;
-import javafx.application.Platform;
 import org.jfree.data.xy.AbstractXYDataset;
 import com.google.common.collect.Range;
 
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.gui.chartbasics.ChartDataLoader;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskPriority;
@@ -53,7 +52,9 @@ class MsMsDataSet extends AbstractXYDataset implements Task {
   private double minPeakInt, maxIntensity;
   private Color[] colorValues;
 
-  private TaskStatus status = TaskStatus.WAITING;
+  private volatile TaskStatus status = TaskStatus.WAITING;
+
+  private final ChartDataLoader loader = new ChartDataLoader(this, this::fireDatasetChanged);
 
   MsMsDataSet(RawDataFile rawDataFile, Range<Double> rtRange, Range<Double> mzRange,
       IntensityType intensityType, NormalizationType normalizationType, Double minPeakInt,
@@ -80,7 +81,7 @@ class MsMsDataSet extends AbstractXYDataset implements Task {
     intensityValues = new double[totalmsmsScans];
     colorValues = new Color[totalmsmsScans];
 
-    MZmineCore.getTaskController().addTask(this, TaskPriority.HIGH);
+    loader.start();
 
   }
 
@@ -204,7 +205,7 @@ class MsMsDataSet extends AbstractXYDataset implements Task {
   }
 
   private void refresh() {
-    Platform.runLater(this::fireDatasetChanged);
+    loader.refreshNow();
   }
   @Override
   public int getSeriesCount() {
@@ -378,6 +379,7 @@ class MsMsDataSet extends AbstractXYDataset implements Task {
   @Override
   public void cancel() {
     status = TaskStatus.CANCELED;
+    loader.cancel();
   }
 
   @Override
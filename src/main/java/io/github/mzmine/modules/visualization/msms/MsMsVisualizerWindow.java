@@ -95,6 +95,9 @@ public class MsMsVisualizerWindow extends Stage {
     dataset = new MsMsDataSet(dataFile, rtRange, mzRange, intensityType, normalizationType,
         minPeakInt, this);
 
+    // Stop loading when the window is closed
+    setOnHiding(e -> dataset.cancel());
+
     IDAPlot = new MsMsPlot(dataFile, this, dataset, rtRange, mzRange);
     mainPane.setCenter(IDAPlot);
 
@@ -23,7 +23,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Vector;
 
-import javafx.application.Platform;
 import org.jfree.chart.labels.XYToolTipGenerator;
 import org.jfree.data.xy.AbstractXYDataset;
 import org.jfree.data.xy.XYDataset;
@@ -33,6 +32,7 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.gui.chartbasics.ChartDataLoader;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
@@ -48,7 +48,9 @@ class NeutralLossDataSet extends AbstractXYDataset implements Task, XYToolTipGen
   private Object xAxisType;
   private int scanNumbers[], totalScans, processedScans;
 
-  private TaskStatus status = TaskStatus.WAITING;
+  private volatile TaskStatus status = TaskStatus.WAITING;
+
+  private final ChartDataLoader loader = new ChartDataLoader(this, this::fireDatasetChanged);
 
   private HashMap<Integer, Vector<NeutralLossDataPoint>> dataSeries;
 
@@ -81,6 +83,13 @@ class NeutralLossDataSet extends AbstractXYDataset implements Task, XYToolTipGen
 
   }
 
+  /**
+   * Starts loading the data points in the background
+   */
+  void start() {
+    loader.start();
+  }
+
   @Override
   public void run() {
 
@@ -155,6 +164,7 @@ class NeutralLossDataSet extends AbstractXYDataset implements Task, XYToolTipGen
       }
 
       processedScans++;
+      loader.refresh();
 
     }
 
@@ -167,7 +177,7 @@ class NeutralLossDataSet extends AbstractXYDataset implements Task, XYToolTipGen
    * Notify data set listener (on the EDT).
    */
   private void refresh() {
-    Platform.runLater(() -> fireDatasetChanged());
+    loader.refreshNow();
   }
 
   public void updateOnRangeDataPoints(String rangeType) {
@@ -282,6 +292,7 @@ class NeutralLossDataSet extends AbstractXYDataset implements Task, XYToolTipGen
   @Override
   public void cancel() {
     setStatus(TaskStatus.CANCELED);
+    loader.cancel();
   }
 
   @Override
@@ -23,7 +23,6 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.WindowSettingsParameter;
-import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.util.javafx.FxIconUtil;
 import io.github.mzmine.util.javafx.WindowsMenu;
 import javafx.geometry.Orientation;
@@ -105,7 +104,10 @@ public class NeutralLossVisualizerWindow extends Stage {
 
     WindowsMenu.addWindowsMenu(scene);
 
-    MZmineCore.getTaskController().addTask(dataset, TaskPriority.HIGH);
+    dataset.start();
+
+    // Stop loading when the window is closed
+    setOnHiding(e -> dataset.cancel());
 
     updateTitle();
 
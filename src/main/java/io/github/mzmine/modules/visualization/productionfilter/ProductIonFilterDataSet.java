@@ -22,6 +22,7 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.gui.chartbasics.ChartDataLoader;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskPriority;
@@ -36,7 +37,6 @@ import java.util.List;
 import java.util.Vector;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import javafx.application.Platform;
 import org.jfree.chart.labels.XYToolTipGenerator;
 import org.jfree.data.xy.AbstractXYDataset;
 import org.jfree.data.xy.XYDataset;
@@ -58,7 +58,9 @@ class ProductIonFilterDataSet extends AbstractXYDataset implements Task, XYToolT
   private File fileName;
   private Double basePeakPercent;
 
-  private TaskStatus status = TaskStatus.WAITING;
+  private volatile TaskStatus status = TaskStatus.WAITING;
+
+  private final ChartDataLoader loader = new ChartDataLoader(this, this::fireDatasetChanged);
 
   private HashMap<Integer, Vector<ProductIonFilterDataPoint>> dataSeries;
 
@@ -107,6 +109,13 @@ class ProductIonFilterDataSet extends AbstractXYDataset implements Task, XYToolT
 
   }
 
+  /**
+   * Starts loading the data points in the background
+   */
+  void start() {
+    loader.start();
+  }
+
   public void run() {
 
     setStatus(TaskStatus.PROCESSING);
@@ -342,6 +351,7 @@ class ProductIonFilterDataSet extends AbstractXYDataset implements Task, XYToolT
       }
 
       processedScans++;
+      loader.refresh();
     }
 
     // Write output to csv file - for targeted feature detection module.
@@ -421,7 +431,7 @@ class ProductIonFilterDataSet extends AbstractXYDataset implements Task, XYToolT
   }
 
   private void refresh() {
-    Platform.runLater(this::fireDatasetChanged);
+    loader.refreshNow();
   }
 
   public void updateOnRangeDataPoints(String rangeType) {
@@ -536,6 +546,7 @@ class ProductIonFilterDataSet extends AbstractXYDataset implements Task, XYToolT
 
   public void cancel() {
     setStatus(TaskStatus.CANCELED);
+    loader.cancel();
   }
 
   public String getErrorMessage() {
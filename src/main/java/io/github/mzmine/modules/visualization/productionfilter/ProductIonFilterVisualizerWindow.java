@@ -24,7 +24,6 @@ import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.WindowSettingsParameter;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
-import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.util.javafx.FxIconUtil;
 import io.github.mzmine.util.javafx.WindowsMenu;
 import java.io.File;
@@ -108,7 +107,10 @@ public class ProductIonFilterVisualizerWindow extends Stage {
     toolBar.getItems().add(highlightPrecursorBtn);
     borderPane.setRight(toolBar);
 
-    MZmineCore.getTaskController().addTask(dataset, TaskPriority.HIGH);
+    dataset.start();
+
+    // Stop loading when the window is closed
+    setOnHiding(e -> dataset.cancel());
 
     updateTitle();
 
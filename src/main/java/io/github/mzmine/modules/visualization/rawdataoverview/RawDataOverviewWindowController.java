@@ -352,6 +352,11 @@ public class RawDataOverviewWindowController {
             TICDataSet dataset = new TICDataSet(rawDataFile,
                 scanSelection.getMatchingScans(rawDataFile), mzRange, ticWindow);
 
+            // Stop loading the EIC of the previously selected scan
+            if (plotTic.getDataset(1) instanceof TICDataSet) {
+              ((TICDataSet) plotTic.getDataset(1)).cancel();
+            }
+
             XYAreaRenderer renderer = new XYAreaRenderer();
             renderer.setSeriesPaint(0, neuColor);
 
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing;
+
+import java.util.List;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.identification.sumformulaprediction.DPPSumFormulaPredictionModule;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.isotopes.anyelementdeisotoper.DPPAnyElementIsotopeGrouperModule;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.isotopes.deisotoper.DPPIsotopeGrouperModule;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.massdetection.DPPMassDetectionModule;
+
+/**
+ * List of the data point processing modules. Modules are initialized lazily, so this list (and not
+ * the already initialized modules) defines which modules can be added to a processing queue.
+ */
+public class DataPointProcessingModulesList {
+
+  public static final List<Class<? extends DataPointProcessingModule>> MODULES =
+      List.of(DPPMassDetectionModule.class, DPPIsotopeGrouperModule.class,
+          DPPAnyElementIsotopeGrouperModule.class, DPPSumFormulaPredictionModule.class);
+
+}
@@ -22,7 +22,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Collection;
 import java.util.Vector;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
@@ -42,7 +41,6 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import io.github.mzmine.main.MZmineCore;
-import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
 import io.github.mzmine.parameters.ParameterSet;
@@ -60,9 +58,6 @@ public class DataPointProcessingQueue
   public static @Nonnull DataPointProcessingQueue loadfromXML(final @Nonnull Element xmlElement) {
     DataPointProcessingQueue queue = new DataPointProcessingQueue();
 
-    // Get the loaded modules.
-    final Collection<MZmineModule> allModules = MZmineCore.getAllModules();
-
     // Process the processing step elements.
     final NodeList nodes = xmlElement.getElementsByTagName(DATA_POINT_PROCESSING_STEP_ELEMENT);
     final int nodesLength = nodes.getLength();
@@ -73,26 +68,27 @@ public class DataPointProcessingQueue
       final String methodName = stepElement.getAttribute(METHOD_ELEMENT);
       logger.finest("loading method " + methodName);
 
-      for (MZmineModule module : allModules) {
-        if (module instanceof DataPointProcessingModule
-            && module.getClass().getName().equals(methodName)) {
-
-          // since the same module can be used in different ms levels,
-          // we need to clone the
-          // parameter set, so we can have different values for every
-          // ms level
-          ParameterSet parameterSet = MZmineCore.getConfiguration()
-              .getModuleParameters(module.getClass()).cloneParameterSet();
-
-          parameterSet.loadValuesFromXML(stepElement);
-          queue.add(new MZmineProcessingStepImpl<DataPointProcessingModule>(
-              (DataPointProcessingModule) module, parameterSet));
-          // add to treeView
-          break;
-        }
-
+      // modules are initialized lazily, so the module may not be loaded yet
+      final Class<? extends DataPointProcessingModule> moduleClass;
+      try {
+        moduleClass = Class.forName(methodName).asSubclass(DataPointProcessingModule.class);
+      } catch (ClassNotFoundException | ClassCastException e) {
+        logger.warning("Cannot load data point processing step " + methodName + ": " + e);
+        continue;
       }
-
+      final DataPointProcessingModule module = MZmineCore.getModuleInstance(moduleClass);
+      if (module == null)
+        continue;
+
+      // since the same module can be used in different ms levels,
+      // we need to clone the
+      // parameter set, so we can have different values for every
+      // ms level
+      ParameterSet parameterSet =
+          MZmineCore.getConfiguration().getModuleParameters(moduleClass).cloneParameterSet();
+
+      parameterSet.loadValuesFromXML(stepElement);
+      queue.add(new MZmineProcessingStepImpl<DataPointProcessingModule>(module, parameterSet));
     }
     return queue;
   }
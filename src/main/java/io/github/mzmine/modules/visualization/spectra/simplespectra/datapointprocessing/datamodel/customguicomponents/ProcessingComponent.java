@@ -43,11 +43,11 @@ import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
 import io.github.mzmine.main.MZmineCore;
-import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.DataPointProcessingManager;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.DataPointProcessingModule;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.DataPointProcessingModulesList;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.DataPointProcessingQueue;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.datamodel.DPPParameterValueWrapper;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.datamodel.MSLevel;
@@ -171,10 +171,10 @@ public class ProcessingComponent extends SwingNode implements ActionListener {
     }
 
     // add modules to their module category items
-    Collection<MZmineModule> moduleList = MZmineCore.getAllModules();
-    for (MZmineModule module : moduleList) {
-      if (module instanceof DataPointProcessingModule) {
-        DataPointProcessingModule dppm = (DataPointProcessingModule) module;
+    for (Class<? extends DataPointProcessingModule> moduleClass
+        : DataPointProcessingModulesList.MODULES) {
+      DataPointProcessingModule dppm = MZmineCore.getModuleInstance(moduleClass);
+      if (dppm != null) {
         // only add modules that have applicable ms levels
         // add each module as a child of the module category items
         for (DPPModuleCategoryTreeNode catItem : moduleCategories) {
@@ -34,6 +34,8 @@ import org.jfree.chart.renderer.xy.XYItemRendererState;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.xy.XYDataset;
 
+import io.github.mzmine.gui.chartbasics.chartutils.XYItemDecimation;
+
 public class ContinuousRenderer extends XYLineAndShapeRenderer {
 
   /**
@@ -51,6 +53,9 @@ public class ContinuousRenderer extends XYLineAndShapeRenderer {
 
   private boolean isTransparent;
 
+  // Items which are visible at the current zoom
+  private transient XYItemDecimation decimation;
+
   public ContinuousRenderer(Color color, boolean isTransparent) {
 
     this.isTransparent = isTransparent;
@@ -73,10 +78,30 @@ public class ContinuousRenderer extends XYLineAndShapeRenderer {
     setDrawSeriesLineAsPath(true);
   }
 
+  /**
+   * Selects the items which change the picture at the current zoom. The series are drawn as paths,
+   * so the lines can be decimated.
+   */
+  @Override
+  public XYItemRendererState initialise(Graphics2D g2, Rectangle2D dataArea, XYPlot plot,
+      XYDataset data, PlotRenderingInfo info) {
+    getDecimation().update(data, plot, dataArea, true, getDefaultShapesVisible());
+    return super.initialise(g2, dataArea, plot, data, info);
+  }
+
+  private XYItemDecimation getDecimation() {
+    if (decimation == null)
+      decimation = new XYItemDecimation();
+    return decimation;
+  }
+
   public void drawItem(Graphics2D g2, XYItemRendererState state, Rectangle2D dataArea,
       PlotRenderingInfo info, XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis,
       XYDataset dataset, int series, int item, CrosshairState crosshairState, int pass) {
 
+    if (!getDecimation().isDrawn(state, series, item))
+      return;
+
     if (isTransparent)
       g2.setComposite(alphaComp);
 
@@ -92,4 +117,11 @@ public class ContinuousRenderer extends XYLineAndShapeRenderer {
     return null;
   }
 
+  @Override
+  public Object clone() throws CloneNotSupportedException {
+    ContinuousRenderer clone = (ContinuousRenderer) super.clone();
+    clone.decimation = null;
+    return clone;
+  }
+
 }
@@ -27,30 +27,69 @@ import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.impl.SimpleDataPoint;
-import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.gui.chartbasics.ChartDataLoader;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.DataPointSorter;
 import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
-import javafx.application.Platform;
 
 class TwoDDataSet extends AbstractXYDataset implements Task {
 
   private static final long serialVersionUID = 1L;
 
+  /**
+   * Maximum number of m/z bins of the intensity overview that is kept for each scan
+   */
+  private static final int OVERVIEW_MAX_MZ_BINS = 1024;
+  private static final int OVERVIEW_MIN_MZ_BINS = 64;
+
+  /**
+   * Memory budget (bytes) for the overviews of all scans. Files with many scans get fewer bins.
+   */
+  private static final long OVERVIEW_MAX_BYTES = 32L * 1024 * 1024;
+
+  /**
+   * Overview intensities are stored as log(1 + intensity), scaled to the scan's base peak and
+   * quantized to this maximum (unsigned short), which is precise enough for the color scale
+   */
+  private static final int OVERVIEW_LEVELS = 0xffff;
+
+  /**
+   * The overview is used instead of the data points if the requested m/z range spans at least this
+   * number of bins, i.e., if we are zoomed out
+   */
+  private static final int OVERVIEW_MIN_BINS = 4;
+
+  /**
+   * Interval (ms) between plot updates while the scans are loaded
+   */
+  private static final long PROGRESS_UPDATE_INTERVAL = 1000;
+
   private RawDataFile rawDataFile;
 
   private double retentionTimes[];
   private double basePeaks[];
   private SoftReference<DataPoint[]> dataPointMatrix[];
 
+  /**
+   * Low resolution copy of each scan: maximum intensity in each of the overviewBins bins of the
+   * total m/z range, quantized (see OVERVIEW_LEVELS). Unlike the data points, the overview is kept
+   * until the window is closed, so the zoomed out plot can be rendered without reading the scans
+   * again.
+   */
+  private final short overviewIntensities[][];
+  private final int overviewBins;
+  private final double overviewBinWidth;
+
   private final Range<Double> totalRTRange, totalMZRange;
   private int totalScans, processedScans;
   private final Scan scans[];
 
-  private TaskStatus status = TaskStatus.WAITING;
+  private volatile TaskStatus status = TaskStatus.WAITING;
+
+  private final ChartDataLoader loader = new ChartDataLoader(this, this::fireDatasetChanged);
 
   public double curMaxIntensity;
   private ArrayList<Double> rtValuesInUserRange;
@@ -71,8 +110,13 @@ class TwoDDataSet extends AbstractXYDataset implements Task {
     dataPointMatrix = new SoftReference[totalScans];
     retentionTimes = new double[totalScans];
     basePeaks = new double[totalScans];
+    overviewIntensities = new short[totalScans][];
+    overviewBins = (int) Math.max(OVERVIEW_MIN_MZ_BINS, Math.min(OVERVIEW_MAX_MZ_BINS,
+        OVERVIEW_MAX_BYTES / Short.BYTES / Math.max(1, totalScans)));
+    overviewBinWidth =
+        (totalMZRange.upperEndpoint() - totalMZRange.lowerEndpoint()) / overviewBins;
 
-    MZmineCore.getTaskController().addTask(this, TaskPriority.HIGH);
+    loader.start();
 
   }
 
@@ -81,6 +125,8 @@ class TwoDDataSet extends AbstractXYDataset implements Task {
 
     status = TaskStatus.PROCESSING;
 
+    long lastUpdate = System.currentTimeMillis();
+
     for (int index = 0; index < totalScans; index++) {
 
       // Cancel?
@@ -93,13 +139,54 @@ class TwoDDataSet extends AbstractXYDataset implements Task {
       basePeaks[index] = (scanBasePeak == null ? 0 : scanBasePeak.getIntensity());
       DataPoint scanDataPoints[] = scan.getDataPoints();
       dataPointMatrix[index] = new SoftReference<DataPoint[]>(scanDataPoints);
+      overviewIntensities[index] = createOverview(scanDataPoints, basePeaks[index]);
       processedScans++;
-    }
 
-    Platform.runLater(() -> fireDatasetChanged());
+      // show the scans loaded so far
+      final long now = System.currentTimeMillis();
+      if (now - lastUpdate > PROGRESS_UPDATE_INTERVAL) {
+        lastUpdate = now;
+        loader.refreshNow();
+      }
+    }
 
     status = TaskStatus.FINISHED;
 
+    loader.refreshNow();
+
+  }
+
+  private short[] createOverview(DataPoint dataPoints[], double basePeak) {
+    if (overviewBinWidth <= 0 || basePeak <= 0)
+      return null;
+    final double scale = OVERVIEW_LEVELS / Math.log1p(basePeak);
+    final short overview[] = new short[overviewBins];
+    for (DataPoint dp : dataPoints) {
+      if (!totalMZRange.contains(dp.getMZ()) || dp.getIntensity() <= 0)
+        continue;
+      final int bin = Math.min(overviewBins - 1,
+          (int) ((dp.getMZ() - totalMZRange.lowerEndpoint()) / overviewBinWidth));
+      final int level =
+          (int) Math.min(OVERVIEW_LEVELS, Math.round(Math.log1p(dp.getIntensity()) * scale));
+      if (level > Short.toUnsignedInt(overview[bin]))
+        overview[bin] = (short) level;
+    }
+    return overview;
+  }
+
+  /**
+   * Releases the scan overviews, called when the window is closed
+   */
+  void dispose() {
+    cancel();
+    Arrays.fill(overviewIntensities, null);
+  }
+
+  /**
+   * @return true if all scans were loaded
+   */
+  boolean isLoaded() {
+    return status == TaskStatus.FINISHED;
   }
 
   /**
@@ -241,7 +328,7 @@ class TwoDDataSet extends AbstractXYDataset implements Task {
     for (int scanIndex = startScanIndex; ((scanIndex < searchRetentionTimes.length)
         && (searchRetentionTimes[scanIndex] <= rtRange.upperEndpoint())); scanIndex++) {
       // get the list of data points
-      DataPoint dataPoints[] = dataPointMatrix[scanIndex].get();
+      DataPoint dataPoints[] = getDataPoints(scanIndex);
       // Binary search for the mz values in the range you want
 
       DataPoint searchMZ = new SimpleDataPoint(mzRange.lowerEndpoint(), 0);
@@ -281,13 +368,49 @@ class TwoDDataSet extends AbstractXYDataset implements Task {
 
   private double upperEndpointIntensity(int dataPointMatrixIndex, Range<Double> mzRange,
       PlotMode plotMode) {
+
+    // zoomed out, use the overview instead of the data points
+    final short overview[] = overviewIntensities[dataPointMatrixIndex];
+    if ((overview != null) && (mzRange.upperEndpoint()
+        - mzRange.lowerEndpoint() >= OVERVIEW_MIN_BINS * overviewBinWidth)) {
+      double maxIntensity =
+          overviewIntensity(overview, basePeaks[dataPointMatrixIndex], mzRange);
+      // in profile mode, empty ranges are filled with the closest data point below
+      if (maxIntensity > 0 || plotMode == PlotMode.CENTROID)
+        return maxIntensity;
+    }
+
+    return upperEndpointIntensity(getDataPoints(dataPointMatrixIndex), mzRange, plotMode);
+  }
+
+  private double overviewIntensity(short overview[], double basePeak, Range<Double> mzRange) {
+    if (mzRange.upperEndpoint() < totalMZRange.lowerEndpoint()
+        || mzRange.lowerEndpoint() > totalMZRange.upperEndpoint())
+      return 0;
+    final double mzMin = totalMZRange.lowerEndpoint();
+    final int firstBin =
+        Math.max(0, (int) ((mzRange.lowerEndpoint() - mzMin) / overviewBinWidth));
+    final int lastBin = Math.min(overviewBins - 1,
+        (int) ((mzRange.upperEndpoint() - mzMin) / overviewBinWidth));
+    int maxLevel = 0;
+    for (int bin = firstBin; bin <= lastBin; bin++) {
+      final int level = Short.toUnsignedInt(overview[bin]);
+      if (level > maxLevel)
+        maxLevel = level;
+    }
+    if (maxLevel == 0)
+      return 0;
+    return Math.expm1(maxLevel * Math.log1p(basePeak) / OVERVIEW_LEVELS);
+  }
+
+  private DataPoint[] getDataPoints(int dataPointMatrixIndex) {
     DataPoint dataPoints[] = dataPointMatrix[dataPointMatrixIndex].get();
     if (dataPoints == null) {
       Scan scan = scans[dataPointMatrixIndex];
       dataPoints = scan.getDataPoints();
       dataPointMatrix[dataPointMatrixIndex] = new SoftReference<DataPoint[]>(dataPoints);
     }
-    return upperEndpointIntensity(dataPoints, mzRange, plotMode);
+    return dataPoints;
   }
 
   private double upperEndpointIntensity(DataPoint dataPoints[], Range<Double> mzRange,
@@ -338,6 +461,7 @@ class TwoDDataSet extends AbstractXYDataset implements Task {
   @Override
   public void cancel() {
     status = TaskStatus.CANCELED;
+    loader.cancel();
   }
 
   @Override
@@ -88,6 +88,10 @@ public class TwoDVisualizerWindow extends Stage {
     setScene(mainScene);
 
     dataset = new TwoDDataSet(dataFile, scans, rtRange, mzRange, this);
+
+    // Stop loading and release the scan overviews when the window is closed
+    setOnHiding(e -> dataset.dispose());
+
     if (parameters.getParameter(TwoDVisualizerParameters.plotType).getValue() == PlotType.FAST2D) {
       twoDPlot = new TwoDPlot(dataFile, this, dataset, rtRange, mzRange, "default");
     } else {
@@ -129,8 +129,10 @@ class TwoDXYPlot extends BaseXYPlot {
         image.setRGB(i, height - j - 1, pointColor.getRGB());
       }
 
-    // if we are zoomed out, save the values
-    if ((imageRTMin == totalRTRange.lowerEndpoint()) && (imageRTMax == totalRTRange.upperEndpoint())
+    // if we are zoomed out, save the values (only when all scans were loaded, the plot is
+    // updated while the dataset is loading)
+    if (dataset.isLoaded() && (imageRTMin == totalRTRange.lowerEndpoint())
+        && (imageRTMax == totalRTRange.upperEndpoint())
         && (imageMZMin == totalMZRange.lowerEndpoint())
         && (imageMZMax == totalMZRange.upperEndpoint())) {
       zoomOutBitmap = image;
@@ -25,6 +25,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.PeakList;
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.UserParameter;
 import javafx.application.Platform;
 import javafx.beans.property.ListProperty;
@@ -142,9 +143,7 @@ public class MZmineProjectImpl implements MZmineProject {
 
     assert newFile != null;
 
-    Platform.runLater(() -> {
-      rawDataFilesProperty.get().add(newFile);
-    });
+    runOnFxThread(() -> rawDataFilesProperty.get().add(newFile));
 
   }
 
@@ -153,15 +152,24 @@ public class MZmineProjectImpl implements MZmineProject {
 
     assert file != null;
 
-    Platform.runLater(() -> {
-      rawDataFilesProperty.get().remove(file);
-    });
+    runOnFxThread(() -> rawDataFilesProperty.get().remove(file));
 
     // Close the data file, which also removed the temporary data
     file.close();
 
   }
 
+  /**
+   * The project lists are bound to the GUI and must be changed on the JavaFX thread. In headless
+   * mode, the JavaFX toolkit is never started, so the change is applied directly.
+   */
+  private void runOnFxThread(Runnable r) {
+    if (MZmineCore.isHeadLessMode())
+      r.run();
+    else
+      Platform.runLater(r);
+  }
+
   @Override
   public RawDataFile[] getDataFiles() {
     return rawDataFilesProperty.get().toArray(new RawDataFile[0]);
@@ -176,9 +184,7 @@ public class MZmineProjectImpl implements MZmineProject {
   public void addPeakList(final PeakList peakList) {
 
     assert peakList != null;
-    Platform.runLater(() -> {
-      featureListsProperty.get().add(peakList);
-    });
+    runOnFxThread(() -> featureListsProperty.get().add(peakList));
 
   }
 
@@ -187,9 +193,7 @@ public class MZmineProjectImpl implements MZmineProject {
 
     assert peakList != null;
 
-    Platform.runLater(() -> {
-      featureListsProperty.get().remove(peakList);
-    });
+    runOnFxThread(() -> featureListsProperty.get().remove(peakList));
   }
 
   @Override
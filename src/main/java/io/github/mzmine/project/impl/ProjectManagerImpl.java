@@ -76,8 +76,9 @@ public class ProjectManagerImpl implements ProjectManager {
       loaderParams.getParameter(ProjectLoaderParameters.projectFile).setValue(projectFile);
     }
 
-    // Notify the GUI about project structure change
-    MZmineGUI.activateProject(project);
+    // Notify the GUI about project structure change. There is no GUI in headless mode.
+    if (!MZmineCore.isHeadLessMode())
+      MZmineGUI.activateProject(project);
 
   }
 
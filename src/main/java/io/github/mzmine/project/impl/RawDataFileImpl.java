@@ -45,6 +45,7 @@ import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.RawDataFileWriter;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.ScanSummary;
 import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import java.util.EnumSet;
 import java.util.stream.Collectors;
@@ -58,6 +59,12 @@ import java.util.stream.Collectors;
  * removeStoredDataPoints(), the dataPointsFile is not modified, the storage ID is just deleted from
  * the two TreeMaps. When the project is saved, the contents of the dataPointsFile are consolidated
  * - only data points referenced by the TreeMaps are saved (see the RawDataFileSaveHandler class).
+ *
+ * Files derived from another RawDataFileImpl (e.g., by scan filters) do not need to copy the data
+ * points of unchanged scans. Adding a StorableScan of another file links its stored data points
+ * (linkedDataPoints), so only new or modified scans are written to the temporary file. The source
+ * file keeps its temporary file until all files which link into it are closed. Saving the project
+ * writes the linked data points as part of the derived file.
  */
 public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
 
@@ -69,11 +76,20 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
   private final Hashtable<Integer, Range<Double>> dataMZRange, dataRTRange;
   private final Hashtable<Integer, Double> dataMaxBasePeakIntensity, dataMaxTIC;
   private final Hashtable<Integer, int[]> scanNumbersCache;
+  private final Hashtable<Integer, ScanSummary> scanSummaryCache;
 
   private ByteBuffer buffer = ByteBuffer.allocate(20000);
   private final TreeMap<Integer, Long> dataPointsOffsets;
   private final TreeMap<Integer, Integer> dataPointsLengths;
 
+  // Storage IDs of data points which are stored in another file
+  private final TreeMap<Integer, LinkedDataPoints> linkedDataPoints;
+
+  // Files whose data points are linked by this file and the number of files linking into this one
+  private final Set<RawDataFileImpl> linkedFiles = new HashSet<>();
+  private int linkingFiles = 0;
+  private boolean closed = false;
+
   // Temporary file for scan data storage
   private File dataPointsFileName;
   private RandomAccessFile dataPointsFile;
@@ -94,6 +110,7 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
 
     // Prepare the hashtables for scan numbers and data limits.
     scanNumbersCache = new Hashtable<Integer, int[]>();
+    scanSummaryCache = new Hashtable<Integer, ScanSummary>();
     dataMZRange = new Hashtable<Integer, Range<Double>>();
     dataRTRange = new Hashtable<Integer, Range<Double>>();
     dataMaxBasePeakIntensity = new Hashtable<Integer, Double>();
@@ -101,6 +118,7 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
     scans = new Hashtable<Integer, StorableScan>();
     dataPointsOffsets = new TreeMap<Integer, Long>();
     dataPointsLengths = new TreeMap<Integer, Integer>();
+    linkedDataPoints = new TreeMap<Integer, LinkedDataPoints>();
 
   }
 
@@ -324,6 +342,24 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
 
   }
 
+  /**
+   * @see io.github.mzmine.datamodel.RawDataFile#getScanSummary(int)
+   */
+  @Override
+  public @Nonnull ScanSummary getScanSummary(int msLevel) {
+    ScanSummary summary = scanSummaryCache.get(msLevel);
+    if (summary != null)
+      return summary;
+
+    final int scanNumbers[] = getScanNumbers(msLevel);
+    final Scan levelScans[] = new Scan[scanNumbers.length];
+    for (int i = 0; i < scanNumbers.length; i++)
+      levelScans[i] = scans.get(scanNumbers[i]);
+    summary = new ScanSummary(levelScans);
+    scanSummaryCache.put(msLevel, summary);
+    return summary;
+  }
+
   public synchronized int storeDataPoints(DataPoint dataPoints[]) throws IOException {
 
     if (dataPointsFile == null) {
@@ -333,11 +369,7 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
 
     final long currentOffset = dataPointsFile.length();
 
-    final int currentID;
-    if (!dataPointsOffsets.isEmpty())
-      currentID = dataPointsOffsets.lastKey() + 1;
-    else
-      currentID = 1;
+    final int currentID = getNextStorageID();
 
     final int numOfDataPoints = dataPoints.length;
 
@@ -370,8 +402,81 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
 
   }
 
+  private int getNextStorageID() {
+    int lastID = 0;
+    if (!dataPointsOffsets.isEmpty())
+      lastID = dataPointsOffsets.lastKey();
+    if (!linkedDataPoints.isEmpty())
+      lastID = Math.max(lastID, linkedDataPoints.lastKey());
+    return lastID + 1;
+  }
+
+  /**
+   * Links data points which are stored in another file, instead of storing a copy
+   *
+   * @return storage ID of the data points in this file
+   */
+  public synchronized int linkDataPoints(RawDataFileImpl source, int sourceID) throws IOException {
+    final Integer numOfDataPoints = source.getNumberOfStoredDataPoints(sourceID);
+    if (numOfDataPoints == null)
+      throw new IllegalArgumentException("Unknown storage ID " + sourceID);
+
+    if (linkedFiles.add(source))
+      source.addLinkingFile();
+
+    final int currentID = getNextStorageID();
+    linkedDataPoints.put(currentID, new LinkedDataPoints(source, sourceID));
+    dataPointsLengths.put(currentID, numOfDataPoints);
+    return currentID;
+  }
+
+  public synchronized boolean isLinkedDataPoints(int ID) {
+    return linkedDataPoints.containsKey(ID);
+  }
+
+  /**
+   * @return the number of data points stored under the ID, or null if the ID is unknown
+   */
+  public synchronized Integer getNumberOfStoredDataPoints(int ID) {
+    return dataPointsLengths.get(ID);
+  }
+
+  /**
+   * @return storage IDs of all data points of this file, including linked ones
+   */
+  public synchronized List<Integer> getStorageIDs() {
+    return new ArrayList<>(dataPointsLengths.keySet());
+  }
+
+  /**
+   * Reads the stored data points in their binary form (m/z and intensity as float pairs), e.g. to
+   * save them in a project. The buffer must have space for 8 bytes per data point.
+   */
+  public synchronized void readDataPointBytes(int ID, byte buffer[]) throws IOException {
+
+    final LinkedDataPoints link = linkedDataPoints.get(ID);
+    if (link != null) {
+      link.source.readDataPointBytes(link.sourceID, buffer);
+      return;
+    }
+
+    final Long currentOffset = dataPointsOffsets.get(ID);
+    final Integer numOfDataPoints = dataPointsLengths.get(ID);
+
+    if ((currentOffset == null) || (numOfDataPoints == null)) {
+      throw new IllegalArgumentException("Unknown storage ID " + ID);
+    }
+
+    dataPointsFile.seek(currentOffset);
+    dataPointsFile.readFully(buffer, 0, numOfDataPoints * 2 * 4);
+  }
+
   public synchronized DataPoint[] readDataPoints(int ID) throws IOException {
 
+    final LinkedDataPoints link = linkedDataPoints.get(ID);
+    if (link != null)
+      return link.source.readDataPoints(link.sourceID);
+
     final Long currentOffset = dataPointsOffsets.get(ID);
     final Integer numOfDataPoints = dataPointsLengths.get(ID);
 
@@ -409,15 +514,30 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
   public synchronized void removeStoredDataPoints(int ID) throws IOException {
     dataPointsOffsets.remove(ID);
     dataPointsLengths.remove(ID);
+    linkedDataPoints.remove(ID);
   }
 
   @Override
   public synchronized void addScan(Scan newScan) throws IOException {
 
-    // When we are loading the project, scan data file is already prepare
-    // and we just need store the reference
+    scanSummaryCache.clear();
+
     if (newScan instanceof StorableScan) {
-      scans.put(newScan.getScanNumber(), (StorableScan) newScan);
+      final StorableScan storableScan = (StorableScan) newScan;
+
+      // When we are loading the project, scan data file is already prepare
+      // and we just need store the reference
+      if (storableScan.getDataFile() == this) {
+        scans.put(newScan.getScanNumber(), storableScan);
+        return;
+      }
+
+      // Unchanged scan of another file, link its data points instead of writing a copy
+      final RawDataFileImpl source = (RawDataFileImpl) storableScan.getDataFile();
+      final int storageID = linkDataPoints(source, storableScan.getStorageID());
+      StorableScan linkedScan =
+          new StorableScan(newScan, this, storableScan.getNumberOfDataPoints(), storageID);
+      scans.put(newScan.getScanNumber(), linkedScan);
       return;
     }
 
@@ -436,8 +556,14 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
   @Override
   public synchronized RawDataFile finishWriting() throws IOException {
     for (StorableScan scan : scans.values()) {
-      scan.updateValues();
+      // Linked scans took over the values of the source scan
+      if (!linkedDataPoints.containsKey(scan.getStorageID()))
+        scan.updateValues();
     }
+    // The summary values are known now, chromatograms can be shown without reading the scans
+    scanSummaryCache.clear();
+    for (int msLevel : getMSLevels())
+      getScanSummary(msLevel);
     logger.finest("Writing of scans to file " + dataPointsFileName + " finished");
     return this;
   }
@@ -562,8 +688,46 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
     return polarityTypes.stream().collect(Collectors.toList());
   }
 
+  /**
+   * Closes the file. The temporary data points file is kept as long as other files link data points
+   * from it.
+   */
   @Override
-  public synchronized void close() {
+  public void close() {
+    final List<RawDataFileImpl> released;
+    synchronized (this) {
+      if (closed)
+        return;
+      closed = true;
+      if (linkingFiles > 0)
+        return;
+      released = deleteDataPointsFile();
+    }
+    // Release outside of the lock, the sources never lock the files linking into them
+    for (RawDataFileImpl source : released)
+      source.removeLinkingFile();
+  }
+
+  private synchronized void addLinkingFile() {
+    linkingFiles++;
+  }
+
+  private void removeLinkingFile() {
+    final List<RawDataFileImpl> released;
+    synchronized (this) {
+      linkingFiles--;
+      if (!closed || linkingFiles > 0)
+        return;
+      released = deleteDataPointsFile();
+    }
+    for (RawDataFileImpl source : released)
+      source.removeLinkingFile();
+  }
+
+  /**
+   * @return the files whose links were released
+   */
+  private List<RawDataFileImpl> deleteDataPointsFile() {
     try {
       if (dataPointsFileName != null) {
         dataPointsFile.close();
@@ -572,6 +736,21 @@ public class RawDataFileImpl implements RawDataFile, RawDataFileWriter {
     } catch (IOException e) {
       logger.warning("Could not close file " + dataPointsFileName + ": " + e.toString());
     }
+    final List<RawDataFileImpl> released = new ArrayList<>(linkedFiles);
+    linkedFiles.clear();
+    linkedDataPoints.clear();
+    return released;
+  }
+
+  private static class LinkedDataPoints {
+
+    private final RawDataFileImpl source;
+    private final int sourceID;
+
+    private LinkedDataPoints(RawDataFileImpl source, int sourceID) {
+      this.source = source;
+      this.sourceID = sourceID;
+    }
   }
 
   @Override
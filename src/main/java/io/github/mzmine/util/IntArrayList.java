@@ -0,0 +1,79 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.util;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import javax.annotation.Nonnull;
+
+/**
+ * Read-only list view of an int array. The values are stored as primitives and only boxed on
+ * access, which saves a lot of memory compared to a list of Integer objects (e.g., the scan numbers
+ * of millions of features).
+ */
+public class IntArrayList extends AbstractList<Integer> implements RandomAccess {
+
+  private final @Nonnull int[] values;
+
+  /**
+   * @param values backing array. It is not copied and must not be changed afterwards.
+   */
+  public IntArrayList(@Nonnull int[] values) {
+    this.values = values;
+  }
+
+  @Override
+  public Integer get(int index) {
+    return values[index];
+  }
+
+  public int getInt(int index) {
+    return values[index];
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    if (!(o instanceof Integer))
+      return -1;
+    final int value = (Integer) o;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == value)
+        return i;
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  /**
+   * @return a copy of the values
+   */
+  public int[] toIntArray() {
+    return values.clone();
+  }
+
+}
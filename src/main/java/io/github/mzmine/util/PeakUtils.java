@@ -53,9 +53,21 @@ public class PeakUtils {
    * @return String representation of the peak
    */
   public static String peakToString(Feature peak) {
+    return peakToString(peak, MZmineCore.getConfiguration().getMZFormat(),
+        MZmineCore.getConfiguration().getRTFormat());
+  }
+
+  /**
+   * Same as {@link #peakToString(Feature)}, with the given formats. Formats are not thread safe, so
+   * parallel callers pass their own copies.
+   * 
+   * @param peak Peak to be converted to String
+   * @param mzFormat m/z format
+   * @param timeFormat retention time format
+   * @return String representation of the peak
+   */
+  public static String peakToString(Feature peak, Format mzFormat, Format timeFormat) {
     StringBuffer buf = new StringBuffer();
-    Format mzFormat = MZmineCore.getConfiguration().getMZFormat();
-    Format timeFormat = MZmineCore.getConfiguration().getRTFormat();
     buf.append(mzFormat.format(peak.getMZ()));
     buf.append(" m/z @");
     buf.append(timeFormat.format(peak.getRT()));
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2006-2020 The MZmine Development Team
+ *
+ * This file is part of MZmine.
+ *
+ * MZmine is free software; you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * MZmine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with MZmine; if not,
+ * write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301
+ * USA
+ */
+
+package io.github.mzmine.util.scans;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+
+/**
+ * Sequential reader for the scans of a raw data file, for algorithms which process the scans in
+ * order and look at a window of neighbouring scans (e.g., smoothing in time). The decoded spectra
+ * are kept in a ring buffer, so each scan is read from the temporary file only once, and the
+ * following scans are read ahead on a background thread while the current ones are processed.
+ *
+ * The window must move forward: requesting a scan evicts the scans which are more than
+ * windowSize - 1 positions before it. Evicted scans can still be requested, but are read again
+ * without being buffered.
+ */
+public class ScanWindowReader implements AutoCloseable {
+
+  public static final int DEFAULT_READ_AHEAD = 16;
+
+  /**
+   * Decoded spectrum of a scan. The arrays must not be modified, they are shared by all users of
+   * the window.
+   */
+  public static final class Spectrum {
+
+    private final @Nullable Scan scan;
+    private final @Nonnull double mzValues[], intensityValues[];
+
+    private Spectrum(@Nullable Scan scan) {
+      this.scan = scan;
+      final DataPoint dataPoints[] = (scan != null) ? scan.getDataPoints() : new DataPoint[0];
+      mzValues = new double[dataPoints.length];
+      intensityValues = new double[dataPoints.length];
+      for (int i = 0; i < dataPoints.length; i++) {
+        mzValues[i] = dataPoints[i].getMZ();
+        intensityValues[i] = dataPoints[i].getIntensity();
+      }
+    }
+
+    /**
+     * @return the scan, or null if the data file does not contain the scan number
+     */
+    public @Nullable Scan getScan() {
+      return scan;
+    }
+
+    public @Nonnull double[] getMZValues() {
+      return mzValues;
+    }
+
+    public @Nonnull double[] getIntensityValues() {
+      return intensityValues;
+    }
+
+    public int getNumberOfDataPoints() {
+      return mzValues.length;
+    }
+
+    /**
+     * @return new data points of the spectrum
+     */
+    public @Nonnull DataPoint[] getDataPoints() {
+      final DataPoint dataPoints[] = new DataPoint[mzValues.length];
+      for (int i = 0; i < dataPoints.length; i++)
+        dataPoints[i] = new SimpleDataPoint(mzValues[i], intensityValues[i]);
+      return dataPoints;
+    }
+
+    /**
+     * @return copy of the scan which keeps the data points in memory, so processing the copy does
+     *         not read the data points from the raw data file again
+     */
+    public @Nullable Scan getScanCopy() {
+      if (scan == null)
+        return null;
+      return new SimpleScan(scan.getDataFile(), scan.getScanNumber(), scan.getMSLevel(),
+          scan.getRetentionTime(), scan.getMobility(), scan.getPrecursorMZ(),
+          scan.getPrecursorCharge(), scan.getFragmentScanNumbers(), getDataPoints(),
+          scan.getSpectrumType(), scan.getPolarity(), scan.getScanDefinition(),
+          scan.getScanningMZRange());
+    }
+  }
+
+  private final RawDataFile dataFile;
+  private final int scanNumbers[];
+  private final int readAhead;
+
+  // slot = index % capacity
+  private final Future<Spectrum> buffer[];
+  private final ExecutorService executor;
+
+  // next index which is submitted for reading
+  private int submitted = 0;
+
+  /**
+   * @param scanNumbers scans in processing order
+   * @param windowSize maximum number of consecutive scans which are used together
+   */
+  public ScanWindowReader(@Nonnull RawDataFile dataFile, @Nonnull int scanNumbers[],
+      int windowSize) {
+    this(dataFile, scanNumbers, windowSize, DEFAULT_READ_AHEAD);
+  }
+
+  /**
+   * @param scanNumbers scans in processing order
+   * @param windowSize maximum number of consecutive scans which are used together
+   * @param readAhead number of scans which are read ahead of the last requested scan
+   */
+  @SuppressWarnings("unchecked")
+  public ScanWindowReader(@Nonnull RawDataFile dataFile, @Nonnull int scanNumbers[],
+      int windowSize, int readAhead) {
+    this.dataFile = dataFile;
+    this.scanNumbers = scanNumbers;
+    this.readAhead = Math.max(0, readAhead);
+    this.buffer = new Future[Math.max(1, windowSize) + this.readAhead];
+    this.executor = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "Scan reader " + dataFile.getName());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  public int getNumberOfScans() {
+    return scanNumbers.length;
+  }
+
+  /**
+   * @param index position in the scan numbers array
+   * @return the decoded spectrum
+   */
+  public @Nonnull Spectrum get(int index) throws IOException {
+    if (index < 0 || index >= scanNumbers.length)
+      throw new IndexOutOfBoundsException("Scan index " + index);
+
+    // Already evicted, read without buffering
+    if (index < submitted - buffer.length)
+      return new Spectrum(dataFile.getScan(scanNumbers[index]));
+
+    // Read ahead, this overwrites the slots of the oldest scans
+    final int last = Math.min(scanNumbers.length - 1, index + readAhead);
+    while (submitted <= last) {
+      final int scanNumber = scanNumbers[submitted];
+      buffer[submitted % buffer.length] =
+          executor.submit(() -> new Spectrum(dataFile.getScan(scanNumber)));
+      submitted++;
+    }
+
+    try {
+      return buffer[index % buffer.length].get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading scan " + scanNumbers[index], e);
+    } catch (ExecutionException e) {
+      throw new IOException("Could not read scan " + scanNumbers[index], e.getCause());
+    }
+  }
+
+  /**
+   * Stops the read ahead thread. Must be called when the reader is no longer used.
+   */
+  @Override
+  public void close() {
+    // Do not interrupt a running read, only skip the pending ones
+    for (Future<Spectrum> f : buffer) {
+      if (f != null)
+        f.cancel(false);
+    }
+    executor.shutdown();
+  }
+
+}